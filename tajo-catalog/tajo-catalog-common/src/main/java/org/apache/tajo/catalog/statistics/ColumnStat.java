@@ -43,6 +43,8 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
   @Expose private Long numNulls = null;
   @Expose private Datum minValue = null;
   @Expose private Datum maxValue = null;
+  // the sketch from which numDistVals is estimated
+  private HyperLogLog distValSketch = null;
 
   public ColumnStat(Column column) {
     builder = ColumnStatProto.newBuilder();
@@ -131,6 +133,32 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     this.maxValue = maxValue;
   }
 
+  public boolean hasDistValSketch() {
+    return distValSketch != null || (viaProto ? proto : builder).hasDistValSketch();
+  }
+
+  /**
+   * It returns the sketch of the distinct values, which can be merged with the
+   * sketches of the other parts of the same column.
+   */
+  public HyperLogLog getDistValSketch() {
+    ColumnStatProtoOrBuilder p = viaProto ? proto : builder;
+    if (distValSketch != null) {
+      return this.distValSketch;
+    }
+    if (!p.hasDistValSketch()) {
+      return null;
+    }
+    this.distValSketch = HyperLogLog.fromByteArray(p.getDistValSketch().toByteArray());
+
+    return this.distValSketch;
+  }
+
+  public void setDistValSketch(HyperLogLog distValSketch) {
+    setModified();
+    this.distValSketch = distValSketch;
+  }
+
   public Long getNumNulls() {
     ColumnStatProtoOrBuilder p = viaProto ? proto : builder;
     if (numNulls != null) {
@@ -181,6 +209,7 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     stat.numNulls = numNulls;
     stat.minValue = minValue;
     stat.maxValue = maxValue;
+    stat.distValSketch = distValSketch != null ? distValSketch.copy() : null;
 
     return stat;
   }
@@ -210,6 +239,9 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     if (this.maxValue == null && p.hasMaxValue()) {
       this.maxValue = TupleUtil.createFromBytes(getColumn().getDataType(), p.getMaxValue().toByteArray());
     }
+    if (this.distValSketch == null && p.hasDistValSketch()) {
+      this.distValSketch = HyperLogLog.fromByteArray(p.getDistValSketch().toByteArray());
+    }
   }
 
   @Override
@@ -242,5 +274,8 @@ public class ColumnStat implements ProtoObject<ColumnStatProto>, Cloneable {
     if (this.maxValue != null) {
       builder.setMaxValue(ByteString.copyFrom(this.maxValue.asByteArray()));
     }
+    if (this.distValSketch != null) {
+      builder.setDistValSketch(ByteString.copyFrom(this.distValSketch.toByteArray()));
+    }
   }
 }
@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.catalog.statistics;
+
+import com.google.common.base.Preconditions;
+import org.apache.tajo.datum.Datum;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog is a sketch which estimates the number of distinct values of a
+ * column in a fixed amount of memory. It keeps 2^precision registers, and its
+ * standard error is about 1.04 / sqrt(2^precision).
+ *
+ * Two sketches of the same precision can be merged, so the sketches built by
+ * tasks are combined into the sketch of a whole table without re-reading it.
+ */
+public class HyperLogLog {
+  public static final int DEFAULT_PRECISION = 10;
+  private static final long SEED = 0x2d358dccaa6c78a5L;
+
+  private final int precision;
+  private final byte [] registers;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  public HyperLogLog(int precision) {
+    Preconditions.checkArgument(precision >= 4 && precision <= 16,
+        "precision must be between 4 and 16: " + precision);
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  private HyperLogLog(int precision, byte [] registers) {
+    this.precision = precision;
+    this.registers = registers;
+  }
+
+  public int getPrecision() {
+    return this.precision;
+  }
+
+  /**
+   * It adds a non-null value. The integer and floating point types are hashed
+   * from their numeric values, and the other types from their bytes.
+   */
+  public void offer(Datum datum) {
+    switch (datum.type()) {
+      case INT2:
+      case INT4:
+      case INT8:
+        offerHash(hash(datum.asInt8()));
+        break;
+      case FLOAT4:
+      case FLOAT8:
+        offerHash(hash(Double.doubleToLongBits(datum.asFloat8())));
+        break;
+      default:
+        offerHash(hash(datum.asByteArray()));
+    }
+  }
+
+  void offerHash(long hash) {
+    // the first bits choose a register, and the others give the rank.
+    int idx = (int) (hash >>> (Long.SIZE - precision));
+    long rest = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+    if (registers[idx] < rank) {
+      registers[idx] = rank;
+    }
+  }
+
+  public long cardinality() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte rank : registers) {
+      sum += 1.0d / (1L << rank);
+      if (rank == 0) {
+        zeros++;
+      }
+    }
+
+    double estimate = alpha(m) * m * m / sum;
+    // for small cardinalities, the linear counting is more accurate.
+    if (estimate <= 2.5d * m && zeros > 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16: return 0.673d;
+      case 32: return 0.697d;
+      case 64: return 0.709d;
+      default: return 0.7213d / (1 + 1.079d / m);
+    }
+  }
+
+  /**
+   * It merges another sketch into this sketch. After merging, this sketch
+   * estimates the number of distinct values of the union of both inputs.
+   */
+  public void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Cannot merge the sketches of different precisions: "
+          + precision + ", " + other.precision);
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (registers[i] < other.registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public HyperLogLog copy() {
+    return new HyperLogLog(precision, registers.clone());
+  }
+
+  public byte [] toByteArray() {
+    byte [] bytes = new byte[registers.length + 1];
+    bytes[0] = (byte) precision;
+    System.arraycopy(registers, 0, bytes, 1, registers.length);
+    return bytes;
+  }
+
+  public static HyperLogLog fromByteArray(byte [] bytes) {
+    int precision = bytes[0];
+    if (precision < 4 || precision > 16 || bytes.length != (1 << precision) + 1) {
+      throw new IllegalArgumentException("Invalid HyperLogLog bytes (length: "
+          + bytes.length + ")");
+    }
+    return new HyperLogLog(precision, Arrays.copyOfRange(bytes, 1, bytes.length));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof HyperLogLog) {
+      HyperLogLog other = (HyperLogLog) obj;
+      return precision == other.precision && Arrays.equals(registers, other.registers);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(registers);
+  }
+
+  /**
+   * The finalizer of MurmurHash3, which scatters the bits of a long value.
+   */
+  private static long hash(long value) {
+    long h = value ^ SEED;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * MurmurHash64A of a byte array
+   */
+  private static long hash(byte [] data) {
+    final long m = 0xc6a4a7935bd1e995L;
+    final int r = 47;
+    int length = data.length;
+    long h = SEED ^ (length * m);
+
+    int blocks = length >>> 3;
+    for (int i = 0; i < blocks; i++) {
+      int off = i << 3;
+      long k = (data[off] & 0xffL)
+          | (data[off + 1] & 0xffL) << 8
+          | (data[off + 2] & 0xffL) << 16
+          | (data[off + 3] & 0xffL) << 24
+          | (data[off + 4] & 0xffL) << 32
+          | (data[off + 5] & 0xffL) << 40
+          | (data[off + 6] & 0xffL) << 48
+          | (data[off + 7] & 0xffL) << 56;
+      k *= m;
+      k ^= k >>> r;
+      k *= m;
+      h ^= k;
+      h *= m;
+    }
+
+    int tail = blocks << 3;
+    switch (length & 7) {
+      case 7: h ^= (data[tail + 6] & 0xffL) << 48;
+      case 6: h ^= (data[tail + 5] & 0xffL) << 40;
+      case 5: h ^= (data[tail + 4] & 0xffL) << 32;
+      case 4: h ^= (data[tail + 3] & 0xffL) << 24;
+      case 3: h ^= (data[tail + 2] & 0xffL) << 16;
+      case 2: h ^= (data[tail + 1] & 0xffL) << 8;
+      case 1: h ^= (data[tail] & 0xffL);
+        h *= m;
+    }
+
+    h ^= h >>> r;
+    h *= m;
+    h ^= h >>> r;
+    return h;
+  }
+}
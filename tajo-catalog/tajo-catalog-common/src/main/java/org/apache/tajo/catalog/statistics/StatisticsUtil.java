@@ -48,6 +48,8 @@ public class StatisticsUtil {
     TableStat aggregated = new TableStat();
 
     ColumnStat [] css = null;
+    // the merged sketches of distinct values
+    HyperLogLog [] sketches = null;
     if (tableStats.size() > 0) {
       for (TableStat ts : tableStats) {
         // A TableStats cannot contain any ColumnStat if there is no output.
@@ -57,6 +59,7 @@ public class StatisticsUtil {
           for (int i = 0; i < css.length; i++) {
             css[i] = new ColumnStat(ts.getColumnStats().get(i).getColumn());
           }
+          sketches = new HyperLogLog[css.length];
           break;
         }
       }
@@ -76,6 +79,7 @@ public class StatisticsUtil {
           continue;
         }
         css[i].setNumDistVals(css[i].getNumDistValues() + cs.getNumDistValues());
+        sketches[i] = mergeSketch(sketches[i], cs);
         css[i].setNumNulls(css[i].getNumNulls() + cs.getNumNulls());
         if (!cs.minIsNotSet() && (css[i].minIsNotSet() ||
             css[i].getMinValue().compareTo(cs.getMinValue()) > 0)) {
@@ -96,9 +100,33 @@ public class StatisticsUtil {
 
     //aggregated.setAvgRows(aggregated.getNumRows() / tableStats.size());
     if (css != null) {
+      // the sum of distinct values is replaced by the estimation of the merged sketch.
+      for (int i = 0; i < css.length; i++) {
+        if (sketches[i] != null && sketches[i] != NOT_MERGEABLE) {
+          css[i].setDistValSketch(sketches[i]);
+          css[i].setNumDistVals(Math.min(sketches[i].cardinality(), aggregated.getNumRows()));
+        }
+      }
       aggregated.setColumnStats(Lists.newArrayList(css));
     }
 
     return aggregated;
   }
+
+  /** It marks a column for which some part has no sketch. */
+  private static final HyperLogLog NOT_MERGEABLE = new HyperLogLog(4);
+
+  private static HyperLogLog mergeSketch(HyperLogLog merged, ColumnStat cs) {
+    if (merged == NOT_MERGEABLE || !cs.hasDistValSketch()) {
+      return NOT_MERGEABLE;
+    }
+    if (merged == null) {
+      return cs.getDistValSketch().copy();
+    }
+    if (merged.getPrecision() != cs.getDistValSketch().getPrecision()) {
+      return NOT_MERGEABLE;
+    }
+    merged.merge(cs.getDistValSketch());
+    return merged;
+  }
 }
\ No newline at end of file
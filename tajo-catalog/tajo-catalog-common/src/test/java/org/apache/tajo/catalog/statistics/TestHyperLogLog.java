@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.catalog.statistics;
+
+import org.apache.tajo.datum.DatumFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestHyperLogLog {
+  private static void assertEstimate(long expected, long estimate) {
+    assertTrue("expected: " + expected + ", estimate: " + estimate,
+        Math.abs(expected - estimate) <= expected * 0.05);
+  }
+
+  @Test
+  public void testCardinality() {
+    HyperLogLog ints = new HyperLogLog();
+    HyperLogLog texts = new HyperLogLog();
+    for (int i = 0; i < 100000; i++) {
+      // each value appears twice
+      ints.offer(DatumFactory.createInt4(i % 50000));
+      texts.offer(DatumFactory.createText("value" + (i % 50000)));
+    }
+    assertEstimate(50000, ints.cardinality());
+    assertEstimate(50000, texts.cardinality());
+
+    HyperLogLog small = new HyperLogLog();
+    for (int i = 0; i < 100; i++) {
+      small.offer(DatumFactory.createFloat8(i % 10));
+    }
+    assertEquals(10, small.cardinality());
+    assertEquals(0, new HyperLogLog().cardinality());
+  }
+
+  @Test
+  public void testMerge() {
+    HyperLogLog all = new HyperLogLog();
+    HyperLogLog first = new HyperLogLog();
+    HyperLogLog second = new HyperLogLog();
+    for (int i = 0; i < 20000; i++) {
+      all.offer(DatumFactory.createInt8(i));
+      // both halves share 5000 values
+      if (i < 12500) {
+        first.offer(DatumFactory.createInt8(i));
+      }
+      if (i >= 7500) {
+        second.offer(DatumFactory.createInt8(i));
+      }
+    }
+
+    HyperLogLog merged = first.copy();
+    merged.merge(second);
+    assertEquals(all, merged);
+    assertEstimate(20000, merged.cardinality());
+    assertEstimate(12500, first.cardinality());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentPrecision() {
+    new HyperLogLog(10).merge(new HyperLogLog(12));
+  }
+
+  @Test
+  public void testByteArray() {
+    HyperLogLog sketch = new HyperLogLog(12);
+    for (int i = 0; i < 1000; i++) {
+      sketch.offer(DatumFactory.createInt4(i));
+    }
+    HyperLogLog restored = HyperLogLog.fromByteArray(sketch.toByteArray());
+    assertEquals(12, restored.getPrecision());
+    assertEquals(sketch, restored);
+    assertEquals(sketch.cardinality(), restored.cardinality());
+  }
+}
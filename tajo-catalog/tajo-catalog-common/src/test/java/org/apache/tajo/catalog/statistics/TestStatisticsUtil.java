@@ -20,10 +20,12 @@ package org.apache.tajo.catalog.statistics;
 
 import com.google.common.collect.Lists;
 import org.junit.Test;
+import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.proto.CatalogProtos.StatType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.DatumFactory;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class TestStatisticsUtil {
   @Test
@@ -65,4 +67,44 @@ public class TestStatisticsUtil {
     assertNotNull(StatisticsUtil.aggregateTableStat(
         Lists.newArrayList(stat1, stat2, stat3)));
   }
+
+  private static TableStat createStat(Column column, int start, int end) {
+    HyperLogLog sketch = new HyperLogLog();
+    for (int i = start; i < end; i++) {
+      sketch.offer(DatumFactory.createInt4(i));
+    }
+    ColumnStat columnStat = new ColumnStat(column);
+    columnStat.setNumDistVals(sketch.cardinality());
+    columnStat.setDistValSketch(sketch);
+    TableStat stat = new TableStat();
+    stat.setNumRows(end - start);
+    stat.addColumnStat(columnStat);
+    return stat;
+  }
+
+  @Test
+  public void testAggregateDistinctValues() {
+    Column column = new Column("id", Type.INT4);
+    // the two parts share 500 distinct values.
+    TableStat stat1 = createStat(column, 0, 1000);
+    TableStat stat2 = createStat(column, 500, 1500);
+
+    TableStat aggregated = StatisticsUtil.aggregateTableStat(
+        Lists.newArrayList(new TableStat(stat1.getProto()), new TableStat(stat2.getProto())));
+    ColumnStat columnStat = aggregated.getColumnStats().get(0);
+    assertTrue(columnStat.hasDistValSketch());
+    assertTrue(Math.abs(1500 - columnStat.getNumDistValues()) < 75);
+
+    // if a part has no sketch, the distinct values are summed up.
+    TableStat stat3 = new TableStat();
+    stat3.setNumRows(10);
+    ColumnStat noSketch = new ColumnStat(column);
+    noSketch.setNumDistVals(10);
+    stat3.addColumnStat(noSketch);
+    aggregated = StatisticsUtil.aggregateTableStat(Lists.newArrayList(stat1, stat3));
+    columnStat = aggregated.getColumnStats().get(0);
+    assertFalse(columnStat.hasDistValSketch());
+    assertEquals(stat1.getColumnStats().get(0).getNumDistValues() + 10,
+        columnStat.getNumDistValues().longValue());
+  }
 }
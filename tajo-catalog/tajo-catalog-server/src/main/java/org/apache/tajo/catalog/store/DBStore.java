@@ -27,6 +27,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.tajo.catalog.*;
 import org.apache.tajo.catalog.proto.CatalogProtos.*;
+import org.apache.tajo.catalog.statistics.ColumnStat;
+import org.apache.tajo.catalog.statistics.HyperLogLog;
 import org.apache.tajo.catalog.statistics.TableStat;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.conf.TajoConf;
@@ -56,6 +58,7 @@ public class DBStore implements CatalogStore {
   private static final String TB_OPTIONS = "OPTIONS";
   private static final String TB_INDEXES = "INDEXES";
   private static final String TB_STATISTICS = "STATS";
+  private static final String TB_COLUMN_STATS = "COLUMN_STATS";
   
   private static final String C_TABLE_ID = "TABLE_ID";
   
@@ -94,6 +97,10 @@ public class DBStore implements CatalogStore {
         createBaseTable();
       } else {
         LOG.info("The base tables of CatalogServer already is initialized.");
+        // the catalog created by an older version has no column statistics.
+        if (!checkInternalTable(TB_COLUMN_STATS)) {
+          createColumnStatsTable();
+        }
       }
     } catch (SQLException se) {
       throw new InternalException(
@@ -313,6 +320,37 @@ public class DBStore implements CatalogStore {
       stmt.executeBatch();
       LOG.info("Table '" + TB_STATISTICS + "' is created.");
 
+      createColumnStatsTable();
+    } finally {
+      wlock.unlock();
+    }
+  }
+
+  private void createColumnStatsTable() throws SQLException {
+    wlock.lock();
+    try {
+      Statement stmt = conn.createStatement();
+      String column_stats_ddl = "CREATE TABLE " + TB_COLUMN_STATS + "("
+          + C_TABLE_ID + " VARCHAR(256) NOT NULL REFERENCES TABLES (" + C_TABLE_ID + ") "
+          + "ON DELETE CASCADE, "
+          + "column_id INT NOT NULL, "
+          + "num_dist_vals BIGINT, "
+          + "num_nulls BIGINT, "
+          + "dist_val_sketch BLOB)";
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(column_stats_ddl);
+      }
+      stmt.addBatch(column_stats_ddl);
+
+      String idx_column_stats_table_name = "CREATE INDEX idx_column_stats_table_name ON "
+          + TB_COLUMN_STATS + " (" + C_TABLE_ID + ")";
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(idx_column_stats_table_name);
+      }
+      stmt.addBatch(idx_column_stats_table_name);
+      stmt.executeBatch();
+      stmt.close();
+      LOG.info("Table '" + TB_COLUMN_STATS + "' is created.");
     } finally {
       wlock.unlock();
     }
@@ -423,6 +461,7 @@ public class DBStore implements CatalogStore {
         }
         stmt.addBatch(sql);
         stmt.executeBatch();
+        addColumnStats(table);
       }
     } catch (SQLException se) {
       throw new IOException(se.getMessage(), se);
@@ -435,6 +474,85 @@ public class DBStore implements CatalogStore {
     }
   }
   
+  private void addColumnStats(final TableDesc table) throws SQLException {
+    List<ColumnStat> columnStats = table.getMeta().getStat().getColumnStats();
+    // the column statistics are kept in the order of the schema.
+    if (columnStats.size() != table.getMeta().getSchema().getColumnNum()) {
+      return;
+    }
+
+    String sql = "INSERT INTO " + TB_COLUMN_STATS + " (" + C_TABLE_ID
+        + ", column_id, num_dist_vals, num_nulls, dist_val_sketch) VALUES (?,?,?,?,?)";
+    PreparedStatement stmt = conn.prepareStatement(sql);
+    try {
+      int columnId = 0;
+      for (ColumnStat columnStat : columnStats) {
+        stmt.setString(1, table.getId());
+        stmt.setInt(2, columnId);
+        if (columnStat.getNumDistValues() != null) {
+          stmt.setLong(3, columnStat.getNumDistValues());
+        } else {
+          stmt.setNull(3, Types.BIGINT);
+        }
+        if (columnStat.getNumNulls() != null) {
+          stmt.setLong(4, columnStat.getNumNulls());
+        } else {
+          stmt.setNull(4, Types.BIGINT);
+        }
+        if (columnStat.hasDistValSketch()) {
+          stmt.setBytes(5, columnStat.getDistValSketch().toByteArray());
+        } else {
+          stmt.setNull(5, Types.BLOB);
+        }
+        stmt.addBatch();
+        columnId++;
+      }
+      stmt.executeBatch();
+    } finally {
+      stmt.close();
+    }
+  }
+
+  private void getColumnStats(final String name, final Schema schema,
+                              final TableStat stat) throws SQLException {
+    String sql = "SELECT column_id, num_dist_vals, num_nulls, dist_val_sketch from "
+        + TB_COLUMN_STATS + " WHERE " + C_TABLE_ID + "='" + name + "' ORDER by column_id asc";
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(sql);
+    }
+    Statement stmt = conn.createStatement();
+    ResultSet res = stmt.executeQuery(sql);
+    try {
+      List<ColumnStat> columnStats = new ArrayList<ColumnStat>();
+      while (res.next()) {
+        int columnId = res.getInt("column_id");
+        if (columnId != columnStats.size() || columnId >= schema.getColumnNum()) {
+          return;
+        }
+        ColumnStat columnStat = new ColumnStat(schema.getColumn(columnId));
+        long numDistVals = res.getLong("num_dist_vals");
+        if (!res.wasNull()) {
+          columnStat.setNumDistVals(numDistVals);
+        }
+        long numNulls = res.getLong("num_nulls");
+        if (!res.wasNull()) {
+          columnStat.setNumNulls(numNulls);
+        }
+        byte [] sketch = res.getBytes("dist_val_sketch");
+        if (sketch != null) {
+          columnStat.setDistValSketch(HyperLogLog.fromByteArray(sketch));
+        }
+        columnStats.add(columnStat);
+      }
+      if (columnStats.size() == schema.getColumnNum()) {
+        stat.setColumnStats(columnStats);
+      }
+    } finally {
+      res.close();
+      stmt.close();
+    }
+  }
+
   private String columnToSQL(final int tid, final TableDesc desc, 
       final int columnId, final Column col) {
     String sql =
@@ -539,6 +657,23 @@ public class DBStore implements CatalogStore {
         }
       }
 
+      try {
+        sql = "DELETE FROM " + TB_COLUMN_STATS +
+            " WHERE " + C_TABLE_ID + " = '" + name + "'";
+        LOG.info(sql);
+        stmt = conn.createStatement();
+        stmt.execute(sql);
+      } catch (SQLException se) {
+        throw new IOException(se);
+      } finally {
+        try {
+          if (stmt != null) {
+            stmt.close();
+          }
+        } catch (SQLException e) {
+        }
+      }
+
       try {
         sql = "DELETE FROM " + TB_STATISTICS +
             " WHERE " + C_TABLE_ID + " = '" + name + "'";
@@ -682,6 +817,14 @@ public class DBStore implements CatalogStore {
         res.close();
       }
 
+      if (stat != null) {
+        try {
+          getColumnStats(name, schema, stat);
+        } catch (SQLException se) {
+          throw new IOException(se);
+        }
+      }
+
       TableMeta meta = new TableMetaImpl(schema, storeType, options);
       if (stat != null) {
         meta.setStat(stat);
@@ -26,10 +26,13 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.catalog.statistics.ColumnStat;
+import org.apache.tajo.catalog.statistics.HyperLogLog;
 import org.apache.tajo.catalog.statistics.TableStat;
 import org.apache.tajo.catalog.store.DBStore;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.util.CommonTestingUtil;
 
 import java.io.File;
@@ -111,6 +114,49 @@ public class TestDBStore {
     store.deleteTable(tableName);
   }
   
+  @Test
+  public final void testColumnStats() throws Exception {
+    Schema schema = new Schema();
+    schema.addColumn("colstats.id", Type.INT4)
+    .addColumn("colstats.name", Type.TEXT);
+
+    String tableName = "colstats";
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+
+    HyperLogLog sketch = new HyperLogLog();
+    for (int i = 0; i < 1000; i++) {
+      sketch.offer(DatumFactory.createInt4(i));
+    }
+    ColumnStat idStat = new ColumnStat(schema.getColumn(0));
+    idStat.setNumDistVals(sketch.cardinality());
+    idStat.setNumNulls(0);
+    idStat.setDistValSketch(sketch);
+    ColumnStat nameStat = new ColumnStat(schema.getColumn(1));
+    nameStat.setNumDistVals(10);
+    nameStat.setNumNulls(5);
+
+    TableStat stat = new TableStat();
+    stat.setNumRows(1000);
+    stat.setNumBytes(4096);
+    stat.addColumnStat(idStat);
+    stat.addColumnStat(nameStat);
+    meta.setStat(stat);
+
+    store.addTable(new TableDescImpl(tableName, meta, new Path("/colstats")));
+    TableStat retrieved = store.getTable(tableName).getMeta().getStat();
+    assertEquals(2, retrieved.getColumnStats().size());
+    ColumnStat retrievedId = retrieved.getColumnStats().get(0);
+    assertEquals(sketch.cardinality(), retrievedId.getNumDistValues().longValue());
+    assertEquals(sketch, retrievedId.getDistValSketch());
+    ColumnStat retrievedName = retrieved.getColumnStats().get(1);
+    assertEquals(10, retrievedName.getNumDistValues().longValue());
+    assertEquals(5, retrievedName.getNumNulls().longValue());
+    assertFalse(retrievedName.hasDistValSketch());
+
+    store.deleteTable(tableName);
+    assertFalse(store.existTable(tableName));
+  }
+
   @Test
   public final void testGetAllTableNames() throws Exception {
     Schema schema = new Schema();
@@ -84,6 +84,24 @@ public class TajoConf extends YarnConfiguration {
     /** how many launching TaskRunners in parallel */
     AM_TASKRUNNER_LAUNCH_PARALLEL_NUM("tajo.master.taskrunnerlauncher.parallel.num", 16),
 
+    //////////////////////////////////
+    // Task Runner
+    //////////////////////////////////
+    /** how many tasks a TaskRunner runs concurrently (0 means it is sized to cores and memory) */
+    TASKRUNNER_SLOTS("tajo.taskrunner.slots", 0),
+    /** the heap a task slot needs (the sorts, joins and aggregations of a task share the heap per slot) */
+    TASKRUNNER_SLOT_MEMORY("tajo.taskrunner.slot.memory.mb", 256),
+    /** how many task requests a TaskRunner keeps ahead of its free slots */
+    TASKRUNNER_PREFETCH_NUM("tajo.taskrunner.prefetch.num", 1),
+    /** how many keep-alive connections the shuffle fetcher opens to each pull server */
+    SHUFFLE_FETCHER_CONNECTIONS_PER_HOST("tajo.shuffle.fetcher.connections-per-host", 2),
+    /** how many I/O threads the shuffle fetcher shares across all fetches */
+    SHUFFLE_FETCHER_IO_THREADS("tajo.shuffle.fetcher.io-threads", 2),
+    /** whether a task scans the fetched data while they arrive, instead of storing them first */
+    SHUFFLE_STREAMING_ENABLED("tajo.shuffle.streaming.enable", false),
+    /** how much of the fetched data a streaming task keeps in memory before spilling them */
+    SHUFFLE_STREAMING_MEMORY("tajo.shuffle.streaming.memory.mb", 64),
+
 
 
     //////////////////////////////////
@@ -91,11 +109,16 @@ public class TajoConf extends YarnConfiguration {
     //////////////////////////////////
     PULLSERVER_PORT("tajo.pullserver.port", 0),
     SHUFFLE_SSL_ENABLED_KEY("tajo.pullserver.ssl.enabled", false),
+    /** how many opened range indexes the pull server keeps to serve the range requests */
+    PULLSERVER_INDEX_CACHE_SIZE("tajo.pullserver.index.cache.size", 256),
 
     //////////////////////////////////
     // Storage Configuration
     //////////////////////////////////
     RAWFILE_SYNC_INTERVAL("rawfile.sync.interval", null),
+    /** whether RCFile and RowFile write the min/max values of each block into their footers */
+    STORAGE_ZONEMAP_ENABLED("tajo.storage.zonemap.enable", true),
+    ROWFILE_ZONEMAP_BLOCK_SIZE("tajo.storage.rowfile.zonemap.block-size", 1048576),
     // for RCFile
     HIVEUSEEXPLICITRCFILEHEADER("tajo.exec.rcfile.use.explicit.header", true),
 
@@ -103,7 +126,16 @@ public class TajoConf extends YarnConfiguration {
     //////////////////////////////////
     // Physical Executors
     //////////////////////////////////
-    EXT_SORT_BUFFER("tajo.extsort.buffer", 400000),
+    EXT_SORT_BUFFER_SIZE("tajo.extsort.buffer.mb", 200),
+    EXT_SORT_FANIN("tajo.extsort.fanin", 64),
+    TOPN_MAX_ROWS("tajo.topn.max-rows", 100000),
+    HASH_JOIN_MEMORY("tajo.join.hash.memory.mb", 128),
+    HASH_JOIN_PARTITION_NUM("tajo.join.hash.partitions", 32),
+    HASH_AGGREGATION_MEMORY("tajo.aggregation.hash.memory.mb", 256),
+    HASH_AGGREGATION_PARTITION_NUM("tajo.aggregation.hash.partitions", 32),
+    EXEC_VECTORIZED("tajo.exec.vectorized.enable", true),
+    EXEC_CODEGEN("tajo.exec.codegen.enable", true),
+    SHUFFLE_FILE_FORMAT("tajo.shuffle.file-format", "RAW"),
     BROADCAST_JOIN_THRESHOLD("tajo.join.broadcast.threshold", (long)5 * 1048576),
 
     //////////////////////////////////////////
@@ -118,6 +150,17 @@ public class TajoConf extends YarnConfiguration {
     SORT_PARTITION_VOLUME("tajo.sort.part-volume.mb", 256),
     AGGREGATION_PARTITION_VOLUME("tajo.aggregation.part-volume.mb", 256),
 
+    SORT_SAMPLE_SIZE("tajo.sort.sample.size", 1000),
+
+    // speculative execution of straggler tasks
+    SPECULATIVE_EXECUTION_ENABLED("tajo.task.speculative.enable", true),
+    SPECULATIVE_SLOWDOWN("tajo.task.speculative.slowdown", 2.0f),
+    SPECULATIVE_MAX_RATIO("tajo.task.speculative.max-ratio", 0.1f),
+
+    // pipelined exchange between execution blocks
+    /** whether the producer tasks of a hash shuffle push their output to running consumer tasks */
+    SHUFFLE_PIPELINED_ENABLED("tajo.shuffle.pipelined.enable", false),
+
     //////////////////////////////////
     // The Below is reserved
     //////////////////////////////////
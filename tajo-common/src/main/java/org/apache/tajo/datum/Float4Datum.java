@@ -272,6 +272,10 @@ public class Float4Datum extends NumericDatum {
     }
   }
 
+  public void setValue(float val) {
+    this.val = val;
+  }
+
   @Override
   public void inverseSign() {
     this.val = - val;    
@@ -263,6 +263,10 @@ public class Float8Datum extends NumericDatum {
         throw new InvalidOperationException(datum.type());
     }
   }
+
+  public void setValue(double val) {
+    this.val = val;
+  }
   
   @Override
   public void inverseSign() {   
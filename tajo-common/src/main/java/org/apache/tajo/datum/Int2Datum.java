@@ -262,6 +262,10 @@ public class Int2Datum extends NumericDatum {
     }
   }
 
+  public void setValue(short val) {
+    this.val = val;
+  }
+
   @Override
   public void inverseSign() {
     this.val = (short) -val;
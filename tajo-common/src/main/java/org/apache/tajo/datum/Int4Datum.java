@@ -267,6 +267,10 @@ public class Int4Datum extends NumericDatum {
     }
   }
 
+  public void setValue(int val) {
+    this.val = val;
+  }
+
   @Override
   public void inverseSign() {
     this.val = - val;
@@ -273,6 +273,10 @@ public class Int8Datum extends NumericDatum {
     }
   }
 
+  public void setValue(long val) {
+    this.val = val;
+  }
+
   @Override
   public void inverseSign() {
     this.val = -val;
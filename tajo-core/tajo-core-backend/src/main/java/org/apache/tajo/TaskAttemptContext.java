@@ -29,8 +29,11 @@ import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.storage.Fragment;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 
 
@@ -50,10 +53,14 @@ public class TaskAttemptContext {
   private CountDownLatch doneFetchPhaseSignal;
   private float progress = 0;
   private Map<Integer, String> repartitions;
+  private Map<Integer, Long> repartitionVolumes;
   private File fetchIn;
-  private boolean stopped = false;
+  private volatile boolean stopped = false;
   private boolean interQuery = false;
   private Path outputPath;
+  private List<byte []> keySamples;
+  private final Map<String, ReadableByteChannel> shuffleChannels =
+      new ConcurrentHashMap<String, ReadableByteChannel>();
 
   public TaskAttemptContext(TajoConf conf, final QueryUnitAttemptId queryId,
                             final Fragment[] fragments,
@@ -73,6 +80,7 @@ public class TaskAttemptContext {
 
     this.workDir = workDir;
     this.repartitions = Maps.newHashMap();
+    this.repartitionVolumes = Maps.newHashMap();
     
     state = TaskAttemptState.TA_PENDING;
   }
@@ -101,6 +109,22 @@ public class TaskAttemptContext {
   public TableStat getResultStats() {
     return this.resultStats;
   }
+
+  public boolean hasKeySamples() {
+    return keySamples != null;
+  }
+
+  /**
+   * It sets the sort keys sampled from the output of this task.
+   * They are encoded by RowStoreEncoder.
+   */
+  public void setKeySamples(List<byte []> keySamples) {
+    this.keySamples = keySamples;
+  }
+
+  public List<byte []> getKeySamples() {
+    return this.keySamples;
+  }
   
   public boolean isStopped() {
     return this.stopped;
@@ -124,6 +148,14 @@ public class TaskAttemptContext {
   
   public void stop() {
     this.stopped = true;
+    // wakes up the scanners waiting for the fetched data
+    for (ReadableByteChannel channel : shuffleChannels.values()) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn(e);
+      }
+    }
   }
   
   public void addFetchPhase(int count, File fetchIn) {
@@ -143,14 +175,42 @@ public class TaskAttemptContext {
   public CountDownLatch getFetchLatch() {
     return doneFetchPhaseSignal;
   }
+
+  /**
+   * It sets the table to be scanned from the channel of fetched data. Closing
+   * the channel wakes up the scanner waiting for the data.
+   */
+  public void addShuffleChannel(String tableId, ReadableByteChannel channel) {
+    shuffleChannels.put(tableId, channel);
+  }
+
+  public boolean hasShuffleChannel(String tableId) {
+    return shuffleChannels.containsKey(tableId);
+  }
+
+  public ReadableByteChannel getShuffleChannel(String tableId) {
+    return shuffleChannels.get(tableId);
+  }
   
   public void addRepartition(int partKey, String path) {
     repartitions.put(partKey, path);
   }
   
+  public void addRepartition(int partKey, String path, long volume) {
+    repartitions.put(partKey, path);
+    repartitionVolumes.put(partKey, volume);
+  }
+  
   public Iterator<Entry<Integer,String>> getRepartitions() {
     return repartitions.entrySet().iterator();
   }
+
+  /**
+   * @return the size of a partition in bytes, or null if it is unknown.
+   */
+  public Long getRepartitionVolume(int partKey) {
+    return repartitionVolumes.get(partKey);
+  }
   
   public void changeFragment(String tableId, Fragment [] fragments) {
     fragmentMap.remove(tableId);
@@ -25,7 +25,9 @@ import org.apache.tajo.catalog.function.AggFunction;
 import org.apache.tajo.catalog.function.FunctionContext;
 import org.apache.tajo.common.TajoDataTypes.DataType;
 import org.apache.tajo.datum.Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
 import org.apache.tajo.engine.json.GsonCreator;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.VTuple;
 
@@ -33,6 +35,7 @@ public class AggFuncCallEval extends FuncEval implements Cloneable {
   @Expose protected AggFunction instance;
   @Expose boolean firstPhase = false;
   private Tuple params;
+  private Tuple partialParams;
 
   public AggFuncCallEval(FunctionDesc desc, AggFunction instance, EvalNode[] givenArgs) {
     super(Type.AGG_FUNCTION, desc, givenArgs);
@@ -78,6 +81,51 @@ public class AggFuncCallEval extends FuncEval implements Cloneable {
     }
   }
 
+  /**
+   * It returns the partial aggregation state of a context, which can be
+   * merged into another context by {@link #merge(EvalContext, Datum)}.
+   */
+  public Datum getPartialResult(EvalContext ctx) {
+    return instance.getPartialResult(((AggFunctionCtx)ctx).funcCtx);
+  }
+
+  /**
+   * It merges a partial aggregation state into a context.
+   */
+  public void merge(EvalContext ctx, Datum partialResult) {
+    if (partialParams == null) {
+      partialParams = new VTuple(1);
+    }
+    partialParams.put(0, partialResult);
+    instance.merge(((AggFunctionCtx)ctx).funcCtx, partialParams);
+  }
+
+  /**
+   * @param argKind the kind of the argument vector, or null if there is no argument
+   * @return true if the function can aggregate the values of a column vector
+   */
+  public boolean isVectorizable(ColumnVector.Kind argKind) {
+    return instance instanceof VectorAggFunction &&
+        ((VectorAggFunction) instance).supportsVector(argKind);
+  }
+
+  /**
+   * It does the same as {@link #eval(EvalContext, Schema, Tuple)} with the
+   * argument in a row of a column vector, which must be primitive and not null.
+   */
+  public void evalVector(EvalContext ctx, ColumnVector vector, int row) {
+    FunctionContext funcCtx = ((AggFunctionCtx) ctx).funcCtx;
+    if (firstPhase) {
+      ((VectorAggFunction) instance).eval(funcCtx, vector, row);
+    } else {
+      ((VectorAggFunction) instance).merge(funcCtx, vector, row);
+    }
+  }
+
+  public DataType[] getPartialResultType() {
+    return instance.getPartialResultType();
+  }
+
   @Override
   public DataType[] getValueType() {
     if (firstPhase) {
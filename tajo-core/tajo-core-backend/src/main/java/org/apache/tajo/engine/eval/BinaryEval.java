@@ -26,8 +26,7 @@ import org.apache.tajo.catalog.CatalogUtil;
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.common.TajoDataTypes;
 import org.apache.tajo.common.TajoDataTypes.DataType;
-import org.apache.tajo.datum.Datum;
-import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.datum.*;
 import org.apache.tajo.engine.json.GsonCreator;
 import org.apache.tajo.engine.utils.SchemaUtil;
 import org.apache.tajo.storage.Tuple;
@@ -38,6 +37,10 @@ public class BinaryEval extends EvalNode implements Cloneable {
   private class BinaryEvalCtx implements EvalContext {
     EvalContext left;
     EvalContext right;
+    // If true, the result is consumed by the parent expression before the next
+    // evaluation, so a result holder is reused instead of allocating datums.
+    boolean reuseResult;
+    Datum result;
   }
 
 	/**
@@ -80,6 +83,12 @@ public class BinaryEval extends EvalNode implements Cloneable {
     BinaryEvalCtx newCtx =  new BinaryEvalCtx();
     newCtx.left = leftExpr.newContext();
     newCtx.right = rightExpr.newContext();
+    if (newCtx.left instanceof BinaryEvalCtx) {
+      ((BinaryEvalCtx) newCtx.left).reuseResult = true;
+    }
+    if (newCtx.right instanceof BinaryEvalCtx) {
+      ((BinaryEvalCtx) newCtx.right).reuseResult = true;
+    }
 
     return newCtx;
   }
@@ -150,16 +159,16 @@ public class BinaryEval extends EvalNode implements Cloneable {
 
     switch(type) {
       case AND:
-        return DatumFactory.createBool(leftExpr.terminate(binCtx.left).asBool()
+        return createBool(binCtx, leftExpr.terminate(binCtx.left).asBool()
             && rightExpr.terminate(binCtx.right).asBool());
       case OR:
-        return DatumFactory.createBool(leftExpr.terminate(binCtx.left).asBool()
+        return createBool(binCtx, leftExpr.terminate(binCtx.left).asBool()
             || rightExpr.terminate(binCtx.right).asBool());
 
       case EQUAL:
         return leftExpr.terminate(binCtx.left).equalsTo(rightExpr.terminate(binCtx.right));
       case NOT_EQUAL:
-        return DatumFactory.createBool(!leftExpr.terminate(binCtx.left).equalsTo(rightExpr.terminate(binCtx.right)).
+        return createBool(binCtx, !leftExpr.terminate(binCtx.left).equalsTo(rightExpr.terminate(binCtx.right)).
             asBool());
       case LTH:
         return leftExpr.terminate(binCtx.left).lessThan(rightExpr.terminate(binCtx.right));
@@ -171,20 +180,141 @@ public class BinaryEval extends EvalNode implements Cloneable {
         return leftExpr.terminate(binCtx.left).greaterThanEqual(rightExpr.terminate(binCtx.right));
 
       case PLUS:
-        return leftExpr.terminate(binCtx.left).plus(rightExpr.terminate(binCtx.right));
       case MINUS:
-        return leftExpr.terminate(binCtx.left).minus(rightExpr.terminate(binCtx.right));
       case MULTIPLY:
-        return leftExpr.terminate(binCtx.left).multiply(rightExpr.terminate(binCtx.right));
       case DIVIDE:
-        return leftExpr.terminate(binCtx.left).divide(rightExpr.terminate(binCtx.right));
       case MODULAR:
-        return leftExpr.terminate(binCtx.left).modular(rightExpr.terminate(binCtx.right));
+        return computeArithmetic(binCtx, leftExpr.terminate(binCtx.left),
+            rightExpr.terminate(binCtx.right));
       default:
         throw new InvalidEvalException("We does not support " + type + " expression yet");
     }
   }
 
+  private Datum createBool(BinaryEvalCtx ctx, boolean value) {
+    if (ctx.reuseResult) {
+      if (ctx.result == null) {
+        ctx.result = DatumFactory.createBool(value);
+      } else {
+        ((BooleanDatum) ctx.result).setValue(value);
+      }
+      return ctx.result;
+    } else {
+      return DatumFactory.createBool(value);
+    }
+  }
+
+  private Datum computeArithmetic(BinaryEvalCtx ctx, Datum lhs, Datum rhs) {
+    if (ctx.reuseResult && isNumeric(lhs.type()) && isNumeric(rhs.type()) &&
+        !(type == Type.MODULAR && lhs.type() == TajoDataTypes.Type.FLOAT4)) {
+      return computeInto(ctx, lhs, rhs);
+    }
+
+    switch (type) {
+      case PLUS:
+        return lhs.plus(rhs);
+      case MINUS:
+        return lhs.minus(rhs);
+      case MULTIPLY:
+        return lhs.multiply(rhs);
+      case DIVIDE:
+        return lhs.divide(rhs);
+      default:
+        return lhs.modular(rhs);
+    }
+  }
+
+  private static boolean isNumeric(TajoDataTypes.Type type) {
+    return type == TajoDataTypes.Type.INT2 || type == TajoDataTypes.Type.INT4 ||
+        type == TajoDataTypes.Type.INT8 || type == TajoDataTypes.Type.FLOAT4 ||
+        type == TajoDataTypes.Type.FLOAT8;
+  }
+
+  /**
+   * It computes an arithmetic operation of two numeric datums into the result
+   * holder of a context. The result type and the precision of the computation
+   * are the same as those of the arithmetic methods of datums.
+   */
+  private Datum computeInto(BinaryEvalCtx ctx, Datum lhs, Datum rhs) {
+    TajoDataTypes.Type left = lhs.type();
+    TajoDataTypes.Type right = rhs.type();
+    TajoDataTypes.Type resultType = EvalCompiler.getArithmeticType(type, left, right);
+    if (ctx.result == null || ctx.result.type() != resultType) {
+      ctx.result = createHolder(resultType);
+    }
+
+    if (left == TajoDataTypes.Type.FLOAT8 || right == TajoDataTypes.Type.FLOAT8) {
+      ((Float8Datum) ctx.result).setValue(compute(lhs.asFloat8(), rhs.asFloat8()));
+    } else if (left == TajoDataTypes.Type.FLOAT4 || right == TajoDataTypes.Type.FLOAT4) {
+      float value = compute(lhs.asFloat4(), rhs.asFloat4());
+      if (resultType == TajoDataTypes.Type.FLOAT4) {
+        ((Float4Datum) ctx.result).setValue(value);
+      } else {
+        ((Float8Datum) ctx.result).setValue(value);
+      }
+    } else if (left == TajoDataTypes.Type.INT8 || right == TajoDataTypes.Type.INT8) {
+      ((Int8Datum) ctx.result).setValue(compute(lhs.asInt8(), rhs.asInt8()));
+    } else {
+      int value = compute(lhs.asInt4(), rhs.asInt4());
+      if (resultType == TajoDataTypes.Type.INT2) {
+        ((Int2Datum) ctx.result).setValue((short) value);
+      } else {
+        ((Int4Datum) ctx.result).setValue(value);
+      }
+    }
+    return ctx.result;
+  }
+
+  private static Datum createHolder(TajoDataTypes.Type type) {
+    switch (type) {
+      case INT2: return DatumFactory.createInt2((short) 0);
+      case INT4: return DatumFactory.createInt4(0);
+      case INT8: return DatumFactory.createInt8(0);
+      case FLOAT4: return DatumFactory.createFloat4(0);
+      default: return DatumFactory.createFloat8(0);
+    }
+  }
+
+  private int compute(int left, int right) {
+    switch (type) {
+      case PLUS: return left + right;
+      case MINUS: return left - right;
+      case MULTIPLY: return left * right;
+      case DIVIDE: return left / right;
+      default: return left % right;
+    }
+  }
+
+  private long compute(long left, long right) {
+    switch (type) {
+      case PLUS: return left + right;
+      case MINUS: return left - right;
+      case MULTIPLY: return left * right;
+      case DIVIDE: return left / right;
+      default: return left % right;
+    }
+  }
+
+  private float compute(float left, float right) {
+    switch (type) {
+      case PLUS: return left + right;
+      case MINUS: return left - right;
+      case MULTIPLY: return left * right;
+      case DIVIDE: return left / right;
+      default: return left % right;
+    }
+  }
+
+  private double compute(double left, double right) {
+    switch (type) {
+      case PLUS: return left + right;
+      case MINUS: return left - right;
+      case MULTIPLY: return left * right;
+      case DIVIDE: return left / right;
+      default: return left % right;
+    }
+  }
+
   @Override
 	public String getName() {
 		return "?";
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.eval;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.storage.Tuple;
+
+/**
+ * The base class of the expression classes generated by {@link EvalCompiler}.
+ * A generated class computes an expression with primitive values.
+ *
+ * If a referred value of a tuple is null or its type is different from the
+ * column type, the expression is evaluated by the {@link EvalNode} tree so that
+ * the result is always the same as the result of the interpreted evaluation.
+ * An instance is not thread-safe.
+ */
+public abstract class CompiledEval {
+  private EvalNode expr;
+  private Schema schema;
+  private EvalContext exprCtx;
+  private int [] fieldIds;
+  private Type [] fieldTypes;
+  private boolean predicate;
+
+  void init(EvalNode expr, Schema schema, int [] fieldIds, Type [] fieldTypes,
+            boolean predicate) {
+    this.expr = expr;
+    this.schema = schema;
+    this.exprCtx = expr.newContext();
+    this.fieldIds = fieldIds;
+    this.fieldTypes = fieldTypes;
+    this.predicate = predicate;
+  }
+
+  public EvalNode getExpr() {
+    return expr;
+  }
+
+  public boolean isTrue(Tuple tuple) {
+    if (!accepts(tuple)) {
+      return interpret(tuple).asBool();
+    }
+    return predicate ? evalBool(tuple) : evalDatum(tuple).asBool();
+  }
+
+  public Datum eval(Tuple tuple) {
+    if (!accepts(tuple)) {
+      return interpret(tuple);
+    }
+    return predicate ? DatumFactory.createBool(evalBool(tuple)) : evalDatum(tuple);
+  }
+
+  private boolean accepts(Tuple tuple) {
+    Datum datum;
+    for (int i = 0; i < fieldIds.length; i++) {
+      datum = tuple.get(fieldIds[i]);
+      if (datum == null || datum.type() != fieldTypes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Datum interpret(Tuple tuple) {
+    expr.eval(exprCtx, schema, tuple);
+    return expr.terminate(exprCtx);
+  }
+
+  /**
+   * It is generated for a predicate.
+   */
+  protected boolean evalBool(Tuple tuple) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * It is generated for a numeric expression.
+   */
+  protected Datum evalDatum(Tuple tuple) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,549 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.eval;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * It compiles an {@link EvalNode} tree into a generated class which computes
+ * the expression with primitive values instead of walking the tree with an
+ * {@link EvalContext} per node and boxing every intermediate value as a datum.
+ *
+ * AND, OR, comparisons, arithmetic operators, numeric fields and constants
+ * can be compiled. The generated classes are cached by the shape of the
+ * expression, so that the tasks of the same query running in a JVM reuse them.
+ *
+ * @see CompiledEval
+ */
+public class EvalCompiler {
+  private static final Log LOG = LogFactory.getLog(EvalCompiler.class);
+
+  private static final int CACHE_SIZE = 256;
+  private static final String PACKAGE = "org/apache/tajo/engine/eval/generated/";
+  private static final String BASE_CLASS = "org/apache/tajo/engine/eval/CompiledEval";
+  private static final String TUPLE_CLASS = "org/apache/tajo/storage/Tuple";
+  private static final String DATUM_CLASS = "org/apache/tajo/datum/Datum";
+  private static final String FACTORY_CLASS = "org/apache/tajo/datum/DatumFactory";
+
+  private static final AtomicInteger classSeq = new AtomicInteger(0);
+  private static final Map<String, Class<?>> cache =
+      new LinkedHashMap<String, Class<?>>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Class<?>> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /**
+   * It compiles an expression evaluated against tuples of the given schema.
+   *
+   * @return a compiled expression, or null if the expression cannot be compiled
+   */
+  public static CompiledEval compile(Schema schema, EvalNode expr) {
+    Analyzer analyzer = new Analyzer(schema);
+    Type resultType = analyzer.analyze(expr);
+    if (resultType == null) {
+      return null;
+    }
+
+    String key = analyzer.key.toString();
+    try {
+      Class<?> clazz;
+      synchronized (cache) {
+        clazz = cache.get(key);
+        if (clazz == null) {
+          clazz = new Generator(analyzer).generate(expr, resultType);
+          cache.put(key, clazz);
+        }
+      }
+
+      CompiledEval compiled = (CompiledEval) clazz.newInstance();
+      int [] fieldIds = new int[analyzer.fieldIds.size()];
+      Type [] fieldTypes = new Type[fieldIds.length];
+      for (int i = 0; i < fieldIds.length; i++) {
+        fieldIds[i] = analyzer.fieldIds.get(i);
+        fieldTypes[i] = schema.getColumn(fieldIds[i]).getDataType().getType();
+      }
+      compiled.init(expr, schema, fieldIds, fieldTypes, resultType == Type.BOOLEAN);
+      return compiled;
+    } catch (Throwable t) {
+      LOG.warn("Cannot compile the expression: " + expr, t);
+      return null;
+    }
+  }
+
+  /**
+   * It returns the datum type of an arithmetic operation in the same way as
+   * the arithmetic methods of datums. Mostly it is the wider type of the two
+   * operands, but the multiplication of two INT2 values results in INT4.
+   */
+  static Type getArithmeticType(EvalNode.Type op, Type left, Type right) {
+    if (left == Type.INT2 && right == Type.INT2) {
+      return op == EvalNode.Type.MULTIPLY ? Type.INT4 : Type.INT2;
+    } else if (left == Type.FLOAT8 || right == Type.FLOAT8) {
+      return Type.FLOAT8;
+    } else if (left == Type.FLOAT4 || right == Type.FLOAT4) {
+      Type other = left == Type.FLOAT4 ? right : left;
+      return other == Type.INT2 || other == Type.INT4 ? Type.FLOAT4 : Type.FLOAT8;
+    } else if (left == Type.INT8 || right == Type.INT8) {
+      return Type.INT8;
+    } else {
+      return Type.INT4;
+    }
+  }
+
+  private static boolean isArithmetic(EvalNode.Type op) {
+    return op == EvalNode.Type.PLUS || op == EvalNode.Type.MINUS ||
+        op == EvalNode.Type.MULTIPLY || op == EvalNode.Type.DIVIDE ||
+        op == EvalNode.Type.MODULAR;
+  }
+
+  private static boolean isNumeric(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * It checks if an expression can be compiled, and it builds the cache key
+   * and collects the types of the nodes.
+   */
+  private static class Analyzer {
+    private final Schema schema;
+    private final StringBuilder key = new StringBuilder();
+    private final List<Integer> fieldIds = new ArrayList<Integer>();
+    private final Map<EvalNode, Type> types = new IdentityHashMap<EvalNode, Type>();
+    private final Map<EvalNode, Integer> fields = new IdentityHashMap<EvalNode, Integer>();
+
+    Analyzer(Schema schema) {
+      this.schema = schema;
+    }
+
+    Type analyze(EvalNode node) {
+      Type type = null;
+      switch (node.getType()) {
+        case FIELD: {
+          int fieldId = EvalTreeUtil.findFieldId(schema, (FieldEval) node);
+          if (fieldId < 0) {
+            return null;
+          }
+          type = schema.getColumn(fieldId).getDataType().getType();
+          if (!isNumeric(type)) {
+            return null;
+          }
+          fields.put(node, fieldId);
+          if (!fieldIds.contains(fieldId)) {
+            fieldIds.add(fieldId);
+          }
+          key.append('$').append(fieldId).append(':').append(type);
+          break;
+        }
+
+        case CONST: {
+          Datum value = ((ConstEval) node).getValue();
+          type = value.type();
+          if (type == Type.BOOLEAN) {
+            key.append(value.asBool());
+          } else if (type == Type.INT2 || type == Type.INT4 || type == Type.INT8) {
+            key.append(type).append(':').append(value.asInt8());
+          } else if (type == Type.FLOAT4 || type == Type.FLOAT8) {
+            key.append(type).append(':').append(value.asFloat8());
+          } else {
+            return null;
+          }
+          break;
+        }
+
+        case AND:
+        case OR:
+        case EQUAL:
+        case NOT_EQUAL:
+        case LTH:
+        case LEQ:
+        case GTH:
+        case GEQ:
+        case PLUS:
+        case MINUS:
+        case MULTIPLY:
+        case DIVIDE:
+        case MODULAR: {
+          key.append('(').append(node.getType()).append(' ');
+          Type left = analyze(node.getLeftExpr());
+          if (left == null) {
+            return null;
+          }
+          key.append(' ');
+          Type right = analyze(node.getRightExpr());
+          if (right == null) {
+            return null;
+          }
+          key.append(')');
+
+          if (node.getType() == EvalNode.Type.AND || node.getType() == EvalNode.Type.OR) {
+            if (left != Type.BOOLEAN || right != Type.BOOLEAN) {
+              return null;
+            }
+            type = Type.BOOLEAN;
+          } else if (!isNumeric(left) || !isNumeric(right)) {
+            return null;
+          } else if (node.getType() == EvalNode.Type.MODULAR && left == Type.FLOAT4) {
+            // Float4Datum.modular() does not follow the other arithmetic methods.
+            return null;
+          } else if (isArithmetic(node.getType())) {
+            type = getArithmeticType(node.getType(), left, right);
+          } else {
+            type = Type.BOOLEAN;
+          }
+          break;
+        }
+
+        default:
+          return null;
+      }
+
+      types.put(node, type);
+      return type;
+    }
+  }
+
+  private static class EvalClassLoader extends ClassLoader {
+    EvalClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> defineClass(String name, byte [] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+
+  /**
+   * It generates the bytecode of an analyzed expression.
+   */
+  private static class Generator implements Opcodes {
+    private final Analyzer analyzer;
+    private MethodVisitor mv;
+
+    Generator(Analyzer analyzer) {
+      this.analyzer = analyzer;
+    }
+
+    Class<?> generate(EvalNode expr, Type resultType) {
+      String className = PACKAGE + "CompiledEval" + classSeq.incrementAndGet();
+      ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+      cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, BASE_CLASS, null);
+
+      mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+      mv.visitCode();
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitMethodInsn(INVOKESPECIAL, BASE_CLASS, "<init>", "()V");
+      mv.visitInsn(RETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+
+      if (resultType == Type.BOOLEAN) {
+        mv = cw.visitMethod(ACC_PROTECTED, "evalBool", "(L" + TUPLE_CLASS + ";)Z", null, null);
+        mv.visitCode();
+        generateValue(expr);
+        mv.visitInsn(IRETURN);
+      } else {
+        mv = cw.visitMethod(ACC_PROTECTED, "evalDatum",
+            "(L" + TUPLE_CLASS + ";)L" + DATUM_CLASS + ";", null, null);
+        mv.visitCode();
+        generateValue(expr);
+        generateDatum(resultType);
+        mv.visitInsn(ARETURN);
+      }
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+      cw.visitEnd();
+
+      EvalClassLoader loader = new EvalClassLoader(CompiledEval.class.getClassLoader());
+      return loader.defineClass(className.replace('/', '.'), cw.toByteArray());
+    }
+
+    private Type typeOf(EvalNode node) {
+      return analyzer.types.get(node);
+    }
+
+    /**
+     * It returns the JVM computational type (I, J, F, D) of a datum type.
+     */
+    private static char getStackType(Type type) {
+      switch (type) {
+        case INT8: return 'J';
+        case FLOAT4: return 'F';
+        case FLOAT8: return 'D';
+        default: return 'I';
+      }
+    }
+
+    /**
+     * It returns the binary numeric promotion of two computational types.
+     */
+    private static char promote(char left, char right) {
+      if (left == 'D' || right == 'D') {
+        return 'D';
+      } else if (left == 'F' || right == 'F') {
+        return 'F';
+      } else if (left == 'J' || right == 'J') {
+        return 'J';
+      } else {
+        return 'I';
+      }
+    }
+
+    private void convert(char from, char to) {
+      if (from == to) {
+        return;
+      }
+      switch (from) {
+        case 'I':
+          mv.visitInsn(to == 'J' ? I2L : (to == 'F' ? I2F : I2D));
+          break;
+        case 'J':
+          mv.visitInsn(to == 'F' ? L2F : L2D);
+          break;
+        case 'F':
+          mv.visitInsn(F2D);
+          break;
+      }
+    }
+
+    private void generateValue(EvalNode node) {
+      switch (node.getType()) {
+        case FIELD:
+          generateField(node);
+          break;
+        case CONST:
+          generateConst(((ConstEval) node).getValue());
+          break;
+        case AND:
+        case OR:
+          generateLogical(node);
+          break;
+        case PLUS:
+        case MINUS:
+        case MULTIPLY:
+        case DIVIDE:
+        case MODULAR:
+          generateArithmetic(node);
+          break;
+        default:
+          generateComparison(node);
+      }
+    }
+
+    private void generateField(EvalNode node) {
+      mv.visitVarInsn(ALOAD, 1);
+      pushInt(analyzer.fields.get(node));
+      mv.visitMethodInsn(INVOKEINTERFACE, TUPLE_CLASS, "get", "(I)L" + DATUM_CLASS + ";");
+      switch (typeOf(node)) {
+        case INT2:
+          mv.visitMethodInsn(INVOKEVIRTUAL, DATUM_CLASS, "asInt2", "()S");
+          break;
+        case INT4:
+          mv.visitMethodInsn(INVOKEVIRTUAL, DATUM_CLASS, "asInt4", "()I");
+          break;
+        case INT8:
+          mv.visitMethodInsn(INVOKEVIRTUAL, DATUM_CLASS, "asInt8", "()J");
+          break;
+        case FLOAT4:
+          mv.visitMethodInsn(INVOKEVIRTUAL, DATUM_CLASS, "asFloat4", "()F");
+          break;
+        default:
+          mv.visitMethodInsn(INVOKEVIRTUAL, DATUM_CLASS, "asFloat8", "()D");
+      }
+    }
+
+    private void generateConst(Datum value) {
+      switch (value.type()) {
+        case BOOLEAN:
+          mv.visitInsn(value.asBool() ? ICONST_1 : ICONST_0);
+          break;
+        case INT2:
+        case INT4:
+          mv.visitLdcInsn(value.asInt4());
+          break;
+        case INT8:
+          mv.visitLdcInsn(value.asInt8());
+          break;
+        case FLOAT4:
+          mv.visitLdcInsn(value.asFloat4());
+          break;
+        default:
+          mv.visitLdcInsn(value.asFloat8());
+      }
+    }
+
+    private void pushInt(int value) {
+      if (value <= 5) {
+        mv.visitInsn(ICONST_0 + value);
+      } else if (value <= Byte.MAX_VALUE) {
+        mv.visitIntInsn(BIPUSH, value);
+      } else if (value <= Short.MAX_VALUE) {
+        mv.visitIntInsn(SIPUSH, value);
+      } else {
+        mv.visitLdcInsn(value);
+      }
+    }
+
+    /**
+     * It pushes both operands converted to their promoted type.
+     */
+    private char generateOperands(EvalNode node) {
+      char left = getStackType(typeOf(node.getLeftExpr()));
+      char right = getStackType(typeOf(node.getRightExpr()));
+      char type = promote(left, right);
+      generateValue(node.getLeftExpr());
+      convert(left, type);
+      generateValue(node.getRightExpr());
+      convert(right, type);
+      return type;
+    }
+
+    private void generateArithmetic(EvalNode node) {
+      char type = generateOperands(node);
+      int offset = type == 'I' ? 0 : (type == 'J' ? 1 : (type == 'F' ? 2 : 3));
+      switch (node.getType()) {
+        case PLUS:
+          mv.visitInsn(IADD + offset);
+          break;
+        case MINUS:
+          mv.visitInsn(ISUB + offset);
+          break;
+        case MULTIPLY:
+          mv.visitInsn(IMUL + offset);
+          break;
+        case DIVIDE:
+          mv.visitInsn(IDIV + offset);
+          break;
+        default:
+          mv.visitInsn(IREM + offset);
+      }
+
+      Type resultType = typeOf(node);
+      if (resultType == Type.INT2) {
+        mv.visitInsn(I2S);
+      } else {
+        convert(type, getStackType(resultType));
+      }
+    }
+
+    /**
+     * It follows the semantics of {@link Datum#equalsTo(Datum)} for equality,
+     * and the semantics of {@link Datum#compareTo(Datum)} for the others.
+     * The comparison of NaN is decided by the choice of FCMPL/FCMPG.
+     */
+    private void generateComparison(EvalNode node) {
+      char type = generateOperands(node);
+      boolean nanGreater = node.getType() == EvalNode.Type.LTH ||
+          node.getType() == EvalNode.Type.GEQ;
+      int cond;
+      switch (node.getType()) {
+        case EQUAL: cond = IFEQ; break;
+        case NOT_EQUAL: cond = IFNE; break;
+        case LTH: cond = IFLT; break;
+        case LEQ: cond = IFLE; break;
+        case GTH: cond = IFGT; break;
+        default: cond = IFGE;
+      }
+
+      Label trueLabel = new Label();
+      Label endLabel = new Label();
+      switch (type) {
+        case 'I':
+          mv.visitJumpInsn(cond - IFEQ + IF_ICMPEQ, trueLabel);
+          break;
+        case 'J':
+          mv.visitInsn(LCMP);
+          mv.visitJumpInsn(cond, trueLabel);
+          break;
+        case 'F':
+          mv.visitInsn(nanGreater ? FCMPG : FCMPL);
+          mv.visitJumpInsn(cond, trueLabel);
+          break;
+        default:
+          mv.visitInsn(nanGreater ? DCMPG : DCMPL);
+          mv.visitJumpInsn(cond, trueLabel);
+      }
+      mv.visitInsn(ICONST_0);
+      mv.visitJumpInsn(GOTO, endLabel);
+      mv.visitLabel(trueLabel);
+      mv.visitInsn(ICONST_1);
+      mv.visitLabel(endLabel);
+    }
+
+    private void generateLogical(EvalNode node) {
+      boolean and = node.getType() == EvalNode.Type.AND;
+      Label shortCut = new Label();
+      Label endLabel = new Label();
+      generateValue(node.getLeftExpr());
+      mv.visitJumpInsn(and ? IFEQ : IFNE, shortCut);
+      generateValue(node.getRightExpr());
+      mv.visitJumpInsn(and ? IFEQ : IFNE, shortCut);
+      mv.visitInsn(and ? ICONST_1 : ICONST_0);
+      mv.visitJumpInsn(GOTO, endLabel);
+      mv.visitLabel(shortCut);
+      mv.visitInsn(and ? ICONST_0 : ICONST_1);
+      mv.visitLabel(endLabel);
+    }
+
+    private void generateDatum(Type type) {
+      switch (type) {
+        case INT2:
+          mv.visitMethodInsn(INVOKESTATIC, FACTORY_CLASS, "createInt2",
+              "(S)Lorg/apache/tajo/datum/Int2Datum;");
+          break;
+        case INT4:
+          mv.visitMethodInsn(INVOKESTATIC, FACTORY_CLASS, "createInt4",
+              "(I)Lorg/apache/tajo/datum/Int4Datum;");
+          break;
+        case INT8:
+          mv.visitMethodInsn(INVOKESTATIC, FACTORY_CLASS, "createInt8",
+              "(J)Lorg/apache/tajo/datum/Int8Datum;");
+          break;
+        case FLOAT4:
+          mv.visitMethodInsn(INVOKESTATIC, FACTORY_CLASS, "createFloat4",
+              "(F)Lorg/apache/tajo/datum/Float4Datum;");
+          break;
+        default:
+          mv.visitMethodInsn(INVOKESTATIC, FACTORY_CLASS, "createFloat8",
+              "(D)Lorg/apache/tajo/datum/Float8Datum;");
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.tajo.engine.eval.EvalNode.Type;
 import org.apache.tajo.engine.parser.QueryBlock.Target;
 import org.apache.tajo.engine.utils.SchemaUtil;
 import org.apache.tajo.exception.InternalException;
+import org.apache.tajo.storage.SearchCondition;
 
 import java.util.*;
 
@@ -232,6 +233,74 @@ public class EvalTreeUtil {
     }    
   }
 
+  /**
+   * It returns the column id of a field in the given schema in the same way as
+   * {@link FieldEval}, or -1 if the schema does not have the field.
+   */
+  public static int findFieldId(Schema schema, FieldEval field) {
+    String name = field.getColumnRef().getQualifiedName();
+    if (schema.contains(name)) {
+      return schema.getColumnId(name);
+    } else if (schema.getColumnNum() != 0) {
+      name = schema.getColumn(0).getTableName() + "." + field.getColumnName();
+      if (schema.contains(name)) {
+        return schema.getColumnId(name);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * It converts the conjuncts of a given qual in the form of
+   * <code>column op constant</code> into a search condition which can be pushed
+   * down into a scanner. The other conjuncts are ignored, so the returned search
+   * condition is weaker than or equal to the qual.
+   *
+   * @return a search condition, or null if no conjunct can be converted.
+   */
+  public static SearchCondition getSearchCondition(Schema schema, EvalNode qual) {
+    SearchCondition condition = new SearchCondition(schema);
+    for (EvalNode conjunct : getConjNormalForm(qual)) {
+      SearchCondition.Op op = toSearchOp(conjunct.getType());
+      if (op == null) {
+        continue;
+      }
+
+      EvalNode left = conjunct.getLeftExpr();
+      EvalNode right = conjunct.getRightExpr();
+      if (left.getType() == Type.FIELD && right.getType() == Type.CONST) {
+        condition.addTerm(findFieldId(schema, (FieldEval) left), op,
+            ((ConstEval) right).getValue());
+      } else if (left.getType() == Type.CONST && right.getType() == Type.FIELD) {
+        condition.addTerm(findFieldId(schema, (FieldEval) right), flip(op),
+            ((ConstEval) left).getValue());
+      }
+    }
+    return condition.isEmpty() ? null : condition;
+  }
+
+  private static SearchCondition.Op toSearchOp(Type type) {
+    switch (type) {
+      case EQUAL: return SearchCondition.Op.EQUAL;
+      case NOT_EQUAL: return SearchCondition.Op.NOT_EQUAL;
+      case LTH: return SearchCondition.Op.LTH;
+      case LEQ: return SearchCondition.Op.LEQ;
+      case GTH: return SearchCondition.Op.GTH;
+      case GEQ: return SearchCondition.Op.GEQ;
+      default: return null;
+    }
+  }
+
+  private static SearchCondition.Op flip(SearchCondition.Op op) {
+    switch (op) {
+      case LTH: return SearchCondition.Op.GTH;
+      case LEQ: return SearchCondition.Op.GEQ;
+      case GTH: return SearchCondition.Op.LTH;
+      case GEQ: return SearchCondition.Op.LEQ;
+      default: return op;
+    }
+  }
+
   public static boolean isComparisonOperator(EvalNode expr) {
     return expr.getType() == Type.EQUAL ||
         expr.getType() == Type.LEQ ||
@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.engine.function;
+
+import org.apache.tajo.catalog.function.FunctionContext;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
+
+/**
+ * An aggregation function which reads its argument from a column vector
+ * without creating datums. It is used by the batch path of HashAggregateExec,
+ * and it must give the same results as the tuple-at-a-time methods.
+ */
+public interface VectorAggFunction {
+  /**
+   * @param argKind the kind of the argument vector, or null if the function
+   *                has no argument
+   * @return true if the values of the argument vector can be aggregated
+   */
+  boolean supportsVector(ColumnVector.Kind argKind);
+
+  /**
+   * It does the same as {@link org.apache.tajo.catalog.function.AggFunction#eval}
+   * with the value of a row, which is primitive and not null.
+   */
+  void eval(FunctionContext ctx, ColumnVector vector, int row);
+
+  /**
+   * It does the same as {@link org.apache.tajo.catalog.function.AggFunction#merge}
+   * with the value of a row, which is primitive and not null.
+   */
+  void merge(FunctionContext ctx, ColumnVector vector, int row);
+}
@@ -27,9 +27,11 @@ import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.Int8Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class CountRows extends AggFunction<Datum> {
+public class CountRows extends AggFunction<Datum> implements VectorAggFunction {
 
   public CountRows() {
     super(NoArgs);
@@ -69,6 +71,22 @@ public class CountRows extends AggFunction<Datum> {
     return DatumFactory.createInt8(((CountRowContext) ctx).count);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    // the partial counts are merged
+    return argKind == null || argKind == ColumnVector.Kind.LONG;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    ((CountRowContext) ctx).count++;
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    ((CountRowContext) ctx).count += vector.getLong(row);
+  }
+
   protected class CountRowContext implements FunctionContext {
     long count;
   }
@@ -22,6 +22,7 @@ import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.function.FunctionContext;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
 public final class CountValue extends CountRows {
@@ -37,4 +38,9 @@ public final class CountValue extends CountRows {
       ((CountRowContext) ctx).count++;
     }
   }
+
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return false;
+  }
 }
@@ -27,9 +27,11 @@ import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.Float8Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MaxDouble extends AggFunction<Float8Datum> {
+public class MaxDouble extends AggFunction<Float8Datum> implements VectorAggFunction {
 
   public MaxDouble() {
     super(new Column[] {
@@ -63,6 +65,22 @@ public class MaxDouble extends AggFunction<Float8Datum> {
     return DatumFactory.createFloat8(((MaxContext) ctx).max);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.DOUBLE;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MaxContext maxCtx = (MaxContext) ctx;
+    maxCtx.max = Math.max(maxCtx.max, vector.getDouble(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MaxContext implements FunctionContext {
     double max;
   }
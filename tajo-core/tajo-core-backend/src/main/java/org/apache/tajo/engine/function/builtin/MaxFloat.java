@@ -26,9 +26,11 @@ import org.apache.tajo.common.TajoDataTypes.DataType;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MaxFloat extends AggFunction<Datum> {
+public class MaxFloat extends AggFunction<Datum> implements VectorAggFunction {
   public MaxFloat() {
     super(new Column[] {
         new Column("val", Type.FLOAT8)
@@ -61,6 +63,22 @@ public class MaxFloat extends AggFunction<Datum> {
     return DatumFactory.createFloat4(((MaxContext) ctx).max);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.DOUBLE;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MaxContext maxCtx = (MaxContext) ctx;
+    maxCtx.max = Math.max(maxCtx.max, (float) vector.getDouble(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MaxContext implements FunctionContext {
     float max;
   }
@@ -26,9 +26,11 @@ import org.apache.tajo.common.TajoDataTypes.DataType;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MaxInt extends AggFunction<Datum> {
+public class MaxInt extends AggFunction<Datum> implements VectorAggFunction {
 
   public MaxInt() {
     super(new Column[] {
@@ -62,6 +64,22 @@ public class MaxInt extends AggFunction<Datum> {
     return DatumFactory.createInt4(((MaxContext) ctx).max);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.LONG;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MaxContext maxCtx = (MaxContext) ctx;
+    maxCtx.max = Math.max(maxCtx.max, (int) vector.getLong(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MaxContext implements FunctionContext {
     int max;
   }
@@ -27,9 +27,11 @@ import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.Int8Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MaxLong extends AggFunction<Int8Datum> {
+public class MaxLong extends AggFunction<Int8Datum> implements VectorAggFunction {
   public MaxLong() {
     super(new Column[] {
         new Column("val", Type.INT8)
@@ -62,6 +64,22 @@ public class MaxLong extends AggFunction<Int8Datum> {
     return DatumFactory.createInt8(((MaxContext) ctx).max);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.LONG;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MaxContext maxCtx = (MaxContext) ctx;
+    maxCtx.max = Math.max(maxCtx.max, vector.getLong(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MaxContext implements FunctionContext {
     long max;
   }
@@ -26,9 +26,11 @@ import org.apache.tajo.common.TajoDataTypes.DataType;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MinDouble extends AggFunction<Datum> {
+public class MinDouble extends AggFunction<Datum> implements VectorAggFunction {
 
   public MinDouble() {
     super(new Column[] {
@@ -62,6 +64,22 @@ public class MinDouble extends AggFunction<Datum> {
     return DatumFactory.createFloat8(((MinContext) ctx).min);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.DOUBLE;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MinContext minCtx = (MinContext) ctx;
+    minCtx.min = Math.min(minCtx.min, vector.getDouble(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MinContext implements FunctionContext {
     double min = Double.MAX_VALUE;
   }
@@ -27,9 +27,11 @@ import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.Float4Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MinFloat extends AggFunction<Float4Datum> {
+public class MinFloat extends AggFunction<Float4Datum> implements VectorAggFunction {
 
   public MinFloat() {
     super(new Column[] {
@@ -63,6 +65,22 @@ public class MinFloat extends AggFunction<Float4Datum> {
     return DatumFactory.createFloat4(((MinContext) ctx).min);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.DOUBLE;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MinContext minCtx = (MinContext) ctx;
+    minCtx.min = Math.min(minCtx.min, (float) vector.getDouble(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MinContext implements FunctionContext {
     float min = Float.MAX_VALUE;
   }
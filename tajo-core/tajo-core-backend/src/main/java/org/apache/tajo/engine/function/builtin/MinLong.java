@@ -27,9 +27,11 @@ import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.Int8Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class MinLong extends AggFunction<Datum> {
+public class MinLong extends AggFunction<Datum> implements VectorAggFunction {
 
   public MinLong() {
     super(new Column[] {
@@ -63,6 +65,22 @@ public class MinLong extends AggFunction<Datum> {
     return DatumFactory.createInt8(((MinContext) ctx).min);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.LONG;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    MinContext minCtx = (MinContext) ctx;
+    minCtx.min = Math.min(minCtx.min, vector.getLong(row));
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class MinContext implements FunctionContext {
     long min = Long.MAX_VALUE;
   }
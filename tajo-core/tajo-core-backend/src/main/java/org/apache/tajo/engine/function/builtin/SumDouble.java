@@ -27,9 +27,11 @@ import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.Float8Datum;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class SumDouble extends AggFunction<Datum> {
+public class SumDouble extends AggFunction<Datum> implements VectorAggFunction {
 
   public SumDouble() {
     super(new Column[] {
@@ -62,6 +64,21 @@ public class SumDouble extends AggFunction<Datum> {
     return DatumFactory.createFloat8(((SumContext) ctx).sum);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.DOUBLE;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    ((SumContext) ctx).sum += vector.getDouble(row);
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class SumContext implements FunctionContext {
     double sum;
   }
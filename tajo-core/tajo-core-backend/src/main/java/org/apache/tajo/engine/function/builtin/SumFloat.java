@@ -26,9 +26,11 @@ import org.apache.tajo.common.TajoDataTypes.DataType;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class SumFloat extends AggFunction<Datum> {
+public class SumFloat extends AggFunction<Datum> implements VectorAggFunction {
   public SumFloat() {
     super(new Column[] {
         new Column("val", Type.FLOAT4)
@@ -60,6 +62,21 @@ public class SumFloat extends AggFunction<Datum> {
     return DatumFactory.createFloat4(((SumContext) ctx).sum);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.DOUBLE;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    ((SumContext) ctx).sum += (float) vector.getDouble(row);
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class SumContext implements FunctionContext {
     private float sum;
   }
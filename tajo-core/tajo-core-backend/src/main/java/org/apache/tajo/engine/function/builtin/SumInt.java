@@ -26,9 +26,11 @@ import org.apache.tajo.common.TajoDataTypes.DataType;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.function.VectorAggFunction;
+import org.apache.tajo.engine.planner.physical.ColumnVector;
 import org.apache.tajo.storage.Tuple;
 
-public class SumInt extends AggFunction<Datum> {
+public class SumInt extends AggFunction<Datum> implements VectorAggFunction {
 
   public SumInt() {
     super(new Column[] {
@@ -62,6 +64,21 @@ public class SumInt extends AggFunction<Datum> {
     return DatumFactory.createInt4(((SumIntContext) ctx).sum);
   }
 
+  @Override
+  public boolean supportsVector(ColumnVector.Kind argKind) {
+    return argKind == ColumnVector.Kind.LONG;
+  }
+
+  @Override
+  public void eval(FunctionContext ctx, ColumnVector vector, int row) {
+    ((SumIntContext) ctx).sum += vector.getLong(row);
+  }
+
+  @Override
+  public void merge(FunctionContext ctx, ColumnVector vector, int row) {
+    eval(ctx, vector, row);
+  }
+
   private class SumIntContext implements FunctionContext {
     int sum;
   }
@@ -26,6 +26,7 @@ import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.catalog.SortSpec;
 import org.apache.tajo.catalog.TableDesc;
+import org.apache.tajo.catalog.TableMeta;
 import org.apache.tajo.catalog.proto.CatalogProtos;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.engine.eval.EvalNode;
@@ -510,6 +511,10 @@ public class QueryBlock extends ParseTree {
       return desc.getMeta().getSchema();
     }
 
+    public final TableMeta getMeta() {
+      return desc.getMeta();
+    }
+
     public final void setAlias(String alias) {
       this.alias = alias;
     }
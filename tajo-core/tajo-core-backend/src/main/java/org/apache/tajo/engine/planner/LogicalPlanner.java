@@ -19,8 +19,6 @@
 package org.apache.tajo.engine.planner;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.tajo.catalog.CatalogService;
@@ -32,16 +30,13 @@ import org.apache.tajo.engine.eval.*;
 import org.apache.tajo.engine.parser.*;
 import org.apache.tajo.engine.parser.QueryBlock.*;
 import org.apache.tajo.engine.planner.logical.*;
-import org.apache.tajo.engine.planner.logical.join.Edge;
+import org.apache.tajo.engine.planner.logical.join.JoinEnumerator;
 import org.apache.tajo.engine.planner.logical.join.JoinTree;
 import org.apache.tajo.engine.query.exception.InvalidQueryException;
 import org.apache.tajo.engine.query.exception.NotSupportQueryException;
 import org.apache.tajo.engine.utils.SchemaUtil;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Stack;
 
 /**
  * This class creates a logical plan from a parse tree ({@link org.apache.tajo.engine.parser.QueryBlock})
@@ -343,6 +338,16 @@ public class LogicalPlanner {
       limitNode.setInSchema(subroot.getOutSchema());
       limitNode.setOutSchema(limitNode.getInSchema());
       subroot = limitNode;
+
+      // If the limit is only above projections of a sort, the sort needs
+      // to keep only the first n tuples.
+      LogicalNode child = limitNode.getSubNode();
+      while (child.getType() == ExprType.PROJECTION) {
+        child = ((ProjectionNode) child).getSubNode();
+      }
+      if (child.getType() == ExprType.SORT) {
+        ((SortNode) child).setFetchFirstNum(limitNode.getFetchFirstNum());
+      }
     }
     
     return subroot;
@@ -519,129 +524,18 @@ public class LogicalPlanner {
   
   private static LogicalNode createImplicitJoinTree(FromTable [] tables,
                                                     EvalNode [] cnf) {
-    if (cnf == null) {
-      return createCatasianProduct(tables);
-    } else {
-      return createCrossJoinFromJoinCondition(tables, cnf);
-    }
-  }
-
-  private static LogicalNode createCrossJoinFromJoinCondition(
-      FromTable [] tables, EvalNode [] cnf) {
-    Map<String, FromTable> fromTableMap = Maps.newHashMap();
-    for (FromTable f : tables) {
-      // TODO - to consider alias and self-join
-      fromTableMap.put(f.getTableName(), f);
-    }
-
-    JoinTree joinTree = new JoinTree(); // to infer join order
-    for (EvalNode expr : cnf) {
-      if (PlannerUtil.isJoinQual(expr)) {
-        joinTree.addJoin(expr);
-      }
-    }
-
-    List<String> remain = Lists.newArrayList(fromTableMap.keySet());
-    remain.removeAll(joinTree.getTables()); // only remain joins not matched to any join condition
-    List<Edge> joinOrder = null;
-    LogicalNode subroot = null;
-    JoinNode join;
-    Schema joinSchema;
-
-    // if there are at least one join matched to the one of join conditions,
-    // we try to traverse the join tree in the depth-first manner and
-    // determine the initial join order. Here, we do not consider the join cost.
-    // The optimized join order will be considered in the optimizer.
-    if (joinTree.getJoinNum() > 0) {
-      Stack<String> stack = new Stack<String>();
-      Set<String> visited = Sets.newHashSet();
-
-
-      // initially, one table is pushed into the stack
-      String seed = joinTree.getTables().iterator().next();
-      stack.add(seed);
-
-      joinOrder = Lists.newArrayList();
-
-      while (!stack.empty()) {
-        String table = stack.pop();
-        if (visited.contains(table)) {
-          continue;
-        }
-        visited.add(table);
-
-        // 'joinOrder' will contain all tables corresponding to the given join conditions.
-        for (Edge edge : joinTree.getEdges(table)) {
-          if (!visited.contains(edge.getTarget()) && !edge.getTarget().equals(table)) {
-            stack.add(edge.getTarget());
-            joinOrder.add(edge);
-          }
+    JoinTree joinTree = new JoinTree(); // to find the join conditions between tables
+    if (cnf != null) {
+      for (EvalNode expr : cnf) {
+        if (PlannerUtil.isJoinQual(expr)) {
+          joinTree.addJoin(expr);
         }
       }
-
-      subroot = new ScanNode(fromTableMap.get(joinOrder.get(0).getSrc()));
-      LogicalNode inner;
-      for (Edge edge : joinOrder) {
-        inner = new ScanNode(fromTableMap.get(edge.getTarget()));
-        join = new JoinNode(JoinType.CROSS_JOIN, subroot, inner);
-        subroot = join;
-
-        joinSchema = SchemaUtil.merge(
-            join.getOuterNode().getOutSchema(),
-            join.getInnerNode().getOutSchema());
-        join.setInSchema(joinSchema);
-        join.setOutSchema(joinSchema);
-      }
-    }
-
-    // Here, there are two cases:
-    // 1) there already exists the join plan.
-    // 2) there are no join plan.
-    if (joinOrder != null) { // case 1)
-      // if there are join tables corresponding to any join condition,
-      // the join plan is placed as the outer plan of the product.
-      remain.remove(joinOrder.get(0).getSrc());
-      remain.remove(joinOrder.get(0).getTarget());
-    } else { // case 2)
-      // if there are no inferred joins, the one of the remain join tables is placed as the left table
-      subroot = new ScanNode(fromTableMap.get(remain.get(0)));
-      remain.remove(remain.get(0));
-    }
-
-    // Here, the variable 'remain' contains join tables which are not matched to any join conditions.
-    // Thus, they will be joined by catasian product
-    for (String table : remain) {
-      join = new JoinNode(JoinType.CROSS_JOIN,
-          subroot, new ScanNode(fromTableMap.get(table)));
-      joinSchema = SchemaUtil.merge(
-          join.getOuterNode().getOutSchema(),
-          join.getInnerNode().getOutSchema());
-      join.setInSchema(joinSchema);
-      join.setOutSchema(joinSchema);
-      subroot = join;
-    }
-
-    return subroot;
-  }
-
-  // TODO - this method is somewhat duplicated to createCrossJoinFromJoinCondition. Later, it should be removed.
-  private static LogicalNode createCatasianProduct(FromTable [] tables) {
-    LogicalNode subroot = new ScanNode(tables[0]);
-    Schema joinSchema;
-    if(tables.length > 1) {
-      for(int i=1; i < tables.length; i++) {
-        JoinNode join = new JoinNode(JoinType.CROSS_JOIN,
-            subroot, new ScanNode(tables[i]));
-        joinSchema = SchemaUtil.merge(
-            join.getOuterNode().getOutSchema(),
-            join.getInnerNode().getOutSchema());
-        join.setInSchema(joinSchema);
-        join.setOutSchema(joinSchema);
-        subroot = join;
-      }
     }
 
-    return subroot;
+    // the join order is chosen by the estimated costs with the table statistics.
+    // The join conditions are pushed down to the joins in the optimizer.
+    return new JoinEnumerator(tables, joinTree).enumerate();
   }
 
   public static Schema getProjectedSchema(PlanningContext context, Target [] targets) {
@@ -30,14 +30,18 @@ import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.SortSpec;
 import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.engine.planner.logical.*;
+import org.apache.tajo.engine.planner.logical.extended.SendNode;
 import org.apache.tajo.engine.planner.physical.*;
 import org.apache.tajo.exception.InternalException;
 import org.apache.tajo.storage.Fragment;
+import org.apache.tajo.storage.RawFile;
+import org.apache.tajo.storage.Scanner;
 import org.apache.tajo.storage.StorageManager;
 import org.apache.tajo.storage.TupleComparator;
 import org.apache.tajo.util.IndexUtil;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class PhysicalPlannerImpl implements PhysicalPlanner {
   private static final Log LOG = LogFactory.getLog(PhysicalPlannerImpl.class);
@@ -83,6 +87,11 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
         outer = createPlanRecursive(ctx, storeNode.getSubNode());
         return createStorePlan(ctx, storeNode, outer);
 
+      case SEND:
+        SendNode sendNode = (SendNode) logicalNode;
+        outer = createPlanRecursive(ctx, sendNode.getSubNode());
+        return new SendExec(ctx, sendNode, outer);
+
       case SELECTION:
         SelectionNode selNode = (SelectionNode) logicalNode;
         outer = createPlanRecursive(ctx, selNode.getSubNode());
@@ -168,12 +177,24 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
         return new NLJoinExec(ctx, joinNode, outer, inner);
 
       case INNER:
+        // The broadcast relation is always the build side, and its hash table is
+        // shared by the tasks running in the same worker.
+        if (isBroadcast(joinNode.getInnerNode())) {
+          LOG.info("The planner chooses HashJoinExec for the broadcast join");
+          return new HashJoinExec(ctx, joinNode, outer, inner,
+              getBroadcastKey(joinNode, (ScanNode) joinNode.getInnerNode()));
+        } else if (isBroadcast(joinNode.getOuterNode())) {
+          LOG.info("The planner chooses HashJoinExec for the broadcast join");
+          return new HashJoinExec(ctx, joinNode, inner, outer,
+              getBroadcastKey(joinNode, (ScanNode) joinNode.getOuterNode()));
+        }
+
         String [] outerLineage = PlannerUtil.getLineage(joinNode.getOuterNode());
         String [] innerLineage = PlannerUtil.getLineage(joinNode.getInnerNode());
         long outerSize = estimateSizeRecursive(ctx, outerLineage);
         long innerSize = estimateSizeRecursive(ctx, innerLineage);
 
-        final long threshold = 1048576 * 128; // 64MB
+        final long threshold = (long) ctx.getConf().getIntVar(TajoConf.ConfVars.HASH_JOIN_MEMORY) * 1048576;
 
         boolean hashJoin = false;
         if (outerSize < threshold || innerSize < threshold) {
@@ -184,7 +205,8 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
           PhysicalExec selectedOuter;
           PhysicalExec selectedInner;
 
-          // HashJoinExec loads the inner relation to memory.
+          // HybridHashJoinExec loads the inner relation to memory,
+          // and it spills some partitions to disk if the estimation is wrong.
           if (outerSize <= innerSize) {
             selectedInner = outer;
             selectedOuter = inner;
@@ -193,8 +215,8 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
             selectedOuter = outer;
           }
 
-          LOG.info("The planner chooses HashJoinExec");
-          return new HashJoinExec(ctx, joinNode, selectedOuter, selectedInner);
+          LOG.info("The planner chooses HybridHashJoinExec");
+          return new HybridHashJoinExec(ctx, joinNode, selectedOuter, selectedInner);
         }
 
       default:
@@ -213,6 +235,25 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
     }
   }
 
+  private static boolean isBroadcast(LogicalNode node) {
+    return node.getType() == ExprType.SCAN && ((ScanNode) node).isBroadcast();
+  }
+
+  /**
+   * It returns the key which a broadcast hash table is shared by. The hash table
+   * depends on the filter and the projection of the scan as well as the join qual.
+   */
+  public static String getBroadcastKey(JoinNode joinNode, ScanNode broadcast) {
+    StringBuilder sb = new StringBuilder(broadcast.getTableId());
+    sb.append(":").append(joinNode.getJoinQual());
+    sb.append(":").append(broadcast.hasQual() ? broadcast.getQual() : "");
+    sb.append(":").append(broadcast.getOutSchema().getColumns());
+    if (broadcast.hasTargetList()) {
+      sb.append(":").append(Arrays.toString(broadcast.getTargets()));
+    }
+    return sb.toString();
+  }
+
   public PhysicalExec createStorePlan(TaskAttemptContext ctx,
                                       StoreTableNode plan, PhysicalExec subOp) throws IOException {
     if (plan.hasPartitionKey()) {
@@ -248,6 +289,14 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
     Preconditions.checkNotNull(ctx.getTable(scanNode.getTableId()),
         "Error: There is no table matched to %s", scanNode.getTableId());
 
+    if (ctx.hasShuffleChannel(scanNode.getTableId())) {
+      // the fetched data are scanned while they arrive
+      Scanner scanner = new RawFile.RawFileScanner(ctx.getConf(),
+          ctx.getTable(scanNode.getTableId()).getMeta(),
+          ctx.getShuffleChannel(scanNode.getTableId()));
+      return new SeqScanExec(ctx, sm, scanNode, scanner);
+    }
+
     Fragment[] fragments = ctx.getTables(scanNode.getTableId());
     return new SeqScanExec(ctx, sm, scanNode, fragments);
   }
@@ -261,10 +310,16 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
     } else {
       String [] outerLineage = PlannerUtil.getLineage(groupbyNode.getSubNode());
       long estimatedSize = estimateSizeRecursive(ctx, outerLineage);
-      final long threshold = 1048576 * 256;
+      // the hash table only holds the groups, which can be much fewer than the input rows.
+      if (groupbyNode.hasEstimatedGroupVolume()) {
+        estimatedSize = Math.min(estimatedSize, groupbyNode.getEstimatedGroupVolume());
+      }
+      final long threshold =
+          (long) ctx.getConf().getIntVar(TajoConf.ConfVars.HASH_AGGREGATION_MEMORY) * 1048576;
 
       // if the relation size is less than the reshold,
-      // the hash aggregation will be used.
+      // the hash aggregation will be used. It spills partial aggregation
+      // states to disk if the number of groups is larger than expected.
       if (estimatedSize <= threshold) {
         LOG.info("The planner chooses HashAggregationExec");
         return new HashAggregateExec(ctx, groupbyNode, subOp);
@@ -287,6 +342,12 @@ public class PhysicalPlannerImpl implements PhysicalPlanner {
 
   public PhysicalExec createSortPlan(TaskAttemptContext ctx, SortNode sortNode,
                                      PhysicalExec subOp) throws IOException {
+    // if only the first n tuples are required, the bounded heap is used.
+    if (sortNode.hasFetchFirstNum() &&
+        sortNode.getFetchFirstNum() <= conf.getIntVar(TajoConf.ConfVars.TOPN_MAX_ROWS)) {
+      LOG.info("The planner chooses TopNExec");
+      return new TopNExec(ctx, sortNode, subOp);
+    }
     return new ExternalSortExec(ctx, sm, sortNode, subOp);
   }
 
@@ -225,6 +225,8 @@ public class PlannerUtil {
     Preconditions.checkNotNull(sort);
     
     try {
+      // The child keeps the fetch first number of the sort if it exists.
+      // So, each task of the first phase sends only its top n tuples.
       SortNode child = (SortNode) sort.clone();
       sort.setSubNode(child);
       sort.setInSchema(child.getOutSchema());
@@ -606,6 +608,35 @@ public class PlannerUtil {
     return schema;
   }
 
+  /**
+   * It returns the columns of a scan's input schema which the scan has to read.
+   * They are the output columns and the columns referred by the targets and the
+   * search condition of the scan.
+   */
+  public static Schema getReadSchema(ScanNode scan) {
+    Set<Column> refs = Sets.newHashSet(scan.getOutSchema().getColumns());
+    if (scan.hasTargetList()) {
+      for (QueryBlock.Target target : scan.getTargets()) {
+        refs.addAll(EvalTreeUtil.findDistinctRefColumns(target.getEvalTree()));
+      }
+    }
+    if (scan.hasQual()) {
+      refs.addAll(EvalTreeUtil.findDistinctRefColumns(scan.getQual()));
+    }
+    Set<String> names = Sets.newHashSet();
+    for (Column column : refs) {
+      names.add(column.getQualifiedName());
+    }
+
+    Schema schema = new Schema();
+    for (Column column : scan.getInSchema().getColumns()) {
+      if (names.contains(column.getQualifiedName())) {
+        schema.addColumn(column);
+      }
+    }
+    return schema;
+  }
+
   public static EvalNode [] columnsToEvals(Column [] columns) {
     EvalNode [] exprs = new EvalNode[columns.length];
     for (int i = 0; i < columns.length; i++) {
@@ -20,10 +20,16 @@ package org.apache.tajo.engine.planner;
 
 import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.engine.eval.CompiledEval;
+import org.apache.tajo.engine.eval.EvalCompiler;
 import org.apache.tajo.engine.eval.EvalContext;
 import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.eval.FieldEval;
 import org.apache.tajo.engine.parser.QueryBlock.Target;
+import org.apache.tajo.engine.planner.physical.VectorBatch;
 import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
 
 public class Projector {
   private final Schema inSchema;
@@ -37,7 +43,23 @@ public class Projector {
   private EvalNode[] evals;
   private Tuple prevTuple;
 
+  // compiled expressions of targets, or null for interpreted targets
+  private CompiledEval [] compiled;
+  private Datum [] compiledValues;
+
+  // for the projection of vector batches
+  private int [] evalInMap;
+  private EvalContext [] batchContexts;
+  private Tuple batchTuple;
+
   public Projector(Schema inSchema, Schema outSchema, Target [] targets) {
+    this(inSchema, outSchema, targets, false);
+  }
+
+  /**
+   * @param compile if true, target expressions are compiled by {@link EvalCompiler}
+   */
+  public Projector(Schema inSchema, Schema outSchema, Target [] targets, boolean compile) {
     this.inSchema = inSchema;
     this.outSchema = outSchema;
 
@@ -81,13 +103,29 @@ public class Projector {
         mapId++;
       }
     }
+
+    if (compile && targetNum > 0) {
+      compiled = new CompiledEval[targetNum];
+      compiledValues = new Datum[targetNum];
+      for (int i = 0; i < targetNum; i++) {
+        // a field or a constant is cheaper to be interpreted
+        if (evals[i].getType() != EvalNode.Type.FIELD &&
+            evals[i].getType() != EvalNode.Type.CONST) {
+          compiled[i] = EvalCompiler.compile(inSchema, evals[i]);
+        }
+      }
+    }
   }
 
   public void eval(EvalContext[] evalContexts, Tuple in) {
     this.prevTuple = in;
     if (targetNum > 0) {
       for (int i = 0; i < evals.length; i++) {
-        evals[i].eval(evalContexts[i], inSchema, in);
+        if (compiled != null && compiled[i] != null) {
+          compiledValues[i] = compiled[i].eval(in);
+        } else {
+          evals[i].eval(evalContexts[i], inSchema, in);
+        }
       }
     }
   }
@@ -98,9 +136,71 @@ public class Projector {
     }
     if (targetNum > 0) {
       for (int i = 0; i < evals.length; i++) {
-        out.put(evalOutMap[i], evals[i].terminate(evalContexts[i]));
+        if (compiled != null && compiled[i] != null) {
+          out.put(evalOutMap[i], compiledValues[i]);
+        } else {
+          out.put(evalOutMap[i], evals[i].terminate(evalContexts[i]));
+        }
+      }
+    }
+  }
+
+  /**
+   * It projects the selected rows of the input batch into the output batch.
+   * Columns and field references are copied between column vectors, and the
+   * other expressions are evaluated for each row.
+   */
+  public void project(VectorBatch in, VectorBatch out) {
+    if (batchContexts == null) {
+      initBatch();
+    }
+
+    out.reset();
+    int size = in.size();
+    int rowId;
+    int outRowId;
+    boolean needTuple;
+    for (int i = 0; i < size; i++) {
+      rowId = in.getRowId(i);
+      outRowId = out.addEmptyRow();
+      for (int j = 0; j < inMap.length; j++) {
+        out.getVector(outMap[j]).copy(outRowId, in.getVector(inMap[j]), rowId);
+      }
+
+      needTuple = true;
+      for (int j = 0; j < targetNum; j++) {
+        if (evalInMap[j] >= 0) {
+          out.getVector(evalOutMap[j]).copy(outRowId, in.getVector(evalInMap[j]), rowId);
+        } else {
+          if (needTuple) {
+            in.getRow(rowId, batchTuple);
+            needTuple = false;
+          }
+          if (compiled != null && compiled[j] != null) {
+            out.getVector(evalOutMap[j]).set(outRowId, compiled[j].eval(batchTuple));
+          } else {
+            evals[j].eval(batchContexts[j], inSchema, batchTuple);
+            out.getVector(evalOutMap[j]).set(outRowId, evals[j].terminate(batchContexts[j]));
+          }
+        }
+      }
+    }
+  }
+
+  private void initBatch() {
+    evalInMap = new int[targetNum];
+    for (int i = 0; i < targetNum; i++) {
+      evalInMap[i] = -1;
+      if (evals[i].getType() == EvalNode.Type.FIELD) {
+        String name = ((FieldEval) evals[i]).getColumnRef().getQualifiedName();
+        if (inSchema.contains(name) && inSchema.getColumn(name).getDataType().getType() ==
+            outSchema.getColumn(evalOutMap[i]).getDataType().getType()) {
+          evalInMap[i] = inSchema.getColumnId(name);
+        }
       }
     }
+    batchContexts = renew();
+    batchTuple = new VTuple(inSchema.getColumnNum());
   }
 
   public EvalContext [] renew() {
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner;
+
+import com.google.common.base.Preconditions;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.TupleComparator;
+import org.apache.tajo.storage.TupleRange;
+
+import java.util.*;
+
+/**
+ * It divides a range into equi-depth sub ranges by using the sort keys sampled
+ * from the data. Each sample is weighted by the number of rows that it represents,
+ * so the samples collected from tasks of different sizes can be merged.
+ * Unlike {@link UniformRangePartition}, it does not assume that the keys are
+ * uniformly distributed within the range.
+ */
+public class SampledRangePartition extends RangePartitionAlgorithm {
+  private final TupleComparator comp;
+  private final List<Tuple> samples = new ArrayList<Tuple>();
+  private final List<Double> weights = new ArrayList<Double>();
+
+  /**
+   *
+   * @param schema the schema of the range tuples
+   * @param range the range including all samples
+   */
+  public SampledRangePartition(Schema schema, TupleRange range) {
+    super(schema, range, true);
+    this.comp = new TupleComparator(schema, TupleRange.schemaToSortSpecs(schema));
+  }
+
+  /**
+   * It adds the samples which are taken from <code>rowNum</code> rows.
+   */
+  public void addSamples(Collection<Tuple> sampled, long rowNum) {
+    if (sampled.isEmpty()) {
+      return;
+    }
+    double weight = Math.max((double) rowNum / sampled.size(), 1.0);
+    for (Tuple sample : sampled) {
+      samples.add(sample);
+      weights.add(weight);
+    }
+  }
+
+  public int getSampleNum() {
+    return samples.size();
+  }
+
+  /**
+   *
+   * @param partNum the number of desired partitions. It returns less partitions
+   *                if the samples have not enough distinct keys.
+   * @return the end of intermediate ranges are exclusive, and the end of final range is inclusive.
+   */
+  @Override
+  public TupleRange[] partition(int partNum) {
+    Preconditions.checkArgument(partNum > 0,
+        "The number of partitions must be positive, but the given number: "
+            + partNum);
+
+    Integer [] order = new Integer[samples.size()];
+    double total = 0;
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      total += weights.get(i);
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return comp.compare(samples.get(o1), samples.get(o2));
+      }
+    });
+
+    // the k-th boundary is the first sample following the k/partNum of total weights.
+    List<Tuple> bounds = new ArrayList<Tuple>();
+    double accumulated = 0;
+    int k = 1;
+    Tuple sample;
+    for (int idx : order) {
+      if (k >= partNum) {
+        break;
+      }
+      if (accumulated >= total * k / partNum) {
+        sample = samples.get(idx);
+        if (comp.compare(range.getStart(), sample) < 0 && comp.compare(sample, range.getEnd()) < 0
+            && (bounds.isEmpty() || comp.compare(bounds.get(bounds.size() - 1), sample) < 0)) {
+          bounds.add(sample);
+        }
+        while (k < partNum && accumulated >= total * k / partNum) {
+          k++;
+        }
+      }
+      accumulated += weights.get(idx);
+    }
+
+    TupleRange [] ranges = new TupleRange[bounds.size() + 1];
+    Tuple start = range.getStart();
+    for (int i = 0; i < bounds.size(); i++) {
+      ranges[i] = new TupleRange(schema, start, bounds.get(i));
+      start = bounds.get(i);
+    }
+    ranges[bounds.size()] = new TupleRange(schema, start, range.getEnd());
+    return ranges;
+  }
+}
@@ -34,6 +34,9 @@ public class GroupbyNode extends UnaryNode implements Cloneable {
 	private EvalNode havingCondition = null;
 	@Expose
 	private QueryBlock.Target[] targets;
+  /** the estimated volume of the groups which a task holds, or -1 if it is unknown */
+  @Expose
+  private long estimatedGroupVolume = -1;
 	
 	public GroupbyNode() {
 		super();
@@ -78,6 +81,18 @@ public class GroupbyNode extends UnaryNode implements Cloneable {
     this.targets = targets;
   }
   
+  public void setEstimatedGroupVolume(long estimatedGroupVolume) {
+    this.estimatedGroupVolume = estimatedGroupVolume;
+  }
+
+  public long getEstimatedGroupVolume() {
+    return this.estimatedGroupVolume;
+  }
+
+  public boolean hasEstimatedGroupVolume() {
+    return this.estimatedGroupVolume >= 0;
+  }
+
   public void setSubNode(LogicalNode subNode) {
     super.setSubNode(subNode);
   }
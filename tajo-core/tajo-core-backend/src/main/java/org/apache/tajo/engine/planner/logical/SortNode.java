@@ -28,6 +28,9 @@ import org.apache.tajo.util.TUtil;
 public final class SortNode extends UnaryNode implements Cloneable {
 	@Expose
   private SortSpec[] sortKeys;
+  /** the number of tuples required by a limit clause, or -1 if all tuples are required */
+  @Expose
+  private long fetchFirstNum = -1;
 	
 	public SortNode() {
 		super();
@@ -49,6 +52,18 @@ public final class SortNode extends UnaryNode implements Cloneable {
   public SortSpec[] getSortKeys() {
     return this.sortKeys;
   }
+
+  public void setFetchFirstNum(long fetchFirstNum) {
+    this.fetchFirstNum = fetchFirstNum;
+  }
+
+  public long getFetchFirstNum() {
+    return this.fetchFirstNum;
+  }
+
+  public boolean hasFetchFirstNum() {
+    return this.fetchFirstNum >= 0;
+  }
   
   @Override 
   public boolean equals(Object obj) {
@@ -56,6 +71,7 @@ public final class SortNode extends UnaryNode implements Cloneable {
       SortNode other = (SortNode) obj;
       return super.equals(other)
           && TUtil.checkEquals(sortKeys, other.sortKeys)
+          && fetchFirstNum == other.fetchFirstNum
           && subExpr.equals(other.subExpr);
     } else {
       return false;
@@ -80,6 +96,9 @@ public final class SortNode extends UnaryNode implements Cloneable {
       }
     }
     sb.append("]");
+    if (hasFetchFirstNum()) {
+      sb.append(" [fetch first ").append(fetchFirstNum).append("]");
+    }
 
     sb.append("\n\"out schema: " + getOutSchema()
         + "\n\"in schema: " + getInSchema());
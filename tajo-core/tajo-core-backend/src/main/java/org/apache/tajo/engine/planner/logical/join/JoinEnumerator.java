@@ -0,0 +1,428 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.engine.planner.logical.join;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.statistics.ColumnStat;
+import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.eval.EvalTreeUtil;
+import org.apache.tajo.engine.parser.QueryBlock.FromTable;
+import org.apache.tajo.engine.planner.JoinType;
+import org.apache.tajo.engine.planner.logical.JoinNode;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.engine.planner.logical.ScanNode;
+import org.apache.tajo.engine.utils.SchemaUtil;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JoinEnumerator chooses the order of the implicit joins in a FROM clause.
+ *
+ * The cost of a join order is the sum of the estimated numbers of rows of its
+ * intermediate results. The number of rows of a join is the product of the
+ * numbers of rows of its tables and the selectivities of its join conditions.
+ * The selectivity of an equi-join condition is 1 / max(ndv(left), ndv(right)),
+ * where ndv is the number of distinct values of a column in the table
+ * statistics. A column without distinct values is assumed to be a key.
+ *
+ * It finds the cheapest left-deep order of each connected group of tables by
+ * dynamic programming if the group has at most <code>dpThreshold</code>
+ * tables, and by a greedy search otherwise. The groups are joined by
+ * cartesian products from the smallest one. In each join, the input with
+ * fewer estimated bytes becomes the inner (build) relation. The FROM order is
+ * kept for ties.
+ *
+ * A table without statistics may be of any size, so a group having such a
+ * table is joined in the FROM order, and so are the groups if any of them has
+ * such a table. A table name which occurs more than once, as in a self-join,
+ * is not distinguished by the join conditions, so the repeated occurrences
+ * are joined as if they had no join condition.
+ */
+public class JoinEnumerator {
+  private static final Log LOG = LogFactory.getLog(JoinEnumerator.class);
+
+  /** the maximum number of tables whose join order is found by dynamic programming */
+  public static final int DEFAULT_DP_THRESHOLD = 10;
+  // the number of rows assumed for a table without statistics
+  private static final double DEFAULT_ROWS = 1000;
+  // the selectivity assumed for a join condition other than an equality
+  private static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+  private static final double EPSILON = 1e-9;
+
+  private final FromTable [] tables;
+  private final int dpThreshold;
+  private final double [] rows;
+  private final double [] widths;
+  private final boolean [] estimated;
+  // the product of the selectivities of the join conditions between two tables
+  private final double [][] selectivities;
+  private final boolean [][] connected;
+
+  public JoinEnumerator(FromTable [] tables, JoinTree joinTree) {
+    this(tables, joinTree, DEFAULT_DP_THRESHOLD);
+  }
+
+  public JoinEnumerator(FromTable [] tables, JoinTree joinTree, int dpThreshold) {
+    this.tables = tables;
+    this.dpThreshold = dpThreshold;
+
+    int n = tables.length;
+    rows = new double[n];
+    widths = new double[n];
+    estimated = new boolean[n];
+    Map<String, Integer> indices = Maps.newHashMap();
+    for (int i = 0; i < n; i++) {
+      // the join conditions refer to the table names rather than the aliases
+      if (!indices.containsKey(tables[i].getTableName())) {
+        indices.put(tables[i].getTableName(), i);
+      } else {
+        LOG.info("The join conditions of the repeated table " + tables[i].getTableName()
+            + " (" + tables[i].getTableId() + ") are not used to order the joins");
+      }
+      TableStat stat = tables[i].getMeta().getStat();
+      if (stat != null && stat.getNumRows() > 0 && stat.getNumBytes() > 0) {
+        rows[i] = stat.getNumRows();
+        widths[i] = (double) stat.getNumBytes() / stat.getNumRows();
+        estimated[i] = true;
+      } else {
+        rows[i] = DEFAULT_ROWS;
+        widths[i] = 1;
+      }
+    }
+
+    selectivities = new double[n][n];
+    connected = new boolean[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        selectivities[i][j] = 1;
+      }
+    }
+    // every join condition is given as the edges of both directions
+    for (String table : joinTree.getTables()) {
+      for (Edge edge : joinTree.getEdges(table)) {
+        Integer src = indices.get(edge.getSrc());
+        Integer target = indices.get(edge.getTarget());
+        if (src == null || target == null || src >= target) {
+          continue;
+        }
+        double selectivity = estimateSelectivity(edge.getJoinQual(), indices);
+        selectivities[src][target] *= selectivity;
+        selectivities[target][src] *= selectivity;
+        connected[src][target] = connected[target][src] = true;
+      }
+    }
+  }
+
+  private double estimateSelectivity(EvalNode joinQual, Map<String, Integer> indices) {
+    if (joinQual.getType() != EvalNode.Type.EQUAL) {
+      return DEFAULT_SELECTIVITY;
+    }
+    Column left = EvalTreeUtil.findAllColumnRefs(joinQual.getLeftExpr()).get(0);
+    Column right = EvalTreeUtil.findAllColumnRefs(joinQual.getRightExpr()).get(0);
+    double ndv = Math.max(getDistValues(left, indices.get(left.getTableName())),
+        getDistValues(right, indices.get(right.getTableName())));
+    return 1 / Math.max(ndv, 1);
+  }
+
+  private double getDistValues(Column column, int table) {
+    TableStat stat = tables[table].getMeta().getStat();
+    if (estimated[table]) {
+      for (ColumnStat columnStat : stat.getColumnStats()) {
+        if (columnStat.hasDistValSketch() &&
+            columnStat.getColumn().getQualifiedName().equals(column.getQualifiedName())) {
+          // the number of distinct values cannot exceed the number of rows.
+          return Math.min(columnStat.getNumDistValues(), rows[table]);
+        }
+      }
+    }
+    return rows[table];
+  }
+
+  /**
+   * @return the join tree of the tables, whose joins are all cartesian products.
+   * The join conditions are pushed down to the joins by the optimizer.
+   */
+  public LogicalNode enumerate() {
+    final List<Relation> groups = Lists.newArrayList();
+    boolean estimatedAll = true;
+    for (List<Integer> group : findConnectedGroups()) {
+      int [] order;
+      if (!isEstimated(group)) {
+        order = Ints.toArray(group);
+        estimatedAll = false;
+      } else if (group.size() <= Math.max(dpThreshold, 2)) {
+        order = orderByDP(group);
+      } else {
+        order = orderByGreedy(group);
+      }
+      Relation relation = new Relation(order[0]);
+      for (int i = 1; i < order.length; i++) {
+        relation = join(relation, new Relation(order[i]));
+      }
+      groups.add(relation);
+    }
+
+    // the groups without any join condition between them
+    if (estimatedAll) {
+      Collections.sort(groups, new Comparator<Relation>() {
+        @Override
+        public int compare(Relation r1, Relation r2) {
+          return Double.compare(r1.rows, r2.rows);
+        }
+      });
+    }
+    Relation result = groups.get(0);
+    for (int i = 1; i < groups.size(); i++) {
+      result = join(result, groups.get(i));
+    }
+
+    if (tables.length > 1) {
+      LOG.info("The join order is chosen (estimated rows: " + (long) result.rows
+          + ", cost: " + (long) result.cost + ")");
+    }
+    return result.node;
+  }
+
+  /**
+   * @return true if every table of a group has statistics
+   */
+  private boolean isEstimated(List<Integer> group) {
+    for (int table : group) {
+      if (!estimated[table]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the groups of the tables connected by join conditions, in the FROM order
+   */
+  private List<List<Integer>> findConnectedGroups() {
+    List<List<Integer>> groups = Lists.newArrayList();
+    boolean [] visited = new boolean[tables.length];
+    for (int i = 0; i < tables.length; i++) {
+      if (visited[i]) {
+        continue;
+      }
+      List<Integer> group = Lists.newArrayList();
+      visited[i] = true;
+      group.add(i);
+      for (int k = 0; k < group.size(); k++) {
+        for (int j = 0; j < tables.length; j++) {
+          if (!visited[j] && connected[group.get(k)][j]) {
+            visited[j] = true;
+            group.add(j);
+          }
+        }
+      }
+      Collections.sort(group);
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  /**
+   * It finds the cheapest left-deep order over the subsets of a group. A table
+   * joins a subset only if they are connected by a join condition.
+   */
+  private int [] orderByDP(List<Integer> group) {
+    int n = group.size();
+    int full = (1 << n) - 1;
+    double [] card = new double[full + 1];
+    double [] cost = new double[full + 1];
+    int [] last = new int[full + 1];
+
+    for (int mask = 1; mask <= full; mask++) {
+      cost[mask] = Double.POSITIVE_INFINITY;
+      int top = 31 - Integer.numberOfLeadingZeros(mask);
+      int rest = mask ^ (1 << top);
+      if (rest == 0) {
+        card[mask] = rows[group.get(top)];
+        cost[mask] = 0;
+        last[mask] = top;
+        continue;
+      }
+      // the number of rows of a subset does not depend on the join order
+      card[mask] = card[rest] * rows[group.get(top)] * getSelectivity(group, top, rest);
+
+      // the later table in the FROM order is preferred as the last one for ties
+      for (int t = n - 1; t >= 0; t--) {
+        rest = mask ^ (1 << t);
+        if ((mask & (1 << t)) == 0 || Double.isInfinite(cost[rest])
+            || !isConnected(group, t, rest)) {
+          continue;
+        }
+        double c = cost[rest] + card[mask];
+        if (c < cost[mask] * (1 - EPSILON)) {
+          cost[mask] = c;
+          last[mask] = t;
+        }
+      }
+    }
+
+    int [] order = new int[n];
+    int mask = full;
+    for (int i = n - 1; i >= 0; i--) {
+      order[i] = group.get(last[mask]);
+      mask ^= 1 << last[mask];
+    }
+    return order;
+  }
+
+  private double getSelectivity(List<Integer> group, int t, int subset) {
+    double selectivity = 1;
+    for (int u = 0; u < group.size(); u++) {
+      if ((subset & (1 << u)) != 0) {
+        selectivity *= selectivities[group.get(t)][group.get(u)];
+      }
+    }
+    return selectivity;
+  }
+
+  private boolean isConnected(List<Integer> group, int t, int subset) {
+    for (int u = 0; u < group.size(); u++) {
+      if ((subset & (1 << u)) != 0 && connected[group.get(t)][group.get(u)]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * It starts from the join of two tables with the fewest rows, and then
+   * repeatedly adds the connected table which gives the fewest rows.
+   */
+  private int [] orderByGreedy(List<Integer> group) {
+    int n = group.size();
+    int [] order = new int[n];
+    boolean [] joined = new boolean[tables.length];
+
+    double best = Double.POSITIVE_INFINITY;
+    for (int i : group) {
+      for (int j : group) {
+        if (i < j && connected[i][j] && rows[i] * rows[j] * selectivities[i][j] < best * (1 - EPSILON)) {
+          best = rows[i] * rows[j] * selectivities[i][j];
+          order[0] = i;
+          order[1] = j;
+        }
+      }
+    }
+    joined[order[0]] = joined[order[1]] = true;
+
+    for (int k = 2; k < n; k++) {
+      best = Double.POSITIVE_INFINITY;
+      for (int t : group) {
+        if (joined[t]) {
+          continue;
+        }
+        double selectivity = 1;
+        boolean linked = false;
+        for (int u : group) {
+          if (joined[u]) {
+            selectivity *= selectivities[t][u];
+            linked |= connected[t][u];
+          }
+        }
+        if (linked && rows[t] * selectivity < best * (1 - EPSILON)) {
+          best = rows[t] * selectivity;
+          order[k] = t;
+        }
+      }
+      joined[order[k]] = true;
+    }
+    return order;
+  }
+
+  private Relation join(Relation left, Relation right) {
+    Relation joined = new Relation();
+    joined.tables = new boolean[tables.length];
+    double selectivity = 1;
+    for (int i = 0; i < tables.length; i++) {
+      joined.tables[i] = left.tables[i] || right.tables[i];
+      if (left.tables[i]) {
+        for (int j = 0; j < tables.length; j++) {
+          if (right.tables[j]) {
+            selectivity *= selectivities[i][j];
+          }
+        }
+      }
+    }
+    joined.rows = left.rows * right.rows * selectivity;
+    joined.width = left.width + right.width;
+    joined.cost = left.cost + right.cost + joined.rows;
+    joined.estimated = left.estimated && right.estimated;
+
+    // the smaller input becomes the inner relation, which is loaded into memory
+    // by hash joins and rescanned by nested loop joins.
+    if (joined.estimated && right.getBytes() > left.getBytes()) {
+      Relation tmp = left;
+      left = right;
+      right = tmp;
+    }
+    JoinNode join = new JoinNode(JoinType.CROSS_JOIN, left.node, right.node);
+    Schema joinSchema = SchemaUtil.merge(
+        join.getOuterNode().getOutSchema(),
+        join.getInnerNode().getOutSchema());
+    join.setInSchema(joinSchema);
+    join.setOutSchema(joinSchema);
+    joined.node = join;
+
+    return joined;
+  }
+
+  /**
+   * A table or a join of tables with its estimates.
+   */
+  private class Relation {
+    LogicalNode node;
+    boolean [] tables;
+    double rows;
+    double width;
+    double cost;
+    boolean estimated;
+
+    Relation() {
+    }
+
+    Relation(int table) {
+      node = new ScanNode(JoinEnumerator.this.tables[table]);
+      tables = new boolean[JoinEnumerator.this.tables.length];
+      tables[table] = true;
+      rows = JoinEnumerator.this.rows[table];
+      width = widths[table];
+      estimated = JoinEnumerator.this.estimated[table];
+    }
+
+    double getBytes() {
+      return rows * width;
+    }
+  }
+}
@@ -23,6 +23,7 @@ import org.apache.tajo.engine.eval.EvalContext;
 import org.apache.tajo.engine.eval.EvalNode;
 import org.apache.tajo.engine.planner.logical.JoinNode;
 import org.apache.tajo.engine.utils.SchemaUtil;
+import org.apache.tajo.engine.utils.TupleUtil;
 import org.apache.tajo.storage.FrameTuple;
 import org.apache.tajo.storage.RowStoreUtil;
 import org.apache.tajo.storage.Tuple;
@@ -87,7 +88,7 @@ public class BNLJoinExec extends BinaryPhysicalExec {
           outerEnd = true;
           break;
         }
-        outerTupleSlots.add(t);
+        outerTupleSlots.add(TupleUtil.copy(t));
       }
       outerIterator = outerTupleSlots.iterator();
       outerTuple = outerIterator.next();
@@ -100,7 +101,7 @@ public class BNLJoinExec extends BinaryPhysicalExec {
           innerEnd = true;
           break;
         }
-        innerTupleSlots.add(t);
+        innerTupleSlots.add(TupleUtil.copy(t));
       }
       innerIterator = innerTupleSlots.iterator();
     }
@@ -129,7 +130,7 @@ public class BNLJoinExec extends BinaryPhysicalExec {
                 outerEnd = true;
                 break;
               }
-              outerTupleSlots.add(t);
+              outerTupleSlots.add(TupleUtil.copy(t));
             }
             if (outerTupleSlots.isEmpty()) {
               return null;
@@ -144,14 +145,14 @@ public class BNLJoinExec extends BinaryPhysicalExec {
           
           innerTupleSlots.clear();
           if (innext != null) {
-            innerTupleSlots.add(innext);
+            innerTupleSlots.add(TupleUtil.copy(innext));
             for (int k = 1; k < TUPLE_SLOT_SIZE; k++) { // fill inner
               Tuple t = innerChild.next();
               if (t == null) {
                 innerEnd = true;
                 break;
               }
-              innerTupleSlots.add(t);
+              innerTupleSlots.add(TupleUtil.copy(t));
             }
           } else {
             for (int k = 0; k < TUPLE_SLOT_SIZE; k++) { // fill inner
@@ -160,7 +161,7 @@ public class BNLJoinExec extends BinaryPhysicalExec {
                 innerEnd = true;
                 break;
               }
-              innerTupleSlots.add(t);
+              innerTupleSlots.add(TupleUtil.copy(t));
             }
           }
           
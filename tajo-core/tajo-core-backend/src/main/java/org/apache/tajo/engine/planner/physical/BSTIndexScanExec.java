@@ -24,6 +24,7 @@ import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.engine.eval.EvalContext;
 import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.Projector;
 import org.apache.tajo.engine.planner.logical.ScanNode;
 import org.apache.tajo.storage.*;
@@ -41,6 +42,7 @@ public class BSTIndexScanExec extends PhysicalExec {
   
   private final Projector projector;
   private EvalContext [] evalContexts;
+  private final Tuple outTuple;
   
   private Datum[] datum = null;
   
@@ -61,9 +63,10 @@ public class BSTIndexScanExec extends PhysicalExec {
     this.datum = datum;
 
     this.fileScanner = (SeekableScanner)StorageManager.getScanner(context.getConf(),
-        fragment.getMeta(), fragment, outSchema);
+        fragment.getMeta(), fragment, PlannerUtil.getReadSchema(scanNode));
     this.projector = new Projector(inSchema, outSchema, scanNode.getTargets());
     this.evalContexts = projector.renew();
+    this.outTuple = new VTuple(this.outSchema.getColumnNum());
 
     this.reader = new BSTIndex(sm.getFileSystem().getConf()).
         getIndexReader(fileName, keySchema, comparator);
@@ -104,7 +107,6 @@ public class BSTIndexScanExec extends PhysicalExec {
       }
     }
     Tuple tuple;
-    Tuple outTuple = new VTuple(this.outSchema.getColumnNum());
     if (!scanNode.hasQual()) {
       if ((tuple = fileScanner.next()) != null) {
         projector.eval(evalContexts, tuple);
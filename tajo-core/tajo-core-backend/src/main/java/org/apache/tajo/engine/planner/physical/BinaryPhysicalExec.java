@@ -60,4 +60,9 @@ public abstract class BinaryPhysicalExec extends PhysicalExec {
     outerChild.close();
     innerChild.close();
   }
+
+  @Override
+  public float getProgress() {
+    return (outerChild.getProgress() + innerChild.getProgress()) / 2;
+  }
 }
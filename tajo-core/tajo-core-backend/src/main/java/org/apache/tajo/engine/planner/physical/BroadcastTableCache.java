@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.SubQueryId;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * It keeps the in-memory tables built from broadcast relations, so that the tasks
+ * of the same SubQuery running in a worker build each table only once. The first
+ * task requiring a table builds it, and the other tasks wait for and share it.
+ * The tables must be read-only after they are built.
+ */
+public class BroadcastTableCache {
+  private static final Map<SubQueryId, Map<String, FutureTask<Object>>> tables =
+      new HashMap<SubQueryId, Map<String, FutureTask<Object>>>();
+
+  public static Object get(SubQueryId subQueryId, String key, Callable<Object> builder)
+      throws IOException {
+    FutureTask<Object> future;
+    boolean builderOwner = false;
+    synchronized (tables) {
+      Map<String, FutureTask<Object>> tablesOfSubQuery = tables.get(subQueryId);
+      if (tablesOfSubQuery == null) {
+        tablesOfSubQuery = new HashMap<String, FutureTask<Object>>();
+        tables.put(subQueryId, tablesOfSubQuery);
+      }
+      future = tablesOfSubQuery.get(key);
+      if (future == null) {
+        future = new FutureTask<Object>(builder);
+        tablesOfSubQuery.put(key, future);
+        builderOwner = true;
+      }
+    }
+
+    if (builderOwner) {
+      future.run();
+    }
+
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      // a following task will retry to build the table.
+      remove(subQueryId, key, future);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void remove(SubQueryId subQueryId, String key, FutureTask<Object> future) {
+    synchronized (tables) {
+      Map<String, FutureTask<Object>> tablesOfSubQuery = tables.get(subQueryId);
+      if (tablesOfSubQuery != null && tablesOfSubQuery.get(key) == future) {
+        tablesOfSubQuery.remove(key);
+      }
+    }
+  }
+
+  /**
+   * It releases all tables built for a given SubQuery.
+   */
+  public static void remove(SubQueryId subQueryId) {
+    synchronized (tables) {
+      tables.remove(subQueryId);
+    }
+  }
+}
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.datum.NullDatum;
+
+import java.util.Arrays;
+
+/**
+ * The values of a column in a {@link VectorBatch}. Integral values are kept
+ * in a long array, and real values are kept in a double array. Values of the
+ * other types are kept as datums.
+ */
+public class ColumnVector {
+  public static enum Kind {
+    LONG,
+    DOUBLE,
+    DATUM
+  }
+
+  private final Type type;
+  private final Kind kind;
+  private final long [] longs;
+  private final double [] doubles;
+  private final boolean [] nulls;
+  // datums whose types are different from the column type, or all datums of the DATUM kind.
+  // The values of the datums of the same kind are also kept in the primitive array.
+  private Datum [] datums;
+  private boolean noNulls = true;
+  private boolean primitive = true;
+
+  public ColumnVector(Type type, int capacity) {
+    this.type = type;
+    this.kind = getKind(type);
+    switch (kind) {
+      case LONG:
+        longs = new long[capacity];
+        doubles = null;
+        break;
+      case DOUBLE:
+        longs = null;
+        doubles = new double[capacity];
+        break;
+      default:
+        longs = null;
+        doubles = null;
+        datums = new Datum[capacity];
+        primitive = false;
+    }
+    this.nulls = new boolean[capacity];
+  }
+
+  /**
+   * @return the kind of the vectors of a column type
+   */
+  public static Kind getKind(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+        return Kind.LONG;
+      case FLOAT4:
+      case FLOAT8:
+        return Kind.DOUBLE;
+      default:
+        return Kind.DATUM;
+    }
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public void reset() {
+    if (!noNulls) {
+      Arrays.fill(nulls, false);
+      noNulls = true;
+    }
+    if (kind != Kind.DATUM && !primitive) {
+      Arrays.fill(datums, null);
+      primitive = true;
+    }
+  }
+
+  /**
+   * @return true if no value is null.
+   */
+  public boolean noNulls() {
+    return noNulls;
+  }
+
+  /**
+   * @return true if all values can be read by {@link #getLong(int)} or
+   * {@link #getDouble(int)}.
+   */
+  public boolean isPrimitive() {
+    return primitive;
+  }
+
+  public boolean isNull(int row) {
+    return nulls[row];
+  }
+
+  /**
+   * @return true if the value of the row is not null and it can be read by
+   * {@link #getLong(int)} or {@link #getDouble(int)}.
+   */
+  public boolean hasValue(int row) {
+    if (nulls[row] || kind == Kind.DATUM) {
+      return false;
+    }
+    return primitive || datums[row] == null || getKind(datums[row].type()) == kind;
+  }
+
+  public long getLong(int row) {
+    return longs[row];
+  }
+
+  public double getDouble(int row) {
+    return doubles[row];
+  }
+
+  public void set(int row, Datum datum) {
+    if (datum == null || datum instanceof NullDatum) {
+      nulls[row] = true;
+      noNulls = false;
+      return;
+    }
+
+    nulls[row] = false;
+    if (kind == Kind.DATUM) {
+      datums[row] = datum;
+    } else if (datum.type() != type) {
+      if (datums == null) {
+        datums = new Datum[nulls.length];
+      }
+      datums[row] = datum;
+      primitive = false;
+      if (getKind(datum.type()) == kind) {
+        setValue(row, datum);
+      }
+    } else {
+      if (!primitive) {
+        datums[row] = null;
+      }
+      setValue(row, datum);
+    }
+  }
+
+  private void setValue(int row, Datum datum) {
+    if (kind == Kind.LONG) {
+      longs[row] = datum.asInt8();
+    } else {
+      doubles[row] = datum.asFloat8();
+    }
+  }
+
+  public Datum get(int row) {
+    if (nulls[row]) {
+      return DatumFactory.createNullDatum();
+    }
+    if (!primitive && datums[row] != null) {
+      return datums[row];
+    }
+
+    switch (type) {
+      case INT2:
+        return DatumFactory.createInt2((short) longs[row]);
+      case INT4:
+        return DatumFactory.createInt4((int) longs[row]);
+      case INT8:
+        return DatumFactory.createInt8(longs[row]);
+      case FLOAT4:
+        return DatumFactory.createFloat4((float) doubles[row]);
+      default:
+        return DatumFactory.createFloat8(doubles[row]);
+    }
+  }
+
+  /**
+   * It copies a value of another vector of the same type without creating a datum.
+   */
+  public void copy(int row, ColumnVector from, int fromRow) {
+    if (from.nulls[fromRow]) {
+      nulls[row] = true;
+      noNulls = false;
+    } else if (kind != from.kind || kind == Kind.DATUM ||
+        (!from.primitive && from.datums[fromRow] != null)) {
+      set(row, from.get(fromRow));
+    } else {
+      nulls[row] = false;
+      if (!primitive) {
+        datums[row] = null;
+      }
+      if (kind == Kind.LONG) {
+        longs[row] = from.longs[fromRow];
+      } else {
+        doubles[row] = from.doubles[fromRow];
+      }
+    }
+  }
+}
@@ -26,23 +26,36 @@ import org.apache.tajo.catalog.TableMeta;
 import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.planner.logical.SortNode;
+import org.apache.tajo.engine.utils.TupleUtil;
 import org.apache.tajo.storage.*;
 
 import java.io.IOException;
 import java.util.*;
 
+/**
+ * This is the external sort operator. It sorts chunks of tuples in memory and
+ * stores them to local files. The size of a chunk is limited by
+ * <code>tajo.extsort.buffer.mb</code>. Then, the sorted chunks are merged by k-way
+ * merges whose fan-in is limited by <code>tajo.extsort.fanin</code>. The last
+ * merge is done while tuples are being returned.
+ */
 public class ExternalSortExec extends SortExec {
   private SortNode plan;
 
+  // a sort buffer of serialized rows, or tuple slots if the schema is not supported by it
+  private final SortBuffer sortBuffer;
   private final List<Tuple> tupleSlots;
+  private long tupleSlotsSize;
   private boolean sorted = false;
-  private RawFile.RawFileScanner result;
+  private LoserTree result;
   private RawFile.RawFileAppender appender;
   private FileSystem localFS;
 
   private final TableMeta meta;
   private final Path sortTmpDir;
-  private int SORT_BUFFER_SIZE;
+  private final long sortBufferBytes;
+  private final int fanIn;
+  private Path [] resultChunks;
 
   public ExternalSortExec(final TaskAttemptContext context,
       final StorageManager sm, final SortNode plan, final PhysicalExec child)
@@ -51,12 +64,20 @@ public class ExternalSortExec extends SortExec {
         plan.getSortKeys());
     this.plan = plan;
 
-    this.SORT_BUFFER_SIZE = context.getConf().getIntVar(ConfVars.EXT_SORT_BUFFER);
-    this.tupleSlots = new ArrayList<Tuple>(SORT_BUFFER_SIZE);
+    this.sortBufferBytes =
+        (long) context.getConf().getIntVar(ConfVars.EXT_SORT_BUFFER_SIZE) * 1048576;
+    if (SortBuffer.isSupported(inSchema, plan.getSortKeys())) {
+      this.sortBuffer = new SortBuffer(inSchema, plan.getSortKeys(), sortBufferBytes);
+      this.tupleSlots = null;
+    } else {
+      this.sortBuffer = null;
+      this.tupleSlots = new ArrayList<Tuple>();
+    }
+    this.fanIn = Math.max(2, context.getConf().getIntVar(ConfVars.EXT_SORT_FANIN));
 
     this.sortTmpDir = new Path(context.getWorkDir(), UUID.randomUUID().toString());
     this.localFS = FileSystem.getLocal(context.getConf());
-    meta = CatalogUtil.newTableMeta(inSchema, StoreType.ROWFILE);
+    meta = CatalogUtil.newTableMeta(inSchema, StoreType.RAW);
   }
 
   public void init() throws IOException {
@@ -68,10 +89,7 @@ public class ExternalSortExec extends SortExec {
     return this.plan;
   }
 
-  private void sortAndStoreChunk(int chunkId, List<Tuple> tupleSlots)
-      throws IOException {
-    TableMeta meta = CatalogUtil.newTableMeta(inSchema, StoreType.RAW);
-    Collections.sort(tupleSlots, getComparator());
+  private void sortAndStoreChunk(int chunkId) throws IOException {
     // TODO - RawFile requires the local file path.
     // So, I add the scheme 'file:/' to path. But, it should be improved.
     Path localPath = new Path(sortTmpDir + "/0_" + chunkId);
@@ -79,11 +97,21 @@ public class ExternalSortExec extends SortExec {
     appender = new RawFile.RawFileAppender(context.getConf(), meta, localPath);
     appender.init();
 
-    for (Tuple t : tupleSlots) {
-      appender.addTuple(t);
+    if (sortBuffer != null) {
+      sortBuffer.sort();
+      for (int i = 0; i < sortBuffer.size(); i++) {
+        appender.addTuple(sortBuffer.get(i));
+      }
+      sortBuffer.clear();
+    } else {
+      Collections.sort(tupleSlots, getComparator());
+      for (Tuple t : tupleSlots) {
+        appender.addTuple(t);
+      }
+      tupleSlots.clear();
+      tupleSlotsSize = 0;
     }
     appender.close();
-    tupleSlots.clear();
   }
 
   /**
@@ -96,15 +124,25 @@ public class ExternalSortExec extends SortExec {
 
     Tuple tuple;
     while ((tuple = child.next()) != null) { // partition sort start
-      tupleSlots.add(new VTuple(tuple));
-      if (tupleSlots.size() == SORT_BUFFER_SIZE) {
-        sortAndStoreChunk(chunkId, tupleSlots);
-        chunkId++;
+      if (sortBuffer != null) {
+        if (!sortBuffer.add(tuple)) {
+          sortAndStoreChunk(chunkId);
+          chunkId++;
+          sortBuffer.add(tuple);
+        }
+      } else {
+        tupleSlots.add(new VTuple(tuple));
+        tupleSlotsSize += TupleUtil.estimateSize(tuple);
+        if (tupleSlotsSize >= sortBufferBytes) {
+          sortAndStoreChunk(chunkId);
+          chunkId++;
+        }
       }
     }
 
-    if (tupleSlots.size() > 0) {
-      sortAndStoreChunk(chunkId, tupleSlots);
+    if ((sortBuffer != null && sortBuffer.size() > 0) ||
+        (tupleSlots != null && tupleSlots.size() > 0)) {
+      sortAndStoreChunk(chunkId);
       chunkId++;
     }
 
@@ -124,98 +162,159 @@ public class ExternalSortExec extends SortExec {
 
       // if there are no chunk
       if (totalChunkNumForLevel == 0) {
+        sorted = true;
         return null;
       }
 
       int level = 0;
-      int chunkId = 0;
-
-      // continue until the chunk remains only one
-      while (totalChunkNumForLevel > 1) {
 
-        while (chunkId < totalChunkNumForLevel) {
+      // continue until the remain chunks can be merged by one k-way merge
+      while (totalChunkNumForLevel > fanIn) {
+        int nextChunkId = 0;
 
-          Path nextChunk = getChunkPath(level + 1, chunkId / 2);
+        for (int chunkId = 0; chunkId < totalChunkNumForLevel; chunkId += fanIn) {
+          int num = Math.min(fanIn, totalChunkNumForLevel - chunkId);
+          Path nextChunk = getChunkPath(level + 1, nextChunkId++);
 
-          // if number of chunkId is odd just copy it.
-          if (chunkId + 1 >= totalChunkNumForLevel) {
-
-            Path chunk = getChunkPath(level, chunkId);
-            localFS.moveFromLocalFile(chunk, nextChunk);
+          // if only one chunk remains, just move it.
+          if (num == 1) {
+            localFS.rename(getChunkPath(level, chunkId), nextChunk);
 
           } else {
-
-            Path leftChunk = getChunkPath(level, chunkId);
-            Path rightChunk = getChunkPath(level, chunkId + 1);
+            Path [] chunks = new Path[num];
+            for (int i = 0; i < num; i++) {
+              chunks[i] = getChunkPath(level, chunkId + i);
+            }
 
             appender = new RawFile.RawFileAppender(context.getConf(), meta, nextChunk);
             appender.init();
-            merge(appender, leftChunk, rightChunk);
-
+            LoserTree tree = new LoserTree(chunks);
+            Tuple tuple;
+            while ((tuple = tree.next()) != null) {
+              appender.addTuple(tuple);
+            }
+            tree.close();
             appender.flush();
             appender.close();
-          }
 
-          chunkId += 2;
+            for (Path chunk : chunks) {
+              localFS.delete(chunk, false);
+            }
+          }
         }
 
         level++;
-        // init chunkId for each level
-        chunkId = 0;
-        // calculate the total number of chunks for next level
-        totalChunkNumForLevel = totalChunkNumForLevel / 2
-            + totalChunkNumForLevel % 2;
+        totalChunkNumForLevel = nextChunkId;
       }
 
-      Path result = getChunkPath(level, 0);
-      this.result = new RawFile.RawFileScanner(context.getConf(), meta, result);
+      // the last merge is not written to disk, and its result is directly returned.
+      resultChunks = new Path[totalChunkNumForLevel];
+      for (int i = 0; i < totalChunkNumForLevel; i++) {
+        resultChunks[i] = getChunkPath(level, i);
+      }
+      result = new LoserTree(resultChunks);
       sorted = true;
     }
 
-    return result.next();
+    return result == null ? null : result.next();
   }
 
-  private void merge(RawFile.RawFileAppender appender, Path left, Path right)
-      throws IOException {
-    RawFile.RawFileScanner leftScan = new RawFile.RawFileScanner(context.getConf(), meta, left);
+  @Override
+  public void rescan() throws IOException {
+    if (result != null) {
+      result.close();
+      result = new LoserTree(resultChunks);
+    }
+  }
 
-    RawFile.RawFileScanner rightScan =
-        new RawFile.RawFileScanner(context.getConf(), meta, right);
+  @Override
+  public void close() throws IOException {
+    super.close();
+    if (result != null) {
+      result.close();
+    }
+  }
 
-    Tuple leftTuple = leftScan.next();
-    Tuple rightTuple = rightScan.next();
+  /**
+   * It merges a number of sorted chunks at once by using a loser tree.
+   * Each internal node keeps the loser of the match between its two subtrees,
+   * so only log(k) comparisons are required to find the next smallest tuple.
+   */
+  private class LoserTree {
+    private final RawFile.RawFileScanner [] scanners;
+    private final Tuple [] heads;
+    // tree[0] is the winner, and tree[1 .. k-1] are losers of internal nodes.
+    private final int [] tree;
+    private final int k;
+    private final Comparator<Tuple> comparator = getComparator();
+    private boolean needAdvance = false;
+
+    LoserTree(Path [] chunks) throws IOException {
+      this.k = chunks.length;
+      this.scanners = new RawFile.RawFileScanner[k];
+      this.heads = new Tuple[k];
+      this.tree = new int[k];
+
+      for (int i = 0; i < k; i++) {
+        scanners[i] = new RawFile.RawFileScanner(context.getConf(), meta, chunks[i]);
+        heads[i] = scanners[i].next();
+      }
+      tree[0] = k == 1 ? 0 : build(1);
+    }
 
-    Comparator<Tuple> comparator = getComparator();
-    while (leftTuple != null && rightTuple != null) {
-      if (comparator.compare(leftTuple, rightTuple) < 0) {
-        appender.addTuple(leftTuple);
-        leftTuple = leftScan.next();
+    /**
+     * It plays the matches of a subtree, and returns its winner.
+     * The leaves of the tree are k .. 2k-1.
+     */
+    private int build(int node) {
+      int left = 2 * node >= k ? 2 * node - k : build(2 * node);
+      int right = 2 * node + 1 >= k ? 2 * node + 1 - k : build(2 * node + 1);
+      if (beats(left, right)) {
+        tree[node] = right;
+        return left;
       } else {
-        appender.addTuple(rightTuple);
-        rightTuple = rightScan.next();
+        tree[node] = left;
+        return right;
       }
     }
 
-    if (leftTuple == null) {
-      appender.addTuple(rightTuple);
-      while ((rightTuple = rightScan.next()) != null) {
-        appender.addTuple(rightTuple);
-      }
-    } else {
-      appender.addTuple(leftTuple);
-      while ((leftTuple = leftScan.next()) != null) {
-        appender.addTuple(leftTuple);
+    /**
+     * An exhausted chunk always loses.
+     */
+    private boolean beats(int a, int b) {
+      if (heads[a] == null) {
+        return false;
+      } else if (heads[b] == null) {
+        return true;
+      } else {
+        return comparator.compare(heads[a], heads[b]) <= 0;
       }
     }
 
-    leftScan.close();
-    rightScan.close();
-  }
+    public Tuple next() throws IOException {
+      // A scanner reuses its tuple, so the previous winner is advanced
+      // only after the caller has consumed it.
+      if (needAdvance && heads[tree[0]] != null) {
+        int winner = tree[0];
+        heads[winner] = scanners[winner].next();
+        for (int node = (winner + k) / 2; node > 0; node /= 2) {
+          if (beats(tree[node], winner)) {
+            int tmp = tree[node];
+            tree[node] = winner;
+            winner = tmp;
+          }
+        }
+        tree[0] = winner;
+      }
 
-  @Override
-  public void rescan() throws IOException {
-    if (result != null) {
-      result.reset();
+      needAdvance = true;
+      return heads[tree[0]];
+    }
+
+    public void close() throws IOException {
+      for (RawFile.RawFileScanner scanner : scanners) {
+        scanner.close();
+      }
     }
   }
 }
@@ -18,62 +18,394 @@
 
 package org.apache.tajo.engine.planner.physical;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.DataType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.engine.eval.AggFuncCallEval;
 import org.apache.tajo.engine.eval.EvalContext;
+import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.eval.FieldEval;
 import org.apache.tajo.engine.planner.logical.GroupbyNode;
+import org.apache.tajo.engine.utils.TupleUtil;
+import org.apache.tajo.storage.RawFile;
 import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.VTuple;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 import java.util.Map.Entry;
 
 /**
  * This is the hash-based GroupBy Operator.
+ *
+ * If the estimated size of groups exceeds the memory budget, it spills the
+ * partial aggregation states of all groups in memory to local RawFiles
+ * partitioned by the hash of grouping keys. After the input is exhausted,
+ * each partition is read back and its partial states are merged. A partition
+ * which still exceeds the budget is spilled again with a different hash.
+ * Spilling is only available if every target is a grouping column or an
+ * aggregation function.
  */
 public class HashAggregateExec extends AggregationExec {
+  private static final Log LOG = LogFactory.getLog(HashAggregateExec.class);
+
+  /** the level from which spilled partitions are always merged in memory */
+  private static final int MAX_SPILL_LEVEL = 3;
+  /** the estimated bytes of a map entry and the eval context of one target */
+  private static final int ENTRY_OVERHEAD = 64;
+  private static final int CONTEXT_OVERHEAD = 48;
+
   private Tuple tuple = null;
   private Map<Tuple, EvalContext[]> tupleSlots;
   private boolean computed = false;
   private Iterator<Entry<Tuple, EvalContext []>> iterator = null;
 
+  // for spilling
+  private final boolean spillable;
+  private final long memoryBudget;
+  private final int partitionNum;
+  private final int [] aggTargets;
+  private final int [] spillKeyIds;
+  private long memoryUsage;
+  private boolean spilled = false;
+  private FileSystem localFS;
+  private Path spillDir;
+  private TableMeta spillMeta;
+  private Tuple keyInputTuple;
+  private int runNum = 0;
+  private RawFile.RawFileAppender [] appenders;
+  private Path [] appenderPaths;
+  private int appenderLevel;
+  private final Deque<SpilledRun> pendingRuns = new ArrayDeque<SpilledRun>();
+  // the measures aggregated over column vectors, or null if the child is consumed
+  // by tuples
+  private final AggFuncCallEval [] vectorAggs;
+  // the argument column of each measure, or -1 if it has no argument
+  private final int [] vectorArgs;
+  private final Tuple emptyKey = new VTuple(0);
+  private long vectorizedRowNum = 0;
+
   /**
    * @throws java.io.IOException
-	 * 
+	 *
 	 */
   public HashAggregateExec(TaskAttemptContext ctx, GroupbyNode annotation,
                            PhysicalExec subOp) throws IOException {
     super(ctx, annotation, subOp);
     tupleSlots = new HashMap<Tuple, EvalContext[]>(10000);
     this.tuple = new VTuple(outSchema.getColumnNum());
+
+    this.memoryBudget = (long) ctx.getConf().getIntVar(ConfVars.HASH_AGGREGATION_MEMORY) * 1048576;
+    this.partitionNum = ctx.getConf().getIntVar(ConfVars.HASH_AGGREGATION_PARTITION_NUM);
+
+    boolean onlyAggOrKey = true;
+    List<Integer> aggTargetList = new ArrayList<Integer>();
+    for (int i = 0; i < evals.length; i++) {
+      if (evals[i].getType() == EvalNode.Type.AGG_FUNCTION) {
+        aggTargetList.add(i);
+      } else if (evals[i].getType() != EvalNode.Type.FIELD &&
+          evals[i].getType() != EvalNode.Type.CONST) {
+        onlyAggOrKey = false;
+      }
+    }
+    this.spillable = onlyAggOrKey && keylist.length > 0;
+    this.aggTargets = new int[aggTargetList.size()];
+    for (int i = 0; i < aggTargets.length; i++) {
+      aggTargets[i] = aggTargetList.get(i);
+    }
+    this.spillKeyIds = new int[keylist.length];
+    for (int i = 0; i < keylist.length; i++) {
+      spillKeyIds[i] = i;
+    }
+
+    this.vectorArgs = new int[measureList.length];
+    this.vectorAggs = ctx.getConf().getBoolVar(ConfVars.EXEC_VECTORIZED) ?
+        findVectorAggs() : null;
   }
-  
+
+  /**
+   * It returns the measures if each of them is an aggregation function which
+   * can read its argument column from a vector, or null otherwise.
+   */
+  private AggFuncCallEval [] findVectorAggs() {
+    AggFuncCallEval [] aggs = new AggFuncCallEval[measureList.length];
+    for (int i = 0; i < measureList.length; i++) {
+      if (evals[measureList[i]].getType() != EvalNode.Type.AGG_FUNCTION) {
+        return null;
+      }
+      aggs[i] = (AggFuncCallEval) evals[measureList[i]];
+      EvalNode [] args = aggs[i].getArgs();
+      ColumnVector.Kind argKind = null;
+      vectorArgs[i] = -1;
+      if (args != null && args.length > 0) {
+        if (args.length > 1 || args[0].getType() != EvalNode.Type.FIELD) {
+          return null;
+        }
+        String name = ((FieldEval) args[0]).getColumnRef().getQualifiedName();
+        if (!inSchema.contains(name)) {
+          return null;
+        }
+        vectorArgs[i] = inSchema.getColumnId(name);
+        argKind = ColumnVector.getKind(inSchema.getColumn(vectorArgs[i]).getDataType().getType());
+      }
+      if (!aggs[i].isVectorizable(argKind)) {
+        return null;
+      }
+    }
+    return aggs;
+  }
+
+  private void initSpill() throws IOException {
+    // A spilled tuple consists of grouping keys and partial states of aggregation functions.
+    Schema spillSchema = new Schema();
+    for (int i = 0; i < keylist.length; i++) {
+      spillSchema.addColumn("key_" + i, inSchema.getColumn(keylist[i]).getDataType());
+    }
+    for (int i = 0; i < aggTargets.length; i++) {
+      DataType [] types = ((AggFuncCallEval) evals[aggTargets[i]]).getPartialResultType();
+      if (types.length > 1) {
+        spillSchema.addColumn("partial_" + i, CatalogUtil.newDataTypeWithoutLen(Type.ARRAY));
+      } else {
+        spillSchema.addColumn("partial_" + i, types[0]);
+      }
+    }
+    spillMeta = CatalogUtil.newTableMeta(spillSchema, StoreType.RAW);
+
+    localFS = FileSystem.getLocal(context.getConf());
+    spillDir = new Path(context.getWorkDir(), UUID.randomUUID().toString());
+    localFS.mkdirs(spillDir);
+    keyInputTuple = new VTuple(inSchema.getColumnNum());
+  }
+
   private void compute() throws IOException {
-    Tuple tuple;
+    // batches are consumed only if they save creating datums for the measures
+    if (vectorAggs != null) {
+      VectorBatch batch = new VectorBatch(inSchema);
+      Tuple tuple = new VTuple(inSchema.getColumnNum());
+      while (!context.isStopped() && child.nextBatch(batch)) {
+        aggregate(batch, tuple);
+      }
+    } else {
+      Tuple tuple;
+      while((tuple = child.next()) != null && !context.isStopped()) {
+        aggregate(tuple);
+      }
+    }
+
+    finishLevel(0);
+  }
+
+  private void aggregate(Tuple tuple) throws IOException {
+    Tuple keyTuple = new VTuple(keylist.length);
+    // build one key tuple
+    for(int i = 0; i < keylist.length; i++) {
+      keyTuple.put(i, tuple.get(keylist[i]));
+    }
+
+    if(tupleSlots.containsKey(keyTuple)) {
+      EvalContext [] tmpTuple = tupleSlots.get(keyTuple);
+      for(int i = 0; i < measureList.length; i++) {
+        evals[measureList[i]].eval(tmpTuple[measureList[i]], inSchema, tuple);
+      }
+    } else { // if the key occurs firstly
+      EvalContext evalCtx [] = new EvalContext[outSchema.getColumnNum()];
+      for(int i = 0; i < outSchema.getColumnNum(); i++) {
+        evalCtx[i] = evals[i].newContext();
+        evals[i].eval(evalCtx[i], inSchema, tuple);
+      }
+      tupleSlots.put(keyTuple, evalCtx);
+      addGroupSize(keyTuple, 0);
+    }
+  }
+
+  /**
+   * @return true if the arguments of a row can be read from the primitive
+   * values of the vectors
+   */
+  private static boolean hasArgValues(ColumnVector [] argVectors, int rowId) {
+    for (ColumnVector vector : argVectors) {
+      if (vector != null && !vector.hasValue(rowId)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * It aggregates the rows of a batch by reading the arguments of the measures
+   * from the column vectors. The first row of a group and the rows having a
+   * null argument are evaluated as tuples.
+   */
+  private void aggregate(VectorBatch batch, Tuple tuple) throws IOException {
+    ColumnVector [] argVectors = new ColumnVector[vectorArgs.length];
+    for (int i = 0; i < vectorArgs.length; i++) {
+      argVectors[i] = vectorArgs[i] >= 0 ? batch.getVector(vectorArgs[i]) : null;
+    }
+
+    Tuple keyTuple = emptyKey;
+    for (int i = 0; i < batch.size(); i++) {
+      int rowId = batch.getRowId(i);
+      if (keylist.length > 0) {
+        keyTuple = new VTuple(keylist.length);
+        for (int k = 0; k < keylist.length; k++) {
+          keyTuple.put(k, batch.getVector(keylist[k]).get(rowId));
+        }
+      }
+
+      EvalContext [] evalCtx = tupleSlots.get(keyTuple);
+      if (evalCtx == null || !hasArgValues(argVectors, rowId)) {
+        batch.getRow(rowId, tuple);
+        aggregate(tuple);
+      } else {
+        for (int m = 0; m < vectorAggs.length; m++) {
+          vectorAggs[m].evalVector(evalCtx[measureList[m]], argVectors[m], rowId);
+        }
+      }
+    }
+    vectorizedRowNum += batch.size();
+  }
+
+  /**
+   * @return the number of rows aggregated over column vectors
+   */
+  long getVectorizedRowNum() {
+    return vectorizedRowNum;
+  }
+
+  /**
+   * It merges the partial states of a spilled run into the groups in memory.
+   */
+  private void merge(SpilledRun run) throws IOException {
+    RawFile.RawFileScanner scanner =
+        new RawFile.RawFileScanner(context.getConf(), spillMeta, run.path);
+
+    Tuple spilledTuple;
     Tuple keyTuple;
-    while((tuple = child.next()) != null && !context.isStopped()) {
+    while ((spilledTuple = scanner.next()) != null && !context.isStopped()) {
       keyTuple = new VTuple(keylist.length);
-      // build one key tuple
-      for(int i = 0; i < keylist.length; i++) {
-        keyTuple.put(i, tuple.get(keylist[i]));
-      }
-      
-      if(tupleSlots.containsKey(keyTuple)) {
-        EvalContext [] tmpTuple = tupleSlots.get(keyTuple);
-        for(int i = 0; i < measureList.length; i++) {
-          evals[measureList[i]].eval(tmpTuple[measureList[i]], inSchema, tuple);
+      for (int i = 0; i < keylist.length; i++) {
+        keyTuple.put(i, spilledTuple.get(i));
+      }
+
+      EvalContext [] evalCtx = tupleSlots.get(keyTuple);
+      boolean newGroup = evalCtx == null;
+      if (newGroup) {
+        evalCtx = new EvalContext[outSchema.getColumnNum()];
+        for (int i = 0; i < keylist.length; i++) {
+          keyInputTuple.put(keylist[i], keyTuple.get(i));
         }
-      } else { // if the key occurs firstly
-        EvalContext evalCtx [] = new EvalContext[outSchema.getColumnNum()];
-        for(int i = 0; i < outSchema.getColumnNum(); i++) {
+        for (int i = 0; i < outSchema.getColumnNum(); i++) {
           evalCtx[i] = evals[i].newContext();
-          evals[i].eval(evalCtx[i], inSchema, tuple);
+          if (evals[i].getType() != EvalNode.Type.AGG_FUNCTION) {
+            evals[i].eval(evalCtx[i], inSchema, keyInputTuple);
+          }
         }
         tupleSlots.put(keyTuple, evalCtx);
       }
+
+      for (int i = 0; i < aggTargets.length; i++) {
+        ((AggFuncCallEval) evals[aggTargets[i]]).merge(evalCtx[aggTargets[i]],
+            spilledTuple.get(keylist.length + i));
+      }
+
+      // it should be called after merging because it may spill the group.
+      if (newGroup) {
+        addGroupSize(keyTuple, run.level);
+      }
     }
+    scanner.close();
+    localFS.delete(run.path, false);
+
+    finishLevel(run.level);
+  }
+
+  private void addGroupSize(Tuple keyTuple, int level) throws IOException {
+    if (!spillable) {
+      return;
+    }
+
+    memoryUsage += TupleUtil.estimateSize(keyTuple) + ENTRY_OVERHEAD
+        + (long) CONTEXT_OVERHEAD * evals.length;
+    if (memoryUsage > memoryBudget && level < MAX_SPILL_LEVEL) {
+      spill(level);
+    }
+  }
+
+  /**
+   * It writes the partial states of all groups in memory to the runs of the given level.
+   */
+  private void spill(int level) throws IOException {
+    if (!spilled) {
+      initSpill();
+      spilled = true;
+    }
+    if (appenders == null) {
+      appenders = new RawFile.RawFileAppender[partitionNum];
+      appenderPaths = new Path[partitionNum];
+      appenderLevel = level;
+    }
+
+    LOG.info("Hash aggregation (level " + level + ") spills " + tupleSlots.size()
+        + " groups (" + memoryUsage + " bytes) to disk");
+
+    Tuple spilledTuple = new VTuple(keylist.length + aggTargets.length);
+    int partId;
+    for (Entry<Tuple, EvalContext[]> entry : tupleSlots.entrySet()) {
+      Tuple keyTuple = entry.getKey();
+      EvalContext [] evalCtx = entry.getValue();
+      for (int i = 0; i < keylist.length; i++) {
+        spilledTuple.put(i, keyTuple.get(i));
+      }
+      for (int i = 0; i < aggTargets.length; i++) {
+        spilledTuple.put(keylist.length + i,
+            ((AggFuncCallEval) evals[aggTargets[i]]).getPartialResult(evalCtx[aggTargets[i]]));
+      }
+
+      partId = TupleUtil.getPartition(keyTuple, spillKeyIds, level, partitionNum);
+      if (appenders[partId] == null) {
+        appenderPaths[partId] = new Path(spillDir + "/" + (runNum++));
+        appenders[partId] = new RawFile.RawFileAppender(context.getConf(), spillMeta,
+            appenderPaths[partId]);
+        appenders[partId].init();
+      }
+      appenders[partId].addTuple(spilledTuple);
+    }
+
+    tupleSlots.clear();
+    memoryUsage = 0;
+  }
+
+  /**
+   * It is called when all input tuples of a level are consumed. If any group
+   * was spilled at this level, the remaining groups are spilled too, and the
+   * runs are scheduled to be merged at the next level.
+   */
+  private void finishLevel(int level) throws IOException {
+    if (appenders == null) {
+      return;
+    }
+
+    if (tupleSlots.size() > 0) {
+      spill(level);
+    }
+
+    for (int i = 0; i < partitionNum; i++) {
+      if (appenders[i] != null) {
+        appenders[i].close();
+        pendingRuns.push(new SpilledRun(appenderPaths[i], appenderLevel + 1));
+      }
+    }
+    appenders = null;
+    appenderPaths = null;
   }
 
   @Override
@@ -83,7 +415,14 @@ public class HashAggregateExec extends AggregationExec {
       iterator = tupleSlots.entrySet().iterator();
       computed = true;
     }
-        
+
+    while (!iterator.hasNext() && !pendingRuns.isEmpty()) {
+      tupleSlots.clear();
+      memoryUsage = 0;
+      merge(pendingRuns.pop());
+      iterator = tupleSlots.entrySet().iterator();
+    }
+
     if(iterator.hasNext()) {
       EvalContext [] ctx =  iterator.next().getValue();
       for (int i = 0; i < ctx.length; i++) {
@@ -96,13 +435,52 @@ public class HashAggregateExec extends AggregationExec {
   }
 
   @Override
-  public void rescan() throws IOException {    
-    iterator = tupleSlots.entrySet().iterator();
+  public void rescan() throws IOException {
+    if (spilled) {
+      // the groups of spilled runs are already released, so they should be computed again.
+      super.rescan();
+      releaseSpills();
+      tupleSlots.clear();
+      memoryUsage = 0;
+      computed = false;
+    } else {
+      iterator = tupleSlots.entrySet().iterator();
+    }
+  }
+
+  private void releaseSpills() throws IOException {
+    if (!spilled) {
+      return;
+    }
+
+    if (appenders != null) {
+      for (RawFile.RawFileAppender appender : appenders) {
+        if (appender != null) {
+          appender.close();
+        }
+      }
+      appenders = null;
+      appenderPaths = null;
+    }
+    pendingRuns.clear();
+    localFS.delete(spillDir, true);
+    spilled = false;
   }
 
   @Override
   public void close() throws IOException {
     super.close();
     tupleSlots.clear();
+    releaseSpills();
+  }
+
+  private static class SpilledRun {
+    final Path path;
+    final int level;
+
+    SpilledRun(Path path, int level) {
+      this.path = path;
+      this.level = level;
+    }
   }
 }
@@ -26,12 +26,14 @@ import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.Projector;
 import org.apache.tajo.engine.planner.logical.JoinNode;
 import org.apache.tajo.engine.utils.SchemaUtil;
+import org.apache.tajo.engine.utils.TupleUtil;
 import org.apache.tajo.storage.FrameTuple;
 import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.VTuple;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class HashJoinExec extends BinaryPhysicalExec {
   // from logical plan
@@ -46,6 +48,9 @@ public class HashJoinExec extends BinaryPhysicalExec {
   private Tuple outTuple = null;
   private Map<Tuple, List<Tuple>> tupleSlots;
   private Iterator<Tuple> iterator = null;
+  // it is used instead of tupleSlots if join keys are fixed-width numeric or text
+  private JoinHashTable hashTable;
+  private int matchedRow = -1;
   private EvalContext qualCtx;
   private Tuple outerTuple;
   private Tuple outerKeyTuple;
@@ -56,18 +61,50 @@ public class HashJoinExec extends BinaryPhysicalExec {
   private boolean finished = false;
   boolean nextOuter = true;
 
+  // the key of the inner table shared by the tasks of a broadcast join, or null
+  private final String broadcastKey;
+  // true if the inner table is built by the caller
+  private final boolean prebuilt;
+
   // projection
   private final Projector projector;
   private final EvalContext [] evalContexts;
 
   public HashJoinExec(TaskAttemptContext context, JoinNode plan, PhysicalExec outer,
       PhysicalExec inner) {
+    this(context, plan, outer, inner, (String) null);
+  }
+
+  /**
+   * @param broadcastKey if it is given, the inner table is built once and shared
+   *                     through {@link BroadcastTableCache} by the tasks of the same SubQuery.
+   */
+  public HashJoinExec(TaskAttemptContext context, JoinNode plan, PhysicalExec outer,
+      PhysicalExec inner, String broadcastKey) {
+    this(context, plan, outer, inner, broadcastKey, null);
+  }
+
+  /**
+   * @param innerTable the inner table built by the caller, which is a
+   *                   {@link JoinHashTable} if it is supported for the join keys,
+   *                   or a map from join keys to inner tuples. It is kept on
+   *                   rescan, and the inner child only gives its schema.
+   */
+  HashJoinExec(TaskAttemptContext context, JoinNode plan, PhysicalExec outer,
+      PhysicalExec inner, Object innerTable) {
+    this(context, plan, outer, inner, null, innerTable);
+  }
+
+  @SuppressWarnings("unchecked")
+  private HashJoinExec(TaskAttemptContext context, JoinNode plan, PhysicalExec outer,
+      PhysicalExec inner, String broadcastKey, Object innerTable) {
     super(context, SchemaUtil.merge(outer.getSchema(), inner.getSchema()),
         plan.getOutSchema(), outer, inner);
     this.plan = plan;
+    this.broadcastKey = broadcastKey;
+    this.prebuilt = innerTable != null;
     this.joinQual = plan.getJoinQual();
     this.qualCtx = joinQual.newContext();
-    this.tupleSlots = new HashMap<Tuple, List<Tuple>>(10000);
 
     this.joinKeyPairs = PlannerUtil.getJoinKeyPairs(joinQual,
         outer.getSchema(), inner.getSchema());
@@ -83,6 +120,20 @@ public class HashJoinExec extends BinaryPhysicalExec {
       innerKeyList[i] = inner.getSchema().getColumnId(joinKeyPairs.get(i)[1].getQualifiedName());
     }
 
+    if (prebuilt) {
+      if (innerTable instanceof JoinHashTable) {
+        this.hashTable = (JoinHashTable) innerTable;
+      } else {
+        this.tupleSlots = (Map<Tuple, List<Tuple>>) innerTable;
+      }
+      this.first = false;
+    } else if (JoinHashTable.isSupported(outer.getSchema(), outerKeyList,
+        inner.getSchema(), innerKeyList)) {
+      this.hashTable = new JoinHashTable(inner.getSchema(), innerKeyList);
+    } else {
+      this.tupleSlots = new HashMap<Tuple, List<Tuple>>(10000);
+    }
+
     // for projection
     this.projector = new Projector(inSchema, outSchema, plan.getTargets());
     this.evalContexts = projector.renew();
@@ -118,6 +169,12 @@ public class HashJoinExec extends BinaryPhysicalExec {
         }
 
         // getting corresponding inner
+        if (hashTable != null) {
+          matchedRow = hashTable.find(outerTuple, outerKeyList);
+          nextOuter = matchedRow < 0;
+          continue;
+        }
+
         getKeyOuterTuple(outerTuple, outerKeyTuple);
         if (tupleSlots.containsKey(outerKeyTuple)) {
           iterator = tupleSlots.get(outerKeyTuple).iterator();
@@ -129,7 +186,12 @@ public class HashJoinExec extends BinaryPhysicalExec {
       }
 
       // getting next inner tuple
-      innerTuple = iterator.next();
+      if (hashTable != null) {
+        innerTuple = hashTable.getRow(matchedRow);
+        matchedRow = hashTable.next(matchedRow);
+      } else {
+        innerTuple = iterator.next();
+      }
       frameTuple.set(outerTuple, innerTuple);
       joinQual.eval(qualCtx, inSchema, frameTuple);
       if (joinQual.terminate(qualCtx).asBool()) {
@@ -138,7 +200,7 @@ public class HashJoinExec extends BinaryPhysicalExec {
         found = true;
       }
 
-      if (!iterator.hasNext()) { // no more inner tuple
+      if (hashTable != null ? matchedRow < 0 : !iterator.hasNext()) { // no more inner tuple
         nextOuter = true;
       }
 
@@ -150,11 +212,38 @@ public class HashJoinExec extends BinaryPhysicalExec {
     return outTuple;
   }
 
+  @SuppressWarnings("unchecked")
   private void loadInnerTable() throws IOException {
+    if (broadcastKey == null) {
+      buildInnerTable();
+    } else {
+      Object table = BroadcastTableCache.get(context.getTaskId().getSubQueryId(), broadcastKey,
+          new Callable<Object>() {
+            @Override
+            public Object call() throws IOException {
+              buildInnerTable();
+              return hashTable != null ? hashTable : tupleSlots;
+            }
+          });
+      if (hashTable != null) {
+        hashTable = ((JoinHashTable) table).newProbeView();
+      } else {
+        tupleSlots = (Map<Tuple, List<Tuple>>) table;
+      }
+    }
+    first = false;
+  }
+
+  private void buildInnerTable() throws IOException {
     Tuple tuple;
     Tuple keyTuple;
 
     while ((tuple = innerChild.next()) != null) {
+      if (hashTable != null) {
+        hashTable.put(tuple);
+        continue;
+      }
+
       keyTuple = new VTuple(joinKeyPairs.size());
       List<Tuple> newValue;
       for (int i = 0; i < innerKeyList.length; i++) {
@@ -163,31 +252,45 @@ public class HashJoinExec extends BinaryPhysicalExec {
 
       if (tupleSlots.containsKey(keyTuple)) {
         newValue = tupleSlots.get(keyTuple);
-        newValue.add(tuple);
+        newValue.add(TupleUtil.copy(tuple));
         tupleSlots.put(keyTuple, newValue);
       } else {
         newValue = new ArrayList<Tuple>();
-        newValue.add(tuple);
+        newValue.add(TupleUtil.copy(tuple));
         tupleSlots.put(keyTuple, newValue);
       }
     }
-    first = false;
   }
 
   @Override
   public void rescan() throws IOException {
     super.rescan();
 
-    tupleSlots.clear();
-    first = true;
+    if (!prebuilt) {
+      clearInnerTable();
+      first = true;
+    }
 
     finished = false;
     iterator = null;
+    matchedRow = -1;
     nextOuter = true;
   }
 
+  private void clearInnerTable() {
+    if (broadcastKey != null) {
+      // the shared table is released when its SubQuery ends.
+      return;
+    }
+    if (hashTable != null) {
+      hashTable.clear();
+    } else {
+      tupleSlots.clear();
+    }
+  }
+
   public void close() throws IOException {
-    tupleSlots.clear();
+    clearInnerTable();
   }
 
   public JoinNode getPlan() {
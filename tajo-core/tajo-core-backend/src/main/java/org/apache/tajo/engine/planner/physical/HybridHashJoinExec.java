@@ -0,0 +1,457 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.engine.planner.PlannerUtil;
+import org.apache.tajo.engine.planner.logical.JoinNode;
+import org.apache.tajo.engine.utils.SchemaUtil;
+import org.apache.tajo.engine.utils.TupleUtil;
+import org.apache.tajo.storage.RawFile;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This is a hybrid hash join operator which can spill to local disk.
+ *
+ * It partitions the inner relation by the hash value of join keys. As long as
+ * the inner relation fits in the memory budget, all partitions are kept in
+ * memory. Otherwise, the largest in-memory partitions are spilled to RawFiles
+ * under the working directory of the task. Then, the in-memory partitions are
+ * moved into a hash table, and outer tuples belonging to them are joined
+ * immediately by {@link HashJoinExec}. The other outer tuples are spilled to
+ * RawFiles of the corresponding partitions. Finally,
+ * each pair of spilled partitions is joined recursively with a different
+ * hash function.
+ */
+public class HybridHashJoinExec extends BinaryPhysicalExec {
+  private static final Log LOG = LogFactory.getLog(HybridHashJoinExec.class);
+
+  /** the recursion level from which spilled partitions are always loaded in memory */
+  private static final int MAX_RECURSION_LEVEL = 3;
+
+  private final JoinNode plan;
+  private final int level;
+  private final long memoryBudget;
+  private final int partitionNum;
+
+  private final int [] outerKeyList;
+  private final int [] innerKeyList;
+
+  private final FileSystem localFS;
+  private final Path spillDir;
+  private final TableMeta outerMeta;
+  private final TableMeta innerMeta;
+
+  // partitions of the inner relation
+  private List<Tuple> [] memPartitions;
+  private long [] memPartitionSizes;
+  private long memoryUsage;
+  private boolean [] spilled;
+  private RawFile.RawFileAppender [] innerSpills;
+  private RawFile.RawFileAppender [] outerSpills;
+
+  private boolean partitioned = false;
+  private PhysicalExec current;
+  private int nextSpilledPartition;
+
+  public HybridHashJoinExec(TaskAttemptContext context, JoinNode plan,
+                            PhysicalExec outer, PhysicalExec inner) throws IOException {
+    this(context, plan, outer, inner, 0);
+  }
+
+  private HybridHashJoinExec(TaskAttemptContext context, JoinNode plan,
+                             PhysicalExec outer, PhysicalExec inner, int level)
+      throws IOException {
+    super(context, SchemaUtil.merge(outer.getSchema(), inner.getSchema()),
+        plan.getOutSchema(), outer, inner);
+    this.plan = plan;
+    this.level = level;
+    this.memoryBudget =
+        (long) context.getConf().getIntVar(ConfVars.HASH_JOIN_MEMORY) * 1048576;
+    this.partitionNum = context.getConf().getIntVar(ConfVars.HASH_JOIN_PARTITION_NUM);
+
+    List<Column []> joinKeyPairs = PlannerUtil.getJoinKeyPairs(plan.getJoinQual(),
+        outer.getSchema(), inner.getSchema());
+    outerKeyList = new int[joinKeyPairs.size()];
+    innerKeyList = new int[joinKeyPairs.size()];
+    for (int i = 0; i < joinKeyPairs.size(); i++) {
+      outerKeyList[i] = outer.getSchema().getColumnId(joinKeyPairs.get(i)[0].getQualifiedName());
+      innerKeyList[i] = inner.getSchema().getColumnId(joinKeyPairs.get(i)[1].getQualifiedName());
+    }
+
+    this.localFS = FileSystem.getLocal(context.getConf());
+    this.spillDir = new Path(context.getWorkDir(), UUID.randomUUID().toString());
+    this.outerMeta = CatalogUtil.newTableMeta(outer.getSchema(), StoreType.RAW);
+    this.innerMeta = CatalogUtil.newTableMeta(inner.getSchema(), StoreType.RAW);
+  }
+
+  public JoinNode getPlan() {
+    return this.plan;
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    if (!partitioned) {
+      partitionInnerTable();
+      current = new HashJoinExec(context, plan, new OuterPartitionExec(),
+          new BuiltInnerExec(innerChild.getSchema()), buildInMemoryTable());
+      current.init();
+      partitioned = true;
+    }
+
+    Tuple tuple;
+    while (current != null) {
+      if ((tuple = current.next()) != null) {
+        return tuple;
+      }
+      current.close();
+      current = nextSpilledJoin();
+    }
+
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void partitionInnerTable() throws IOException {
+    memPartitions = new List[partitionNum];
+    memPartitionSizes = new long[partitionNum];
+    spilled = new boolean[partitionNum];
+    innerSpills = new RawFile.RawFileAppender[partitionNum];
+    outerSpills = new RawFile.RawFileAppender[partitionNum];
+    for (int i = 0; i < partitionNum; i++) {
+      memPartitions[i] = new ArrayList<Tuple>();
+    }
+    memoryUsage = 0;
+
+    Tuple tuple;
+    int partId;
+    long size;
+    while ((tuple = innerChild.next()) != null && !context.isStopped()) {
+      partId = getPartition(tuple, innerKeyList);
+      if (spilled[partId]) {
+        innerSpills[partId].addTuple(tuple);
+        continue;
+      }
+
+      size = TupleUtil.estimateSize(tuple);
+      memPartitions[partId].add(TupleUtil.copy(tuple));
+      memPartitionSizes[partId] += size;
+      memoryUsage += size;
+
+      if (memoryUsage > memoryBudget && level < MAX_RECURSION_LEVEL) {
+        spillLargestPartition();
+      }
+    }
+
+    closeSpills(innerSpills);
+  }
+
+  /**
+   * It moves the in-memory partitions into a hash table for
+   * {@link HashJoinExec}. Each partition is released as soon as it is moved,
+   * so that inner tuples are never held twice.
+   *
+   * @return a {@link JoinHashTable} or a map from join keys to inner tuples
+   */
+  private Object buildInMemoryTable() {
+    if (JoinHashTable.isSupported(outerChild.getSchema(), outerKeyList,
+        innerChild.getSchema(), innerKeyList)) {
+      JoinHashTable table = new JoinHashTable(innerChild.getSchema(), innerKeyList);
+      for (int i = 0; i < partitionNum; i++) {
+        for (Tuple tuple : memPartitions[i]) {
+          table.put(tuple);
+        }
+        releaseMemPartition(i);
+      }
+      memoryUsage = table.getMemoryUsage();
+      return table;
+    }
+
+    Map<Tuple, List<Tuple>> table = new HashMap<Tuple, List<Tuple>>();
+    Tuple keyTuple;
+    List<Tuple> tuples;
+    for (int i = 0; i < partitionNum; i++) {
+      for (Tuple tuple : memPartitions[i]) {
+        keyTuple = new VTuple(innerKeyList.length);
+        for (int k = 0; k < innerKeyList.length; k++) {
+          keyTuple.put(k, tuple.get(innerKeyList[k]));
+        }
+        tuples = table.get(keyTuple);
+        if (tuples == null) {
+          tuples = new ArrayList<Tuple>();
+          table.put(keyTuple, tuples);
+        }
+        tuples.add(tuple);
+      }
+      releaseMemPartition(i);
+    }
+    return table;
+  }
+
+  private void releaseMemPartition(int partId) {
+    memoryUsage -= memPartitionSizes[partId];
+    memPartitions[partId] = new ArrayList<Tuple>();
+    memPartitionSizes[partId] = 0;
+  }
+
+  private static void closeSpills(RawFile.RawFileAppender [] appenders) throws IOException {
+    for (int i = 0; i < appenders.length; i++) {
+      if (appenders[i] != null) {
+        appenders[i].close();
+        appenders[i] = null;
+      }
+    }
+  }
+
+  private void spillLargestPartition() throws IOException {
+    int largest = -1;
+    for (int i = 0; i < partitionNum; i++) {
+      if (!spilled[i] &&
+          (largest < 0 || memPartitionSizes[i] > memPartitionSizes[largest])) {
+        largest = i;
+      }
+    }
+    if (largest < 0) {
+      return;
+    }
+
+    if (!localFS.exists(spillDir)) {
+      localFS.mkdirs(spillDir);
+    }
+
+    RawFile.RawFileAppender appender =
+        new RawFile.RawFileAppender(context.getConf(), innerMeta, getSpillPath("inner", largest));
+    appender.init();
+    for (Tuple t : memPartitions[largest]) {
+      appender.addTuple(t);
+    }
+    innerSpills[largest] = appender;
+    spilled[largest] = true;
+
+    LOG.info("Hash join (level " + level + ") spills the partition " + largest + " ("
+        + memPartitionSizes[largest] + " bytes) to disk");
+    releaseMemPartition(largest);
+  }
+
+  /**
+   * It creates a join for the next pair of spilled partitions.
+   *
+   * @return a join of the next spilled partitions, or null if there is no more spilled partition
+   */
+  private PhysicalExec nextSpilledJoin() throws IOException {
+    // All outer tuples are already consumed when this method is called.
+    closeSpills(outerSpills);
+
+    Path outerPath;
+    while (nextSpilledPartition < partitionNum) {
+      int partId = nextSpilledPartition++;
+      outerPath = getSpillPath("outer", partId);
+      if (!spilled[partId] || !localFS.exists(outerPath)) {
+        continue;
+      }
+
+      PhysicalExec outer = new SpilledPartitionExec(outerChild.getSchema(), outerMeta,
+          outerPath);
+      PhysicalExec inner = new SpilledPartitionExec(innerChild.getSchema(), innerMeta,
+          getSpillPath("inner", partId));
+      PhysicalExec join = new HybridHashJoinExec(context, plan, outer, inner, level + 1);
+      join.init();
+      return join;
+    }
+
+    return null;
+  }
+
+  private Path getSpillPath(String side, int partId) {
+    return new Path(spillDir + "/" + side + "_" + partId);
+  }
+
+  private int getPartition(Tuple tuple, int [] keyIds) {
+    return TupleUtil.getPartition(tuple, keyIds, level, partitionNum);
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    closeCurrent();
+    releasePartitions();
+    super.rescan();
+    partitioned = false;
+    nextSpilledPartition = 0;
+  }
+
+  private void closeCurrent() throws IOException {
+    if (current != null) {
+      current.close();
+      current = null;
+    }
+  }
+
+  private void releasePartitions() throws IOException {
+    if (memPartitions != null) {
+      for (int i = 0; i < partitionNum; i++) {
+        memPartitions[i].clear();
+      }
+      closeSpills(innerSpills);
+      closeSpills(outerSpills);
+      memPartitions = null;
+    }
+
+    if (localFS.exists(spillDir)) {
+      localFS.delete(spillDir, true);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeCurrent();
+    releasePartitions();
+    super.close();
+  }
+
+  /**
+   * It returns outer tuples belonging to in-memory partitions, and it spills
+   * the other tuples to the corresponding partitions on disk.
+   */
+  private class OuterPartitionExec extends PhysicalExec {
+
+    public OuterPartitionExec() {
+      super(HybridHashJoinExec.this.context, outerChild.getSchema(), outerChild.getSchema());
+    }
+
+    @Override
+    public void init() throws IOException {
+    }
+
+    @Override
+    public Tuple next() throws IOException {
+      Tuple tuple;
+      int partId;
+      while ((tuple = outerChild.next()) != null) {
+        partId = getPartition(tuple, outerKeyList);
+        if (!spilled[partId]) {
+          return tuple;
+        }
+
+        if (outerSpills[partId] == null) {
+          outerSpills[partId] = new RawFile.RawFileAppender(context.getConf(), outerMeta,
+              getSpillPath("outer", partId));
+          outerSpills[partId].init();
+        }
+        outerSpills[partId].addTuple(tuple);
+      }
+      return null;
+    }
+
+    @Override
+    public void rescan() throws IOException {
+      // the outer tuples of spilled partitions are spilled again while the
+      // outer child is read again.
+      closeSpills(outerSpills);
+      Path path;
+      for (int i = 0; i < partitionNum; i++) {
+        path = getSpillPath("outer", i);
+        if (spilled[i] && localFS.exists(path)) {
+          localFS.delete(path, false);
+        }
+      }
+      outerChild.rescan();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+  }
+
+  /**
+   * It only gives the schema of the inner partitions which are already moved
+   * into the hash table of {@link HashJoinExec}.
+   */
+  private class BuiltInnerExec extends PhysicalExec {
+
+    public BuiltInnerExec(Schema schema) {
+      super(HybridHashJoinExec.this.context, schema, schema);
+    }
+
+    @Override
+    public void init() throws IOException {
+    }
+
+    @Override
+    public Tuple next() throws IOException {
+      return null;
+    }
+
+    @Override
+    public void rescan() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+  }
+
+  /**
+   * It reads tuples of a spilled partition.
+   */
+  private class SpilledPartitionExec extends PhysicalExec {
+    private final TableMeta meta;
+    private final Path path;
+    private RawFile.RawFileScanner scanner;
+
+    public SpilledPartitionExec(Schema schema, TableMeta meta, Path path) {
+      super(HybridHashJoinExec.this.context, schema, schema);
+      this.meta = meta;
+      this.path = path;
+    }
+
+    @Override
+    public void init() throws IOException {
+      scanner = new RawFile.RawFileScanner(context.getConf(), meta, path);
+    }
+
+    @Override
+    public Tuple next() throws IOException {
+      return scanner.next();
+    }
+
+    @Override
+    public void rescan() throws IOException {
+      scanner.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+      scanner.close();
+    }
+  }
+}
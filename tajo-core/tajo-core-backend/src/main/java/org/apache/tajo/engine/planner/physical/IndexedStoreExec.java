@@ -27,11 +27,16 @@ import org.apache.tajo.TaskAttemptContext;
 import org.apache.tajo.catalog.*;
 import org.apache.tajo.catalog.proto.CatalogProtos;
 import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.storage.*;
 import org.apache.tajo.storage.index.bst.BSTIndex;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class IndexedStoreExec extends UnaryPhysicalExec {
   private static Log LOG = LogFactory.getLog(IndexedStoreExec.class);
@@ -44,6 +49,12 @@ public class IndexedStoreExec extends UnaryPhysicalExec {
   private FileAppender appender;
   private TableMeta meta;
 
+  // a reservoir sample of the sort keys, used to determine the range partitions
+  private int sampleSize;
+  private List<Tuple> samples;
+  private long keyNum = 0;
+  private Random random;
+
   public IndexedStoreExec(final TaskAttemptContext context, final StorageManager sm,
       final PhysicalExec child, final Schema inSchema, final Schema outSchema,
       final SortSpec[] sortSpecs) throws IOException {
@@ -79,6 +90,10 @@ public class IndexedStoreExec extends UnaryPhysicalExec {
         BSTIndex.TWO_LEVEL_INDEX, keySchema, comp);
     this.indexWriter.setLoadNum(100);
     this.indexWriter.open();
+
+    this.sampleSize = context.getConf().getIntVar(ConfVars.SORT_SAMPLE_SIZE);
+    this.samples = new ArrayList<Tuple>();
+    this.random = new Random();
   }
 
   @Override
@@ -94,11 +109,50 @@ public class IndexedStoreExec extends UnaryPhysicalExec {
       keyTuple = new VTuple(keySchema.getColumnNum());
       RowStoreUtil.project(tuple, keyTuple, indexKeys);
       indexWriter.write(keyTuple, offset);
+      sample(keyTuple);
     }
 
     return null;
   }
 
+  /**
+   * It keeps a uniform random sample of the sort keys by using the reservoir
+   * sampling. Keys including null values are not sampled.
+   */
+  private void sample(Tuple keyTuple) {
+    if (sampleSize <= 0) {
+      return;
+    }
+    for (int i = 0; i < keyTuple.size(); i++) {
+      if (!keyTuple.contains(i) || keyTuple.isNull(i)) {
+        return;
+      }
+    }
+
+    keyNum++;
+    if (samples.size() < sampleSize) {
+      samples.add(keyTuple);
+    } else {
+      long idx = (long) (random.nextDouble() * keyNum);
+      if (idx < sampleSize) {
+        samples.set((int) idx, keyTuple);
+      }
+    }
+  }
+
+  private List<byte []> encodeSamples() {
+    List<byte []> encoded = new ArrayList<byte[]>(samples.size());
+    for (Tuple sample : samples) {
+      try {
+        encoded.add(RowStoreUtil.RowStoreEncoder.toBytes(keySchema, sample));
+      } catch (BufferOverflowException e) {
+        // a too long key cannot be a range boundary because
+        // the range is passed by this fixed-size encoding.
+      }
+    }
+    return encoded;
+  }
+
   @Override
   public void rescan() throws IOException {
   }
@@ -114,5 +168,8 @@ public class IndexedStoreExec extends UnaryPhysicalExec {
     // Collect statistics data
     context.setResultStats(appender.getStats());
     context.addRepartition(0, context.getTaskId().toString());
+    if (samples.size() > 0) {
+      context.setKeySamples(encodeSamples());
+    }
   }
 }
@@ -0,0 +1,461 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table for the build side of a hash join.
+ *
+ * Unlike <code>HashMap&lt;Tuple, List&lt;Tuple&gt;&gt;</code>, it does not
+ * allocate any key tuple or list per distinct key. A single integral join key
+ * is kept as a primitive long, and other keys are encoded into a shared byte
+ * pool. Rows are serialized into a {@link RowPool}, and the rows sharing a
+ * key are chained by an int array of row indexes. Probing does not allocate
+ * any object, and only a matched row is deserialized.
+ *
+ * Rows whose join keys contain a null value are never added because they
+ * cannot satisfy any equi-join condition.
+ */
+public class JoinHashTable {
+  private static final int EMPTY = -1;
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int PAGE_SIZE = 1024 * 1024;
+
+  private enum KeyClass {
+    INTEGRAL,
+    REAL,
+    TEXT
+  }
+
+  private final int [] buildKeyIds;
+  private final KeyClass [] keyClasses;
+  // true if the key is a single integral column
+  private final boolean longKey;
+
+  // slots
+  private int capacity;
+  private int mask;
+  private int slotNum;
+  private int [] slotHeads;
+  private int [] slotTails;
+  private long [] slotLongKeys;
+  private int [] slotHashes;
+  private int [] slotKeyOffsets;
+  private int [] slotKeyLengths;
+
+  // the byte pool for the encoded keys
+  private byte [] keyPool;
+  private int keyPoolSize;
+  private byte [] keyBuffer;
+  private int keyLength;
+
+  // rows
+  private final RowPool rowPool;
+  private long [] rowPointers;
+  private int [] nextRows;
+  private int rowNum;
+  // the tuple into which a row is deserialized
+  private final Tuple rowTuple;
+
+  /**
+   * @param buildSchema the schema of the build side
+   * @param buildKeyIds the column ids of join keys in the build side
+   */
+  public JoinHashTable(Schema buildSchema, int [] buildKeyIds) {
+    this.buildKeyIds = buildKeyIds;
+    this.keyClasses = new KeyClass[buildKeyIds.length];
+    for (int i = 0; i < buildKeyIds.length; i++) {
+      keyClasses[i] = getKeyClass(buildSchema.getColumn(buildKeyIds[i]).getDataType().getType());
+    }
+    this.longKey = keyClasses.length == 1 && keyClasses[0] == KeyClass.INTEGRAL;
+    this.keyBuffer = new byte[64];
+
+    allocateSlots(INITIAL_CAPACITY);
+    this.rowPool = new RowPool(buildSchema, PAGE_SIZE);
+    this.rowPointers = new long[INITIAL_CAPACITY];
+    this.nextRows = new int[INITIAL_CAPACITY];
+    this.rowNum = 0;
+    this.rowTuple = new VTuple(buildSchema.getColumnNum());
+    if (!longKey) {
+      this.keyPool = new byte[INITIAL_CAPACITY * 8];
+      this.keyPoolSize = 0;
+    }
+  }
+
+  /**
+   * It creates a view sharing the slots and rows of a built table, but
+   * having its own key buffer and row tuple. Views of a table can probe it
+   * concurrently.
+   */
+  private JoinHashTable(JoinHashTable table) {
+    this.buildKeyIds = table.buildKeyIds;
+    this.keyClasses = table.keyClasses;
+    this.longKey = table.longKey;
+    this.keyBuffer = new byte[table.keyBuffer.length];
+
+    this.capacity = table.capacity;
+    this.mask = table.mask;
+    this.slotNum = table.slotNum;
+    this.slotHeads = table.slotHeads;
+    this.slotTails = table.slotTails;
+    this.slotLongKeys = table.slotLongKeys;
+    this.slotHashes = table.slotHashes;
+    this.slotKeyOffsets = table.slotKeyOffsets;
+    this.slotKeyLengths = table.slotKeyLengths;
+    this.keyPool = table.keyPool;
+    this.keyPoolSize = table.keyPoolSize;
+    this.rowPool = table.rowPool;
+    this.rowPointers = table.rowPointers;
+    this.nextRows = table.nextRows;
+    this.rowNum = table.rowNum;
+    this.rowTuple = new VTuple(table.rowTuple.size());
+  }
+
+  /**
+   * @return a view for probing this table from another thread. This table
+   * must not be changed after any view is created.
+   */
+  public JoinHashTable newProbeView() {
+    return new JoinHashTable(this);
+  }
+
+  private static KeyClass getKeyClass(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+        return KeyClass.INTEGRAL;
+      case FLOAT4:
+      case FLOAT8:
+        return KeyClass.REAL;
+      case TEXT:
+        return KeyClass.TEXT;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * It checks if all join key pairs are fixed-width numeric or text,
+   * both sides of each pair belong to the same class of types, and the
+   * rows of the build side can be serialized.
+   */
+  public static boolean isSupported(Schema probeSchema, int [] probeKeyIds,
+                                    Schema buildSchema, int [] buildKeyIds) {
+    if (probeKeyIds.length == 0 || probeKeyIds.length != buildKeyIds.length
+        || !RowPool.isSupported(buildSchema)) {
+      return false;
+    }
+
+    for (int i = 0; i < probeKeyIds.length; i++) {
+      KeyClass probeClass =
+          getKeyClass(probeSchema.getColumn(probeKeyIds[i]).getDataType().getType());
+      KeyClass buildClass =
+          getKeyClass(buildSchema.getColumn(buildKeyIds[i]).getDataType().getType());
+      if (probeClass == null || probeClass != buildClass) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void allocateSlots(int newCapacity) {
+    capacity = newCapacity;
+    mask = newCapacity - 1;
+    slotHeads = new int[newCapacity];
+    Arrays.fill(slotHeads, EMPTY);
+    slotTails = new int[newCapacity];
+    if (longKey) {
+      slotLongKeys = new long[newCapacity];
+    } else {
+      slotHashes = new int[newCapacity];
+      slotKeyOffsets = new int[newCapacity];
+      slotKeyLengths = new int[newCapacity];
+    }
+  }
+
+  private static boolean isNull(Datum datum) {
+    return datum == null || datum instanceof NullDatum;
+  }
+
+  private static int mix(long key) {
+    key ^= (key >>> 33);
+    key *= 0xff51afd7ed558ccdL;
+    key ^= (key >>> 33);
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= (key >>> 33);
+    return (int) key;
+  }
+
+  private static int hashBytes(byte [] bytes, int offset, int length) {
+    int hash = 1;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + bytes[i];
+    }
+    return mix(hash);
+  }
+
+  private void ensureKeyBuffer(int required) {
+    if (keyBuffer.length < required) {
+      keyBuffer = Arrays.copyOf(keyBuffer, Math.max(required, keyBuffer.length * 2));
+    }
+  }
+
+  private void putLong(long val) {
+    ensureKeyBuffer(keyLength + 8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      keyBuffer[keyLength++] = (byte) (val >>> shift);
+    }
+  }
+
+  /**
+   * It encodes the join keys of a tuple into the key buffer.
+   *
+   * @return false if any key is null
+   */
+  private boolean encodeKey(Tuple tuple, int [] keyIds) {
+    keyLength = 0;
+    Datum datum;
+    for (int i = 0; i < keyIds.length; i++) {
+      datum = tuple.get(keyIds[i]);
+      if (isNull(datum)) {
+        return false;
+      }
+
+      switch (keyClasses[i]) {
+        case INTEGRAL:
+          putLong(datum.asInt8());
+          break;
+        case REAL:
+          double val = datum.asFloat8();
+          // +0.0 and -0.0 must be the same key
+          putLong(val == 0.0d ? 0L : Double.doubleToLongBits(val));
+          break;
+        case TEXT:
+          byte [] bytes = datum.asByteArray();
+          putLong(bytes.length);
+          ensureKeyBuffer(keyLength + bytes.length);
+          System.arraycopy(bytes, 0, keyBuffer, keyLength, bytes.length);
+          keyLength += bytes.length;
+          break;
+      }
+    }
+    return true;
+  }
+
+  private boolean keyEquals(int slot, int hash) {
+    if (slotHashes[slot] != hash || slotKeyLengths[slot] != keyLength) {
+      return false;
+    }
+    int offset = slotKeyOffsets[slot];
+    for (int i = 0; i < keyLength; i++) {
+      if (keyPool[offset + i] != keyBuffer[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int findLongSlot(long key) {
+    int slot = mix(key) & mask;
+    while (slotHeads[slot] != EMPTY && slotLongKeys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private int findBytesSlot(int hash) {
+    int slot = hash & mask;
+    while (slotHeads[slot] != EMPTY && !keyEquals(slot, hash)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * It adds a row of the build side. The row is serialized, so that the
+   * caller can reuse it.
+   */
+  public void put(Tuple row) {
+    int slot;
+    if (longKey) {
+      Datum datum = row.get(buildKeyIds[0]);
+      if (isNull(datum)) {
+        return;
+      }
+      long key = datum.asInt8();
+      slot = findLongSlot(key);
+      if (slotHeads[slot] == EMPTY) {
+        slotLongKeys[slot] = key;
+      }
+    } else {
+      if (!encodeKey(row, buildKeyIds)) {
+        return;
+      }
+      int hash = hashBytes(keyBuffer, 0, keyLength);
+      slot = findBytesSlot(hash);
+      if (slotHeads[slot] == EMPTY) {
+        if (keyPool.length < keyPoolSize + keyLength) {
+          keyPool = Arrays.copyOf(keyPool,
+              Math.max(keyPoolSize + keyLength, keyPool.length * 2));
+        }
+        System.arraycopy(keyBuffer, 0, keyPool, keyPoolSize, keyLength);
+        slotHashes[slot] = hash;
+        slotKeyOffsets[slot] = keyPoolSize;
+        slotKeyLengths[slot] = keyLength;
+        keyPoolSize += keyLength;
+      }
+    }
+
+    int rowId = addRow(row);
+    if (slotHeads[slot] == EMPTY) {
+      slotHeads[slot] = rowId;
+      slotTails[slot] = rowId;
+      slotNum++;
+      if (slotNum > capacity * LOAD_FACTOR) {
+        rehash();
+      }
+    } else {
+      // keep the insertion order of rows sharing the same key
+      nextRows[slotTails[slot]] = rowId;
+      slotTails[slot] = rowId;
+    }
+  }
+
+  private int addRow(Tuple row) {
+    if (rowNum == rowPointers.length) {
+      rowPointers = Arrays.copyOf(rowPointers, rowNum * 2);
+      nextRows = Arrays.copyOf(nextRows, rowNum * 2);
+    }
+    rowPointers[rowNum] = rowPool.add(row);
+    nextRows[rowNum] = EMPTY;
+    return rowNum++;
+  }
+
+  private void rehash() {
+    int [] oldHeads = slotHeads;
+    int [] oldTails = slotTails;
+    long [] oldLongKeys = slotLongKeys;
+    int [] oldHashes = slotHashes;
+    int [] oldKeyOffsets = slotKeyOffsets;
+    int [] oldKeyLengths = slotKeyLengths;
+
+    allocateSlots(capacity * 2);
+    int slot;
+    for (int i = 0; i < oldHeads.length; i++) {
+      if (oldHeads[i] == EMPTY) {
+        continue;
+      }
+
+      if (longKey) {
+        slot = mix(oldLongKeys[i]) & mask;
+      } else {
+        slot = oldHashes[i] & mask;
+      }
+      while (slotHeads[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+
+      slotHeads[slot] = oldHeads[i];
+      slotTails[slot] = oldTails[i];
+      if (longKey) {
+        slotLongKeys[slot] = oldLongKeys[i];
+      } else {
+        slotHashes[slot] = oldHashes[i];
+        slotKeyOffsets[slot] = oldKeyOffsets[i];
+        slotKeyLengths[slot] = oldKeyLengths[i];
+      }
+    }
+  }
+
+  /**
+   * It finds the first row matched to the join keys of a probe tuple.
+   *
+   * @param probeTuple a tuple of the probe side
+   * @param probeKeyIds the column ids of join keys in the probe side
+   * @return the id of the first matched row, or -1 if there is no matched row
+   */
+  public int find(Tuple probeTuple, int [] probeKeyIds) {
+    if (rowNum == 0) {
+      return EMPTY;
+    }
+
+    if (longKey) {
+      Datum datum = probeTuple.get(probeKeyIds[0]);
+      if (isNull(datum)) {
+        return EMPTY;
+      }
+      return slotHeads[findLongSlot(datum.asInt8())];
+    } else {
+      if (!encodeKey(probeTuple, probeKeyIds)) {
+        return EMPTY;
+      }
+      return slotHeads[findBytesSlot(hashBytes(keyBuffer, 0, keyLength))];
+    }
+  }
+
+  /**
+   * @return the id of the next row sharing the same key, or -1 if no more row
+   */
+  public int next(int rowId) {
+    return nextRows[rowId];
+  }
+
+  /**
+   * It returns a row. The returned tuple is reused for the next call.
+   */
+  public Tuple getRow(int rowId) {
+    return rowPool.get(rowPointers[rowId], rowTuple);
+  }
+
+  public int size() {
+    return rowNum;
+  }
+
+  /**
+   * @return the bytes held by the slots, the rows and the keys of this table
+   */
+  public long getMemoryUsage() {
+    long slotBytes = longKey ? 16 : 20;
+    return capacity * slotBytes + rowPointers.length * 12L + rowPool.getAllocatedBytes()
+        + (keyPool != null ? keyPool.length : 0);
+  }
+
+  public void clear() {
+    allocateSlots(INITIAL_CAPACITY);
+    slotNum = 0;
+    rowPool.clear();
+    rowPointers = new long[INITIAL_CAPACITY];
+    nextRows = new int[INITIAL_CAPACITY];
+    rowNum = 0;
+    if (!longKey) {
+      keyPool = new byte[INITIAL_CAPACITY * 8];
+      keyPoolSize = 0;
+    }
+  }
+}
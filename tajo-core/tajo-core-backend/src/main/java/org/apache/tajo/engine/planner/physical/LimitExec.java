@@ -49,7 +49,7 @@ public class LimitExec extends UnaryPhysicalExec {
   }
 
   public void rescan() throws IOException {
-    super.init();
+    super.rescan();
     fetchCount = 0;
   }
 }
@@ -26,6 +26,7 @@ import org.apache.tajo.engine.eval.EvalNode;
 import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.Projector;
 import org.apache.tajo.engine.planner.logical.JoinNode;
+import org.apache.tajo.engine.utils.TupleUtil;
 import org.apache.tajo.storage.FrameTuple;
 import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.TupleComparator;
@@ -131,27 +132,28 @@ public class MergeJoinExec extends BinaryPhysicalExec {
           }
         }
 
-        previous = outerTuple;
-        do {
-          outerTupleSlots.add(outerTuple);
-          outerTuple = outerChild.next();
-          if (outerTuple == null) {
-            end = true;
-            break;
-          }
-        } while (tupleComparator[0].compare(previous, outerTuple) == 0);
+        // the children may reuse their output tuples
+        previous = TupleUtil.copy(outerTuple);
+        outerTupleSlots.add(previous);
+        while ((outerTuple = outerChild.next()) != null &&
+            tupleComparator[0].compare(previous, outerTuple) == 0) {
+          outerTupleSlots.add(TupleUtil.copy(outerTuple));
+        }
+        if (outerTuple == null) {
+          end = true;
+        }
         outerIterator = outerTupleSlots.iterator();
         outerNext = outerIterator.next();
 
-        previous = innerTuple;
-        do {
-          innerTupleSlots.add(innerTuple);
-          innerTuple = innerChild.next();
-          if (innerTuple == null) {
-            end = true;
-            break;
-          }
-        } while (tupleComparator[1].compare(previous, innerTuple) == 0);
+        previous = TupleUtil.copy(innerTuple);
+        innerTupleSlots.add(previous);
+        while ((innerTuple = innerChild.next()) != null &&
+            tupleComparator[1].compare(previous, innerTuple) == 0) {
+          innerTupleSlots.add(TupleUtil.copy(innerTuple));
+        }
+        if (innerTuple == null) {
+          end = true;
+        }
         innerIterator = innerTupleSlots.iterator();
       }
 
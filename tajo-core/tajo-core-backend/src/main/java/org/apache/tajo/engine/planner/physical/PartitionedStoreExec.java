@@ -29,11 +29,11 @@ import org.apache.tajo.TaskAttemptContext;
 import org.apache.tajo.catalog.CatalogUtil;
 import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.TableMeta;
-import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.catalog.statistics.StatisticsUtil;
 import org.apache.tajo.catalog.statistics.TableStat;
 import org.apache.tajo.engine.planner.logical.StoreTableNode;
 import org.apache.tajo.storage.Appender;
+import org.apache.tajo.storage.RawFile;
 import org.apache.tajo.storage.StorageManager;
 import org.apache.tajo.storage.StorageUtil;
 import org.apache.tajo.storage.Tuple;
@@ -69,7 +69,7 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
     super(context, plan.getInSchema(), plan.getOutSchema(), child);
     Preconditions.checkArgument(plan.hasPartitionKey());
     this.plan = plan;
-    this.meta = CatalogUtil.newTableMeta(this.outSchema, StoreType.CSV);
+    this.meta = CatalogUtil.newTableMeta(this.outSchema, plan.getStorageType());
     
     // about the partitions
     this.numPartitions = this.plan.getNumPartitions();
@@ -102,6 +102,10 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
         LOG.info("File size: " + status.getLen());
       }
       appender = StorageManager.getAppender(context.getConf(), meta, dataFile);
+      if (appender instanceof RawFile.RawFileAppender) {
+        // the partitions are intermediate data, which are regenerated if they are lost
+        ((RawFile.RawFileAppender) appender).disableSync();
+      }
       appender.enableStats();
       appender.init();
       appenderMap.put(partition, appender);
@@ -135,7 +139,8 @@ public final class PartitionedStoreExec extends UnaryPhysicalExec {
       app.close();
       statSet.add(app.getStats());
       if (app.getStats().getNumRows() > 0) {
-        context.addRepartition(partNum, getDataFile(partNum).getName());
+        context.addRepartition(partNum, getDataFile(partNum).getName(),
+            app.getStats().getNumBytes());
       }
     }
     
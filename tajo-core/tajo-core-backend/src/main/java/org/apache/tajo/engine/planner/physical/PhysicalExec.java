@@ -21,6 +21,7 @@ package org.apache.tajo.engine.planner.physical;
 import org.apache.tajo.TaskAttemptContext;
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.catalog.SchemaObject;
+import org.apache.tajo.engine.utils.TupleUtil;
 import org.apache.tajo.storage.Tuple;
 
 import java.io.IOException;
@@ -43,9 +44,42 @@ public abstract class PhysicalExec implements SchemaObject {
 
   public abstract void init() throws IOException;
 
+  /**
+   * It returns the next tuple, or null if no tuple remains. An operator may
+   * reuse the returned tuple for the following call, so the returned tuple is
+   * valid only until the next call of {@link #next()} or {@link #rescan()}.
+   * A consumer keeping a tuple longer must copy it by {@link TupleUtil#copy(Tuple)}.
+   * The datums within a tuple are not reused, and they can be kept without a copy.
+   */
   public abstract Tuple next() throws IOException;
 
+  /**
+   * It fills the given batch with the next tuples. An operator is consumed
+   * either by {@link #next()} or by this method, but not by both. This default
+   * implementation fills the batch by calling {@link #next()}, and operators
+   * which can produce column vectors directly override it.
+   *
+   * @return false if no tuple remains
+   */
+  public boolean nextBatch(VectorBatch batch) throws IOException {
+    batch.reset();
+    Tuple tuple;
+    while (!batch.isFull() && (tuple = next()) != null) {
+      batch.addRow(tuple);
+    }
+    return batch.size() > 0;
+  }
+
   public abstract void rescan() throws IOException;
 
   public abstract void close() throws IOException;
+
+  /**
+   * It returns how much of the input of this operator has been read, from 0
+   * to 1. It is called by the reporter thread of a task while the operator is
+   * running, so it must not change any state.
+   */
+  public float getProgress() {
+    return 0.0f;
+  }
 }
@@ -22,6 +22,7 @@
 package org.apache.tajo.engine.planner.physical;
 
 import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.eval.EvalContext;
 import org.apache.tajo.engine.planner.Projector;
 import org.apache.tajo.engine.planner.logical.ProjectionNode;
@@ -37,6 +38,7 @@ public class ProjectionExec extends UnaryPhysicalExec {
   private Tuple outTuple;
   private EvalContext[] evalContexts;
   private Projector projector;
+  private VectorBatch childBatch;
   
   public ProjectionExec(TaskAttemptContext context, ProjectionNode plan,
       PhysicalExec child) {
@@ -48,7 +50,8 @@ public class ProjectionExec extends UnaryPhysicalExec {
     super.init();
 
     this.outTuple = new VTuple(outSchema.getColumnNum());
-    this.projector = new Projector(inSchema, outSchema, this.plan.getTargets());
+    this.projector = new Projector(inSchema, outSchema, this.plan.getTargets(),
+        context.getConf().getBoolVar(ConfVars.EXEC_CODEGEN));
     this.evalContexts = projector.renew();
   }
 
@@ -63,4 +66,19 @@ public class ProjectionExec extends UnaryPhysicalExec {
     projector.terminate(evalContexts, outTuple);
     return outTuple;
   }
+
+  @Override
+  public boolean nextBatch(VectorBatch batch) throws IOException {
+    if (childBatch == null || childBatch.getCapacity() != batch.getCapacity()) {
+      childBatch = new VectorBatch(inSchema, batch.getCapacity());
+    }
+
+    if (!child.nextBatch(childBatch)) {
+      batch.reset();
+      return false;
+    }
+
+    projector.project(childBatch, batch);
+    return true;
+  }
 }
@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.storage.Tuple;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool which keeps serialized rows in byte pages instead of tuple objects.
+ * A row is referred by a pointer which consists of the page index in the
+ * upper 32 bits and the offset in the page in the lower 32 bits. Pages grow
+ * geometrically up to the maximum page size.
+ *
+ * A row is stored as a null bitmap followed by non-null fields in the column
+ * order. Fixed-length fields are written in their sizes, and variable-length
+ * fields are written with their lengths.
+ */
+class RowPool {
+  private static final int MIN_PAGE_SIZE = 4096;
+
+  private final Type [] types;
+  private final int bitmapLen;
+  private final int maxPageSize;
+
+  private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+  private ByteBuffer currentPage;
+  private long allocatedBytes = 0;
+
+  private ByteBuffer rowBuffer = ByteBuffer.allocate(1024);
+
+  public RowPool(Schema schema, int maxPageSize) {
+    this.types = new Type[schema.getColumnNum()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = schema.getColumn(i).getDataType().getType();
+    }
+    this.bitmapLen = (types.length + 7) / 8;
+    this.maxPageSize = Math.max(MIN_PAGE_SIZE, maxPageSize);
+  }
+
+  /**
+   * It checks if all columns can be serialized.
+   */
+  public static boolean isSupported(Schema schema) {
+    for (int i = 0; i < schema.getColumnNum(); i++) {
+      switch (schema.getColumn(i).getDataType().getType()) {
+        case BOOLEAN:
+        case CHAR:
+        case INT2:
+        case INT4:
+        case INT8:
+        case FLOAT4:
+        case FLOAT8:
+        case TEXT:
+        case BLOB:
+        case INET4:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  public Type getType(int col) {
+    return types[col];
+  }
+
+  /**
+   * It serializes a tuple into the row buffer without adding it.
+   *
+   * @return the length of the serialized row
+   */
+  public int serialize(Tuple tuple) {
+    rowBuffer.clear();
+    ensureRowBuffer(bitmapLen);
+    for (int i = 0; i < bitmapLen; i++) {
+      rowBuffer.put((byte) 0);
+    }
+
+    Datum datum;
+    for (int col = 0; col < types.length; col++) {
+      datum = tuple.get(col);
+      if (datum == null || datum instanceof NullDatum) {
+        rowBuffer.put(col / 8, (byte) (rowBuffer.get(col / 8) | (1 << (col % 8))));
+        continue;
+      }
+
+      switch (types[col]) {
+        case BOOLEAN:
+          ensureRowBuffer(1);
+          rowBuffer.put((byte) (datum.asBool() ? 1 : 0));
+          break;
+        case CHAR:
+          ensureRowBuffer(1);
+          rowBuffer.put(datum.asByte());
+          break;
+        case INT2:
+          ensureRowBuffer(2);
+          rowBuffer.putShort(datum.asInt2());
+          break;
+        case INT4:
+          ensureRowBuffer(4);
+          rowBuffer.putInt(datum.asInt4());
+          break;
+        case INT8:
+          ensureRowBuffer(8);
+          rowBuffer.putLong(datum.asInt8());
+          break;
+        case FLOAT4:
+          ensureRowBuffer(4);
+          rowBuffer.putFloat(datum.asFloat4());
+          break;
+        case FLOAT8:
+          ensureRowBuffer(8);
+          rowBuffer.putDouble(datum.asFloat8());
+          break;
+        case TEXT:
+        case BLOB:
+        case INET4:
+          byte [] bytes = datum.asByteArray();
+          ensureRowBuffer(4 + bytes.length);
+          rowBuffer.putInt(bytes.length);
+          rowBuffer.put(bytes);
+          break;
+      }
+    }
+    return rowBuffer.position();
+  }
+
+  /**
+   * It adds the row serialized by the last call of {@link #serialize(Tuple)}.
+   *
+   * @param rowLen the length returned by {@link #serialize(Tuple)}
+   * @return the pointer of the added row
+   */
+  public long addSerialized(int rowLen) {
+    if (currentPage == null || currentPage.remaining() < rowLen) {
+      int pageSize = (int) Math.min(maxPageSize, Math.max(MIN_PAGE_SIZE, allocatedBytes));
+      currentPage = ByteBuffer.allocate(Math.max(pageSize, rowLen));
+      pages.add(currentPage);
+      allocatedBytes += currentPage.capacity();
+    }
+    long pointer = ((long) (pages.size() - 1) << 32) | currentPage.position();
+    currentPage.put(rowBuffer.array(), 0, rowLen);
+    return pointer;
+  }
+
+  /**
+   * @return the pointer of the added row
+   */
+  public long add(Tuple tuple) {
+    return addSerialized(serialize(tuple));
+  }
+
+  /**
+   * It deserializes a row into the given tuple. Reading rows does not change
+   * any state of the pool, so that rows can be read concurrently.
+   *
+   * @return the given tuple
+   */
+  public Tuple get(long pointer, Tuple outTuple) {
+    ByteBuffer page = getPage(pointer);
+    int rowStart = getOffset(pointer);
+    int offset = rowStart + bitmapLen;
+
+    for (int col = 0; col < types.length; col++) {
+      if (isNull(page, rowStart, col)) {
+        outTuple.put(col, DatumFactory.createNullDatum());
+        continue;
+      }
+
+      switch (types[col]) {
+        case BOOLEAN:
+          outTuple.put(col, DatumFactory.createBool(page.get(offset) == 1));
+          break;
+        case CHAR:
+          outTuple.put(col, DatumFactory.createChar(page.get(offset)));
+          break;
+        case INT2:
+          outTuple.put(col, DatumFactory.createInt2(page.getShort(offset)));
+          break;
+        case INT4:
+          outTuple.put(col, DatumFactory.createInt4(page.getInt(offset)));
+          break;
+        case INT8:
+          outTuple.put(col, DatumFactory.createInt8(page.getLong(offset)));
+          break;
+        case FLOAT4:
+          outTuple.put(col, DatumFactory.createFloat4(page.getFloat(offset)));
+          break;
+        case FLOAT8:
+          outTuple.put(col, DatumFactory.createFloat8(page.getDouble(offset)));
+          break;
+        case TEXT:
+        case BLOB:
+        case INET4:
+          byte [] bytes = new byte[page.getInt(offset)];
+          System.arraycopy(page.array(), offset + 4, bytes, 0, bytes.length);
+          if (types[col] == Type.TEXT) {
+            outTuple.put(col, DatumFactory.createText(bytes));
+          } else if (types[col] == Type.BLOB) {
+            outTuple.put(col, DatumFactory.createBlob(bytes));
+          } else {
+            outTuple.put(col, DatumFactory.createInet4(bytes));
+          }
+          break;
+      }
+      offset += fieldSize(page, offset, col);
+    }
+    return outTuple;
+  }
+
+  public ByteBuffer getPage(long pointer) {
+    return pages.get((int) (pointer >>> 32));
+  }
+
+  public static int getOffset(long pointer) {
+    return (int) pointer;
+  }
+
+  public boolean isNull(ByteBuffer page, int rowStart, int col) {
+    return (page.get(rowStart + col / 8) & (1 << (col % 8))) != 0;
+  }
+
+  /**
+   * @return the offset of a non-null field in the page
+   */
+  public int fieldOffset(ByteBuffer page, int rowStart, int col) {
+    int offset = rowStart + bitmapLen;
+    for (int i = 0; i < col; i++) {
+      if (!isNull(page, rowStart, i)) {
+        offset += fieldSize(page, offset, i);
+      }
+    }
+    return offset;
+  }
+
+  private int fieldSize(ByteBuffer page, int offset, int col) {
+    switch (types[col]) {
+      case BOOLEAN:
+      case CHAR:
+        return 1;
+      case INT2:
+        return 2;
+      case INT4:
+      case FLOAT4:
+        return 4;
+      case INT8:
+      case FLOAT8:
+        return 8;
+      default:
+        return 4 + page.getInt(offset);
+    }
+  }
+
+  private void ensureRowBuffer(int len) {
+    if (rowBuffer.remaining() < len) {
+      ByteBuffer newBuffer = ByteBuffer.allocate(
+          Math.max(rowBuffer.capacity() * 2, rowBuffer.position() + len));
+      newBuffer.put(rowBuffer.array(), 0, rowBuffer.position());
+      rowBuffer = newBuffer;
+    }
+  }
+
+  /**
+   * @return the bytes of all allocated pages
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public void clear() {
+    pages.clear();
+    currentPage = null;
+    allocatedBytes = 0;
+  }
+}
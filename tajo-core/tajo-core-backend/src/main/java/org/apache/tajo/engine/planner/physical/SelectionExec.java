@@ -19,6 +19,9 @@
 package org.apache.tajo.engine.planner.physical;
 
 import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.engine.eval.CompiledEval;
+import org.apache.tajo.engine.eval.EvalCompiler;
 import org.apache.tajo.engine.eval.EvalContext;
 import org.apache.tajo.engine.eval.EvalNode;
 import org.apache.tajo.engine.planner.logical.SelectionNode;
@@ -31,9 +34,13 @@ import java.io.IOException;
 public class SelectionExec extends UnaryPhysicalExec  {
   private final EvalNode qual;
   private final EvalContext qualCtx;
+  private CompiledEval compiledQual;
   private final Tuple outputTuple;
   // projection
   private int [] targetIds;
+  // for nextBatch()
+  private VectorBatch childBatch;
+  private VectorFilter vectorFilter;
 
   public SelectionExec(TaskAttemptContext context,
                        SelectionNode plan,
@@ -42,6 +49,9 @@ public class SelectionExec extends UnaryPhysicalExec  {
 
     this.qual = plan.getQual();
     this.qualCtx = this.qual.newContext();
+    if (context.getConf().getBoolVar(ConfVars.EXEC_CODEGEN)) {
+      this.compiledQual = EvalCompiler.compile(inSchema, qual);
+    }
     // for projection
     if (!inSchema.equals(outSchema)) {
       targetIds = RowStoreUtil.getTargetIds(inSchema, outSchema);
@@ -54,8 +64,7 @@ public class SelectionExec extends UnaryPhysicalExec  {
   public Tuple next() throws IOException {
     Tuple tuple;
     while ((tuple = child.next()) != null) {
-      qual.eval(qualCtx, inSchema, tuple);
-      if (qual.terminate(qualCtx).asBool()) {
+      if (compiledQual != null ? compiledQual.isTrue(tuple) : evalQual(tuple)) {
         if (targetIds != null) {
           RowStoreUtil.project(tuple, outputTuple, targetIds);
           return outputTuple;
@@ -67,4 +76,40 @@ public class SelectionExec extends UnaryPhysicalExec  {
 
     return null;
   }
+
+  private boolean evalQual(Tuple tuple) {
+    qual.eval(qualCtx, inSchema, tuple);
+    return qual.terminate(qualCtx).asBool();
+  }
+
+  @Override
+  public boolean nextBatch(VectorBatch batch) throws IOException {
+    if (childBatch == null || childBatch.getCapacity() != batch.getCapacity()) {
+      childBatch = new VectorBatch(inSchema, batch.getCapacity());
+      vectorFilter = VectorFilter.create(inSchema, qual);
+    }
+
+    batch.reset();
+    while (child.nextBatch(childBatch)) {
+      if (vectorFilter.filter(childBatch) > 0) {
+        int size = childBatch.size();
+        int rowId;
+        int outRowId;
+        for (int i = 0; i < size; i++) {
+          rowId = childBatch.getRowId(i);
+          if (targetIds != null) {
+            outRowId = batch.addEmptyRow();
+            for (int j = 0; j < targetIds.length; j++) {
+              batch.getVector(j).copy(outRowId, childBatch.getVector(targetIds[j]), rowId);
+            }
+          } else {
+            batch.addRow(childBatch, rowId);
+          }
+        }
+        return true;
+      }
+    }
+
+    return false;
+  }
 }
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.engine.planner.physical;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tajo.QueryUnitAttemptId;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.catalog.statistics.StatisticsUtil;
+import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.engine.planner.logical.extended.PipeType;
+import org.apache.tajo.engine.planner.logical.extended.SendNode;
+import org.apache.tajo.storage.RawFile.RawFileAppender;
+import org.apache.tajo.storage.Tuple;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SendExec pushes the hash partitions of its input to the consumer tasks
+ * while they are running, instead of storing them for the pull server. Each
+ * partition is sent to the destination of the partition as a chunked POST
+ * request of a RAW stream, so the consumer can scan it while it arrives.
+ *
+ * Every destination receives a request even if its partition is empty,
+ * because a consumer waits for the end of the data from all producers.
+ */
+public class SendExec extends UnaryPhysicalExec {
+  private static final Log LOG = LogFactory.getLog(SendExec.class);
+  private static final int CHUNK_SIZE = 65536;
+
+  private final SendNode plan;
+  private final TableMeta meta;
+  private final Partitioner partitioner;
+  private final Push [] pushes;
+
+  public SendExec(TaskAttemptContext context, SendNode plan, PhysicalExec child) {
+    super(context, plan.getInSchema(), plan.getOutSchema(), child);
+    Preconditions.checkArgument(plan.getPipeType() == PipeType.PUSH,
+        "SendExec only pushes the data");
+    this.plan = plan;
+    this.meta = CatalogUtil.newTableMeta(outSchema, StoreType.RAW);
+
+    if (plan.hasPartitionKeys()) {
+      int [] keyIds = new int[plan.getPartitionKeys().length];
+      int i = 0;
+      for (Column key : plan.getPartitionKeys()) {
+        keyIds[i++] = inSchema.getColumnId(key.getQualifiedName());
+      }
+      this.partitioner = new HashPartitioner(keyIds, plan.getPartitionsNum());
+      this.pushes = new Push[plan.getPartitionsNum()];
+    } else {
+      // all rows go to a single consumer
+      this.partitioner = null;
+      this.pushes = new Push[1];
+    }
+  }
+
+  private Push getPush(int partition) throws IOException {
+    if (pushes[partition] == null) {
+      URI dest = plan.getDestURI(partition);
+      if (dest == null) {
+        throw new IOException("No destination for the partition " + partition);
+      }
+      QueryUnitAttemptId taskId = context.getTaskId();
+      pushes[partition] = new Push(URI.create(dest + "&src="
+          + taskId.getQueryUnitId().getId() + "_" + taskId.getId()));
+    }
+    return pushes[partition];
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    List<TableStat> statSet = new ArrayList<TableStat>();
+    try {
+      Tuple tuple;
+      while ((tuple = child.next()) != null) {
+        int partition = partitioner == null ? 0 : partitioner.getPartition(tuple);
+        getPush(partition).appender.addTuple(tuple);
+      }
+
+      for (int i = 0; i < pushes.length; i++) {
+        Push push = getPush(i);
+        push.finish();
+        statSet.add(push.appender.getStats());
+      }
+    } catch (IOException e) {
+      abort();
+      throw e;
+    } catch (RuntimeException e) {
+      abort();
+      throw e;
+    }
+
+    context.setResultStats(StatisticsUtil.aggregateTableStat(statSet));
+    return null;
+  }
+
+  /**
+   * It breaks the connections of unfinished pushes, so the consumers discard
+   * their data for another attempt.
+   */
+  private void abort() {
+    for (Push push : pushes) {
+      if (push != null && !push.finished) {
+        push.connection.disconnect();
+      }
+    }
+  }
+
+  /**
+   * Like the store operators, SendExec is the root of a task, and its output
+   * is sent only once by the first call of {@link #next()}.
+   */
+  @Override
+  public void rescan() throws IOException {
+    // nothing to do
+  }
+
+  private class Push {
+    private final URI uri;
+    private final HttpURLConnection connection;
+    private final RawFileAppender appender;
+    private boolean finished = false;
+
+    Push(URI uri) throws IOException {
+      this.uri = uri;
+      connection = (HttpURLConnection) uri.toURL().openConnection();
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      connection.setChunkedStreamingMode(CHUNK_SIZE);
+      connection.setRequestProperty("Content-Type", "application/octet-stream");
+      appender = new RawFileAppender(context.getConf(), meta,
+          Channels.newChannel(connection.getOutputStream()));
+      appender.enableStats();
+      appender.init();
+    }
+
+    /**
+     * It ends the request and waits for the consumer to receive all data.
+     */
+    void finish() throws IOException {
+      appender.close();
+      int status = connection.getResponseCode();
+      if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Push to " + uri + " failed: " + status + " "
+            + connection.getResponseMessage());
+      }
+      finished = true;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Pushed " + appender.getStats().getNumBytes() + " bytes to " + uri);
+      }
+    }
+  }
+}
@@ -19,8 +19,13 @@
 package org.apache.tajo.engine.planner.physical;
 
 import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.engine.eval.CompiledEval;
+import org.apache.tajo.engine.eval.EvalCompiler;
 import org.apache.tajo.engine.eval.EvalContext;
 import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.eval.EvalTreeUtil;
+import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.Projector;
 import org.apache.tajo.engine.planner.logical.ScanNode;
 import org.apache.tajo.storage.*;
@@ -34,11 +39,18 @@ public class SeqScanExec extends PhysicalExec {
 
   private EvalNode qual = null;
   private EvalContext qualCtx;
+  private CompiledEval compiledQual;
 
   private Fragment [] fragments;
 
   private Projector projector;
   private EvalContext [] evalContexts;
+  // reused for every call of next()
+  private Tuple outTuple;
+
+  // for nextBatch()
+  private VectorBatch inBatch;
+  private VectorFilter vectorFilter;
 
   public SeqScanExec(TaskAttemptContext context, StorageManager sm,
                      ScanNode plan, Fragment[] fragments) throws IOException {
@@ -47,24 +59,56 @@ public class SeqScanExec extends PhysicalExec {
     this.plan = plan;
     this.qual = plan.getQual();
     this.fragments = fragments;
+    initQual(context);
+  }
+
+  /**
+   * It creates a scan over the given scanner, such as the one reading the
+   * stream of fetched data.
+   */
+  public SeqScanExec(TaskAttemptContext context, StorageManager sm,
+                     ScanNode plan, Scanner scanner) throws IOException {
+    super(context, plan.getInSchema(), plan.getOutSchema());
 
+    this.plan = plan;
+    this.qual = plan.getQual();
+    this.scanner = scanner;
+    initQual(context);
+  }
+
+  private void initQual(TaskAttemptContext context) {
     if (qual == null) {
       qualCtx = null;
     } else {
       qualCtx = this.qual.newContext();
+      if (context.getConf().getBoolVar(ConfVars.EXEC_CODEGEN)) {
+        compiledQual = EvalCompiler.compile(inSchema, qual);
+      }
     }
   }
 
   public void init() throws IOException {
-    this.projector = new Projector(inSchema, outSchema, plan.getTargets());
+    this.projector = new Projector(inSchema, outSchema, plan.getTargets(),
+        context.getConf().getBoolVar(ConfVars.EXEC_CODEGEN));
     this.evalContexts = projector.renew();
+    this.outTuple = new VTuple(outSchema.getColumnNum());
 
-    if (fragments.length > 1) {
-      this.scanner = new MergeScanner(context.getConf(), fragments[0].getMeta(),
-          TUtil.newList(fragments));
-    } else {
-      this.scanner = StorageManager.getScanner(context.getConf(), fragments[0].getMeta(),
-          fragments[0], plan.getOutSchema());
+    if (scanner == null) {
+      if (fragments.length > 1) {
+        this.scanner = new MergeScanner(context.getConf(), fragments[0].getMeta(),
+            TUtil.newList(fragments));
+      } else {
+        this.scanner = StorageManager.getScanner(context.getConf(), fragments[0].getMeta(),
+            fragments[0], PlannerUtil.getReadSchema(plan));
+      }
+    }
+
+    // the qual is still evaluated for the tuples returned by the scanner.
+    if (qual != null && scanner.isSelectable()) {
+      SearchCondition condition = EvalTreeUtil.getSearchCondition(inSchema, qual);
+      if (condition != null) {
+        scanner.setSearchCondition(condition);
+      }
     }
 
     scanner.init();
@@ -73,7 +117,11 @@ public class SeqScanExec extends PhysicalExec {
   @Override
   public Tuple next() throws IOException {
     Tuple tuple;
-    Tuple outTuple = new VTuple(outSchema.getColumnNum());
+
+    // a killed task stops scanning as soon as possible
+    if (context.isStopped()) {
+      return null;
+    }
 
     if (!plan.hasQual()) {
       if ((tuple = scanner.next()) != null) {
@@ -86,8 +134,7 @@ public class SeqScanExec extends PhysicalExec {
       }
     } else {
       while ((tuple = scanner.next()) != null) {
-        qual.eval(qualCtx, inSchema, tuple);
-        if (qual.terminate(qualCtx).asBool()) {
+        if (compiledQual != null ? compiledQual.isTrue(tuple) : evalQual(tuple)) {
           projector.eval(evalContexts, tuple);
           projector.terminate(evalContexts, outTuple);
           return outTuple;
@@ -97,6 +144,44 @@ public class SeqScanExec extends PhysicalExec {
     }
   }
 
+  private boolean evalQual(Tuple tuple) {
+    qual.eval(qualCtx, inSchema, tuple);
+    return qual.terminate(qualCtx).asBool();
+  }
+
+  @Override
+  public boolean nextBatch(VectorBatch batch) throws IOException {
+    if (context.isStopped()) {
+      batch.reset();
+      return false;
+    }
+
+    if (inBatch == null || inBatch.getCapacity() != batch.getCapacity()) {
+      inBatch = new VectorBatch(inSchema, batch.getCapacity());
+      if (plan.hasQual()) {
+        vectorFilter = VectorFilter.create(inSchema, qual);
+      }
+    }
+
+    Tuple tuple;
+    do {
+      inBatch.reset();
+      while (!inBatch.isFull() && (tuple = scanner.next()) != null) {
+        inBatch.addRow(tuple);
+      }
+      if (inBatch.size() == 0) {
+        batch.reset();
+        return false;
+      }
+      if (vectorFilter != null) {
+        vectorFilter.filter(inBatch);
+      }
+    } while (inBatch.size() == 0);
+
+    projector.project(inBatch, batch);
+    return true;
+  }
+
   @Override
   public void rescan() throws IOException {
     scanner.reset();
@@ -107,6 +192,12 @@ public class SeqScanExec extends PhysicalExec {
     scanner.close();
   }
 
+  @Override
+  public float getProgress() {
+    Scanner current = scanner;
+    return current == null ? 0.0f : current.getProgress();
+  }
+
   public String getTableName() {
     return plan.getTableId();
   }
@@ -0,0 +1,310 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.SortSpec;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A sort buffer which keeps serialized rows in a {@link RowPool} instead of
+ * tuple objects. Each row is referred by an entry which consists of a
+ * normalized prefix of the first sort key and a pointer to the row. Entries
+ * are sorted by their prefixes as unsigned longs, and only ties are resolved
+ * by comparing the serialized sort keys. The size of the buffer is limited by
+ * the number of bytes of rows and entries.
+ */
+class SortBuffer {
+  private static final int PAGE_SIZE = 1024 * 1024;
+  /** the bytes of a prefix and a pointer */
+  private static final int ENTRY_SIZE = 16;
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private final Type [] types;
+  private final int [] sortKeyIds;
+  private final boolean [] asc;
+  private final boolean [] nullFirsts;
+  private final long memoryBudget;
+
+  private final RowPool pool;
+  private long [] prefixes = new long[1024];
+  private long [] pointers = new long[1024];
+  private int entryNum = 0;
+  private long usedBytes = 0;
+
+  private final Tuple outTuple;
+
+  public SortBuffer(Schema schema, SortSpec [] sortSpecs, long memoryBudget) {
+    this.types = new Type[schema.getColumnNum()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = schema.getColumn(i).getDataType().getType();
+    }
+    this.sortKeyIds = new int[sortSpecs.length];
+    this.asc = new boolean[sortSpecs.length];
+    this.nullFirsts = new boolean[sortSpecs.length];
+    for (int i = 0; i < sortSpecs.length; i++) {
+      sortKeyIds[i] = schema.getColumnId(sortSpecs[i].getSortKey().getQualifiedName());
+      asc[i] = sortSpecs[i].isAscending();
+      nullFirsts[i] = sortSpecs[i].isNullFirst();
+    }
+    this.memoryBudget = memoryBudget;
+    this.pool = new RowPool(schema, (int) Math.min(PAGE_SIZE, memoryBudget));
+    this.outTuple = new VTuple(types.length);
+  }
+
+  /**
+   * It checks if all columns can be serialized and all sort keys can be
+   * compared in their serialized forms.
+   */
+  public static boolean isSupported(Schema schema, SortSpec [] sortSpecs) {
+    if (!RowPool.isSupported(schema)) {
+      return false;
+    }
+
+    for (SortSpec sortSpec : sortSpecs) {
+      int id = schema.getColumnId(sortSpec.getSortKey().getQualifiedName());
+      if (id < 0) {
+        return false;
+      }
+      switch (schema.getColumn(id).getDataType().getType()) {
+        case INT2:
+        case INT4:
+        case INT8:
+        case FLOAT4:
+        case FLOAT8:
+        case TEXT:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * It adds a tuple to the buffer.
+   *
+   * @return false if the buffer is full. Then, the tuple is not added.
+   * An empty buffer always accepts a tuple.
+   */
+  public boolean add(Tuple tuple) {
+    int rowLen = pool.serialize(tuple);
+    if (entryNum > 0 && usedBytes + rowLen + ENTRY_SIZE > memoryBudget) {
+      return false;
+    }
+
+    long pointer = pool.addSerialized(rowLen);
+    if (entryNum == prefixes.length) {
+      prefixes = Arrays.copyOf(prefixes, entryNum * 2);
+      pointers = Arrays.copyOf(pointers, entryNum * 2);
+    }
+    prefixes[entryNum] = normalizedPrefix(tuple.get(sortKeyIds[0]));
+    pointers[entryNum] = pointer;
+    entryNum++;
+    usedBytes += rowLen + ENTRY_SIZE;
+    return true;
+  }
+
+  public int size() {
+    return entryNum;
+  }
+
+  public void sort() {
+    sort(0, entryNum - 1);
+  }
+
+  /**
+   * It returns the i-th row. The returned tuple is reused for the next call.
+   */
+  public Tuple get(int i) {
+    return pool.get(pointers[i], outTuple);
+  }
+
+  public void clear() {
+    pool.clear();
+    entryNum = 0;
+    usedBytes = 0;
+  }
+
+  /**
+   * It normalizes the first sort key into a long whose unsigned order is the
+   * same as the sort order. A text key is represented by its first 8 bytes.
+   * Nulls are mapped into the largest or smallest value, and equal prefixes
+   * are always compared again with whole sort keys.
+   */
+  private long normalizedPrefix(Datum datum) {
+    if (datum == null || datum instanceof NullDatum) {
+      return nullFirsts[0] ? 0 : -1L;
+    }
+
+    long prefix;
+    switch (types[sortKeyIds[0]]) {
+      case INT2:
+      case INT4:
+      case INT8:
+        prefix = datum.asInt8() ^ Long.MIN_VALUE;
+        break;
+      case FLOAT4:
+      case FLOAT8:
+        long bits = Double.doubleToLongBits(datum.asFloat8());
+        prefix = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        break;
+      default:
+        byte [] bytes = datum.asByteArray();
+        prefix = 0;
+        for (int i = 0; i < 8; i++) {
+          prefix <<= 8;
+          if (i < bytes.length) {
+            prefix |= bytes[i] & 0xFF;
+          }
+        }
+    }
+    return asc[0] ? prefix : ~prefix;
+  }
+
+  private int compare(int i, int j) {
+    if (prefixes[i] != prefixes[j]) {
+      return prefixes[i] + Long.MIN_VALUE < prefixes[j] + Long.MIN_VALUE ? -1 : 1;
+    }
+    return compareKeys(pointers[i], pointers[j]);
+  }
+
+  /**
+   * It compares the serialized sort keys of two rows in the same way as
+   * {@link org.apache.tajo.storage.TupleComparator}.
+   */
+  private int compareKeys(long leftPointer, long rightPointer) {
+    ByteBuffer leftPage = pool.getPage(leftPointer);
+    ByteBuffer rightPage = pool.getPage(rightPointer);
+    int leftStart = RowPool.getOffset(leftPointer);
+    int rightStart = RowPool.getOffset(rightPointer);
+
+    int compVal;
+    for (int k = 0; k < sortKeyIds.length; k++) {
+      int col = sortKeyIds[k];
+      boolean leftNull = pool.isNull(leftPage, leftStart, col);
+      boolean rightNull = pool.isNull(rightPage, rightStart, col);
+
+      if (leftNull || rightNull) {
+        if (leftNull && rightNull) {
+          compVal = 0;
+        } else {
+          compVal = leftNull ? 1 : -1;
+          if (nullFirsts[k]) {
+            compVal *= -1;
+          }
+        }
+      } else {
+        int l = pool.fieldOffset(leftPage, leftStart, col);
+        int r = pool.fieldOffset(rightPage, rightStart, col);
+        switch (types[col]) {
+          case INT2:
+            compVal = compareLong(leftPage.getShort(l), rightPage.getShort(r));
+            break;
+          case INT4:
+            compVal = compareLong(leftPage.getInt(l), rightPage.getInt(r));
+            break;
+          case INT8:
+            compVal = compareLong(leftPage.getLong(l), rightPage.getLong(r));
+            break;
+          case FLOAT4:
+            compVal = compareDouble(leftPage.getFloat(l), rightPage.getFloat(r));
+            break;
+          case FLOAT8:
+            compVal = compareDouble(leftPage.getDouble(l), rightPage.getDouble(r));
+            break;
+          default:
+            compVal = WritableComparator.compareBytes(
+                leftPage.array(), l + 4, leftPage.getInt(l),
+                rightPage.array(), r + 4, rightPage.getInt(r));
+        }
+        if (!asc[k]) {
+          compVal = -compVal;
+        }
+      }
+
+      if (compVal != 0) {
+        return compVal;
+      }
+    }
+    return 0;
+  }
+
+  private static int compareLong(long left, long right) {
+    return left < right ? -1 : (left > right ? 1 : 0);
+  }
+
+  private static int compareDouble(double left, double right) {
+    return left < right ? -1 : (left > right ? 1 : 0);
+  }
+
+  /**
+   * A three-way quick sort which works well with many duplicate keys.
+   */
+  private void sort(int lo, int hi) {
+    while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+      swap(lo, lo + (hi - lo) / 2);
+      int lt = lo;
+      int gt = hi;
+      int i = lo + 1;
+      while (i <= gt) {
+        int cmp = compare(i, lt);
+        if (cmp < 0) {
+          swap(lt++, i++);
+        } else if (cmp > 0) {
+          swap(i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      // recurse into the smaller part to bound the stack depth
+      if (lt - lo < hi - gt) {
+        sort(lo, lt - 1);
+        lo = gt + 1;
+      } else {
+        sort(gt + 1, hi);
+        hi = lt - 1;
+      }
+    }
+
+    for (int i = lo + 1; i <= hi; i++) {
+      for (int j = i; j > lo && compare(j - 1, j) > 0; j--) {
+        swap(j - 1, j);
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    long tmp = prefixes[i];
+    prefixes[i] = prefixes[j];
+    prefixes[j] = tmp;
+    tmp = pointers[i];
+    pointers[i] = pointers[j];
+    pointers[j] = tmp;
+  }
+}
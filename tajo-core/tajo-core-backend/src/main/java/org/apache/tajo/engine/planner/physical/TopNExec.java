@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.engine.planner.logical.SortNode;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This operator returns only the first N tuples in the sort order. It keeps
+ * the N smallest tuples in a bounded heap, so it does not need to sort all
+ * input tuples.
+ */
+public class TopNExec extends SortExec {
+  private final SortNode plan;
+  private final int fetchFirstNum;
+  private final PriorityQueue<Tuple> heap;
+  private List<Tuple> sorted = null;
+  private Iterator<Tuple> iterator;
+
+  public TopNExec(TaskAttemptContext context, SortNode plan, PhysicalExec child) {
+    super(context, plan.getInSchema(), plan.getOutSchema(), child,
+        plan.getSortKeys());
+    this.plan = plan;
+    this.fetchFirstNum = (int) plan.getFetchFirstNum();
+
+    // the root of the heap is the largest one of the kept tuples.
+    final Comparator<Tuple> comparator = getComparator();
+    this.heap = new PriorityQueue<Tuple>(Math.max(1, fetchFirstNum),
+        new Comparator<Tuple>() {
+          @Override
+          public int compare(Tuple t1, Tuple t2) {
+            return comparator.compare(t2, t1);
+          }
+        });
+  }
+
+  public SortNode getPlan() {
+    return this.plan;
+  }
+
+  @Override
+  public Tuple next() throws IOException {
+    if (sorted == null) {
+      Comparator<Tuple> comparator = getComparator();
+      Tuple tuple;
+      while ((tuple = child.next()) != null) {
+        if (heap.size() < fetchFirstNum) {
+          heap.add(new VTuple(tuple));
+        } else if (fetchFirstNum > 0 && comparator.compare(tuple, heap.peek()) < 0) {
+          heap.poll();
+          heap.add(new VTuple(tuple));
+        }
+      }
+
+      sorted = new ArrayList<Tuple>(heap);
+      heap.clear();
+      Collections.sort(sorted, comparator);
+      iterator = sorted.iterator();
+    }
+
+    if (iterator.hasNext()) {
+      return iterator.next();
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public void rescan() throws IOException {
+    // the kept tuples are returned again without reading the child
+    if (sorted != null) {
+      iterator = sorted.iterator();
+    }
+  }
+}
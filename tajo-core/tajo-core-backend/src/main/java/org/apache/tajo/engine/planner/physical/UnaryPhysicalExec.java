@@ -54,4 +54,9 @@ public abstract class UnaryPhysicalExec extends PhysicalExec {
   public void close() throws IOException {
     child.close();
   }
+
+  @Override
+  public float getProgress() {
+    return child.getProgress();
+  }
 }
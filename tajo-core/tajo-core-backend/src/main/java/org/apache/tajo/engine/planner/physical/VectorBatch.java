@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.storage.Tuple;
+
+/**
+ * A batch of tuples stored in column vectors. Only the rows in the selection
+ * vector are valid if the selection is in use, so that a filter can drop rows
+ * without copying the column vectors.
+ *
+ * @see PhysicalExec#nextBatch(VectorBatch)
+ */
+public class VectorBatch {
+  public static final int DEFAULT_SIZE = 1024;
+
+  private final Schema schema;
+  private final ColumnVector [] vectors;
+  private final int capacity;
+  private int rowNum = 0;
+
+  private final int [] selected;
+  private int selectedNum = 0;
+  private boolean selectionInUse = false;
+
+  public VectorBatch(Schema schema) {
+    this(schema, DEFAULT_SIZE);
+  }
+
+  public VectorBatch(Schema schema, int capacity) {
+    this.schema = schema;
+    this.capacity = capacity;
+    this.vectors = new ColumnVector[schema.getColumnNum()];
+    for (int i = 0; i < vectors.length; i++) {
+      vectors[i] = new ColumnVector(schema.getColumn(i).getDataType().getType(), capacity);
+    }
+    this.selected = new int[capacity];
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  public ColumnVector getVector(int columnId) {
+    return vectors[columnId];
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void reset() {
+    for (ColumnVector vector : vectors) {
+      vector.reset();
+    }
+    rowNum = 0;
+    selectedNum = 0;
+    selectionInUse = false;
+  }
+
+  public boolean isFull() {
+    return rowNum == capacity;
+  }
+
+  /**
+   * @return the number of valid rows
+   */
+  public int size() {
+    return selectionInUse ? selectedNum : rowNum;
+  }
+
+  /**
+   * @return the index of the i-th valid row
+   */
+  public int getRowId(int i) {
+    return selectionInUse ? selected[i] : i;
+  }
+
+  /**
+   * It returns the selection vector which can be narrowed by a filter.
+   * The row indexes in the selection vector are always in ascending order.
+   */
+  public int [] getSelected() {
+    if (!selectionInUse) {
+      for (int i = 0; i < rowNum; i++) {
+        selected[i] = i;
+      }
+      selectedNum = rowNum;
+      selectionInUse = true;
+    }
+    return selected;
+  }
+
+  public void setSelectedNum(int selectedNum) {
+    this.selectedNum = selectedNum;
+  }
+
+  /**
+   * It appends a tuple. The values are copied, so the tuple can be reused.
+   */
+  public void addRow(Tuple tuple) {
+    for (int i = 0; i < vectors.length; i++) {
+      vectors[i].set(rowNum, tuple.get(i));
+    }
+    rowNum++;
+  }
+
+  /**
+   * It appends a row of another batch of the same schema.
+   */
+  public void addRow(VectorBatch batch, int rowId) {
+    for (int i = 0; i < vectors.length; i++) {
+      vectors[i].copy(rowNum, batch.vectors[i], rowId);
+    }
+    rowNum++;
+  }
+
+  /**
+   * It appends an empty row whose values are set by the column vectors.
+   *
+   * @return the index of the added row
+   */
+  public int addEmptyRow() {
+    return rowNum++;
+  }
+
+  /**
+   * It fills the given tuple with the values of a row.
+   */
+  public void getRow(int rowId, Tuple tuple) {
+    for (int i = 0; i < vectors.length; i++) {
+      tuple.put(i, vectors[i].get(rowId));
+    }
+  }
+}
@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.engine.eval.ConstEval;
+import org.apache.tajo.engine.eval.EvalContext;
+import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.eval.EvalTreeUtil;
+import org.apache.tajo.engine.eval.FieldEval;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+
+/**
+ * It evaluates a search condition over a {@link VectorBatch}, and narrows the
+ * selection vector of the batch to the rows satisfying the condition.
+ *
+ * AND and OR are evaluated on selection vectors, and a comparison between
+ * numeric columns and constants is evaluated directly on primitive values.
+ * The other expressions are evaluated row by row through {@link EvalNode}.
+ */
+public abstract class VectorFilter {
+
+  /**
+   * It narrows the selection vector of the batch.
+   *
+   * @return the number of selected rows
+   */
+  public abstract int filter(VectorBatch batch);
+
+  public static VectorFilter create(Schema schema, EvalNode qual) {
+    switch (qual.getType()) {
+      case AND:
+        return new AndFilter(create(schema, qual.getLeftExpr()),
+            create(schema, qual.getRightExpr()));
+      case OR:
+        return new OrFilter(create(schema, qual.getLeftExpr()),
+            create(schema, qual.getRightExpr()));
+      case EQUAL:
+      case NOT_EQUAL:
+      case LTH:
+      case LEQ:
+      case GTH:
+      case GEQ:
+        Operand left = Operand.create(schema, qual.getLeftExpr());
+        Operand right = Operand.create(schema, qual.getRightExpr());
+        if (left != null && right != null && (left.fieldId >= 0 || right.fieldId >= 0)) {
+          return new CompareFilter(qual, new RowFilter(schema, qual), left, right);
+        }
+        return new RowFilter(schema, qual);
+      default:
+        return new RowFilter(schema, qual);
+    }
+  }
+
+  /**
+   * A numeric column or a numeric constant
+   */
+  private static class Operand {
+    int fieldId = -1;
+    boolean integral;
+    long longValue;
+    double doubleValue;
+
+    static Operand create(Schema schema, EvalNode expr) {
+      Operand operand = new Operand();
+      if (expr.getType() == EvalNode.Type.FIELD) {
+        operand.fieldId = EvalTreeUtil.findFieldId(schema, (FieldEval) expr);
+        if (operand.fieldId < 0) {
+          return null;
+        }
+        switch (schema.getColumn(operand.fieldId).getDataType().getType()) {
+          case INT2:
+          case INT4:
+          case INT8:
+            operand.integral = true;
+            return operand;
+          case FLOAT4:
+          case FLOAT8:
+            operand.integral = false;
+            return operand;
+          default:
+            return null;
+        }
+      } else if (expr.getType() == EvalNode.Type.CONST) {
+        Datum value = ((ConstEval) expr).getValue();
+        switch (value.type()) {
+          case INT2:
+          case INT4:
+          case INT8:
+            operand.integral = true;
+            operand.longValue = value.asInt8();
+            operand.doubleValue = value.asInt8();
+            return operand;
+          case FLOAT4:
+          case FLOAT8:
+            operand.integral = false;
+            operand.doubleValue = value.asFloat8();
+            return operand;
+          default:
+            return null;
+        }
+      } else {
+        return null;
+      }
+    }
+  }
+
+  private static class CompareFilter extends VectorFilter {
+    private final EvalNode.Type op;
+    private final RowFilter rowFilter;
+    private final Operand left;
+    private final Operand right;
+    private final boolean integral;
+
+    CompareFilter(EvalNode qual, RowFilter rowFilter, Operand left, Operand right) {
+      this.op = qual.getType();
+      this.rowFilter = rowFilter;
+      this.left = left;
+      this.right = right;
+      this.integral = left.integral && right.integral;
+    }
+
+    private static boolean isPrimitive(VectorBatch batch, Operand operand) {
+      if (operand.fieldId < 0) {
+        return true;
+      }
+      ColumnVector vector = batch.getVector(operand.fieldId);
+      return vector.noNulls() && vector.isPrimitive();
+    }
+
+    @Override
+    public int filter(VectorBatch batch) {
+      // nulls and unexpected datums follow the semantics of the row-wise evaluation.
+      if (!isPrimitive(batch, left) || !isPrimitive(batch, right)) {
+        return rowFilter.filter(batch);
+      }
+
+      int [] selected = batch.getSelected();
+      int size = batch.size();
+      ColumnVector leftVector = left.fieldId >= 0 ? batch.getVector(left.fieldId) : null;
+      ColumnVector rightVector = right.fieldId >= 0 ? batch.getVector(right.fieldId) : null;
+      int newSize = 0;
+      int row;
+      int cmp;
+      for (int i = 0; i < size; i++) {
+        row = selected[i];
+        if (integral) {
+          long l = leftVector != null ? leftVector.getLong(row) : left.longValue;
+          long r = rightVector != null ? rightVector.getLong(row) : right.longValue;
+          cmp = l < r ? -1 : (l == r ? 0 : 1);
+        } else {
+          double l = leftVector == null ? left.doubleValue :
+              (left.integral ? leftVector.getLong(row) : leftVector.getDouble(row));
+          double r = rightVector == null ? right.doubleValue :
+              (right.integral ? rightVector.getLong(row) : rightVector.getDouble(row));
+          cmp = l < r ? -1 : (l == r ? 0 : 1);
+        }
+        if (matches(cmp)) {
+          selected[newSize++] = row;
+        }
+      }
+      batch.setSelectedNum(newSize);
+      return newSize;
+    }
+
+    private boolean matches(int cmp) {
+      switch (op) {
+        case EQUAL: return cmp == 0;
+        case NOT_EQUAL: return cmp != 0;
+        case LTH: return cmp < 0;
+        case LEQ: return cmp <= 0;
+        case GTH: return cmp > 0;
+        default: return cmp >= 0;
+      }
+    }
+  }
+
+  private static class AndFilter extends VectorFilter {
+    private final VectorFilter left;
+    private final VectorFilter right;
+
+    AndFilter(VectorFilter left, VectorFilter right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public int filter(VectorBatch batch) {
+      if (left.filter(batch) == 0) {
+        return 0;
+      }
+      return right.filter(batch);
+    }
+  }
+
+  private static class OrFilter extends VectorFilter {
+    private final VectorFilter left;
+    private final VectorFilter right;
+    private int [] origin;
+    private int [] leftSelected;
+
+    OrFilter(VectorFilter left, VectorFilter right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public int filter(VectorBatch batch) {
+      if (origin == null || origin.length < batch.getCapacity()) {
+        origin = new int[batch.getCapacity()];
+        leftSelected = new int[batch.getCapacity()];
+      }
+
+      int [] selected = batch.getSelected();
+      int size = batch.size();
+      System.arraycopy(selected, 0, origin, 0, size);
+
+      int leftSize = left.filter(batch);
+      System.arraycopy(selected, 0, leftSelected, 0, leftSize);
+
+      // the right filter is evaluated on the rows which the left filter drops.
+      int remainSize = 0;
+      for (int i = 0, j = 0; i < size; i++) {
+        if (j < leftSize && leftSelected[j] == origin[i]) {
+          j++;
+        } else {
+          selected[remainSize++] = origin[i];
+        }
+      }
+      batch.setSelectedNum(remainSize);
+      int rightSize = remainSize == 0 ? 0 : right.filter(batch);
+
+      // merge two ascending selections
+      System.arraycopy(selected, 0, origin, 0, rightSize);
+      int i = 0, j = 0, k = 0;
+      while (i < leftSize || j < rightSize) {
+        if (j >= rightSize || (i < leftSize && leftSelected[i] < origin[j])) {
+          selected[k++] = leftSelected[i++];
+        } else {
+          selected[k++] = origin[j++];
+        }
+      }
+      batch.setSelectedNum(k);
+      return k;
+    }
+  }
+
+  /**
+   * It evaluates an expression for each selected row.
+   */
+  private static class RowFilter extends VectorFilter {
+    private final Schema schema;
+    private final EvalNode qual;
+    private final EvalContext qualCtx;
+    private final Tuple tuple;
+
+    RowFilter(Schema schema, EvalNode qual) {
+      this.schema = schema;
+      this.qual = qual;
+      this.qualCtx = qual.newContext();
+      this.tuple = new VTuple(schema.getColumnNum());
+    }
+
+    @Override
+    public int filter(VectorBatch batch) {
+      int [] selected = batch.getSelected();
+      int size = batch.size();
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        batch.getRow(selected[i], tuple);
+        qual.eval(qualCtx, schema, tuple);
+        if (qual.terminate(qualCtx).asBool()) {
+          selected[newSize++] = selected[i];
+        }
+      }
+      batch.setSelectedNum(newSize);
+      return newSize;
+    }
+  }
+}
@@ -23,6 +23,7 @@ import org.apache.tajo.QueryUnitAttemptId;
 import org.apache.tajo.engine.MasterWorkerProtos.Fetch;
 import org.apache.tajo.engine.MasterWorkerProtos.QueryUnitRequestProto;
 import org.apache.tajo.engine.MasterWorkerProtos.QueryUnitRequestProtoOrBuilder;
+import org.apache.tajo.engine.MasterWorkerProtos.Receive;
 import org.apache.tajo.ipc.protocolrecords.QueryUnitRequest;
 import org.apache.tajo.storage.Fragment;
 
@@ -48,6 +49,8 @@ public class QueryUnitRequestImpl implements QueryUnitRequest {
 	@Expose
 	private List<Fetch> fetches;
   @Expose
+  private List<Receive> receives;
+  @Expose
   private Boolean shouldDie;
 	
 	private QueryUnitRequestProto proto = QueryUnitRequestProto.getDefaultInstance();
@@ -205,6 +208,36 @@ public class QueryUnitRequestImpl implements QueryUnitRequest {
     }
 	}
 
+  /**
+   * It adds an input which the producer tasks push to this task. The task
+   * receives the data from the given number of producer tasks.
+   */
+  public void addReceive(String name, int sourceNum) {
+    maybeInitBuilder();
+    initReceives();
+    receives.add(
+    Receive.newBuilder()
+      .setName(name)
+      .setSourceNum(sourceNum).build());
+  }
+
+  public List<Receive> getReceives() {
+    initReceives();
+
+    return this.receives;
+  }
+
+  private void initReceives() {
+    if (this.receives != null) {
+      return;
+    }
+    QueryUnitRequestProtoOrBuilder p = viaProto ? proto : builder;
+    this.receives = new ArrayList<Receive>();
+    for(Receive receive : p.getReceivesList()) {
+      receives.add(receive);
+    }
+  }
+
   @Override
   public boolean shouldDie() {
     QueryUnitRequestProtoOrBuilder p = viaProto ? proto : builder;
@@ -255,6 +288,9 @@ public class QueryUnitRequestImpl implements QueryUnitRequest {
 		if (this.fetches != null) {
 		  builder.addAllFetches(this.fetches);
 		}
+    if (this.receives != null) {
+      builder.addAllReceives(this.receives);
+    }
     if (this.shouldDie != null) {
       builder.setShouldDie(this.shouldDie);
     }
@@ -296,6 +332,9 @@ public class QueryUnitRequestImpl implements QueryUnitRequest {
     if (fetches == null && p.getFetchesCount() > 0) {
       this.fetches = p.getFetchesList();
     }
+    if (receives == null && p.getReceivesCount() > 0) {
+      this.receives = p.getReceivesList();
+    }
     if (shouldDie == null && p.getShouldDie()) {
       this.shouldDie = true;
     }
@@ -385,4 +385,90 @@ public class TupleUtil {
     }
     return new TupleRange(target, startTuple, endTuple);
   }
+
+  /** the estimated bytes of the object header and references of one tuple and datum */
+  private static final int TUPLE_OVERHEAD = 32;
+  private static final int DATUM_OVERHEAD = 16;
+
+  /**
+   * It roughly estimates the heap size of a tuple. It is used by operators
+   * which keep tuples in memory within a memory budget.
+   */
+  public static long estimateSize(Tuple tuple) {
+    long size = TUPLE_OVERHEAD;
+    Datum datum;
+    for (int i = 0; i < tuple.size(); i++) {
+      datum = tuple.get(i);
+      size += DATUM_OVERHEAD + (datum == null ? 0 : datum.size());
+    }
+    return size;
+  }
+
+  /**
+   * It copies a tuple, so that the copy is kept after the operator producing
+   * the tuple reuses it. Datums are shared by the copy.
+   */
+  public static Tuple copy(Tuple tuple) {
+    Tuple copied = new VTuple(tuple.size());
+    copied.put(0, tuple);
+    if (tuple instanceof VTuple) {
+      copied.setOffset(tuple.getOffset());
+    }
+    return copied;
+  }
+
+  /**
+   * It computes a hash partition of a tuple by the given key columns. Each seed
+   * distributes the same keys differently, so the tuples of one partition can
+   * be partitioned again with another seed.
+   *
+   * @param tuple a tuple
+   * @param keyIds the column ids of partition keys
+   * @param seed the seed of the hash function
+   * @param partNum the number of partitions
+   * @return the partition id
+   */
+  public static int getPartition(Tuple tuple, int [] keyIds, int seed, int partNum) {
+    long hash = seed;
+    for (int keyId : keyIds) {
+      hash = hash * 31 + getKeyBits(tuple.get(keyId));
+    }
+
+    // the finalizer of murmur3 on 64 bits
+    hash ^= seed * 0x9e3779b97f4a7c15L;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return (int) ((hash & Long.MAX_VALUE) % partNum);
+  }
+
+  /**
+   * It returns the bits of a partition key. Numeric keys are represented by
+   * their whole values instead of {@link Datum#hashCode()}, which truncates
+   * reals and longs to ints, so that keys sharing an integer part can be
+   * distributed.
+   */
+  private static long getKeyBits(Datum datum) {
+    if (datum == null) {
+      return 0;
+    }
+
+    switch (datum.type()) {
+      case INT2:
+      case INT4:
+      case INT8:
+        return datum.asInt8();
+      case FLOAT4:
+      case FLOAT8:
+        double val = datum.asFloat8();
+        // +0.0 and -0.0 must be the same key
+        return val == 0.0d ? 0L : Double.doubleToLongBits(val);
+      default:
+        return datum.hashCode();
+    }
+  }
+
 }
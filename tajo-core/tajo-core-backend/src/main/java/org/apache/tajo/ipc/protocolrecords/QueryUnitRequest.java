@@ -25,6 +25,7 @@ import org.apache.tajo.QueryUnitAttemptId;
 import org.apache.tajo.common.ProtoObject;
 import org.apache.tajo.engine.MasterWorkerProtos.Fetch;
 import org.apache.tajo.engine.MasterWorkerProtos.QueryUnitRequestProto;
+import org.apache.tajo.engine.MasterWorkerProtos.Receive;
 import org.apache.tajo.storage.Fragment;
 
 import java.net.URI;
@@ -41,6 +42,8 @@ public interface QueryUnitRequest extends ProtoObject<QueryUnitRequestProto> {
 	public void setInterQuery();
 	public void addFetch(String name, URI uri);
 	public List<Fetch> getFetches();
+  public void addReceive(String name, int sourceNum);
+  public List<Receive> getReceives();
   public boolean shouldDie();
   public void setShouldDie();
 }
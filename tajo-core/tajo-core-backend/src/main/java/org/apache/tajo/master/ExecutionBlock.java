@@ -18,6 +18,7 @@ import com.google.common.base.Preconditions;
 import org.apache.tajo.SubQueryId;
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.engine.planner.logical.*;
+import org.apache.tajo.engine.planner.logical.extended.PipeType;
 
 import java.util.*;
 
@@ -47,6 +48,7 @@ public class ExecutionBlock {
   private ExecutionBlock parent;
   private Map<ScanNode, ExecutionBlock> childSubQueries = new HashMap<ScanNode, ExecutionBlock>();
   private PartitionType outputType;
+  private PipeType pipeType = PipeType.PULL;
   private boolean hasJoinPlan;
   private boolean hasUnionPlan;
 
@@ -70,6 +72,30 @@ public class ExecutionBlock {
     return outputType;
   }
 
+  /**
+   * It sets how the output is delivered to the parent block. With PUSH, the
+   * tasks of this block send the output to the running tasks of the parent.
+   */
+  public void setPipeType(PipeType pipeType) {
+    this.pipeType = pipeType;
+  }
+
+  public PipeType getPipeType() {
+    return pipeType;
+  }
+
+  /**
+   * It returns true if the input of this block is pushed by a child block.
+   */
+  public boolean hasPushedInput() {
+    for (ExecutionBlock child : childSubQueries.values()) {
+      if (child.getPipeType() == PipeType.PUSH) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void setPlan(LogicalNode plan) {
     hasJoinPlan = false;
     Preconditions.checkArgument(plan.getType() == ExprType.STORE
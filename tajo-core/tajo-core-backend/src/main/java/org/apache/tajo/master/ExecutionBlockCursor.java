@@ -14,21 +14,34 @@
 
 package org.apache.tajo.master;
 
+import com.google.common.collect.Sets;
+import org.apache.tajo.SubQueryId;
 import org.apache.tajo.engine.planner.global.MasterPlan;
+import org.apache.tajo.engine.planner.logical.extended.PipeType;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A distributed execution plan (DEP) is a direct acyclic graph (DAG) of ExecutionBlocks.
  * This class is a pointer to an ExecutionBlock that the query engine should execute.
  * For each call of nextBlock(), it retrieves a next ExecutionBlock in a postfix order.
+ *
+ * It also tracks the completion of ExecutionBlocks. nextRunnableBlocks() retrieves
+ * all ExecutionBlocks which can be executed concurrently with the running ones.
  */
 public class ExecutionBlockCursor {
   private ArrayList<ExecutionBlock> orderedBlocks = new ArrayList<ExecutionBlock>();
   private int cursor = 0;
 
+  private final ExecutionBlock root;
+  private final Set<SubQueryId> launched = Sets.newHashSet();
+  private final Set<SubQueryId> completed = Sets.newHashSet();
+
   public ExecutionBlockCursor(MasterPlan plan) {
+    this.root = plan.getRoot();
     buildOrder(plan.getRoot());
   }
 
@@ -77,4 +90,66 @@ public class ExecutionBlockCursor {
   public void reset() {
     cursor = 0;
   }
+
+  /**
+   * It retrieves the ExecutionBlocks which are not launched yet and whose inputs
+   * are ready, in the postfix order. The retrieved blocks are regarded as launched.
+   */
+  public List<ExecutionBlock> nextRunnableBlocks() {
+    List<ExecutionBlock> runnable = new ArrayList<ExecutionBlock>();
+    for (ExecutionBlock block : orderedBlocks) {
+      if (!launched.contains(block.getId()) && isRunnable(block)) {
+        launched.add(block.getId());
+        runnable.add(block);
+      }
+    }
+    return runnable;
+  }
+
+  /**
+   * A block is runnable if all of its child blocks are completed. If the parent
+   * block has other child blocks, their child blocks also should be completed
+   * because the number of partitions for the parent is determined
+   * from the input volumes of all the siblings. A child block pushing its
+   * output is regarded as completed once it is launched, because the parent
+   * should be running to receive the output.
+   */
+  private boolean isRunnable(ExecutionBlock block) {
+    if (!isChildrenCompleted(block)) {
+      return false;
+    }
+    if (block.hasParentBlock() && block.getParentBlock().getChildNum() > 1) {
+      for (ExecutionBlock sibling : block.getParentBlock().getChildBlocks()) {
+        if (!isChildrenCompleted(sibling)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean isChildrenCompleted(ExecutionBlock block) {
+    for (ExecutionBlock child : block.getChildBlocks()) {
+      if (!completed.contains(child.getId()) && !(launched.contains(child.getId())
+          && child.getPipeType() == PipeType.PUSH)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void complete(SubQueryId id) {
+    completed.add(id);
+  }
+
+  public boolean isCompleted(SubQueryId id) {
+    return completed.contains(id);
+  }
+
+  /**
+   * @return true if the root block is completed
+   */
+  public boolean isFinished() {
+    return completed.contains(root.getId());
+  }
 }
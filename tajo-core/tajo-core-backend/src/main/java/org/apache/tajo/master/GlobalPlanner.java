@@ -26,8 +26,11 @@ import org.apache.tajo.QueryIdFactory;
 import org.apache.tajo.SubQueryId;
 import org.apache.tajo.catalog.*;
 import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.catalog.statistics.TableStat;
 import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.parser.QueryBlock.FromTable;
+import org.apache.tajo.engine.planner.JoinType;
 import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.global.MasterPlan;
 import org.apache.tajo.engine.planner.logical.*;
@@ -154,63 +157,10 @@ public class GlobalPlanner {
         // the first phase of two-phase join can be any logical nodes
         JoinNode join = (JoinNode) node;
 
-        /*
-        if (join.getOuterNode().getType() == ExprType.SCAN &&
-            join.getInnerNode().getType() == ExprType.SCAN) {
-          ScanNode outerScan = (ScanNode) join.getOuterNode();
-          ScanNode innerScan = (ScanNode) join.getInnerNode();
-
-
-          TableMeta outerMeta =
-              catalog.getTableDesc(outerScan.getTableId()).getMeta();
-          TableMeta innerMeta =
-              catalog.getTableDesc(innerScan.getTableId()).getMeta();
-          long threshold = conf.getLongVar(ConfVars.BROADCAST_JOIN_THRESHOLD);
-
-
-          // if the broadcast join is available
-          boolean outerSmall = false;
-          boolean innerSmall = false;
-          if (!outerScan.isLocal() && outerMeta.getStat() != null &&
-              outerMeta.getStat().getNumBytes() <= threshold) {
-            outerSmall = true;
-            LOG.info("The relation (" + outerScan.getTableId() +
-                ") is less than " + threshold);
-          }
-          if (!innerScan.isLocal() && innerMeta.getStat() != null &&
-              innerMeta.getStat().getNumBytes() <= threshold) {
-            innerSmall = true;
-            LOG.info("The relation (" + innerScan.getTableId() +
-                ") is less than " + threshold);
-          }
-
-          if (outerSmall && innerSmall) {
-            if (outerMeta.getStat().getNumBytes() <=
-                innerMeta.getStat().getNumBytes()) {
-              outerScan.setBroadcast();
-              LOG.info("The relation " + outerScan.getTableId()
-                  + " is broadcasted");
-            } else {
-              innerScan.setBroadcast();
-              LOG.info("The relation " + innerScan.getTableId()
-                  + " is broadcasted");
-            }
-          } else {
-            if (outerSmall) {
-              outerScan.setBroadcast();
-              LOG.info("The relation (" + outerScan.getTableId()
-                  + ") is broadcasted");
-            } else if (innerSmall) {
-              innerScan.setBroadcast();
-              LOG.info("The relation (" + innerScan.getTableId()
-                  + ") is broadcasted");
-            }
-          }
-
-          if (outerScan.isBroadcast() || innerScan.isBroadcast()) {
-            return;
-          }
-        } */
+        if (setBroadcastIfPossible(join)) {
+          // both relations are scanned in the same execution block
+          return;
+        }
 
         // insert stores for the first phase
         if (join.getOuterNode().getType() != ExprType.UNION &&
@@ -270,6 +220,82 @@ public class GlobalPlanner {
     }
   }
 
+  /**
+   * It marks the smaller relation of a join as broadcast if the relation is a
+   * table smaller than {@link ConfVars#BROADCAST_JOIN_THRESHOLD} and the other
+   * relation is either a table or a chain of broadcast joins. Then, the join is
+   * executed in the leaf execution block of the larger relation without any
+   * repartition, and every task of the block reads the whole broadcast relation.
+   *
+   * @return true if the join becomes a broadcast join
+   */
+  private boolean setBroadcastIfPossible(JoinNode join) {
+    if (join.getJoinType() != JoinType.INNER || !join.hasJoinQual() ||
+        PlannerUtil.getJoinKeyPairs(join.getJoinQual(),
+            join.getOuterNode().getOutSchema(), join.getInnerNode().getOutSchema()).isEmpty()) {
+      return false;
+    }
+
+    long threshold = conf.getLongVar(ConfVars.BROADCAST_JOIN_THRESHOLD);
+    long outerVolume = getBroadcastableVolume(join.getOuterNode(), join.getInnerNode(), threshold);
+    long innerVolume = getBroadcastableVolume(join.getInnerNode(), join.getOuterNode(), threshold);
+
+    ScanNode broadcast;
+    if (outerVolume >= 0 && (innerVolume < 0 || outerVolume < innerVolume)) {
+      broadcast = (ScanNode) join.getOuterNode();
+    } else if (innerVolume >= 0) {
+      broadcast = (ScanNode) join.getInnerNode();
+    } else {
+      return false;
+    }
+
+    broadcast.setBroadcast();
+    LOG.info("The relation (" + broadcast.getTableId() + ") is broadcasted");
+    return true;
+  }
+
+  /**
+   * @return the volume of a relation if it can be broadcasted to the other relation,
+   * or -1 if it cannot be.
+   */
+  private long getBroadcastableVolume(LogicalNode node, LogicalNode other, long threshold) {
+    if (node.getType() != ExprType.SCAN || !isBroadcastJoinable(other)) {
+      return -1;
+    }
+
+    ScanNode scan = (ScanNode) node;
+    if (scan.isLocal() || scan.isBroadcast()) {
+      return -1;
+    }
+    // the fragments of a task are grouped by table names
+    for (String tableId : PlannerUtil.getLineage(other)) {
+      if (tableId.equals(scan.getTableId())) {
+        return -1;
+      }
+    }
+
+    TableStat stat = catalog.getTableDesc(scan.getTableId()).getMeta().getStat();
+    if (stat == null || stat.getNumBytes() > threshold) {
+      return -1;
+    }
+    return stat.getNumBytes();
+  }
+
+  /**
+   * It checks if a relation can be the larger relation of a broadcast join.
+   * It is either a table or a join whose inputs are all scanned in the same block.
+   */
+  private boolean isBroadcastJoinable(LogicalNode node) {
+    if (node.getType() == ExprType.SCAN) {
+      ScanNode scan = (ScanNode) node;
+      return !scan.isLocal() && !scan.isBroadcast();
+    } else if (node.getType() == ExprType.JOIN) {
+      return PlannerUtil.findTopNode(node, ExprType.STORE) == null;
+    } else {
+      return false;
+    }
+  }
+
   /**
    * Convert the logical plan to a two-phase plan by the post-order traverse.
    * 
@@ -73,7 +73,6 @@ public class Query implements EventHandler<QueryEvent> {
   private long initializationTime;
   private long finishTime;
   private TableDesc resultDesc;
-  private int completedSubQueryCount = 0;
   private final List<String> diagnostics = new ArrayList<String>();
 
   // Internal Variables
@@ -108,6 +107,10 @@ public class Query implements EventHandler<QueryEvent> {
        .addTransition(QueryState.QUERY_ERROR, QueryState.QUERY_ERROR,
           QueryEventType.INTERNAL_ERROR)
 
+      // SubQueries running concurrently with a failed one may complete later.
+      .addTransition(QueryState.QUERY_FAILED, QueryState.QUERY_FAILED,
+          EnumSet.of(QueryEventType.SUBQUERY_COMPLETED, QueryEventType.INTERNAL_ERROR))
+
       .installTopology();
 
   public Query(final QueryContext context, final QueryId id, Clock clock,
@@ -121,7 +124,7 @@ public class Query implements EventHandler<QueryEvent> {
     this.clock = clock;
     this.appSubmitTime = appSubmitTime;
     this.queryStr = queryStr;
-    subqueries = Maps.newHashMap();
+    subqueries = Maps.newConcurrentMap();
     this.eventHandler = eventHandler;
     this.plan = plan;
     this.sm = sm;
@@ -275,13 +278,28 @@ public class Query implements EventHandler<QueryEvent> {
 
     @Override
     public void transition(Query query, QueryEvent queryEvent) {
-      SubQuery subQuery = new SubQuery(query.context, query.getExecutionBlockCursor().nextBlock(),
-          query.sm);
-      subQuery.setPriority(query.priority--);
-      query.addSubQuery(subQuery);
-      LOG.info("Schedule unit plan: \n" + subQuery.getBlock().getPlan());
-      subQuery.handle(new SubQueryEvent(subQuery.getId(),
-          SubQueryEventType.SQ_INIT));
+      query.launchRunnableSubQueries();
+    }
+  }
+
+  /**
+   * It launches all SubQueries whose inputs are ready. Independent ExecutionBlocks,
+   * such as the both sides of a join, are executed concurrently. A SubQuery may
+   * decide to push its output while it is initialized, and then its parent is
+   * launched together.
+   */
+  private void launchRunnableSubQueries() {
+    List<ExecutionBlock> runnable;
+    while (!(runnable = cursor.nextRunnableBlocks()).isEmpty()) {
+      for (ExecutionBlock block : runnable) {
+        SubQuery subQuery = new SubQuery(context, block, sm);
+        subQuery.setPriority(priority--);
+        addSubQuery(subQuery);
+        LOG.info("Scheduling SubQuery's Priority: " + subQuery.getPriority());
+        LOG.info("Scheduling SubQuery's Plan: \n" + subQuery.getBlock().getPlan());
+        subQuery.handle(new SubQueryEvent(subQuery.getId(),
+            SubQueryEventType.SQ_INIT));
+      }
     }
   }
 
@@ -290,39 +308,31 @@ public class Query implements EventHandler<QueryEvent> {
 
     @Override
     public QueryState transition(Query query, QueryEvent event) {
-      // increase the count for completed subqueries
-      query.completedSubQueryCount++;
       SubQueryCompletedEvent castEvent = (SubQueryCompletedEvent) event;
       ExecutionBlockCursor cursor = query.getExecutionBlockCursor();
 
       // if the subquery is succeeded
       if (castEvent.getFinalState() == SubQueryState.SUCCEEDED) {
-        if (cursor.hasNext()) {
-          SubQuery nextSubQuery = new SubQuery(query.context, cursor.nextBlock(), query.sm);
-          nextSubQuery.setPriority(query.priority--);
-          query.addSubQuery(nextSubQuery);
-          nextSubQuery.handle(new SubQueryEvent(nextSubQuery.getId(),
-              SubQueryEventType.SQ_INIT));
-          LOG.info("Scheduling SubQuery's Priority: " + nextSubQuery.getPriority());
-          LOG.info("Scheduling SubQuery's Plan: \n" + nextSubQuery.getBlock().getPlan());
-          return query.checkQueryForCompleted();
+        cursor.complete(castEvent.getSubQueryId());
+
+        if (!cursor.isFinished()) {
+          query.launchRunnableSubQueries();
+          return query.getState();
 
         } else { // Finish a query
-          if (query.checkQueryForCompleted() == QueryState.QUERY_SUCCEEDED) {
-            SubQuery subQuery = query.getSubQuery(castEvent.getSubQueryId());
-            TableDesc desc = new TableDescImpl(query.conf.getOutputTable(),
-                subQuery.getTableMeta(), query.context.getOutputPath());
-            query.setResultDesc(desc);
-            try {
-              query.writeStat(query.context.getOutputPath(), subQuery);
-            } catch (IOException e) {
-              e.printStackTrace();
-            }
-            query.eventHandler.handle(new QueryFinishEvent(query.getId()));
-
-            if (query.context.isCreateTableQuery()) {
-              query.context.getCatalog().addTable(desc);
-            }
+          SubQuery subQuery = query.getSubQuery(castEvent.getSubQueryId());
+          TableDesc desc = new TableDescImpl(query.conf.getOutputTable(),
+              subQuery.getTableMeta(), query.context.getOutputPath());
+          query.setResultDesc(desc);
+          try {
+            query.writeStat(query.context.getOutputPath(), subQuery);
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+          query.eventHandler.handle(new QueryFinishEvent(query.getId()));
+
+          if (query.context.isCreateTableQuery()) {
+            query.context.getCatalog().addTable(desc);
           }
 
           return query.finished(QueryState.QUERY_SUCCEEDED);
@@ -367,18 +377,6 @@ public class Query implements EventHandler<QueryEvent> {
     return finalState;
   }
 
-  /**
-   * Check if all subqueries of the query are completed
-   * @return QueryState.QUERY_SUCCEEDED if all subqueries are completed.
-   */
-  QueryState checkQueryForCompleted() {
-    if (completedSubQueryCount == subqueries.size()) {
-      return QueryState.QUERY_SUCCEEDED;
-    }
-    return getState();
-  }
-
-
   @Override
   public void handle(QueryEvent event) {
     LOG.info("Processing " + event.getQueryId() + " of type " + event.getType());
@@ -44,6 +44,7 @@ import org.apache.tajo.engine.planner.global.MasterPlan;
 import org.apache.tajo.master.TajoMaster.MasterContext;
 import org.apache.tajo.master.TaskRunnerLauncherImpl.ContainerProxy;
 import org.apache.tajo.master.event.*;
+import org.apache.tajo.master.event.TaskRequestEvent.TaskRequestEventType;
 import org.apache.tajo.master.rm.RMContainerAllocator;
 import org.apache.tajo.storage.StorageManager;
 import org.apache.tajo.storage.StorageUtil;
@@ -137,6 +138,7 @@ public class QueryMaster extends CompositeService implements EventHandler {
       dispatcher.register(TaskAttemptEventType.class, new TaskAttemptEventDispatcher());
       dispatcher.register(QueryFinishEvent.EventType.class, new QueryFinishEventHandler());
       dispatcher.register(TaskSchedulerEvent.EventType.class, new TaskSchedulerDispatcher());
+      dispatcher.register(TaskRequestEventType.class, new TaskRequestDispatcher());
 
       taskRunnerLauncher = new TaskRunnerLauncherImpl(queryContext);
       addIfService(taskRunnerLauncher);
@@ -218,6 +220,24 @@ public class QueryMaster extends CompositeService implements EventHandler {
     }
   }
 
+  /**
+   * It routes a task request to the scheduler of the SubQuery for which the requesting
+   * container was launched. A container whose SubQuery has no running scheduler is told
+   * to stop.
+   */
+  private class TaskRequestDispatcher
+      implements EventHandler<TaskRequestEvent> {
+    public void handle(TaskRequestEvent event) {
+      ContainerProxy container = queryContext.getContainer(event.getContainerId());
+      SubQuery subQuery = container == null ? null : query.getSubQuery(container.getSubQueryId());
+      if (subQuery == null || subQuery.getTaskScheduler() == null) {
+        event.getCallback().run(TaskSchedulerImpl.stopTaskRunnerReq);
+      } else {
+        subQuery.getTaskScheduler().handleTaskRequestEvent(event);
+      }
+    }
+  }
+
   public QueryContext getContext() {
     return this.queryContext;
   }
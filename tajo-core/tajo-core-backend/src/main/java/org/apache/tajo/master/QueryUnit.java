@@ -19,8 +19,10 @@
 package org.apache.tajo.master;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.protobuf.ByteString;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.yarn.event.EventHandler;
@@ -54,16 +56,21 @@ public class QueryUnit implements EventHandler<TaskEvent> {
 	private List<ScanNode> scan;
 	
 	private Map<String, Fragment> fragMap;
+  // the fragments of broadcast relations, which are read by every task
+  private List<Fragment> broadcastFragments;
 	private Map<String, Set<URI>> fetchMap;
+  // the number of producer tasks of each pushed input
+  private Map<String, Integer> receiveMap;
 	
   private List<Partition> partitions;
+  private List<ByteString> keySamples;
 	private TableStat stats;
   private String [] dataLocations;
   private final boolean isLeafTask;
   private List<IntermediateEntry> intermediateData;
 
   private Map<QueryUnitAttemptId, QueryUnitAttempt> attempts;
-  private final int maxAttempts = 3;
+  private int maxAttempts = 3;
   private Integer lastAttemptId;
 
   private QueryUnitAttemptId successfulAttempt;
@@ -71,6 +78,9 @@ public class QueryUnit implements EventHandler<TaskEvent> {
   private int succeededPullServerPort;
 
   private int failedAttempts;
+  private boolean speculated = false;
+  // the address which the producer tasks push the input of this task to
+  private URI receiverURI;
   private int finishedAttempts; // finish are total of success, failed and killed
 
   private static final StateMachineFactory
@@ -94,6 +104,18 @@ public class QueryUnit implements EventHandler<TaskEvent> {
             EnumSet.of(TaskState.RUNNING, TaskState.FAILED),
             TaskEventType.T_ATTEMPT_FAILED, new AttemptFailedTransition())
 
+       .addTransition(TaskState.RUNNING, TaskState.RUNNING,
+           TaskEventType.T_ADD_SPEC_ATTEMPT, new AddSpeculativeAttemptTransition())
+
+       .addTransition(TaskState.RUNNING, TaskState.RUNNING,
+           TaskEventType.T_ATTEMPT_KILLED)
+
+       // the events from the attempts which lost in speculative execution
+       .addTransition(TaskState.SUCCEEDED, TaskState.SUCCEEDED,
+           EnumSet.of(TaskEventType.T_ATTEMPT_LAUNCHED, TaskEventType.T_ATTEMPT_SUCCEEDED,
+               TaskEventType.T_ATTEMPT_FAILED, TaskEventType.T_ATTEMPT_KILLED,
+               TaskEventType.T_ADD_SPEC_ATTEMPT))
+
 
 
       .installTopology();
@@ -109,7 +131,9 @@ public class QueryUnit implements EventHandler<TaskEvent> {
     this.isLeafTask = isLeafTask;
 		scan = new ArrayList<ScanNode>();
     fetchMap = Maps.newHashMap();
+    receiveMap = Maps.newHashMap();
     fragMap = Maps.newHashMap();
+    broadcastFragments = Lists.newArrayList();
     partitions = new ArrayList<Partition>();
     attempts = Collections.emptyMap();
     lastAttemptId = -1;
@@ -145,14 +169,20 @@ public class QueryUnit implements EventHandler<TaskEvent> {
 	
 	public void setLogicalPlan(LogicalNode plan) {
     Preconditions.checkArgument(plan.getType() == ExprType.STORE ||
-        plan.getType() == ExprType.CREATE_INDEX);
+        plan.getType() == ExprType.CREATE_INDEX || plan.getType() == ExprType.SEND);
     
 	  this.plan = plan;
 	  if (plan instanceof StoreTableNode) {
       store = (StoreTableNode) plan;      
-    } else {
+    } else if (plan instanceof IndexWriteNode) {
       store = (StoreTableNode) ((IndexWriteNode)plan).getSubNode();
+    } else {
+      // a plan pushing the output replaces the store plan of this task,
+      // which still describes the output.
+      Preconditions.checkState(store != null,
+          "The store plan must be set before the send plan: " + taskId);
     }
+    scan.clear();
 	  LogicalNode node = plan;
 	  ArrayList<LogicalNode> s = new ArrayList<LogicalNode>();
 	  s.add(node);
@@ -186,6 +216,14 @@ public class QueryUnit implements EventHandler<TaskEvent> {
     }
   }
 	
+  /**
+   * It adds a fragment of a broadcast relation. Unlike the other fragments,
+   * it does not affect the data locations of this task.
+   */
+  public void addBroadcastFragment(Fragment fragment) {
+    this.broadcastFragments.add(fragment);
+  }
+	
 	public void addFetch(String tableId, String uri) throws URISyntaxException {
 	  this.addFetch(tableId, new URI(uri));
 	}
@@ -217,12 +255,28 @@ public class QueryUnit implements EventHandler<TaskEvent> {
 	  this.fetchMap.putAll(fetches);
 	}
 	
+  /**
+   * It adds an input which is pushed by the given number of producer tasks.
+   */
+  public void addReceive(String tableId, int sourceNum) {
+    this.receiveMap.put(tableId, sourceNum);
+  }
+
+  public Map<String, Integer> getReceives() {
+    return Collections.unmodifiableMap(receiveMap);
+  }
+
   public Fragment getFragment(String tableId) {
     return this.fragMap.get(tableId);
   }
 
   public Collection<Fragment> getAllFragments() {
-    return fragMap.values();
+    if (broadcastFragments.isEmpty()) {
+      return fragMap.values();
+    }
+    List<Fragment> fragments = Lists.newArrayList(fragMap.values());
+    fragments.addAll(broadcastFragments);
+    return fragments;
   }
 	
 	public LogicalNode getLogicalPlan() {
@@ -298,6 +352,37 @@ public class QueryUnit implements EventHandler<TaskEvent> {
 	  return this.partitions.size();
 	}
 
+  /**
+   * It sets the sort keys sampled by the succeeded attempt. They are encoded
+   * by RowStoreEncoder.
+   */
+  public void setKeySamples(List<ByteString> keySamples) {
+    this.keySamples = keySamples;
+  }
+
+  public List<ByteString> getKeySamples() {
+    return this.keySamples;
+  }
+
+  /**
+   * It sets how many attempts of this task may fail before the task fails.
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  public void setReceiverURI(URI receiverURI) {
+    this.receiverURI = receiverURI;
+  }
+
+  /**
+   * It returns the address which the producer tasks push the input of this
+   * task to, or null if it is not known yet.
+   */
+  public URI getReceiverURI() {
+    return this.receiverURI;
+  }
+
   public QueryUnitAttempt newAttempt() {
     QueryUnitAttempt attempt = new QueryUnitAttempt(
         QueryIdFactory.newQueryUnitAttemptId(this.getId(),
@@ -333,6 +418,36 @@ public class QueryUnit implements EventHandler<TaskEvent> {
     return this.lastAttemptId;
   }
 
+  /**
+   * It returns the attempts which are either scheduled or running.
+   */
+  public List<QueryUnitAttempt> getActiveAttempts() {
+    readLock.lock();
+    try {
+      List<QueryUnitAttempt> active = new ArrayList<QueryUnitAttempt>();
+      for (QueryUnitAttempt attempt : attempts.values()) {
+        if (attempt.isActive()) {
+          active.add(attempt);
+        }
+      }
+      return active;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * It returns true if a speculative attempt has been launched for this QueryUnit.
+   */
+  public boolean isSpeculated() {
+    readLock.lock();
+    try {
+      return this.speculated;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
   private static class InitialScheduleTransition implements
     SingleArcTransition<QueryUnit, TaskEvent> {
 
@@ -388,11 +503,33 @@ public class QueryUnit implements EventHandler<TaskEvent> {
       task.successfulAttempt = attemptEvent.getTaskAttemptId();
       task.succeededHost = attempt.getHost();
       task.succeededPullServerPort = attempt.getPullServerPort();
+      attempt.fillTaskStatistics();
+
+      // the other attempts are no longer required.
+      for (QueryUnitAttempt other : task.attempts.values()) {
+        if (other != attempt && other.isActive()) {
+          task.eventHandler.handle(new TaskAttemptEvent(other.getId(),
+              TaskAttemptEventType.TA_KILL));
+        }
+      }
       task.eventHandler.handle(new SubQueryTaskEvent(event.getTaskId(),
           SubQueryEventType.SQ_TASK_COMPLETED));
     }
   }
 
+  private static class AddSpeculativeAttemptTransition
+      implements SingleArcTransition<QueryUnit, TaskEvent> {
+
+    @Override
+    public void transition(QueryUnit task, TaskEvent event) {
+      if (!task.speculated && task.getActiveAttempts().size() == 1) {
+        LOG.info("Launch a speculative attempt for " + task.getId());
+        task.speculated = true;
+        task.addAndScheduleAttempt();
+      }
+    }
+  }
+
   private static class AttemptFailedTransition implements
     MultipleArcTransition<QueryUnit, TaskEvent, TaskState> {
 
@@ -406,7 +543,8 @@ public class QueryUnit implements EventHandler<TaskEvent> {
       task.finishedAttempts++;
 
       if (task.failedAttempts < task.maxAttempts) {
-        if (task.successfulAttempt == null) {
+        // a speculative attempt may be still running.
+        if (task.successfulAttempt == null && task.getActiveAttempts().isEmpty()) {
           task.addAndScheduleAttempt();
         }
       } else {
@@ -465,6 +603,7 @@ public class QueryUnit implements EventHandler<TaskEvent> {
     int partitionId;
     String pullHost;
     int port;
+    long volume = 0;
 
     public IntermediateEntry(int taskId, int attemptId, int partitionId,
                              String pullServerAddr, int pullServerPort) {
@@ -498,5 +637,16 @@ public class QueryUnit implements EventHandler<TaskEvent> {
     public String getPullAddress() {
       return pullHost + ":" + port;
     }
+
+    /**
+     * It returns the size of this partition in bytes, or 0 if it is unknown.
+     */
+    public long getVolume() {
+      return this.volume;
+    }
+
+    public void setVolume(long volume) {
+      this.volume = volume;
+    }
   }
 }
@@ -32,6 +32,7 @@ import org.apache.tajo.master.QueryUnit.IntermediateEntry;
 import org.apache.tajo.master.event.*;
 import org.apache.tajo.master.event.TaskSchedulerEvent.EventType;
 
+import java.net.URI;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -56,6 +57,12 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
 
   private final List<String> diagnostics = new ArrayList<String>();
 
+  // they are read by the Speculator
+  private volatile long launchTime = 0;
+  private volatile long finishTime = 0;
+  private volatile float progress = 0;
+  private TaskCompletionReport report;
+
   private static final StateMachineFactory
       <QueryUnitAttempt, TaskAttemptState, TaskAttemptEventType, TaskAttemptEvent>
       stateMachineFactory = new StateMachineFactory
@@ -69,12 +76,15 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
 
       .addTransition(TaskAttemptState.TA_UNASSIGNED, TaskAttemptState.TA_ASSIGNED,
           TaskAttemptEventType.TA_ASSIGNED, new LaunchTransition())
+      .addTransition(TaskAttemptState.TA_UNASSIGNED, TaskAttemptState.TA_KILLED,
+          TaskAttemptEventType.TA_KILL, new KillTransition())
 
       // from assigned
       .addTransition(TaskAttemptState.TA_ASSIGNED, TaskAttemptState.TA_ASSIGNED,
           TaskAttemptEventType.TA_ASSIGNED, new AlreadyAssignedTransition())
       .addTransition(TaskAttemptState.TA_ASSIGNED,
-          EnumSet.of(TaskAttemptState.TA_RUNNING, TaskAttemptState.TA_KILLED),
+          EnumSet.of(TaskAttemptState.TA_ASSIGNED, TaskAttemptState.TA_RUNNING,
+              TaskAttemptState.TA_KILLED),
           TaskAttemptEventType.TA_UPDATE, new StatusUpdateTransition())
 
       .addTransition(TaskAttemptState.TA_ASSIGNED, TaskAttemptState.TA_SUCCEEDED,
@@ -83,6 +93,9 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
       .addTransition(TaskAttemptState.TA_ASSIGNED, TaskAttemptState.TA_FAILED,
           TaskAttemptEventType.TA_FATAL_ERROR, new FailedTransition())
 
+      .addTransition(TaskAttemptState.TA_ASSIGNED, TaskAttemptState.TA_KILLED,
+          TaskAttemptEventType.TA_KILL, new KillTransition())
+
       // from running
       .addTransition(TaskAttemptState.TA_RUNNING,
           EnumSet.of(TaskAttemptState.TA_RUNNING),
@@ -94,12 +107,26 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
       .addTransition(TaskAttemptState.TA_RUNNING, TaskAttemptState.TA_FAILED,
           TaskAttemptEventType.TA_FATAL_ERROR, new FailedTransition())
 
+      .addTransition(TaskAttemptState.TA_RUNNING, TaskAttemptState.TA_KILLED,
+          TaskAttemptEventType.TA_KILL, new KillTransition())
+
       .addTransition(TaskAttemptState.TA_SUCCEEDED, TaskAttemptState.TA_SUCCEEDED,
           TaskAttemptEventType.TA_UPDATE)
       .addTransition(TaskAttemptState.TA_SUCCEEDED, TaskAttemptState.TA_SUCCEEDED,
           TaskAttemptEventType.TA_DONE, new AlreadyDoneTransition())
       .addTransition(TaskAttemptState.TA_SUCCEEDED, TaskAttemptState.TA_FAILED,
           TaskAttemptEventType.TA_FATAL_ERROR, new FailedTransition())
+      .addTransition(TaskAttemptState.TA_SUCCEEDED, TaskAttemptState.TA_SUCCEEDED,
+          TaskAttemptEventType.TA_KILL)
+
+      .addTransition(TaskAttemptState.TA_FAILED, TaskAttemptState.TA_FAILED,
+          TaskAttemptEventType.TA_KILL)
+
+      // a killed attempt ignores the reports from the worker still running it
+      .addTransition(TaskAttemptState.TA_KILLED, TaskAttemptState.TA_KILLED,
+          EnumSet.of(TaskAttemptEventType.TA_ASSIGNED, TaskAttemptEventType.TA_UPDATE,
+              TaskAttemptEventType.TA_DONE, TaskAttemptEventType.TA_FATAL_ERROR,
+              TaskAttemptEventType.TA_KILL))
 
       .installTopology();
 
@@ -174,7 +201,41 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
     return this.expire;
   }
 
-  private void fillTaskStatistics(TaskCompletionReport report) {
+  /**
+   * @return the time when this attempt is assigned to a TaskRunner, or 0 if not assigned yet.
+   */
+  public long getLaunchTime() {
+    return this.launchTime;
+  }
+
+  /**
+   * @return the time when this attempt is succeeded, or 0 if not succeeded.
+   */
+  public long getFinishTime() {
+    return this.finishTime;
+  }
+
+  /**
+   * @return the last progress reported by the worker
+   */
+  public float getProgress() {
+    return this.progress;
+  }
+
+  /**
+   * It returns true if this attempt is either scheduled or running.
+   */
+  public boolean isActive() {
+    TaskAttemptState state = getState();
+    return state == TaskAttemptState.TA_UNASSIGNED || state == TaskAttemptState.TA_ASSIGNED
+        || state == TaskAttemptState.TA_RUNNING;
+  }
+
+  /**
+   * It fills the QueryUnit with the statistics and the intermediate data of this
+   * attempt. It is called only for the attempt chosen as the result of the QueryUnit.
+   */
+  void fillTaskStatistics() {
     if (report.getPartitionsCount() > 0) {
       this.getQueryUnit().setPartitions(report.getPartitionsList());
 
@@ -182,6 +243,9 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
       for (Partition p : report.getPartitionsList()) {
         IntermediateEntry entry = new IntermediateEntry(getId().getQueryUnitId().getId(),
             getId().getId(), p.getPartitionKey(), getHost(), getPullServerPort());
+        if (p.hasVolume()) {
+          entry.setVolume(p.getVolume());
+        }
         partitions.add(entry);
       }
       this.getQueryUnit().setIntermediateData(partitions);
@@ -189,6 +253,9 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
     if (report.hasResultStats()) {
       this.getQueryUnit().setStats(new TableStat(report.getResultStats()));
     }
+    if (report.getKeySamplesCount() > 0) {
+      this.getQueryUnit().setKeySamples(report.getKeySamplesList());
+    }
   }
 
   private static class TaskAttemptScheduleTransition implements
@@ -230,6 +297,7 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
       TaskAttemptAssignedEvent castEvent = (TaskAttemptAssignedEvent) event;
       taskAttempt.setHost(castEvent.getHostName());
       taskAttempt.setPullServerPort(castEvent.getPullServerPort());
+      taskAttempt.launchTime = System.currentTimeMillis();
       taskAttempt.eventHandler.handle(
           new TaskTAttemptEvent(taskAttempt.getId(),
               TaskEventType.T_ATTEMPT_LAUNCHED));
@@ -244,6 +312,16 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
                                        TaskAttemptEvent event) {
       TaskAttemptStatusUpdateEvent updateEvent =
           (TaskAttemptStatusUpdateEvent) event;
+      taskAttempt.progress = updateEvent.getStatus().getProgress();
+
+      // the producer tasks push the input to the receiver of this attempt
+      if (updateEvent.getStatus().hasReceiverUri()
+          && taskAttempt.queryUnit.getReceiverURI() == null) {
+        taskAttempt.queryUnit.setReceiverURI(
+            URI.create(updateEvent.getStatus().getReceiverUri()));
+        taskAttempt.eventHandler.handle(new SubQueryTaskEvent(
+            taskAttempt.getId().getQueryUnitId(), SubQueryEventType.SQ_RECEIVER_LAUNCHED));
+      }
 
       switch (updateEvent.getStatus().getState()) {
         case TA_PENDING:
@@ -287,9 +365,9 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
     @Override
     public void transition(QueryUnitAttempt taskAttempt,
                            TaskAttemptEvent event) {
-      TaskCompletionReport report = ((TaskCompletionEvent)event).getReport();
-
-      taskAttempt.fillTaskStatistics(report);
+      taskAttempt.report = ((TaskCompletionEvent)event).getReport();
+      taskAttempt.finishTime = System.currentTimeMillis();
+      taskAttempt.progress = 1.0f;
       taskAttempt.eventHandler.handle(new TaskTAttemptEvent(taskAttempt.getId(),
           TaskEventType.T_ATTEMPT_SUCCEEDED));
     }
@@ -310,6 +388,23 @@ public class QueryUnitAttempt implements EventHandler<TaskAttemptEvent> {
     }
   }
 
+  private static class KillTransition
+      implements SingleArcTransition<QueryUnitAttempt, TaskAttemptEvent>{
+    @Override
+    public void transition(QueryUnitAttempt taskAttempt,
+                           TaskAttemptEvent event) {
+      LOG.info(taskAttempt.getId() + " is killed");
+      if (taskAttempt.getLaunchTime() == 0) {
+        // not assigned to any TaskRunner yet
+        taskAttempt.eventHandler.handle(new TaskScheduleEvent(taskAttempt.getId(),
+            EventType.T_SCHEDULE_CANCEL, taskAttempt.isLeafTask(), null, null));
+      }
+      taskAttempt.eventHandler.handle(
+          new TaskTAttemptEvent(taskAttempt.getId(),
+              TaskEventType.T_ATTEMPT_KILLED));
+    }
+  }
+
   @Override
   public void handle(TaskAttemptEvent event) {
     if (LOG.isDebugEnabled()) {
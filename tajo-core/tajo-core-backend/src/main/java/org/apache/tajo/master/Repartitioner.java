@@ -18,6 +18,7 @@
 
 package org.apache.tajo.master;
 
+import com.google.protobuf.ByteString;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.Path;
@@ -26,9 +27,11 @@ import org.apache.tajo.SubQueryId;
 import org.apache.tajo.catalog.*;
 import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.RangePartitionAlgorithm;
+import org.apache.tajo.engine.planner.SampledRangePartition;
 import org.apache.tajo.engine.planner.UniformRangePartition;
 import org.apache.tajo.engine.planner.logical.*;
 import org.apache.tajo.engine.utils.TupleUtil;
@@ -36,6 +39,8 @@ import org.apache.tajo.exception.InternalException;
 import org.apache.tajo.master.ExecutionBlock.PartitionType;
 import org.apache.tajo.master.QueryUnit.IntermediateEntry;
 import org.apache.tajo.storage.Fragment;
+import org.apache.tajo.storage.RowStoreUtil;
+import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.TupleRange;
 import org.apache.tajo.util.TUtil;
 
@@ -76,7 +81,8 @@ public class Repartitioner {
 
       if (scans[i].isLocal()) { // it only requires a dummy fragment.
         fragments[i] = new Fragment(scans[i].getTableId(), tablePath,
-            CatalogUtil.newTableMeta(scans[i].getInSchema(), StoreType.CSV),
+            CatalogUtil.newTableMeta(scans[i].getInSchema(),
+                subQuery.getChildQuery(scans[i]).getBlock().getStoreTableNode().getStorageType()),
             0, 0, null);
       } else {
         fragments[i] = subQuery.getStorageManager().getSplits(scans[i].getTableId(),
@@ -88,91 +94,269 @@ public class Repartitioner {
       stats[i] = subQuery.getChildQuery(scans[i]).getTableStat();
     }
 
-    // Assigning either fragments or fetch urls to query units
-    QueryUnit [] tasks;
-    if (scans[0].isBroadcast() || scans[1].isBroadcast()) {
-      tasks = new QueryUnit[1];
-      tasks[0] = new QueryUnit(QueryIdFactory.newQueryUnitId(subQuery.getId(), 0),
-          false, subQuery.getEventHandler());
-      tasks[0].setLogicalPlan(execBlock.getPlan());
-      tasks[0].setFragment(scans[0].getTableId(), fragments[0]);
-      tasks[0].setFragment(scans[1].getTableId(), fragments[1]);
-    } else {
-      // The hash map is modeling as follows:
-      // <Partition Id, <Table Name, Intermediate Data>>
-      Map<Integer, Map<String, List<IntermediateEntry>>> hashEntries =
-          new HashMap<Integer, Map<String, List<IntermediateEntry>>>();
-
-      // Grouping IntermediateData by a partition key and a table name
-      for (ScanNode scan : scans) {
-        SubQuery childSubQuery = subQuery.getChildQuery(scan);
-        for (QueryUnit task : childSubQuery.getQueryUnits()) {
-          if (task.getIntermediateData() != null) {
-            for (IntermediateEntry intermEntry : task.getIntermediateData()) {
-              if (hashEntries.containsKey(intermEntry.getPartitionId())) {
-                Map<String, List<IntermediateEntry>> tbNameToInterm =
-                    hashEntries.get(intermEntry.getPartitionId());
-
-                if (tbNameToInterm.containsKey(scan.getTableId())) {
-                  tbNameToInterm.get(scan.getTableId()).add(intermEntry);
-                } else {
-                  tbNameToInterm.put(scan.getTableId(), TUtil.newList(intermEntry));
-                }
+    // Assigning fetch urls to query units. Broadcast joins never reach here
+    // because they are executed in leaf blocks.
+    // The hash map is modeling as follows:
+    // <Partition Id, <Table Name, Intermediate Data>>
+    Map<Integer, Map<String, List<IntermediateEntry>>> hashEntries =
+        new HashMap<Integer, Map<String, List<IntermediateEntry>>>();
+
+    // Grouping IntermediateData by a partition key and a table name
+    for (ScanNode scan : scans) {
+      SubQuery childSubQuery = subQuery.getChildQuery(scan);
+      for (QueryUnit task : childSubQuery.getQueryUnits()) {
+        if (task.getIntermediateData() != null) {
+          for (IntermediateEntry intermEntry : task.getIntermediateData()) {
+            if (hashEntries.containsKey(intermEntry.getPartitionId())) {
+              Map<String, List<IntermediateEntry>> tbNameToInterm =
+                  hashEntries.get(intermEntry.getPartitionId());
+
+              if (tbNameToInterm.containsKey(scan.getTableId())) {
+                tbNameToInterm.get(scan.getTableId()).add(intermEntry);
               } else {
-                Map<String, List<IntermediateEntry>> tbNameToInterm =
-                    new HashMap<String, List<IntermediateEntry>>();
                 tbNameToInterm.put(scan.getTableId(), TUtil.newList(intermEntry));
-                hashEntries.put(intermEntry.getPartitionId(), tbNameToInterm);
               }
+            } else {
+              Map<String, List<IntermediateEntry>> tbNameToInterm =
+                  new HashMap<String, List<IntermediateEntry>>();
+              tbNameToInterm.put(scan.getTableId(), TUtil.newList(intermEntry));
+              hashEntries.put(intermEntry.getPartitionId(), tbNameToInterm);
             }
           }
         }
       }
+    }
+
+    LOG.info("Outer Intermediate Volume: " + stats[0].getNumBytes());
+    LOG.info("Inner Intermediate Volume: " + stats[1].getNumBytes());
+
+    // Getting the desire number of join tasks according to the volumn
+    // of a larger table
+    int largerIdx = stats[0].getNumBytes() >= stats[1].getNumBytes() ? 0 : 1;
+    int desireJoinTaskVolumn = subQuery.getContext().getConf().
+        getIntVar(ConfVars.JOIN_TASK_VOLUME);
+
+    // calculate the number of tasks according to the data size
+    int mb = (int) Math.ceil((double)stats[largerIdx].getNumBytes() / 1048576);
+    LOG.info("Larger intermediate data is approximately " + mb + " MB");
+    // determine the number of task per 64MB
+    int maxTaskNum = (int) Math.ceil((double)mb / desireJoinTaskVolumn);
+    LOG.info("The calculated number of tasks is " + maxTaskNum);
+    LOG.info("The number of total partition keys is " + hashEntries.size());
+
+    // A partition larger than the desired task volume is split into multiple
+    // units. Each unit reads a part of the partition of the split relation and
+    // the whole partition of the other relation.
+    JoinNode join = (JoinNode) PlannerUtil.findTopNode(execBlock.getPlan(), ExprType.JOIN);
+    long maxVolume = (long) desireJoinTaskVolumn * 1048576;
+    List<Integer> unitPartitionIds = new ArrayList<Integer>();
+    List<Map<String, List<IntermediateEntry>>> units =
+        new ArrayList<Map<String, List<IntermediateEntry>>>();
+    for (Entry<Integer, Map<String, List<IntermediateEntry>>> entry
+        : hashEntries.entrySet()) {
+      List<Map<String, List<IntermediateEntry>>> split = splitJoinPartition(entry.getValue(),
+          getSplittableTable(join, entry.getValue()), maxVolume, Math.max(maxTaskNum, 1));
+      if (split.size() > 1) {
+        LOG.info("Skewed partition " + entry.getKey() + " is split into " + split.size()
+            + " join tasks");
+      }
+      for (Map<String, List<IntermediateEntry>> unit : split) {
+        unitPartitionIds.add(entry.getKey());
+        units.add(unit);
+      }
+    }
+
+    // the number of join tasks cannot be larger than the number of
+    // join units.
+    int joinTaskNum = Math.min(maxTaskNum, units.size());
+    LOG.info("The determined number of join tasks is " + joinTaskNum);
+    QueryUnit [] createdTasks = newEmptyJoinTask(subQuery, fragments, joinTaskNum);
+
+    // Assign join units to tasks by their volumes.
+    long [] volumes = new long[units.size()];
+    int [] groups = new int[units.size()];
+    for (int i = 0; i < units.size(); i++) {
+      for (List<IntermediateEntry> entries : units.get(i).values()) {
+        volumes[i] += getVolume(entries);
+      }
+      groups[i] = unitPartitionIds.get(i);
+    }
+    int [] assigned = balanceByVolume(volumes, groups, joinTaskNum);
+    for (int i = 0; i < units.size(); i++) {
+      addJoinPartition(createdTasks[assigned[i]], subQuery, unitPartitionIds.get(i),
+          units.get(i));
+    }
 
-      LOG.info("Outer Intermediate Volume: " + stats[0].getNumBytes());
-      LOG.info("Inner Intermediate Volume: " + stats[1].getNumBytes());
-
-      // Getting the desire number of join tasks according to the volumn
-      // of a larger table
-      int largerIdx = stats[0].getNumBytes() >= stats[1].getNumBytes() ? 0 : 1;
-      int desireJoinTaskVolumn = subQuery.getContext().getConf().
-          getIntVar(ConfVars.JOIN_TASK_VOLUME);
-
-      // calculate the number of tasks according to the data size
-      int mb = (int) Math.ceil((double)stats[largerIdx].getNumBytes() / 1048576);
-      LOG.info("Larger intermediate data is approximately " + mb + " MB");
-      // determine the number of task per 64MB
-      int maxTaskNum = (int) Math.ceil((double)mb / desireJoinTaskVolumn);
-      LOG.info("The calculated number of tasks is " + maxTaskNum);
-      LOG.info("The number of total partition keys is " + hashEntries.size());
-      // the number of join tasks cannot be larger than the number of
-      // distinct partition ids.
-      int joinTaskNum = Math.min(maxTaskNum, hashEntries.size());
-      LOG.info("The determined number of join tasks is " + joinTaskNum);
-      QueryUnit [] createdTasks = newEmptyJoinTask(subQuery, fragments, joinTaskNum);
-
-      // Assign partitions to tasks in a round robin manner.
-      int i = 0;
-      for (Entry<Integer, Map<String, List<IntermediateEntry>>> entry
-          : hashEntries.entrySet()) {
-        addJoinPartition(createdTasks[i++], subQuery, entry.getKey(), entry.getValue());
-        if (i >= joinTaskNum) {
-          i = 0;
+    List<QueryUnit> filteredTasks = new ArrayList<QueryUnit>();
+    for (QueryUnit task : createdTasks) {
+      // if there are at least two fetches, the join is possible.
+      if (task.getFetches().size() > 1) {
+        filteredTasks.add(task);
+      }
+    }
+
+    return filteredTasks.toArray(new QueryUnit[filteredTasks.size()]);
+  }
+
+  /**
+   * It returns the relation whose partition can be divided into multiple join tasks
+   * without changing the join result, or null if there is no such relation.
+   * The partition of the other relation is read by all the divided tasks.
+   */
+  private static String getSplittableTable(JoinNode join,
+                                           Map<String, List<IntermediateEntry>> partition) {
+    if (join == null || partition.size() < 2) {
+      return null;
+    }
+
+    switch (join.getJoinType()) {
+      case INNER:
+        // the larger one is split
+        String larger = null;
+        long largerVolume = -1;
+        for (Entry<String, List<IntermediateEntry>> entry : partition.entrySet()) {
+          long volume = getVolume(entry.getValue());
+          if (volume > largerVolume) {
+            larger = entry.getKey();
+            largerVolume = volume;
+          }
+        }
+        return larger;
+      case LEFT_OUTER:
+        return getTableId(join.getOuterNode());
+      case RIGHT_OUTER:
+        return getTableId(join.getInnerNode());
+      default:
+        return null;
+    }
+  }
+
+  private static String getTableId(LogicalNode node) {
+    return node.getType() == ExprType.SCAN ? ((ScanNode) node).getTableId() : null;
+  }
+
+  /**
+   * It splits a partition of a join into multiple units if the partition of
+   * <code>splitTable</code> is larger than <code>maxVolume</code>. The intermediate
+   * data of <code>splitTable</code> are divided by the tasks that produced them,
+   * and those of the other relation are included in every unit.
+   *
+   * @param partition the intermediate data of a partition for each relation
+   * @param splitTable the relation to be split. If it is null, the partition is not split.
+   * @param maxVolume the desired volume of a unit in bytes
+   * @param maxSplits the maximum number of units
+   * @return the units of the partition
+   */
+  public static List<Map<String, List<IntermediateEntry>>> splitJoinPartition(
+      Map<String, List<IntermediateEntry>> partition, String splitTable,
+      long maxVolume, int maxSplits) {
+    List<IntermediateEntry> splitEntries = splitTable == null ? null : partition.get(splitTable);
+    long splitVolume = splitEntries == null ? 0 : getVolume(splitEntries);
+    if (splitVolume <= maxVolume || splitEntries.size() < 2 || maxSplits < 2) {
+      List<Map<String, List<IntermediateEntry>>> units =
+          new ArrayList<Map<String, List<IntermediateEntry>>>();
+      units.add(partition);
+      return units;
+    }
+
+    int splitNum = (int) Math.min(Math.min((splitVolume + maxVolume - 1) / maxVolume,
+        splitEntries.size()), maxSplits);
+    long [] volumes = new long[splitEntries.size()];
+    for (int i = 0; i < volumes.length; i++) {
+      volumes[i] = splitEntries.get(i).getVolume();
+    }
+    int [] assigned = balanceByVolume(volumes, null, splitNum);
+
+    List<Map<String, List<IntermediateEntry>>> units =
+        new ArrayList<Map<String, List<IntermediateEntry>>>(splitNum);
+    for (int i = 0; i < splitNum; i++) {
+      Map<String, List<IntermediateEntry>> unit = new HashMap<String, List<IntermediateEntry>>();
+      for (Entry<String, List<IntermediateEntry>> entry : partition.entrySet()) {
+        if (!entry.getKey().equals(splitTable)) {
+          unit.put(entry.getKey(), entry.getValue());
         }
       }
+      unit.put(splitTable, new ArrayList<IntermediateEntry>());
+      units.add(unit);
+    }
+    for (int i = 0; i < splitEntries.size(); i++) {
+      units.get(assigned[i]).get(splitTable).add(splitEntries.get(i));
+    }
+
+    return units;
+  }
 
-      List<QueryUnit> filteredTasks = new ArrayList<QueryUnit>();
-      for (QueryUnit task : createdTasks) {
-        // if there are at least two fetches, the join is possible.
-        if (task.getFetches().size() > 1) {
-          filteredTasks.add(task);
+  private static long getVolume(List<IntermediateEntry> entries) {
+    long volume = 0;
+    for (IntermediateEntry entry : entries) {
+      volume += entry.getVolume();
+    }
+    return volume;
+  }
+
+  /**
+   * It assigns items to tasks so that the largest task is as small as possible.
+   * The items are assigned in the descending order of their volumes, and each item
+   * is assigned to the task with the least volume. If the volumes are equal, the task
+   * with less items is chosen.
+   *
+   * @param volumes the volume of each item
+   * @param groups the group of each item, or null. The items of the same group are
+   *               assigned to different tasks if possible.
+   * @param taskNum the number of tasks
+   * @return the task index of each item
+   */
+  public static int [] balanceByVolume(final long [] volumes, int [] groups, int taskNum) {
+    Integer [] order = new Integer[volumes.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        if (volumes[o1] != volumes[o2]) {
+          return volumes[o1] > volumes[o2] ? -1 : 1;
         }
+        return o1 - o2;
       }
+    });
 
-      tasks = filteredTasks.toArray(new QueryUnit[filteredTasks.size()]);
+    long [] loads = new long[taskNum];
+    int [] itemNums = new int[taskNum];
+    List<Set<Integer>> taskGroups = new ArrayList<Set<Integer>>(taskNum);
+    for (int i = 0; i < taskNum; i++) {
+      taskGroups.add(new HashSet<Integer>());
     }
 
-    return tasks;
+    int [] assigned = new int[volumes.length];
+    for (int item : order) {
+      int least = -1;
+      int leastOfOtherGroups = -1;
+      for (int t = 0; t < taskNum; t++) {
+        if (least == -1 || loads[t] < loads[least]
+            || (loads[t] == loads[least] && itemNums[t] < itemNums[least])) {
+          least = t;
+        }
+        if (groups != null && taskGroups.get(t).contains(groups[item])) {
+          continue;
+        }
+        if (leastOfOtherGroups == -1 || loads[t] < loads[leastOfOtherGroups]
+            || (loads[t] == loads[leastOfOtherGroups]
+            && itemNums[t] < itemNums[leastOfOtherGroups])) {
+          leastOfOtherGroups = t;
+        }
+      }
+
+      int task = leastOfOtherGroups != -1 ? leastOfOtherGroups : least;
+      assigned[item] = task;
+      loads[task] += volumes[item];
+      itemNums[task]++;
+      if (groups != null) {
+        taskGroups.get(task).add(groups[item]);
+      }
+    }
+
+    return assigned;
   }
 
   private static QueryUnit [] newEmptyJoinTask(SubQuery subQuery, Fragment [] fragments, int taskNum) {
@@ -271,24 +455,36 @@ public class Repartitioner {
     TupleRange mergedRange =
         TupleUtil.columnStatToRange(sort.getOutSchema(),
             sortSchema, stat.getColumnStats());
-    RangePartitionAlgorithm partitioner =
-        new UniformRangePartition(sortSchema, mergedRange);
-    BigDecimal card = partitioner.getTotalCardinality();
 
-    // if the number of the range cardinality is less than the desired number of tasks,
-    // we set the the number of tasks to the number of range cardinality.
     int determinedTaskNum;
-    if (card.compareTo(new BigDecimal(maxNum)) < 0) {
-      LOG.info("The range cardinality (" + card
-          + ") is less then the desired number of tasks (" + maxNum + ")");
-      determinedTaskNum = card.intValue();
+    TupleRange [] ranges;
+    SampledRangePartition sampledPartitioner =
+        createSampledPartition(childSubQuery, sortSpecs, sortSchema, mergedRange);
+    if (sampledPartitioner != null) {
+      // the sampled keys reflect the actual distribution of keys.
+      ranges = sampledPartitioner.partition(maxNum);
+      determinedTaskNum = ranges.length;
+      LOG.info("Divide " + mergedRange + " into " + determinedTaskNum +
+          " sub ranges by using " + sampledPartitioner.getSampleNum() + " sampled keys");
     } else {
-      determinedTaskNum = maxNum;
-    }
+      RangePartitionAlgorithm partitioner =
+          new UniformRangePartition(sortSchema, mergedRange);
+      BigDecimal card = partitioner.getTotalCardinality();
+
+      // if the number of the range cardinality is less than the desired number of tasks,
+      // we set the the number of tasks to the number of range cardinality.
+      if (card.compareTo(new BigDecimal(maxNum)) < 0) {
+        LOG.info("The range cardinality (" + card
+            + ") is less then the desired number of tasks (" + maxNum + ")");
+        determinedTaskNum = card.intValue();
+      } else {
+        determinedTaskNum = maxNum;
+      }
 
-    LOG.info("Try to divide " + mergedRange + " into " + determinedTaskNum +
-        " sub ranges (total units: " + determinedTaskNum + ")");
-    TupleRange [] ranges = partitioner.partition(determinedTaskNum);
+      LOG.info("Try to divide " + mergedRange + " into " + determinedTaskNum +
+          " sub ranges (total units: " + determinedTaskNum + ")");
+      ranges = partitioner.partition(determinedTaskNum);
+    }
 
     Fragment dummyFragment = new Fragment(scan.getTableId(), tablePath,
         CatalogUtil.newTableMeta(scan.getInSchema(), StoreType.CSV),
@@ -336,6 +532,37 @@ public class Repartitioner {
     return tasks;
   }
 
+  /**
+   * It merges the sort keys sampled by the tasks of the child SubQuery. It returns
+   * null if there is no sample or if the sort keys are not in the same direction,
+   * because sub ranges are always divided in the ascending order.
+   */
+  private static SampledRangePartition createSampledPartition(SubQuery childSubQuery,
+                                                              SortSpec [] sortSpecs,
+                                                              Schema sortSchema,
+                                                              TupleRange mergedRange) {
+    for (SortSpec sortSpec : sortSpecs) {
+      if (sortSpec.isAscending() != sortSpecs[0].isAscending()) {
+        return null;
+      }
+    }
+
+    SampledRangePartition partitioner = new SampledRangePartition(sortSchema, mergedRange);
+    List<Tuple> samples;
+    for (QueryUnit qu : childSubQuery.getQueryUnits()) {
+      if (qu.getKeySamples() == null || qu.getStats() == null) {
+        continue;
+      }
+      samples = new ArrayList<Tuple>(qu.getKeySamples().size());
+      for (ByteString sample : qu.getKeySamples()) {
+        samples.add(RowStoreUtil.RowStoreDecoder.toTuple(sortSchema, sample.toByteArray()));
+      }
+      partitioner.addSamples(samples, qu.getStats().getNumRows());
+    }
+
+    return partitioner.getSampleNum() > 0 ? partitioner : null;
+  }
+
   public static QueryUnit [] assignPartitionByRoundRobin(Map<?, Set<URI>> partitions,
                                                String tableName, QueryUnit [] tasks) {
     int tid = 0;
@@ -389,7 +616,8 @@ public class Repartitioner {
     }
 
     Fragment frag = new Fragment(scan.getTableId(), tablePath,
-        CatalogUtil.newTableMeta(scan.getInSchema(), StoreType.CSV),
+        CatalogUtil.newTableMeta(scan.getInSchema(),
+            childSubQuery.getBlock().getStoreTableNode().getStorageType()),
         0, 0, null);
 
     Map<Integer, List<IntermediateEntry>> hashed = hashByKey(partitions);
@@ -421,18 +649,48 @@ public class Repartitioner {
 
     QueryUnit [] tasks = createEmptyNonLeafTasks(subQuery, determinedTaskNum, frag);
 
-    int tid = 0;
-    for (Entry<Integer, List<URI>> entry : finalFetchURI.entrySet()) {
-      for (URI uri : entry.getValue()) {
-        tasks[tid].addFetch(scan.getTableId(), uri);
+    // A partition cannot be divided because all the rows of a group must be
+    // aggregated in a task. Since hot keys are already merged by the first
+    // aggregation, the partitions are assigned to tasks by their volumes.
+    List<Integer> partitionIds = new ArrayList<Integer>(finalFetchURI.keySet());
+    long [] volumes = new long[partitionIds.size()];
+    for (int i = 0; i < volumes.length; i++) {
+      volumes[i] = getVolume(hashed.get(partitionIds.get(i)));
+    }
+    int [] assigned = balanceByVolume(volumes, null, tasks.length);
+    for (int i = 0; i < volumes.length; i++) {
+      for (URI uri : finalFetchURI.get(partitionIds.get(i))) {
+        tasks[assigned[i]].addFetch(scan.getTableId(), uri);
       }
+    }
 
-      tid ++;
+    return tasks;
+  }
 
-      if (tid == tasks.length) {
-       tid = 0;
-      }
+  /**
+   * It creates a task for each partition which a child block pushes. The tasks
+   * receive the partitions while the child is running, so a failed task cannot
+   * be retried.
+   */
+  public static QueryUnit [] createPushedTasks(SubQuery subQuery, SubQuery childSubQuery) {
+    ExecutionBlock execBlock = subQuery.getBlock();
+    ScanNode scan = execBlock.getScanNodes()[0];
+    Path tablePath;
+    tablePath = subQuery.getContext().getStorageManager().getTablePath(scan.getTableId());
+
+    Fragment frag = new Fragment(scan.getTableId(), tablePath,
+        CatalogUtil.newTableMeta(scan.getInSchema(), StoreType.RAW),
+        0, 0, null);
+
+    int numTasks = childSubQuery.getBlock().getStoreTableNode().getNumPartitions();
+    int sourceNum = childSubQuery.getQueryUnits().length;
+    QueryUnit [] tasks = createEmptyNonLeafTasks(subQuery, numTasks, frag);
+    for (QueryUnit task : tasks) {
+      task.addReceive(scan.getTableId(), sourceNum);
+      task.setMaxAttempts(1);
     }
+    LOG.info(numTasks + " tasks receive the output of " + sourceNum + " tasks of "
+        + childSubQuery.getId());
 
     return tasks;
   }
@@ -574,6 +832,13 @@ public class Repartitioner {
       } else {
         store.setPartitions(execBlock.getPartitionType(), keys, n);
       }
+      // hash partitions are only read by the next execution block,
+      // so they are written in the configured intermediate format.
+      if (execBlock.getPartitionType() == PartitionType.HASH) {
+        TajoConf conf = subQuery.getContext().getConf();
+        store.setStorageType(StoreType.valueOf(
+            conf.getVar(ConfVars.SHUFFLE_FILE_FORMAT).toUpperCase()));
+      }
     } else {
       store.setListPartition();
     }
@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.master;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.tajo.TajoProtos.TaskAttemptState;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.master.event.TaskEvent;
+import org.apache.tajo.master.event.TaskEventType;
+
+import java.util.*;
+
+/**
+ * Speculator finds the straggler tasks of a SubQuery, and it launches a speculative
+ * attempt for each of them. A running task is regarded as a straggler if it has
+ * run longer than <code>tajo.task.speculative.slowdown</code> times the average
+ * duration of the succeeded tasks, and if its progress rate reported by the worker
+ * does not promise to finish it within the average duration. The stragglers which
+ * are expected to finish later are speculated first.
+ *
+ * The first attempt to succeed becomes the result of the task, and the others
+ * are killed by the task.
+ */
+public class Speculator {
+  private static final Log LOG = LogFactory.getLog(Speculator.class);
+
+  /** the minimum ratio of succeeded tasks to estimate the task duration */
+  private static final float MIN_SUCCEEDED_RATIO = 0.25f;
+
+  private final SubQuery subQuery;
+  private final EventHandler eventHandler;
+  private final float slowdown;
+  private final float maxRatio;
+
+  public Speculator(TajoConf conf, SubQuery subQuery, EventHandler eventHandler) {
+    this.subQuery = subQuery;
+    this.eventHandler = eventHandler;
+    this.slowdown = conf.getFloatVar(ConfVars.SPECULATIVE_SLOWDOWN);
+    this.maxRatio = conf.getFloatVar(ConfVars.SPECULATIVE_MAX_RATIO);
+  }
+
+  /**
+   * It launches speculative attempts for stragglers. It is called periodically.
+   */
+  public void speculate() {
+    speculate(subQuery.getQueryUnits(), System.currentTimeMillis());
+  }
+
+  void speculate(QueryUnit [] tasks, long now) {
+    int succeededNum = 0;
+    long totalDuration = 0;
+    int speculatingNum = 0;
+    final Map<QueryUnit, Long> candidates = new HashMap<QueryUnit, Long>();
+    for (QueryUnit task : tasks) {
+      QueryUnitAttempt succeeded = task.getSuccessfulAttempt();
+      if (succeeded != null) {
+        if (succeeded.getLaunchTime() > 0) {
+          succeededNum++;
+          totalDuration += succeeded.getFinishTime() - succeeded.getLaunchTime();
+        }
+        continue;
+      }
+
+      List<QueryUnitAttempt> active = task.getActiveAttempts();
+      if (task.isSpeculated()) {
+        if (active.size() > 1) {
+          speculatingNum++;
+        }
+      } else if (active.size() == 1
+          && active.get(0).getState() == TaskAttemptState.TA_RUNNING) {
+        QueryUnitAttempt attempt = active.get(0);
+        candidates.put(task, estimateRemainingTime(now - attempt.getLaunchTime(),
+            attempt.getProgress()));
+      }
+    }
+
+    if (succeededNum == 0 || succeededNum < tasks.length * MIN_SUCCEEDED_RATIO
+        || candidates.isEmpty()) {
+      return;
+    }
+
+    long avgDuration = totalDuration / succeededNum;
+    int maxSpeculatingNum = Math.max(1, (int) (tasks.length * maxRatio));
+    List<QueryUnit> sorted = new ArrayList<QueryUnit>(candidates.keySet());
+    Collections.sort(sorted, new Comparator<QueryUnit>() {
+      @Override
+      public int compare(QueryUnit o1, QueryUnit o2) {
+        return candidates.get(o2).compareTo(candidates.get(o1));
+      }
+    });
+
+    for (QueryUnit task : sorted) {
+      if (speculatingNum >= maxSpeculatingNum) {
+        break;
+      }
+      List<QueryUnitAttempt> active = task.getActiveAttempts();
+      if (active.size() != 1) {
+        continue;
+      }
+      long elapsed = now - active.get(0).getLaunchTime();
+      if (isStraggler(elapsed, candidates.get(task), avgDuration, slowdown)) {
+        LOG.info(task.getId() + " is a straggler (elapsed: " + elapsed + " ms, progress: "
+            + active.get(0).getProgress() + ", average duration: " + avgDuration + " ms)");
+        eventHandler.handle(new TaskEvent(task.getId(), TaskEventType.T_ADD_SPEC_ATTEMPT));
+        speculatingNum++;
+      }
+    }
+  }
+
+  /**
+   * It estimates the remaining time of an attempt from its progress rate.
+   *
+   * @return the estimated remaining time in milliseconds, or Long.MAX_VALUE
+   * if the attempt has not reported any progress.
+   */
+  static long estimateRemainingTime(long elapsed, float progress) {
+    if (progress <= 0) {
+      return Long.MAX_VALUE;
+    } else if (progress >= 1) {
+      return 0;
+    }
+    return (long) (elapsed * (1 - progress) / progress);
+  }
+
+  static boolean isStraggler(long elapsed, long remaining, long avgDuration, float slowdown) {
+    // a new attempt is expected to take as long as the average duration.
+    return elapsed > avgDuration * slowdown && remaining > avgDuration;
+  }
+}
@@ -36,8 +36,10 @@ import org.apache.tajo.QueryUnitId;
 import org.apache.tajo.SubQueryId;
 import org.apache.tajo.catalog.CatalogService;
 import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.TableDesc;
 import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.catalog.statistics.ColumnStat;
 import org.apache.tajo.catalog.statistics.StatisticsUtil;
 import org.apache.tajo.catalog.statistics.TableStat;
@@ -47,6 +49,10 @@ import org.apache.tajo.engine.planner.logical.ExprType;
 import org.apache.tajo.engine.planner.logical.GroupbyNode;
 import org.apache.tajo.engine.planner.logical.ScanNode;
 import org.apache.tajo.engine.planner.logical.StoreTableNode;
+import org.apache.tajo.engine.planner.logical.extended.PipeType;
+import org.apache.tajo.engine.planner.logical.extended.RepartitionType;
+import org.apache.tajo.engine.planner.logical.extended.SendNode;
+import org.apache.tajo.master.ExecutionBlock.PartitionType;
 import org.apache.tajo.master.QueryMaster.QueryContext;
 import org.apache.tajo.master.TaskRunnerGroupEvent.EventType;
 import org.apache.tajo.master.event.*;
@@ -69,6 +75,8 @@ import static org.apache.tajo.conf.TajoConf.ConfVars;
 public class SubQuery implements EventHandler<SubQueryEvent> {
 
   private static final Log LOG = LogFactory.getLog(SubQuery.class);
+  // the container memory of a block which has more tasks than the cluster nodes
+  private static final int DEFAULT_CONTAINER_MEMORY = 2000;
 
   private ExecutionBlock block;
   private int priority;
@@ -86,6 +94,7 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
 
 
   private static ContainerLaunchTransition CONTAINER_LAUNCH_TRANSITION = new ContainerLaunchTransition();
+  private static ReceiversReadyTransition RECEIVERS_READY_TRANSITION = new ReceiversReadyTransition();
   private StateMachine<SubQueryState, SubQueryEventType, SubQueryEvent>
       stateMachine;
 
@@ -100,18 +109,26 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
 
           .addTransition(SubQueryState.INIT, SubQueryState.CONTAINER_ALLOCATED,
               SubQueryEventType.SQ_CONTAINER_ALLOCATED, CONTAINER_LAUNCH_TRANSITION)
+          .addTransition(SubQueryState.INIT, SubQueryState.INIT,
+              SubQueryEventType.SQ_RECEIVERS_READY, RECEIVERS_READY_TRANSITION)
 
           .addTransition(SubQueryState.CONTAINER_ALLOCATED,
               EnumSet.of(SubQueryState.RUNNING, SubQueryState.FAILED,
                   SubQueryState.SUCCEEDED), SubQueryEventType.SQ_START, new StartTransition())
           .addTransition(SubQueryState.CONTAINER_ALLOCATED, SubQueryState.CONTAINER_ALLOCATED,
               SubQueryEventType.SQ_CONTAINER_ALLOCATED, CONTAINER_LAUNCH_TRANSITION)
+          .addTransition(SubQueryState.CONTAINER_ALLOCATED, SubQueryState.CONTAINER_ALLOCATED,
+              SubQueryEventType.SQ_RECEIVERS_READY, RECEIVERS_READY_TRANSITION)
 
           .addTransition(SubQueryState.RUNNING, SubQueryState.RUNNING,
               SubQueryEventType.SQ_CONTAINER_ALLOCATED, CONTAINER_LAUNCH_TRANSITION)
           .addTransition(SubQueryState.RUNNING, SubQueryState.RUNNING, SubQueryEventType.SQ_START)
           .addTransition(SubQueryState.RUNNING, SubQueryState.RUNNING,
               SubQueryEventType.SQ_TASK_COMPLETED, new TaskCompletedTransition())
+          .addTransition(SubQueryState.RUNNING, SubQueryState.RUNNING,
+              SubQueryEventType.SQ_RECEIVER_LAUNCHED, new ReceiverLaunchedTransition())
+          .addTransition(SubQueryState.RUNNING, SubQueryState.RUNNING,
+              SubQueryEventType.SQ_RECEIVERS_READY, RECEIVERS_READY_TRANSITION)
           .addTransition(SubQueryState.RUNNING, SubQueryState.SUCCEEDED,
               SubQueryEventType.SQ_SUBQUERY_COMPLETED, new SubQueryCompleteTransition())
           .addTransition(SubQueryState.RUNNING, SubQueryState.FAILED,
@@ -129,7 +146,10 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
           .addTransition(SubQueryState.FAILED, SubQueryState.FAILED,
                  SubQueryEventType.SQ_FAILED)
           .addTransition(SubQueryState.FAILED, SubQueryState.FAILED,
-              SubQueryEventType.SQ_INTERNAL_ERROR);
+              SubQueryEventType.SQ_INTERNAL_ERROR)
+          .addTransition(SubQueryState.FAILED, SubQueryState.FAILED,
+              EnumSet.of(SubQueryEventType.SQ_RECEIVER_LAUNCHED,
+                  SubQueryEventType.SQ_RECEIVERS_READY));
 
 
   private final Lock readLock;
@@ -137,6 +157,12 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
 
   private int completedTaskCount = 0;
 
+  // for the pipelined exchange, the tasks pushing the output are scheduled
+  // after all tasks of the parent are ready to receive it.
+  private boolean started = false;
+  private boolean receiversReady = true;
+  private boolean receiversLaunched = false;
+
   public SubQuery(QueryContext context, ExecutionBlock block, StorageManager sm) {
     this.context = context;
     this.block = block;
@@ -441,11 +467,13 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
         } else {
           setRepartitionIfNecessary(subQuery);
           createTasks(subQuery);
+          setGroupVolumeIfNecessary(subQuery);
 
           if (subQuery.tasks.size() == 0) { // if there is no tasks
             subQuery.finish();
             return SubQueryState.SUCCEEDED;
           } else {
+            setPipeTypeIfPossible(subQuery);
             initTaskScheduler(subQuery);
             allocateContainers(subQuery);
             return SubQueryState.INIT;
@@ -464,7 +492,7 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
     }
 
     private void initTaskScheduler(SubQuery subQuery) {
-      subQuery.taskScheduler = new TaskSchedulerImpl(subQuery.context);
+      subQuery.taskScheduler = new TaskSchedulerImpl(subQuery.context, subQuery);
       subQuery.taskScheduler.init(subQuery.context.getConf());
       subQuery.taskScheduler.start();
     }
@@ -480,6 +508,63 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
       }
     }
 
+    /**
+     * If the parent block can receive all partitions while this block is running,
+     * this block pushes its output to the tasks of the parent instead of storing it
+     * for the pull. It is only for the hash partitions read by a parent having no
+     * other input, and the parent should have a task for each partition which
+     * can run at once in the cluster.
+     */
+    private static void setPipeTypeIfPossible(SubQuery subQuery) {
+      ExecutionBlock execBlock = subQuery.getBlock();
+      if (!subQuery.context.getConf().getBoolVar(ConfVars.SHUFFLE_PIPELINED_ENABLED)
+          || !execBlock.hasParentBlock()) {
+        return;
+      }
+
+      ExecutionBlock parent = execBlock.getParentBlock();
+      StoreTableNode store = execBlock.getStoreTableNode();
+      if (parent.getChildNum() != 1 || parent.getScanNodes().length != 1 || parent.hasUnion()
+          || execBlock.getPartitionType() != PartitionType.HASH || !store.hasPartitionKey()
+          || store.getStorageType() != StoreType.RAW) {
+        return;
+      }
+      // The consumer tasks hold their containers until this block finishes, so the
+      // cluster should have at least one more container for this block.
+      int numPartitions = store.getNumPartitions();
+      int numContainers = getNumPipelinedContainers(subQuery.context);
+      if (numPartitions >= numContainers) {
+        LOG.info(subQuery.getId() + " cannot push " + numPartitions
+            + " partitions, because the cluster has only " + numContainers
+            + " containers for both blocks");
+        return;
+      }
+
+      execBlock.setPipeType(PipeType.PUSH);
+      subQuery.receiversReady = false;
+      LOG.info(subQuery.getId() + " pushes " + numPartitions + " partitions to " + parent.getId());
+    }
+
+    /**
+     * It returns the memory of a container for the blocks of a pipelined exchange.
+     * It is smaller than the maximum capability, because both blocks run at once.
+     */
+    private static int getPipelinedContainerMemory(QueryContext context) {
+      return Math.max(context.getMinContainerCapability(),
+          Math.min(DEFAULT_CONTAINER_MEMORY, context.getMaxContainerCapability()));
+    }
+
+    /**
+     * It returns how many containers for a pipelined exchange the cluster can run
+     * at once, assuming that a node can have a container of the maximum capability.
+     */
+    private static int getNumPipelinedContainers(QueryContext context) {
+      int containerMemory = getPipelinedContainerMemory(context);
+      int containersPerNode = containerMemory > 0 ?
+          Math.max(1, context.getMaxContainerCapability() / containerMemory) : 1;
+      return context.getNumClusterNode() * containersPerNode;
+    }
+
     /**
      * Getting the desire number of partitions according to the volume of input data.
      * This method is only used to determine the partition key number of hash join or aggregation.
@@ -529,6 +614,15 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
         } else {
           long volume = getInputVolume(subQuery.context, subQuery.block);
 
+          // the partitions hold the groups, whose volume is estimated from the distinct values.
+          long groupVolume = estimateGroupVolume(subQuery.context, subQuery.block,
+              grpNode.getGroupingColumns());
+          if (groupVolume >= 0 && groupVolume < volume) {
+            LOG.info("Groups' volume is approximately "
+                + (int) Math.ceil((double)groupVolume / 1048576) + " MB");
+            volume = groupVolume;
+          }
+
           int mb = (int) Math.ceil((double)volume / 1048576);
           LOG.info("Table's volume is approximately " + mb + " MB");
           // determine the number of task
@@ -556,10 +650,17 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
       if (execBlock.isLeafBlock() && execBlock.getScanNodes().length == 1) { // Case 1: Just Scan
         tasks = createLeafTasks(subQuery);
 
-      } else if (execBlock.getScanNodes().length > 1) { // Case 2: Join
+      } else if (execBlock.isLeafBlock()) { // Case 2: Broadcast Join
+        tasks = createBroadcastJoinTasks(subQuery);
+
+      } else if (execBlock.getScanNodes().length > 1) { // Case 3: Join
         tasks = Repartitioner.createJoinTasks(subQuery);
 
-      } else { // Case 3: Others (Sort or Aggregation)
+      } else if (execBlock.hasPushedInput()) { // Case 4: Input pushed by the child
+        SubQueryId childId = subQuery.getBlock().getChildBlocks().iterator().next().getId();
+        tasks = Repartitioner.createPushedTasks(subQuery, subQuery.context.getSubQuery(childId));
+
+      } else { // Case 5: Others (Sort or Aggregation)
         int numTasks = getNonLeafTaskNum(subQuery);
         SubQueryId childId = subQuery.getBlock().getChildBlocks().iterator().next().getId();
         SubQuery child = subQuery.context.getSubQuery(childId);
@@ -591,17 +692,116 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
       return maxTaskNum;
     }
 
+    /**
+     * If an execution block has a group-by, it annotates the group-by with the estimated
+     * volume of the groups which each task holds. The physical planner uses it to choose
+     * the hash aggregation when the groups fit in memory even if the input does not.
+     */
+    private static void setGroupVolumeIfNecessary(SubQuery subQuery) {
+      ExecutionBlock execBlock = subQuery.getBlock();
+      GroupbyNode grpNode = (GroupbyNode) PlannerUtil.findTopNode(
+          execBlock.getPlan(), ExprType.GROUP_BY);
+      if (grpNode == null || grpNode.getGroupingColumns().length == 0) {
+        return;
+      }
+
+      long groupVolume = estimateGroupVolume(subQuery.context, execBlock,
+          grpNode.getGroupingColumns());
+      if (groupVolume < 0) {
+        return;
+      }
+      // the groups of a non-leaf block are hash-partitioned over its tasks.
+      if (!execBlock.isLeafBlock() && subQuery.tasks.size() > 0) {
+        groupVolume = (long) Math.ceil((double) groupVolume / subQuery.tasks.size());
+      }
+      grpNode.setEstimatedGroupVolume(groupVolume);
+      LOG.info("The estimated volume of groups per task is " + groupVolume + " bytes");
+    }
+
+    /**
+     * It estimates the volume of the groups of given grouping columns. The number of
+     * groups is the product of the distinct values of the grouping columns, and each
+     * group is as large as an average input row.
+     *
+     * @return the estimated volume, or -1 if the distinct values of some grouping column
+     * are unknown.
+     */
+    public static long estimateGroupVolume(QueryContext context, ExecutionBlock execBlock,
+                                           Column [] groupingColumns) {
+      List<TableStat> inputStats = getInputStats(context, execBlock);
+      long numRows = 0;
+      long numBytes = 0;
+      for (TableStat stat : inputStats) {
+        if (stat == null || stat.getNumRows() == null) {
+          return -1;
+        }
+        numRows += stat.getNumRows();
+        numBytes += stat.getNumBytes();
+      }
+      if (numRows == 0) {
+        return -1;
+      }
+
+      long groupNum = 1;
+      for (Column column : groupingColumns) {
+        long distVals = -1;
+        for (TableStat stat : inputStats) {
+          for (ColumnStat columnStat : stat.getColumnStats()) {
+            if (columnStat.hasDistValSketch() &&
+                columnStat.getColumn().getQualifiedName().equals(column.getQualifiedName())) {
+              distVals = Math.max(distVals, columnStat.getNumDistValues());
+            }
+          }
+        }
+        if (distVals < 0) {
+          return -1;
+        }
+        // the number of groups cannot exceed the number of rows.
+        distVals = Math.max(1, distVals);
+        groupNum = distVals > numRows / groupNum ? numRows : groupNum * distVals;
+      }
+      LOG.info("The estimated number of groups is " + groupNum + " of " + numRows + " rows");
+
+      return (long) Math.ceil((double) numBytes / numRows * groupNum);
+    }
+
+    private static List<TableStat> getInputStats(QueryContext context, ExecutionBlock execBlock) {
+      List<TableStat> stats = Lists.newArrayList();
+      if (execBlock.isLeafBlock()) {
+        CatalogService catalog = context.getCatalog();
+        for (ScanNode scan : execBlock.getScanNodes()) {
+          stats.add(catalog.getTableDesc(scan.getTableId()).getMeta().getStat());
+        }
+      } else {
+        for (ExecutionBlock childBlock : execBlock.getChildBlocks()) {
+          SubQuery childSubQuery = context.getSubQuery(childBlock.getId());
+          // the output of a child pushing it is unknown until the child finishes.
+          stats.add(childSubQuery.getTableMeta() == null ? null : childSubQuery.getTableStat());
+        }
+      }
+      return stats;
+    }
+
     public static long getInputVolume(QueryContext context, ExecutionBlock execBlock) {
       CatalogService catalog = context.getCatalog();
       if (execBlock.isLeafBlock()) {
-        ScanNode outerScan = execBlock.getScanNodes()[0];
-        TableStat stat = catalog.getTableDesc(outerScan.getTableId()).getMeta().getStat();
-        return stat.getNumBytes();
+        long aggregatedVolume = 0;
+        for (ScanNode scan : execBlock.getScanNodes()) {
+          TableStat stat = catalog.getTableDesc(scan.getTableId()).getMeta().getStat();
+          aggregatedVolume += stat.getNumBytes();
+        }
+        return aggregatedVolume;
       } else {
         long aggregatedVolume = 0;
         for (ExecutionBlock childBlock : execBlock.getChildBlocks()) {
           SubQuery subquery = context.getSubQuery(childBlock.getId());
-          aggregatedVolume += subquery.getTableStat().getNumBytes();
+          if (subquery.getTableMeta() == null) {
+            // the output of a child pushing it is unknown until the child finishes,
+            // so it is estimated by the input of the child.
+            aggregatedVolume += getInputVolume(context, childBlock);
+          } else {
+            aggregatedVolume += subquery.getTableStat().getNumBytes();
+          }
         }
 
         return aggregatedVolume;
@@ -616,10 +816,13 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
       int numRequest = Math.min(tasks.length, numClusterNodes * 4);
 
       final Resource resource = Records.newRecord(Resource.class);
-      if (tasks.length <= numClusterNodes) {
+      if (execBlock.getPipeType() == PipeType.PUSH || execBlock.hasPushedInput()) {
+        // the consumer tasks must leave room for the producer tasks
+        resource.setMemory(getPipelinedContainerMemory(subQuery.context));
+      } else if (tasks.length <= numClusterNodes) {
         resource.setMemory(subQuery.context.getMaxContainerCapability());
       } else {
-        resource.setMemory(2000);
+        resource.setMemory(DEFAULT_CONTAINER_MEMORY);
       }
 
       Priority priority = Records.newRecord(Priority.class);
@@ -635,21 +838,7 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
       ExecutionBlock execBlock = subQuery.getBlock();
       ScanNode[] scans = execBlock.getScanNodes();
       Preconditions.checkArgument(scans.length == 1, "Must be Scan Query");
-      TableMeta meta;
-      Path inputPath;
-
-      ScanNode scan = scans[0];
-      TableDesc desc = subQuery.context.getCatalog().getTableDesc(scan.getTableId());
-      inputPath = desc.getPath();
-      meta = desc.getMeta();
-
-      // TODO - should be change the inner directory
-      Path oldPath = new Path(inputPath, "data");
-      FileSystem fs = inputPath.getFileSystem(subQuery.context.getConf());
-      if (fs.exists(oldPath)) {
-        inputPath = oldPath;
-      }
-      List<Fragment> fragments = subQuery.getStorageManager().getSplits(scan.getTableId(), meta, inputPath);
+      List<Fragment> fragments = getFragments(subQuery, scans[0]);
 
       QueryUnit queryUnit;
       List<QueryUnit> queryUnits = new ArrayList<QueryUnit>();
@@ -663,6 +852,60 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
       return queryUnits.toArray(new QueryUnit[queryUnits.size()]);
     }
 
+    /**
+     * It creates a task for each fragment of the non-broadcast relation, and every task
+     * reads all fragments of the broadcast relations.
+     */
+    private static QueryUnit [] createBroadcastJoinTasks(SubQuery subQuery) throws IOException {
+      ExecutionBlock execBlock = subQuery.getBlock();
+      ScanNode largeScan = null;
+      List<Fragment> broadcastFragments = new ArrayList<Fragment>();
+      for (ScanNode scan : execBlock.getScanNodes()) {
+        if (scan.isBroadcast()) {
+          List<Fragment> fragments = getFragments(subQuery, scan);
+          if (fragments.isEmpty()) { // the result of inner join is empty.
+            return new QueryUnit[0];
+          }
+          broadcastFragments.addAll(fragments);
+        } else {
+          Preconditions.checkState(largeScan == null,
+              "Only one relation must not be broadcasted: " + execBlock.getId());
+          largeScan = scan;
+        }
+      }
+      Preconditions.checkState(largeScan != null,
+          "There is no relation to be joined with broadcast relations: " + execBlock.getId());
+
+      List<QueryUnit> queryUnits = new ArrayList<QueryUnit>();
+      int i = 0;
+      for (Fragment fragment : getFragments(subQuery, largeScan)) {
+        QueryUnit queryUnit = newQueryUnit(subQuery, i++, fragment);
+        for (Fragment broadcastFragment : broadcastFragments) {
+          queryUnit.addBroadcastFragment(broadcastFragment);
+        }
+        queryUnits.add(queryUnit);
+      }
+      LOG.info("Broadcast " + broadcastFragments.size() + " fragments to "
+          + queryUnits.size() + " tasks");
+
+      return queryUnits.toArray(new QueryUnit[queryUnits.size()]);
+    }
+
+    private static List<Fragment> getFragments(SubQuery subQuery, ScanNode scan)
+        throws IOException {
+      TableDesc desc = subQuery.context.getCatalog().getTableDesc(scan.getTableId());
+      Path inputPath = desc.getPath();
+      TableMeta meta = desc.getMeta();
+
+      // TODO - should be change the inner directory
+      Path oldPath = new Path(inputPath, "data");
+      FileSystem fs = inputPath.getFileSystem(subQuery.context.getConf());
+      if (fs.exists(oldPath)) {
+        inputPath = oldPath;
+      }
+      return subQuery.getStorageManager().getSplits(scan.getTableId(), meta, inputPath);
+    }
+
     private static QueryUnit newQueryUnit(SubQuery subQuery, int taskId, Fragment fragment) {
       ExecutionBlock execBlock = subQuery.getBlock();
       QueryUnit unit = new QueryUnit(
@@ -709,8 +952,9 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
                            SubQueryEvent subQueryEvent) {
       // schedule tasks
       try {
-        for (QueryUnitId taskId : subQuery.tasks.keySet()) {
-          subQuery.eventHandler.handle(new TaskEvent(taskId, TaskEventType.T_SCHEDULE));
+        subQuery.started = true;
+        if (subQuery.receiversReady) {
+          subQuery.scheduleTasks();
         }
 
         return  SubQueryState.RUNNING;
@@ -721,6 +965,76 @@ public class SubQuery implements EventHandler<SubQueryEvent> {
     }
   }
 
+  private void scheduleTasks() {
+    for (QueryUnitId taskId : tasks.keySet()) {
+      eventHandler.handle(new TaskEvent(taskId, TaskEventType.T_SCHEDULE));
+    }
+  }
+
+  /**
+   * When all tasks receiving the pushed input are running, it lets the child
+   * block push its output to them.
+   */
+  private static class ReceiverLaunchedTransition
+      implements SingleArcTransition<SubQuery, SubQueryEvent> {
+
+    @Override
+    public void transition(SubQuery subQuery, SubQueryEvent event) {
+      if (subQuery.receiversLaunched) {
+        return;
+      }
+      for (QueryUnit task : subQuery.getQueryUnits()) {
+        if (task.getReceiverURI() == null) {
+          return;
+        }
+      }
+      subQuery.receiversLaunched = true;
+
+      ExecutionBlock child = subQuery.getBlock().getChildBlocks().iterator().next();
+      LOG.info(subQuery.getId() + " is ready to receive the output of " + child.getId());
+      subQuery.eventHandler.handle(new SubQueryEvent(child.getId(),
+          SubQueryEventType.SQ_RECEIVERS_READY));
+    }
+  }
+
+  /**
+   * It replaces the store plan of each task with the plan pushing the partitions
+   * to the tasks of the parent, and it schedules the tasks if they are started.
+   */
+  private static class ReceiversReadyTransition
+      implements SingleArcTransition<SubQuery, SubQueryEvent> {
+
+    @Override
+    public void transition(SubQuery subQuery, SubQueryEvent event) {
+      ExecutionBlock parentBlock = subQuery.getBlock().getParentBlock();
+      SubQuery parent = subQuery.context.getSubQuery(parentBlock.getId());
+      StoreTableNode store = subQuery.getBlock().getStoreTableNode();
+
+      SendNode send;
+      if (store.getPartitionKeys().length > 0) {
+        send = new SendNode(PipeType.PUSH, RepartitionType.HASH);
+        send.setPartitionKeys(store.getPartitionKeys(), store.getNumPartitions());
+      } else {
+        send = new SendNode(PipeType.PUSH, RepartitionType.NONE);
+      }
+      send.setInSchema(store.getInSchema());
+      send.setOutSchema(store.getOutSchema());
+      send.setSubNode(store.getSubNode());
+      // the partition i is received by the task i of the parent
+      for (QueryUnit receiver : parent.getQueryUnits()) {
+        send.putDestURI(receiver.getId().getId(), receiver.getReceiverURI());
+      }
+      for (QueryUnit task : subQuery.getQueryUnits()) {
+        task.setLogicalPlan(send);
+      }
+
+      subQuery.receiversReady = true;
+      if (subQuery.started) {
+        subQuery.scheduleTasks();
+      }
+    }
+  }
+
   private static class TaskCompletedTransition
       implements SingleArcTransition<SubQuery, SubQueryEvent> {
 
@@ -358,6 +358,10 @@ public class TaskRunnerLauncherImpl extends AbstractService implements TaskRunne
       this.subQueryId = subQueryId;
     }
 
+    public SubQueryId getSubQueryId() {
+      return subQueryId;
+    }
+
     public synchronized boolean isCompletelyDone() {
       return state == ContainerState.DONE || state == ContainerState.FAILED;
     }
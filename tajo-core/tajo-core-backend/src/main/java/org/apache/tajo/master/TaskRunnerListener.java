@@ -27,6 +27,7 @@ import org.apache.hadoop.yarn.api.records.impl.pb.ContainerIdPBImpl;
 import org.apache.hadoop.yarn.proto.YarnProtos.ContainerIdProto;
 import org.apache.hadoop.yarn.service.AbstractService;
 import org.apache.tajo.QueryUnitAttemptId;
+import org.apache.tajo.TajoProtos.TaskAttemptState;
 import org.apache.tajo.TajoIdProtos.QueryUnitAttemptIdProto;
 import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.engine.MasterWorkerProtos.QueryUnitRequestProto;
@@ -127,6 +128,27 @@ public class TaskRunnerListener extends AbstractService
   }
 
   static BoolProto TRUE_PROTO = BoolProto.newBuilder().setValue(true).build();
+  static BoolProto FALSE_PROTO = BoolProto.newBuilder().setValue(false).build();
+
+  /**
+   * It returns FALSE_PROTO if a given attempt is killed, so that the worker stops it.
+   * An attempt is killed when another attempt of the same QueryUnit succeeds.
+   */
+  private BoolProto getLiveness(QueryUnitAttemptId attemptId) {
+    SubQuery subQuery = context.getSubQuery(attemptId.getSubQueryId());
+    if (subQuery == null) {
+      return TRUE_PROTO;
+    }
+    QueryUnit task = subQuery.getQueryUnit(attemptId.getQueryUnitId());
+    if (task == null) {
+      return TRUE_PROTO;
+    }
+    QueryUnitAttempt attempt = task.getAttempt(attemptId);
+    if (attempt != null && attempt.getState() == TaskAttemptState.TA_KILLED) {
+      return FALSE_PROTO;
+    }
+    return TRUE_PROTO;
+  }
 
   @Override
   public void getTask(RpcController controller, ContainerIdProto request,
@@ -141,7 +163,7 @@ public class TaskRunnerListener extends AbstractService
     QueryUnitAttemptId attemptId = new QueryUnitAttemptId(request.getId());
     context.getEventHandler().handle(new TaskAttemptStatusUpdateEvent(attemptId,
         request));
-    done.run(TRUE_PROTO);
+    done.run(getLiveness(attemptId));
   }
 
   @Override
@@ -153,7 +175,7 @@ public class TaskRunnerListener extends AbstractService
 //    context.getQuery(attemptId.getQueryId()).getSubQuery(attemptId.getSubQueryId()).
 //        getQueryUnit(attemptId.getQueryUnitId()).getAttempt(attemptId).
 //        resetExpireTime();
-    done.run(TRUE_PROTO);
+    done.run(getLiveness(attemptId));
   }
 
   @Override
@@ -19,8 +19,13 @@
 package org.apache.tajo.master;
 
 import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.tajo.master.event.TaskRequestEvent;
 import org.apache.tajo.master.event.TaskSchedulerEvent;
 
 public interface TaskScheduler extends EventHandler<TaskSchedulerEvent> {
 
+  /**
+   * It enqueues a task request of a container running for this scheduler's SubQuery.
+   */
+  void handleTaskRequestEvent(TaskRequestEvent event);
 }
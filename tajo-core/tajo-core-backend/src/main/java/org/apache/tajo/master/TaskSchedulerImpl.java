@@ -29,15 +29,17 @@ import org.apache.hadoop.yarn.util.RackResolver;
 import org.apache.tajo.QueryIdFactory;
 import org.apache.tajo.QueryUnitAttemptId;
 import org.apache.tajo.SubQueryId;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.MasterWorkerProtos;
 import org.apache.tajo.engine.planner.logical.ScanNode;
+import org.apache.tajo.engine.planner.logical.extended.PipeType;
 import org.apache.tajo.engine.query.QueryUnitRequestImpl;
 import org.apache.tajo.ipc.protocolrecords.QueryUnitRequest;
 import org.apache.tajo.master.QueryMaster.QueryContext;
 import org.apache.tajo.master.TaskRunnerLauncherImpl.ContainerProxy;
 import org.apache.tajo.master.event.TaskAttemptAssignedEvent;
 import org.apache.tajo.master.event.TaskRequestEvent;
-import org.apache.tajo.master.event.TaskRequestEvent.TaskRequestEventType;
 import org.apache.tajo.master.event.TaskScheduleEvent;
 import org.apache.tajo.master.event.TaskSchedulerEvent;
 import org.apache.tajo.master.event.TaskSchedulerEvent.EventType;
@@ -54,7 +56,9 @@ public class TaskSchedulerImpl extends AbstractService
   private static final Log LOG = LogFactory.getLog(TaskScheduleEvent.class);
 
   private final QueryContext context;
+  private final SubQuery subQuery;
   private AsyncDispatcher dispatcher;
+  private Speculator speculator;
 
   private Thread eventHandlingThread;
   private Thread schedulingThread;
@@ -70,9 +74,10 @@ public class TaskSchedulerImpl extends AbstractService
   private int rackLocalAssigned = 0;
   private int totalAssigned = 0;
 
-  public TaskSchedulerImpl(QueryContext context) {
+  public TaskSchedulerImpl(QueryContext context, SubQuery subQuery) {
     super(TaskSchedulerImpl.class.getName());
     this.context = context;
+    this.subQuery = subQuery;
     this.dispatcher = context.getDispatcher();
   }
 
@@ -80,7 +85,18 @@ public class TaskSchedulerImpl extends AbstractService
 
     scheduledRequests = new ScheduledRequests();
     taskRequests  = new TaskRequests();
-    dispatcher.register(TaskRequestEventType.class, taskRequests);
+
+    // Only the tasks writing intermediate data are speculated, because the final
+    // output file of a task is named by the task id regardless of its attempts.
+    TajoConf tajoConf = context.getConf();
+    // The tasks pushing their output or receiving the pushed input are not
+    // speculated either, because the pushed data are received only once.
+    ExecutionBlock block = subQuery.getBlock();
+    if (tajoConf.getBoolVar(ConfVars.SPECULATIVE_EXECUTION_ENABLED)
+        && block.getStoreTableNode().isLocal()
+        && block.getPipeType() == PipeType.PULL && !block.hasPushedInput()) {
+      speculator = new Speculator(tajoConf, subQuery, context.getEventHandler());
+    }
 
     super.init(conf);
   }
@@ -115,6 +131,9 @@ public class TaskSchedulerImpl extends AbstractService
           }
 
           schedule();
+          if (speculator != null) {
+            speculator.speculate();
+          }
         }
       }
     };
@@ -124,7 +143,7 @@ public class TaskSchedulerImpl extends AbstractService
   }
 
   private static final QueryUnitAttemptId NULL_ID;
-  private static final MasterWorkerProtos.QueryUnitRequestProto stopTaskRunnerReq;
+  static final MasterWorkerProtos.QueryUnitRequestProto stopTaskRunnerReq;
   static {
     SubQueryId nullSubQuery =
         QueryIdFactory.newSubQueryId(TajoIdUtils.NullQueryId);
@@ -147,13 +166,23 @@ public class TaskSchedulerImpl extends AbstractService
     schedulingThread.interrupt();
 
     // Return all of request callbacks instantly.
-    for (TaskRequestEvent req : taskRequests.taskRequestQueue) {
+    TaskRequestEvent req;
+    while ((req = taskRequests.taskRequestQueue.poll()) != null) {
       req.getCallback().run(stopTaskRunnerReq);
     }
 
     super.stop();
   }
 
+  @Override
+  public void handleTaskRequestEvent(TaskRequestEvent event) {
+    taskRequests.handle(event);
+    // a request which arrives while stopping is answered here
+    if (stopEventHandling && taskRequests.taskRequestQueue.remove(event)) {
+      event.getCallback().run(stopTaskRunnerReq);
+    }
+  }
+
   private void handleEvent(TaskSchedulerEvent event) {
     if (event.getType() == EventType.T_SCHEDULE) {
       TaskScheduleEvent castEvent = (TaskScheduleEvent) event;
@@ -162,9 +191,28 @@ public class TaskSchedulerImpl extends AbstractService
       } else {
         scheduledRequests.addNonLeafTask(castEvent);
       }
+    } else if (event.getType() == EventType.T_SCHEDULE_CANCEL) {
+      scheduledRequests.cancel(((TaskScheduleEvent) event).getAttemptId());
     }
   }
 
+  /**
+   * It returns true if another attempt of the same QueryUnit is active on a given host.
+   * A speculative attempt should run on a different host from the straggler.
+   */
+  private boolean isActiveOnHost(QueryUnitAttemptId attemptId, String hostName) {
+    QueryUnit task = subQuery.getQueryUnit(attemptId.getQueryUnitId());
+    if (!task.isSpeculated()) {
+      return false;
+    }
+    for (QueryUnitAttempt attempt : task.getActiveAttempts()) {
+      if (!attempt.getId().equals(attemptId) && hostName.equals(attempt.getHost())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   List<TaskRequestEvent> taskRequestEvents = new ArrayList<TaskRequestEvent>();
   public void schedule() {
 
@@ -291,6 +339,11 @@ public class TaskSchedulerImpl extends AbstractService
       return nonLeafTasks.size();
     }
 
+    public void cancel(QueryUnitAttemptId attemptId) {
+      leafTasks.remove(attemptId);
+      nonLeafTasks.remove(attemptId);
+    }
+
     public Set<QueryUnitAttemptId> AssignedRequest = new HashSet<QueryUnitAttemptId>();
 
     public void assignToLeafTasks(List<TaskRequestEvent> taskRequests) {
@@ -311,7 +364,7 @@ public class TaskSchedulerImpl extends AbstractService
 
           QueryUnitAttemptId tId = list.removeFirst();
 
-          if (leafTasks.contains(tId)) {
+          if (leafTasks.contains(tId) && !isActiveOnHost(tId, hostName)) {
             leafTasks.remove(tId);
             attemptId = tId;
             //LOG.info(attemptId + " Assigned based on host match " + hostName);
@@ -328,7 +381,7 @@ public class TaskSchedulerImpl extends AbstractService
 
             QueryUnitAttemptId tId = list.removeFirst();
 
-            if (leafTasks.contains(tId)) {
+            if (leafTasks.contains(tId) && !isActiveOnHost(tId, hostName)) {
               leafTasks.remove(tId);
               attemptId = tId;
               //LOG.info(attemptId + "Assigned based on rack match " + rack);
@@ -339,8 +392,7 @@ public class TaskSchedulerImpl extends AbstractService
 
           // random allocation
           if (attemptId == null && leafTaskNum() > 0) {
-            attemptId = leafTasks.iterator().next();
-            leafTasks.remove(attemptId);
+            attemptId = pollAttempt(leafTasks, hostName);
             //LOG.info(attemptId + " Assigned based on * match");
           }
         }
@@ -366,7 +418,8 @@ public class TaskSchedulerImpl extends AbstractService
           totalAssigned++;
           taskRequest.getCallback().run(taskAssign.getProto());
         } else {
-          throw new RuntimeException("Illegal State!!!!!!!!!!!!!!!!!!!!!");
+          // only speculative attempts of the tasks running on this host remain.
+          TaskSchedulerImpl.this.taskRequests.handle(taskRequest);
         }
       }
 
@@ -374,6 +427,21 @@ public class TaskSchedulerImpl extends AbstractService
       LOG.info("RackLocalAssigned: " + rackLocalAssigned + " / " + totalAssigned);
     }
 
+    /**
+     * It removes and returns an attempt which can run on a given host.
+     */
+    private QueryUnitAttemptId pollAttempt(Set<QueryUnitAttemptId> attempts, String hostName) {
+      Iterator<QueryUnitAttemptId> it = attempts.iterator();
+      while (it.hasNext()) {
+        QueryUnitAttemptId attemptId = it.next();
+        if (!isActiveOnHost(attemptId, hostName)) {
+          it.remove();
+          return attemptId;
+        }
+      }
+      return null;
+    }
+
     public void assignToNonLeafTasks(List<TaskRequestEvent> taskRequests) {
       Iterator<TaskRequestEvent> it = taskRequests.iterator();
 
@@ -381,11 +449,17 @@ public class TaskSchedulerImpl extends AbstractService
       while (it.hasNext()) {
         taskRequest = it.next();
 
+        ContainerProxy container = context.getContainer(
+            taskRequest.getContainerId());
         QueryUnitAttemptId attemptId;
         // random allocation
         if (nonLeafTasks.size() > 0) {
-          attemptId = nonLeafTasks.iterator().next();
-          nonLeafTasks.remove(attemptId);
+          attemptId = pollAttempt(nonLeafTasks, container.getHostName());
+          if (attemptId == null) {
+            // only speculative attempts of the tasks running on this host remain.
+            TaskSchedulerImpl.this.taskRequests.handle(taskRequest);
+            continue;
+          }
           LOG.debug("Assigned based on * match");
 
           QueryUnit task;
@@ -407,9 +481,10 @@ public class TaskSchedulerImpl extends AbstractService
               }
             }
           }
+          for (Map.Entry<String, Integer> receive : task.getReceives().entrySet()) {
+            taskAssign.addReceive(receive.getKey(), receive.getValue());
+          }
 
-          ContainerProxy container = context.getContainer(
-              taskRequest.getContainerId());
           context.getEventHandler().handle(new TaskAttemptAssignedEvent(attemptId,
               taskRequest.getContainerId(), container.getHostName(), container.getPullServerPort()));
           taskRequest.getCallback().run(taskAssign.getProto());
@@ -31,6 +31,10 @@ public enum SubQueryEventType {
   // Producer: QueryUnit
   SQ_TASK_COMPLETED,
   SQ_FAILED,
+  SQ_RECEIVER_LAUNCHED,
+
+  // Producer: the SubQuery receiving the pushed output
+  SQ_RECEIVERS_READY,
 
   // Producer: Completed
   SQ_SUBQUERY_COMPLETED,
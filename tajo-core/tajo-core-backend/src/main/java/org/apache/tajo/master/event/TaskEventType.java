@@ -29,6 +29,9 @@ public enum TaskEventType {
   //Producer:SubQuery
   T_SCHEDULE,
 
+  //Producer:Speculator
+  T_ADD_SPEC_ATTEMPT,
+
   //Producer:TaskAttempt
   T_ATTEMPT_LAUNCHED,
   T_ATTEMPT_COMMIT_PENDING,
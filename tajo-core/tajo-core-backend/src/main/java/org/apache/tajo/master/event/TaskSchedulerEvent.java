@@ -25,6 +25,7 @@ import org.apache.tajo.master.event.TaskSchedulerEvent.EventType;
 public class TaskSchedulerEvent extends AbstractEvent<EventType> {
   public enum EventType {
     T_SCHEDULE,
+    T_SCHEDULE_CANCEL,
     T_SUBQUERY_COMPLETED
   }
 
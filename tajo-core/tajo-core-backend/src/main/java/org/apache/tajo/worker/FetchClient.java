@@ -0,0 +1,515 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.worker;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.jboss.netty.channel.Channels.pipeline;
+
+/**
+ * FetchClient is the shuffle client shared by all fetches of a worker. It keeps
+ * persistent HTTP/1.1 connections to each pull server, and all connections
+ * share one NIO event loop. The requests to the same host are sent
+ * back-to-back over a connection without waiting for the previous responses
+ * (HTTP pipelining), and the responses are matched to them in order. A server
+ * may close a connection after an error response, so the requests which have
+ * got no response yet are sent again over another connection.
+ */
+public class FetchClient {
+  private final static Log LOG = LogFactory.getLog(FetchClient.class);
+
+  private final ChannelFactory channelFactory;
+  private final ChannelGroup allChannels = new DefaultChannelGroup("fetch-client");
+  private final int maxConnectionsPerHost;
+  private final Map<InetSocketAddress, List<Connection>> connections = Maps.newHashMap();
+  private volatile boolean closed = false;
+
+  private final AtomicLong openedConnectionNum = new AtomicLong(0);
+  private final AtomicLong requestNum = new AtomicLong(0);
+
+  public FetchClient(TajoConf conf) {
+    this(conf.getIntVar(ConfVars.SHUFFLE_FETCHER_CONNECTIONS_PER_HOST),
+        conf.getIntVar(ConfVars.SHUFFLE_FETCHER_IO_THREADS));
+  }
+
+  public FetchClient(int maxConnectionsPerHost, int ioThreadNum) {
+    Preconditions.checkArgument(maxConnectionsPerHost > 0,
+        "The number of connections per host must be positive");
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    this.channelFactory = new NioClientSocketChannelFactory(
+        Executors.newCachedThreadPool(), Executors.newCachedThreadPool(),
+        Math.max(ioThreadNum, 1));
+  }
+
+  /**
+   * It sends a request for the given uri and returns immediately. The future
+   * gives the file which the response is stored into, or the cause of the
+   * failure.
+   */
+  public ListenableFuture<File> fetch(URI uri, final File file) {
+    return Futures.transform(fetch(uri, new FileSink(file)),
+        new Function<Long, File>() {
+          @Override
+          public File apply(Long received) {
+            return file;
+          }
+        });
+  }
+
+  /**
+   * It sends a request for the given uri and returns immediately. The content
+   * of the response is given to the sink, and the future gives the number of
+   * received bytes or the cause of the failure.
+   */
+  public ListenableFuture<Long> fetch(URI uri, ResponseSink sink) {
+    FetchRequest request = new FetchRequest(uri, sink);
+    sendRequest(request);
+    requestNum.incrementAndGet();
+    return request.future;
+  }
+
+  private void sendRequest(FetchRequest request) {
+    if (closed) {
+      request.fail(new IOException("FetchClient is already closed"));
+      return;
+    }
+
+    InetSocketAddress address = getAddress(request.uri);
+    Connection connection = getConnection(address);
+    if (!connection.send(request)) {
+      request.fail(new IOException("Connection to " + address + " is broken"));
+    }
+  }
+
+  /**
+   * It returns the number of connections opened so far.
+   */
+  public long getOpenedConnectionNum() {
+    return openedConnectionNum.get();
+  }
+
+  /**
+   * It returns the number of requests sent so far.
+   */
+  public long getRequestNum() {
+    return requestNum.get();
+  }
+
+  public void close() {
+    closed = true;
+    allChannels.close().awaitUninterruptibly();
+    channelFactory.releaseExternalResources();
+    LOG.info("FetchClient is closed (connections: " + openedConnectionNum.get()
+        + ", requests: " + requestNum.get() + ")");
+  }
+
+  static InetSocketAddress getAddress(URI uri) {
+    String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
+    String host = uri.getHost() == null ? "localhost" : uri.getHost();
+    int port = uri.getPort();
+    if (port == -1) {
+      if (scheme.equalsIgnoreCase("http")) {
+        port = 80;
+      } else if (scheme.equalsIgnoreCase("https")) {
+        port = 443;
+      }
+    }
+    return new InetSocketAddress(host, port);
+  }
+
+  /**
+   * It returns the least loaded connection to the address. A new connection
+   * is opened if every connection is busy and the limit is not reached yet.
+   */
+  private synchronized Connection getConnection(InetSocketAddress address) {
+    List<Connection> list = connections.get(address);
+    if (list == null) {
+      list = Lists.newArrayList();
+      connections.put(address, list);
+    }
+
+    Connection best = null;
+    for (Connection connection : list) {
+      if (!connection.isBroken() && (best == null ||
+          connection.getOutstandingNum() < best.getOutstandingNum())) {
+        best = connection;
+      }
+    }
+
+    if (best == null ||
+        (best.getOutstandingNum() > 0 && list.size() < maxConnectionsPerHost)) {
+      best = new Connection(address);
+      list.add(best);
+      best.open();
+    }
+    return best;
+  }
+
+  private synchronized void removeConnection(Connection connection) {
+    List<Connection> list = connections.get(connection.address);
+    if (list != null) {
+      list.remove(connection);
+      if (list.isEmpty()) {
+        connections.remove(connection.address);
+      }
+    }
+  }
+
+  /**
+   * A keep-alive connection to a pull server. It is the last handler of its
+   * own channel pipeline.
+   */
+  private class Connection extends SimpleChannelUpstreamHandler {
+    private final InetSocketAddress address;
+    // the requests whose responses are not completed yet, in the sent order
+    private final LinkedList<FetchRequest> requests = new LinkedList<FetchRequest>();
+    private Channel channel;
+    private boolean connected = false;
+    private boolean broken = false;
+    private int responseNum = 0;
+
+    public Connection(InetSocketAddress address) {
+      this.address = address;
+    }
+
+    public void open() {
+      channel = channelFactory.newChannel(pipeline(
+          new HttpRequestEncoder(), new HttpResponseDecoder(),
+          new HttpContentDecompressor(), this));
+      channel.getConfig().setConnectTimeoutMillis(5000); // set 5 sec
+      channel.getConfig().setOption("receiveBufferSize", 1048576); // set 1M
+      channel.getConfig().setOption("tcpNoDelay", true);
+      allChannels.add(channel);
+      openedConnectionNum.incrementAndGet();
+
+      channel.connect(address).addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+          if (future.isSuccess()) {
+            onConnected();
+          } else {
+            fail(future.getCause());
+          }
+        }
+      });
+    }
+
+    public synchronized boolean send(FetchRequest request) {
+      if (broken) {
+        return false;
+      }
+      requests.add(request);
+      if (connected) {
+        channel.write(request.toHttpRequest(address));
+      }
+      return true;
+    }
+
+    public synchronized boolean isBroken() {
+      return broken;
+    }
+
+    public synchronized int getOutstandingNum() {
+      return requests.size();
+    }
+
+    private synchronized void onConnected() {
+      connected = true;
+      for (FetchRequest request : requests) {
+        channel.write(request.toHttpRequest(address));
+      }
+    }
+
+    private synchronized FetchRequest current() {
+      return requests.peek();
+    }
+
+    private synchronized void completeCurrent() {
+      requests.poll();
+    }
+
+    /**
+     * It fails the outstanding requests, and the connection is not used any
+     * longer. If the server has answered over this connection, the requests
+     * which have got no response are sent again instead of failing.
+     */
+    private void fail(Throwable cause) {
+      List<FetchRequest> failed = Lists.newArrayList();
+      List<FetchRequest> unanswered = Lists.newArrayList();
+      synchronized (this) {
+        broken = true;
+        for (FetchRequest request : requests) {
+          if (responseNum > 0 && !request.hasResponse()) {
+            unanswered.add(request);
+          } else {
+            failed.add(request);
+          }
+        }
+        requests.clear();
+      }
+      removeConnection(this);
+      for (FetchRequest request : failed) {
+        request.fail(cause);
+      }
+      if (channel != null) {
+        channel.close();
+      }
+
+      if (!unanswered.isEmpty()) {
+        LOG.info("Send " + unanswered.size() + " unanswered requests to " + address
+            + " again");
+        for (FetchRequest request : unanswered) {
+          sendRequest(request);
+        }
+      }
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+        throws Exception {
+      FetchRequest request = current();
+      if (request == null) {
+        throw new IOException("Unexpected response from " + address);
+      }
+      if (e.getMessage() instanceof HttpResponse) {
+        synchronized (this) {
+          responseNum++;
+        }
+      }
+      if (request.receive(e.getMessage())) {
+        completeCurrent();
+        request.done();
+      }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
+        throws Exception {
+      if (!closed) {
+        LOG.error("Fetch connection to " + address + " failed", e.getCause());
+      }
+      fail(e.getCause());
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e)
+        throws Exception {
+      fail(new IOException("Connection to " + address + " is closed"));
+    }
+  }
+
+  /**
+   * ResponseSink receives the content of a successful response. A sink may
+   * begin again when its fetch is retried.
+   */
+  public interface ResponseSink {
+    void begin() throws IOException;
+
+    void write(ChannelBuffer content) throws IOException;
+
+    void done() throws IOException;
+
+    void fail(Throwable cause);
+  }
+
+  /**
+   * It stores the content of a response into a file.
+   */
+  private static class FileSink implements ResponseSink {
+    private final File file;
+    private RandomAccessFile raf;
+    private FileChannel fc;
+
+    public FileSink(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public void begin() throws IOException {
+      raf = new RandomAccessFile(file, "rw");
+      raf.setLength(0);
+      fc = raf.getChannel();
+    }
+
+    @Override
+    public void write(ChannelBuffer content) throws IOException {
+      fc.write(content.toByteBuffer());
+    }
+
+    @Override
+    public void done() throws IOException {
+      close();
+    }
+
+    @Override
+    public void fail(Throwable cause) {
+      try {
+        close();
+      } catch (IOException e) {
+        LOG.warn(e);
+      }
+    }
+
+    private void close() throws IOException {
+      if (fc != null) {
+        fc.close();
+        raf.close();
+        fc = null;
+        raf = null;
+      }
+    }
+  }
+
+  /**
+   * A request for a uri. It gives the response content to a sink.
+   */
+  private static class FetchRequest {
+    private final URI uri;
+    private final ResponseSink sink;
+    private final SettableFuture<Long> future = SettableFuture.create();
+
+    private volatile HttpResponseStatus status;
+    private boolean receiving = false;
+    private long length = -1;
+    private long received = 0;
+
+    public FetchRequest(URI uri, ResponseSink sink) {
+      this.uri = uri;
+      this.sink = sink;
+    }
+
+    public HttpRequest toHttpRequest(InetSocketAddress address) {
+      String query = uri.getPath()
+          + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+      HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, query);
+      request.setHeader(HttpHeaders.Names.HOST, address.getHostName());
+      request.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+      request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
+      return request;
+    }
+
+    public boolean hasResponse() {
+      return status != null;
+    }
+
+    /**
+     * It consumes a part of the response, and returns true if the response
+     * is completed.
+     */
+    public boolean receive(Object message) throws IOException {
+      if (message instanceof HttpResponse) {
+        HttpResponse response = (HttpResponse) message;
+        status = response.getStatus();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("STATUS: " + status + ", VERSION: " + response.getProtocolVersion()
+              + ", URI: " + uri);
+        }
+
+        if (status.equals(HttpResponseStatus.NO_CONTENT)) {
+          LOG.info("There are no data corresponding to the request");
+          return true;
+        }
+
+        if (status.equals(HttpResponseStatus.OK)) {
+          length = HttpHeaders.getContentLength(response, -1);
+          sink.begin();
+          receiving = true;
+        }
+        write(response.getContent());
+        return !response.isChunked();
+      } else {
+        HttpChunk chunk = (HttpChunk) message;
+        write(chunk.getContent());
+        return chunk.isLast();
+      }
+    }
+
+    private void write(ChannelBuffer content) throws IOException {
+      // the content of an error response is discarded.
+      if (receiving && content.readable()) {
+        received += content.readableBytes();
+        sink.write(content);
+      }
+    }
+
+    public void done() {
+      if (status.equals(HttpResponseStatus.NO_CONTENT)) {
+        try {
+          sink.done();
+          future.set(0L);
+        } catch (IOException e) {
+          fail(e);
+        }
+        return;
+      }
+
+      try {
+        if (!receiving) {
+          throw new IOException("Fetch failed: " + uri + " (" + status + ")");
+        }
+        receiving = false;
+        sink.done();
+        if (received == length) {
+          LOG.info("Data fetch is done (total received bytes: " + received
+              + ")");
+        } else {
+          LOG.info("Data fetch is done, but cannot get all data "
+              + "(received/total: " + received + "/" + length + ")");
+        }
+        future.set(received);
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    public void fail(Throwable cause) {
+      receiving = false;
+      sink.fail(cause);
+      future.setException(cause);
+    }
+  }
+}
@@ -18,189 +18,133 @@
 
 package org.apache.tajo.worker;
 
+import com.google.common.base.Preconditions;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.jboss.netty.bootstrap.ClientBootstrap;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.channel.*;
-import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
-import org.jboss.netty.handler.codec.http.*;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.net.InetSocketAddress;
 import java.net.URI;
-import java.nio.channels.FileChannel;
-import java.util.concurrent.Executors;
-
-import static org.jboss.netty.channel.Channels.pipeline;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Fetcher fetches data from a given uri via HTTP protocol and stores them into
  * a specific file. It aims at asynchronous and efficient data transmit.
+ * Fetchers sharing a {@link FetchClient} reuse its connections.
  */
 public class Fetcher {
   private final static Log LOG = LogFactory.getLog(Fetcher.class);
 
   private final URI uri;
   private final File file;
+  private final ShuffleStream.Segment segment;
+  private final FetchClient client;
+  private Future<?> pending;
 
-  private final String host;
-  private int port;
-
+  /**
+   * It creates a fetcher which uses its own client for a single fetch.
+   */
   public Fetcher(URI uri, File file) {
+    this(uri, file, null);
+  }
+
+  public Fetcher(URI uri, File file, FetchClient client) {
     this.uri = uri;
     this.file = file;
+    this.segment = null;
+    this.client = client;
+  }
 
-    String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
-    this.host = uri.getHost() == null ? "localhost" : uri.getHost();
-    this.port = uri.getPort();
-    if (port == -1) {
-      if (scheme.equalsIgnoreCase("http")) {
-        this.port = 80;
-      } else if (scheme.equalsIgnoreCase("https")) {
-        this.port = 443;
-      }
+  /**
+   * It creates a fetcher which gives the data to a segment of a shuffle
+   * stream instead of storing them into a file.
+   */
+  public Fetcher(URI uri, ShuffleStream.Segment segment, FetchClient client) {
+    Preconditions.checkNotNull(client, "A stream fetch requires a shared client");
+    this.uri = uri;
+    this.file = null;
+    this.segment = segment;
+    this.client = client;
+  }
+
+  /**
+   * It sends the request without waiting for the response. The response is
+   * taken by the next {@link #get()}. It is available only with a shared
+   * client.
+   */
+  public synchronized void start() {
+    if (client != null && pending == null) {
+      pending = send(client);
     }
   }
 
+  /**
+   * It waits for the response. It returns the file storing the data, or null
+   * if the data are given to a shuffle stream.
+   */
   public File get() throws IOException {
-    ClientBootstrap bootstrap = new ClientBootstrap(
-        new NioClientSocketChannelFactory(Executors.newCachedThreadPool(),
-            Executors.newCachedThreadPool()));
-    bootstrap.setOption("connectTimeoutMillis", 5000L); // set 5 sec
-    bootstrap.setOption("receiveBufferSize", 1048576); // set 1M
-    ChannelPipelineFactory factory = new HttpClientPipelineFactory(file);
-    bootstrap.setPipelineFactory(factory);
-
-    ChannelFuture future = bootstrap.connect(new InetSocketAddress(host, port));
-
-    // Wait until the connection attempt succeeds or fails.
-    Channel channel = future.awaitUninterruptibly().getChannel();
-    if (!future.isSuccess()) {
-      bootstrap.releaseExternalResources();
-      throw new IOException(future.getCause());
+    if (client == null) {
+      FetchClient ownClient = new FetchClient(1, 1);
+      try {
+        waitFor(send(ownClient));
+        return file;
+      } finally {
+        ownClient.close();
+      }
     }
 
-    String query = uri.getPath()
-        + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
-    // Prepare the HTTP request.
-    HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, query);
-    request.setHeader(HttpHeaders.Names.HOST, host);
-    LOG.info("Fetch: " + uri);
-    request.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
-    request.setHeader(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
-
-    // Send the HTTP request.
-    channel.write(request);
-
-    // Wait for the server to close the connection.
-    channel.getCloseFuture().awaitUninterruptibly();
-
-    // Shut down executor threads to exit.
-    bootstrap.releaseExternalResources();
-
+    Future<?> future;
+    synchronized (this) {
+      future = pending != null ? pending : send(client);
+      pending = null;
+    }
+    waitFor(future);
     return file;
   }
 
-  public URI getURI() {
-    return this.uri;
+  /**
+   * A failed fetch can be retried unless a part of its data is already
+   * consumed by a shuffle stream.
+   */
+  public boolean isRetryable() {
+    return segment == null || segment.isRetryable();
   }
 
-  public static class HttpClientHandler extends SimpleChannelUpstreamHandler {
-    private volatile boolean readingChunks;
-    private final File file;
-    private RandomAccessFile raf;
-    private FileChannel fc;
-    private long length = -1;
-
-    public HttpClientHandler(File file) throws FileNotFoundException {
-      this.file = file;
-    }
-
-    @Override
-    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
-        throws Exception {
-      if (!readingChunks) {
-        HttpResponse response = (HttpResponse) e.getMessage();
-
-        StringBuilder sb = new StringBuilder();
-        if (LOG.isDebugEnabled()) {
-          sb.append("STATUS: ").append(response.getStatus())
-              .append(", VERSION: ").append(response.getProtocolVersion())
-              .append(", HEADER: ");
-        }
-        if (!response.getHeaderNames().isEmpty()) {
-          for (String name : response.getHeaderNames()) {
-            for (String value : response.getHeaders(name)) {
-              if (LOG.isDebugEnabled()) {
-                sb.append(name).append(" = ").append(value);
-              }
-              if (this.length == -1 && name.equals("Content-Length")) {
-                this.length = Long.valueOf(value);
-              }
-            }
-          }
-        }
-        if (LOG.isDebugEnabled()) {
-          LOG.debug(sb.toString());
-        }
-
-        if (response.getStatus() == HttpResponseStatus.NO_CONTENT) {
-          LOG.info("There are no data corresponding to the request");
-          return;
-        }
-
-        this.raf = new RandomAccessFile(file, "rw");
-        this.fc = raf.getChannel();
-
-        if (response.isChunked()) {
-          readingChunks = true;
-        } else {
-          ChannelBuffer content = response.getContent();
-          if (content.readable()) {
-            fc.write(content.toByteBuffer());
-          }
-        }
-      } else {
-        HttpChunk chunk = (HttpChunk) e.getMessage();
-        if (chunk.isLast()) {
-          readingChunks = false;
-          long fileLength = fc.position();
-          fc.close();
-          raf.close();
-          if (fileLength == length) {
-            LOG.info("Data fetch is done (total received bytes: " + fileLength
-                + ")");
-          } else {
-            LOG.info("Data fetch is done, but cannot get all data "
-                + "(received/total: " + fileLength + "/" + length + ")");
-          }
-        } else {
-          fc.write(chunk.getContent().toByteBuffer());
-        }
-      }
+  /**
+   * It is called when the fetch is given up, and it makes the reader of the
+   * shuffle stream fail instead of waiting for the data.
+   */
+  public void abort(Throwable cause) {
+    if (segment != null) {
+      segment.abort(cause);
     }
   }
 
-  public static class HttpClientPipelineFactory implements
-      ChannelPipelineFactory {
-    private final File file;
+  public URI getURI() {
+    return this.uri;
+  }
 
-    public HttpClientPipelineFactory(File file) {
-      this.file = file;
+  private Future<?> send(FetchClient fetchClient) {
+    LOG.info("Fetch: " + uri);
+    if (segment != null) {
+      return fetchClient.fetch(uri, segment);
+    } else {
+      return fetchClient.fetch(uri, file);
     }
+  }
 
-    @Override
-    public ChannelPipeline getPipeline() throws Exception {
-      ChannelPipeline pipeline = pipeline();
-
-      pipeline.addLast("codec", new HttpClientCodec());
-      pipeline.addLast("inflater", new HttpContentDecompressor());
-      pipeline.addLast("handler", new HttpClientHandler(file));
-      return pipeline;
+  private void waitFor(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      future.cancel(false);
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
     }
   }
 }
@@ -31,6 +31,7 @@ import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.TupleComparator;
 import org.apache.tajo.storage.TupleRange;
 import org.apache.tajo.storage.index.bst.BSTIndex;
+import org.apache.tajo.storage.index.bst.BSTIndexReaderCache;
 import org.apache.tajo.worker.dataserver.retriever.FileChunk;
 import org.apache.tajo.worker.dataserver.retriever.RetrieverHandler;
 
@@ -51,30 +52,62 @@ import java.util.Map;
  *   <li>included: the index range is included in the start and end keys</li>
  *   <li>covered: the index range covers the query range (i.e., start and end keys).</li>
  * </ul>
+ *
+ * The index readers are shared by all handlers through a bounded cache, so an index
+ * is loaded once for all range requests on it. The cache is sized from the
+ * configuration of the worker which creates the first handler.
  */
 public class RangeRetrieverHandler implements RetrieverHandler {
   private static final Log LOG = LogFactory.getLog(RangeRetrieverHandler.class);
+  private static BSTIndexReaderCache indexReaderCache;
+
   private final File file;
-  private final BSTIndex.BSTIndexReader idxReader;
+  private final Path indexPath;
   private final Schema schema;
   private final TupleComparator comp;
 
-  public RangeRetrieverHandler(File outDir, Schema schema, TupleComparator comp) throws IOException {
+  public RangeRetrieverHandler(TajoConf conf, File outDir, Schema schema, TupleComparator comp)
+      throws IOException {
+    initIndexReaderCache(conf);
     this.file = outDir;
-    BSTIndex index = new BSTIndex(new TajoConf());
     this.schema = schema;
     this.comp = comp;
     FileSystem fs = FileSystem.getLocal(new Configuration());
-    Path indexPath = fs.makeQualified(new Path(outDir.getCanonicalPath(), "index"));
-    this.idxReader =
-        index.getIndexReader(indexPath, this.schema, this.comp);
-    this.idxReader.open();
-    LOG.info("BSTIndex is loaded from disk (" + idxReader.getFirstKey() + ", "
-        + idxReader.getLastKey());
+    this.indexPath = fs.makeQualified(new Path(outDir.getCanonicalPath(), "index"));
+    // a new handler means that the index has been written again
+    indexReaderCache.invalidate(indexPath);
+    BSTIndex.BSTIndexReader idxReader = indexReaderCache.acquire(indexPath);
+    try {
+      LOG.info("BSTIndex is loaded (" + idxReader.getFirstKey() + ", "
+          + idxReader.getLastKey());
+    } finally {
+      indexReaderCache.release(idxReader);
+    }
+  }
+
+  private static synchronized void initIndexReaderCache(TajoConf conf) {
+    if (indexReaderCache == null) {
+      indexReaderCache = new BSTIndexReaderCache(conf,
+          conf.getIntVar(TajoConf.ConfVars.PULLSERVER_INDEX_CACHE_SIZE));
+    }
+  }
+
+  public static synchronized BSTIndexReaderCache getIndexReaderCache() {
+    return indexReaderCache;
   }
 
   @Override
   public FileChunk get(Map<String, List<String>> kvs) throws IOException {
+    BSTIndex.BSTIndexReader idxReader = indexReaderCache.acquire(indexPath);
+    try {
+      return get(idxReader, kvs);
+    } finally {
+      indexReaderCache.release(idxReader);
+    }
+  }
+
+  private FileChunk get(BSTIndex.BSTIndexReader idxReader, Map<String, List<String>> kvs)
+      throws IOException {
     // nothing to verify the file because AdvancedDataRetriever checks
     // its validity of the file.
     File data = new File(this.file, "data/data");
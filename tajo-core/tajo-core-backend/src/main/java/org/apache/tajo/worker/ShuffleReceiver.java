@@ -0,0 +1,321 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.worker;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tajo.QueryUnitAttemptId;
+import org.apache.tajo.worker.ShuffleStream.Segment;
+import org.apache.tajo.worker.ShuffleStream.Throttle;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.jboss.netty.channel.Channels.pipeline;
+import static org.jboss.netty.handler.codec.http.HttpResponseStatus.*;
+import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * ShuffleReceiver accepts the data which the producer tasks push to the tasks
+ * of a worker. A consumer task registers a {@link ShuffleStream} having a
+ * segment for each producer task, and it scans the stream while the data
+ * arrive.
+ *
+ * A producer task sends a chunked POST request to the URI of a registration
+ * with the parameter <code>src=taskId_attemptId</code>. The content is written
+ * into the segment of the producer task, and the response is sent after the
+ * last chunk. If a connection is closed before the last chunk, the received
+ * data are discarded for another attempt of the producer task, but the
+ * consumer fails if it has read a part of them.
+ *
+ * The content is pushed into the stream by the I/O threads, which must not
+ * block on the disk. The data over the memory budget of the stream are spilled
+ * by another thread, and a connection stops being read while the spill falls
+ * behind.
+ */
+public class ShuffleReceiver {
+  private final static Log LOG = LogFactory.getLog(ShuffleReceiver.class);
+
+  private final String hostName;
+  private final ChannelFactory factory;
+  private final ChannelGroup allChannels = new DefaultChannelGroup("shuffle-receiver");
+  private final Map<String, Receive> receives = Maps.newConcurrentMap();
+  private InetSocketAddress bindAddr;
+
+  public ShuffleReceiver(String hostName) {
+    this.hostName = hostName;
+    this.factory = new NioServerSocketChannelFactory(
+        Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
+  }
+
+  public void start() {
+    ServerBootstrap bootstrap = new ServerBootstrap(factory);
+    bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        ChannelPipeline pipeline = pipeline();
+        pipeline.addLast("decoder", new HttpRequestDecoder());
+        pipeline.addLast("encoder", new HttpResponseEncoder());
+        pipeline.addLast("handler", new PushHandler());
+        return pipeline;
+      }
+    });
+    Channel channel = bootstrap.bind(new InetSocketAddress(0));
+    allChannels.add(channel);
+    bindAddr = (InetSocketAddress) channel.getLocalAddress();
+    LOG.info("ShuffleReceiver starts up (" + hostName + ":" + bindAddr.getPort() + ")");
+  }
+
+  public InetSocketAddress getBindAddress() {
+    return bindAddr;
+  }
+
+  /**
+   * It adds a segment for each producer task to the stream, and it returns
+   * the URI which the producer tasks push the data of the table to.
+   */
+  public URI register(QueryUnitAttemptId consumer, String tableId, ShuffleStream stream,
+                      int sourceNum) {
+    String key = getKey(consumer.toString(), tableId);
+    receives.put(key, new Receive(stream, sourceNum));
+    return URI.create("http://" + hostName + ":" + bindAddr.getPort() + "/push?qu="
+        + consumer + "&table=" + tableId);
+  }
+
+  public void unregister(QueryUnitAttemptId consumer, String tableId) {
+    receives.remove(getKey(consumer.toString(), tableId));
+  }
+
+  public int getRegisteredNum() {
+    return receives.size();
+  }
+
+  public void close() {
+    allChannels.close().awaitUninterruptibly();
+    factory.releaseExternalResources();
+    LOG.info("ShuffleReceiver is closed (" + hostName + ":" + bindAddr.getPort() + ")");
+  }
+
+  private static String getKey(String consumer, String tableId) {
+    return consumer + "/" + tableId;
+  }
+
+  /**
+   * The segments of a registered stream. A segment is written by one producer
+   * attempt at a time, and a later attempt takes it over from a failed one.
+   */
+  private static class Receive {
+    private final Segment [] segments;
+    private final int [] owners;
+    private final boolean [] finished;
+
+    Receive(ShuffleStream stream, int sourceNum) {
+      segments = new Segment[sourceNum];
+      owners = new int[sourceNum];
+      finished = new boolean[sourceNum];
+      for (int i = 0; i < sourceNum; i++) {
+        segments[i] = stream.newSegment();
+        owners[i] = -1;
+      }
+    }
+
+    /**
+     * @return false if the data of the producer task are already received, or
+     * a later attempt of the task is pushing them
+     */
+    synchronized boolean begin(int source, int attempt) throws IOException {
+      if (source < 0 || source >= segments.length) {
+        throw new IOException("Unknown producer task: " + source);
+      }
+      // the connection of a failed attempt may not be closed yet
+      if (finished[source] || owners[source] > attempt) {
+        return false;
+      }
+      owners[source] = attempt;
+      segments[source].begin();
+      return true;
+    }
+
+    synchronized void write(int source, int attempt, ChannelBuffer content, Throttle throttle)
+        throws IOException {
+      checkOwner(source, attempt);
+      segments[source].push(content, throttle);
+    }
+
+    synchronized void done(int source, int attempt) throws IOException {
+      checkOwner(source, attempt);
+      finished[source] = true;
+      segments[source].done();
+    }
+
+    synchronized void fail(int source, int attempt, Throwable cause) {
+      if (owners[source] == attempt && !finished[source]) {
+        segments[source].fail(cause);
+      }
+    }
+
+    private void checkOwner(int source, int attempt) throws IOException {
+      if (owners[source] != attempt) {
+        throw new IOException("The data of the attempt " + attempt
+            + " are taken over by the attempt " + owners[source]);
+      }
+    }
+  }
+
+  /**
+   * It stops reading a connection while the stream cannot take its data.
+   */
+  private static class ChannelThrottle implements Throttle {
+    private final Channel channel;
+
+    ChannelThrottle(Channel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void pause() {
+      channel.setReadable(false);
+    }
+
+    @Override
+    public void resume() {
+      channel.setReadable(true);
+    }
+  }
+
+  private class PushHandler extends SimpleChannelUpstreamHandler {
+    private ChannelThrottle throttle;
+    private Receive receive;
+    private int source = -1;
+    private int attempt = -1;
+    private ChannelFuture rejected = null;
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+        throws Exception {
+      if (e.getMessage() instanceof HttpRequest) {
+        HttpRequest request = (HttpRequest) e.getMessage();
+        begin(ctx, request);
+        if (!request.isChunked()) {
+          write(ctx, request.getContent(), true);
+        }
+      } else {
+        HttpChunk chunk = (HttpChunk) e.getMessage();
+        write(ctx, chunk.getContent(), chunk.isLast());
+      }
+    }
+
+    private void begin(ChannelHandlerContext ctx, HttpRequest request) {
+      receive = null;
+      rejected = null;
+      QueryStringDecoder decoder = new QueryStringDecoder(request.getUri());
+      Map<String, List<String>> params = decoder.getParameters();
+      if (request.getMethod() != HttpMethod.POST || !params.containsKey("qu")
+          || !params.containsKey("table") || !params.containsKey("src")) {
+        reject(ctx, BAD_REQUEST);
+        return;
+      }
+      Receive found = receives.get(getKey(params.get("qu").get(0),
+          params.get("table").get(0)));
+      if (found == null) {
+        reject(ctx, NOT_FOUND);
+        return;
+      }
+
+      // src is taskId_attemptId of the producer
+      String src = params.get("src").get(0);
+      try {
+        source = Integer.parseInt(src.substring(0, src.indexOf('_')));
+        attempt = Integer.parseInt(src.substring(src.indexOf('_') + 1));
+        if (!found.begin(source, attempt)) {
+          LOG.warn("The data of " + src + " are already pushed by another attempt");
+          reject(ctx, CONFLICT);
+          return;
+        }
+      } catch (Exception ex) {
+        LOG.warn("Cannot receive the data of " + src, ex);
+        reject(ctx, INTERNAL_SERVER_ERROR);
+        return;
+      }
+      receive = found;
+    }
+
+    private void write(ChannelHandlerContext ctx, ChannelBuffer content, boolean last)
+        throws IOException {
+      if (rejected != null) {
+        // the rest of the rejected request is drained before closing the connection
+        if (last) {
+          rejected.addListener(ChannelFutureListener.CLOSE);
+        }
+        return;
+      }
+      if (content.readable()) {
+        receive.write(source, attempt, content, throttle);
+      }
+      if (last) {
+        receive.done(source, attempt);
+        receive = null;
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        HttpHeaders.setContentLength(response, 0);
+        ctx.getChannel().write(response);
+      }
+    }
+
+    private void reject(ChannelHandlerContext ctx, HttpResponseStatus status) {
+      HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
+      HttpHeaders.setContentLength(response, 0);
+      // the client must not reuse the connection
+      response.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+      rejected = ctx.getChannel().write(response);
+    }
+
+    @Override
+    public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e) {
+      allChannels.add(e.getChannel());
+      throttle = new ChannelThrottle(e.getChannel());
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+      if (receive != null) {
+        receive.fail(source, attempt, new IOException("The connection is closed while pushing"));
+        receive = null;
+      }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+      LOG.warn("Failed to receive pushed data", e.getCause());
+      e.getChannel().close();
+    }
+  }
+}
@@ -0,0 +1,495 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.worker;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ShuffleStream is the fetched input of a table which a task scans while it
+ * is arriving. Each fetch writes its response into a {@link Segment}, and the
+ * stream reads the segments one by one as a single channel. A segment is
+ * chosen in the order its data arrive, so the concatenated data must be
+ * readable as a whole, like the records of a RAW file.
+ *
+ * The received data are kept in memory up to a budget, and the data over it
+ * are spilled into a local file until they are read. A writer which must not
+ * block on the disk, like a Netty I/O thread, pushes the data instead. The
+ * pushed data over the budget are spilled by a separate thread, and the writer
+ * is paused through a {@link Throttle} while the spill thread falls behind.
+ */
+public class ShuffleStream implements ReadableByteChannel {
+  private static final Log LOG = LogFactory.getLog(ShuffleStream.class);
+
+  private final File spillFile;
+  private final long memoryBudget;
+
+  private final List<Segment> unread = Lists.newLinkedList();
+  private Segment current = null;
+  private long memoryUsed = 0;
+
+  private final long pendingLimit;
+  private final List<Segment> paused = Lists.newLinkedList();
+  private ExecutorService spiller;
+  // the bytes of the pushed data waiting for the spill thread
+  private long pendingBytes = 0;
+
+  private RandomAccessFile spill;
+  private FileChannel spillChannel;
+  private long spillEnd = 0;
+
+  private long receivedBytes = 0;
+  private long spilledBytes = 0;
+  private boolean closed = false;
+
+  public ShuffleStream(File spillFile, long memoryBudget) {
+    this.spillFile = spillFile;
+    this.memoryBudget = memoryBudget;
+    this.pendingLimit = memoryBudget / 4;
+  }
+
+  /**
+   * It adds a segment for a fetch. All segments must be added before the
+   * stream is read.
+   */
+  public synchronized Segment newSegment() {
+    Segment segment = new Segment();
+    unread.add(segment);
+    return segment;
+  }
+
+  /**
+   * It fills the buffer up unless the stream reaches the end, and it blocks
+   * until the data arrive.
+   */
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    int read = 0;
+    while (dst.hasRemaining()) {
+      Piece piece = nextPiece();
+      if (piece == null) {
+        break;
+      }
+      read += piece.readTo(dst);
+    }
+    return read == 0 && dst.hasRemaining() ? -1 : read;
+  }
+
+  /**
+   * It returns the piece to be read next, or null if all segments are read.
+   */
+  private synchronized Piece nextPiece() throws IOException {
+    while (true) {
+      if (closed) {
+        throw new IOException("ShuffleStream is closed");
+      }
+
+      if (current == null) {
+        current = pickSegment();
+        if (current == null && unread.isEmpty()) {
+          return null;
+        }
+      }
+
+      if (current != null) {
+        if (current.cause != null) {
+          throw new IOException("Fetch failed", current.cause);
+        }
+        Piece piece = current.pieces.peek();
+        if (piece != null && piece.remaining() == 0) {
+          current.pieces.poll();
+          drop(piece);
+          continue;
+        }
+        if (piece != null) {
+          current.consumed = true;
+          return piece;
+        }
+        if (current.finished) {
+          current = null;
+          continue;
+        }
+      }
+
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  /**
+   * It takes the first unread segment having any data or an end.
+   */
+  private Segment pickSegment() {
+    for (Segment segment : unread) {
+      if (!segment.pieces.isEmpty() || segment.finished || segment.cause != null) {
+        unread.remove(segment);
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed;
+  }
+
+  /**
+   * It wakes up the reader with an error, and it removes the spill file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    notifyAll();
+    // the paused writers fail at the next write
+    for (Segment segment : paused) {
+      segment.resume();
+    }
+    paused.clear();
+    if (spiller != null) {
+      spiller.shutdown();
+    }
+
+    if (spill != null) {
+      spill.close();
+      if (!spillFile.delete()) {
+        LOG.warn("Cannot delete " + spillFile);
+      }
+    }
+    if (spilledBytes > 0) {
+      LOG.info("ShuffleStream spilled " + spilledBytes + " of " + receivedBytes + " bytes");
+    }
+  }
+
+  public synchronized long getReceivedBytes() {
+    return receivedBytes;
+  }
+
+  public synchronized long getSpilledBytes() {
+    return spilledBytes;
+  }
+
+  /**
+   * It keeps the data in memory, or it spills them if the budget is exceeded.
+   */
+  private Piece newPiece(byte [] bytes) throws IOException {
+    receivedBytes += bytes.length;
+    if (memoryUsed + bytes.length <= memoryBudget) {
+      memoryUsed += bytes.length;
+      return new Piece(bytes);
+    }
+
+    if (spill == null) {
+      spill = new RandomAccessFile(spillFile, "rw");
+      spillChannel = spill.getChannel();
+    }
+    long offset = spillEnd;
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    while (buf.hasRemaining()) {
+      spillEnd += spillChannel.write(buf, spillEnd);
+    }
+    spilledBytes += bytes.length;
+    return new Piece(offset, bytes.length);
+  }
+
+  /**
+   * It keeps the data in memory, or it hands them to the spill thread if the
+   * budget is exceeded. The data are read from memory until they are spilled.
+   */
+  private Piece newPushedPiece(byte [] bytes) {
+    receivedBytes += bytes.length;
+    if (memoryUsed + bytes.length <= memoryBudget) {
+      memoryUsed += bytes.length;
+      return new Piece(bytes);
+    }
+
+    final Piece piece = new Piece(bytes);
+    piece.buffered = false;
+    pendingBytes += bytes.length;
+    if (spiller == null) {
+      spiller = Executors.newSingleThreadExecutor();
+    }
+    spiller.execute(new Runnable() {
+      @Override
+      public void run() {
+        spill(piece);
+      }
+    });
+    return piece;
+  }
+
+  /**
+   * It is called by the spill thread. The data are kept in memory if they
+   * cannot be spilled.
+   */
+  private void spill(Piece piece) {
+    long offset;
+    synchronized (this) {
+      if (closed || piece.dropped) {
+        finishSpill(piece);
+        return;
+      }
+      offset = spillEnd;
+      spillEnd += piece.length;
+    }
+
+    try {
+      synchronized (this) {
+        if (spill == null) {
+          spill = new RandomAccessFile(spillFile, "rw");
+          spillChannel = spill.getChannel();
+        }
+      }
+      ByteBuffer buf = ByteBuffer.wrap(piece.data);
+      long pos = offset;
+      while (buf.hasRemaining()) {
+        pos += spillChannel.write(buf, pos);
+      }
+    } catch (IOException e) {
+      synchronized (this) {
+        if (!closed) {
+          LOG.warn("Cannot spill the pushed data into " + spillFile, e);
+        }
+        finishSpill(piece);
+      }
+      return;
+    }
+
+    synchronized (this) {
+      if (!piece.dropped) {
+        piece.offset = offset;
+        piece.data = null;
+        spilledBytes += piece.length;
+      }
+      finishSpill(piece);
+    }
+  }
+
+  private void finishSpill(Piece piece) {
+    pendingBytes -= piece.length;
+    if (pendingBytes <= pendingLimit) {
+      for (Segment segment : paused) {
+        segment.resume();
+      }
+      paused.clear();
+    }
+  }
+
+  private void drop(Piece piece) {
+    piece.dropped = true;
+    if (piece.buffered) {
+      memoryUsed -= piece.length;
+    }
+  }
+
+  private void release(List<Piece> pieces) {
+    for (Piece piece : pieces) {
+      drop(piece);
+    }
+    pieces.clear();
+  }
+
+  /**
+   * It stops and restarts the writer of a segment. Both are called while the
+   * stream is locked, so they must not block.
+   */
+  public interface Throttle {
+    void pause();
+
+    void resume();
+  }
+
+  /**
+   * A part of a segment. It is in memory or in the spill file, and only the
+   * reader moves its position.
+   */
+  private class Piece {
+    // a pushed piece is moved from memory to the spill file by the spill thread
+    private volatile byte [] data;
+    private volatile long offset;
+    private final int length;
+    private volatile int position = 0;
+    // whether it is counted in the memory budget
+    private boolean buffered;
+    private boolean dropped = false;
+
+    public Piece(byte [] data) {
+      this.data = data;
+      this.offset = -1;
+      this.length = data.length;
+      this.buffered = true;
+    }
+
+    public Piece(long offset, int length) {
+      this.data = null;
+      this.offset = offset;
+      this.length = length;
+      this.buffered = false;
+    }
+
+    public int remaining() {
+      return length - position;
+    }
+
+    public int readTo(ByteBuffer dst) throws IOException {
+      int len = Math.min(remaining(), dst.remaining());
+      byte [] bytes = data;
+      if (bytes != null) {
+        dst.put(bytes, position, len);
+      } else {
+        ByteBuffer slice = dst.duplicate();
+        slice.limit(slice.position() + len);
+        long filePos = offset + position;
+        while (slice.hasRemaining()) {
+          int n = spillChannel.read(slice, filePos);
+          if (n < 0) {
+            throw new IOException("Unexpected end of " + spillFile);
+          }
+          filePos += n;
+        }
+        dst.position(dst.position() + len);
+      }
+      position += len;
+      return len;
+    }
+  }
+
+  /**
+   * The data of a fetch. A fetch can be retried only if the reader has not
+   * read its data yet.
+   */
+  public class Segment implements FetchClient.ResponseSink {
+    private final LinkedList<Piece> pieces = Lists.newLinkedList();
+    private boolean finished = false;
+    private boolean consumed = false;
+    private Throwable cause = null;
+    // the writer which is paused
+    private Throttle throttle = null;
+
+    public boolean isRetryable() {
+      synchronized (ShuffleStream.this) {
+        return !consumed && cause == null;
+      }
+    }
+
+    @Override
+    public void begin() throws IOException {
+      synchronized (ShuffleStream.this) {
+        if (consumed) {
+          throw new IOException("The data of the fetch are already read");
+        }
+        release(pieces);
+        finished = false;
+      }
+    }
+
+    @Override
+    public void write(ChannelBuffer content) throws IOException {
+      byte [] bytes = new byte[content.readableBytes()];
+      content.readBytes(bytes);
+      synchronized (ShuffleStream.this) {
+        if (closed) {
+          throw new IOException("ShuffleStream is closed");
+        }
+        pieces.add(newPiece(bytes));
+        ShuffleStream.this.notifyAll();
+      }
+    }
+
+    /**
+     * It writes the data without blocking on the disk, and it pauses the
+     * writer through the throttle while the spill thread falls behind.
+     */
+    public void push(ChannelBuffer content, Throttle writer) throws IOException {
+      byte [] bytes = new byte[content.readableBytes()];
+      content.readBytes(bytes);
+      synchronized (ShuffleStream.this) {
+        if (closed) {
+          throw new IOException("ShuffleStream is closed");
+        }
+        pieces.add(newPushedPiece(bytes));
+        ShuffleStream.this.notifyAll();
+
+        if (throttle == null && pendingBytes > pendingLimit) {
+          throttle = writer;
+          paused.add(this);
+          throttle.pause();
+        }
+      }
+    }
+
+    private void resume() {
+      Throttle writer = throttle;
+      throttle = null;
+      writer.resume();
+    }
+
+    @Override
+    public void done() throws IOException {
+      synchronized (ShuffleStream.this) {
+        finished = true;
+        ShuffleStream.this.notifyAll();
+      }
+    }
+
+    /**
+     * The received data are discarded for a retry, but the reader fails if
+     * it has read a part of them.
+     */
+    @Override
+    public void fail(Throwable cause) {
+      synchronized (ShuffleStream.this) {
+        if (consumed) {
+          abort(cause);
+        } else {
+          release(pieces);
+        }
+      }
+    }
+
+    /**
+     * It makes the reader fail. It is used when the fetch is given up.
+     */
+    public void abort(Throwable cause) {
+      synchronized (ShuffleStream.this) {
+        this.cause = cause;
+        ShuffleStream.this.notifyAll();
+      }
+    }
+  }
+}
@@ -19,6 +19,8 @@
 package org.apache.tajo.worker;
 
 import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.RpcCallback;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,11 +38,15 @@ import org.apache.tajo.TajoProtos.TaskAttemptState;
 import org.apache.tajo.TaskAttemptContext;
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.MasterWorkerProtos.*;
 import org.apache.tajo.engine.exception.UnfinishedTaskException;
 import org.apache.tajo.engine.json.GsonCreator;
 import org.apache.tajo.engine.planner.PlannerUtil;
+import org.apache.tajo.engine.planner.logical.ExprType;
 import org.apache.tajo.engine.planner.logical.LogicalNode;
 import org.apache.tajo.engine.planner.logical.SortNode;
 import org.apache.tajo.engine.planner.logical.StoreTableNode;
@@ -49,6 +55,7 @@ import org.apache.tajo.ipc.MasterWorkerProtocol.MasterWorkerProtocolService.Inte
 import org.apache.tajo.ipc.protocolrecords.QueryUnitRequest;
 import org.apache.tajo.master.ExecutionBlock.PartitionType;
 import org.apache.tajo.rpc.NullCallback;
+import org.apache.tajo.rpc.protocolrecords.PrimitiveProtos.BoolProto;
 import org.apache.tajo.storage.Fragment;
 import org.apache.tajo.storage.StorageUtil;
 import org.apache.tajo.storage.TupleComparator;
@@ -64,6 +71,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Task {
   private static final Log LOG = LogFactory.getLog(Task.class);
@@ -79,19 +87,24 @@ public class Task {
   private final QueryUnitRequest request;
   private final TaskAttemptContext context;
   private List<Fetcher> fetcherRunners;
+  // whether the fetched data are scanned while they arrive
+  private boolean streaming = false;
+  // the address which the producer tasks push the input of this task to
+  private URI receiverURI;
   private final LogicalNode plan;
-  private PhysicalExec executor;
+  // it is read by the reporter thread to update the progress
+  private volatile PhysicalExec executor;
   private boolean interQuery;
-  private boolean killed = false;
+  private volatile boolean killed = false;
   private boolean aborted = false;
-  private boolean stopped = false;
+  private volatile boolean stopped = false;
   private float progress = 0;
   private final Reporter reporter;
   private Path inputTableBaseDir;
 
-  private static int completed = 0;
-  private static int failed = 0;
-  private static int succeeded = 0;
+  private static final AtomicInteger completed = new AtomicInteger();
+  private static final AtomicInteger failed = new AtomicInteger();
+  private static final AtomicInteger succeeded = new AtomicInteger();
 
   /**
    * flag that indicates whether progress update needs to be sent to parent.
@@ -143,20 +156,28 @@ public class Task {
     this.taskDir = StorageUtil.concatPath(workerContext.getBaseDir(),
         taskId.getQueryUnitId().getId() + "_" + taskId.getId());
 
-    this.context = new TaskAttemptContext(conf, taskId,
-        request.getFragments().toArray(new Fragment[request.getFragments().size()]),
-        taskDir);
     plan = GsonCreator.getInstance().fromJson(request.getSerializedData(),
         LogicalNode.class);
+    // the operators of this task share the heap share of its slot
+    TajoConf taskConf = new TajoConf(conf);
+    TaskRunner.limitOperatorMemory(taskConf, plan, worker.getSlotMemory());
+    this.context = new TaskAttemptContext(taskConf, taskId,
+        request.getFragments().toArray(new Fragment[request.getFragments().size()]),
+        taskDir);
     interQuery = request.getProto().getInterQuery();
     if (interQuery) {
       context.setInterQuery();
-      StoreTableNode store = (StoreTableNode) plan;
-      this.partitionType = store.getPartitionType();
-      if (partitionType == PartitionType.RANGE) {
-        SortNode sortNode = (SortNode) store.getSubNode();
-        this.finalSchema = PlannerUtil.sortSpecsToSchema(sortNode.getSortKeys());
-        this.sortComp = new TupleComparator(finalSchema, sortNode.getSortKeys());
+      if (plan.getType() == ExprType.SEND) {
+        // the hash partitions are pushed to the consumer tasks
+        this.partitionType = PartitionType.HASH;
+      } else {
+        StoreTableNode store = (StoreTableNode) plan;
+        this.partitionType = store.getPartitionType();
+        if (partitionType == PartitionType.RANGE) {
+          SortNode sortNode = (SortNode) store.getSubNode();
+          this.finalSchema = PlannerUtil.sortSpecsToSchema(sortNode.getSortKeys());
+          this.sortComp = new TupleComparator(finalSchema, sortNode.getSortKeys());
+        }
       }
     } else {
       // The final result of a task will be written in a file named part-ss-nnnnnnn,
@@ -184,6 +205,10 @@ public class Task {
     for (Fetch f : request.getFetches()) {
       LOG.info("==> Table Id: " + f.getName() + ", url: " + f.getUrls());
     }
+    LOG.info("* Receives (total:" + request.getReceives().size() + ") :");
+    for (Receive r : request.getReceives()) {
+      LOG.info("==> Table Id: " + r.getName() + ", producers: " + r.getSourceNum());
+    }
     LOG.info("* Local task dir: " + taskDir);
     LOG.info("* plan:\n");
     LOG.info(plan.toString());
@@ -211,6 +236,34 @@ public class Task {
 
     // for localizing the intermediate data
     localize(request);
+
+    if (request.getReceives().size() > 0) {
+      receive(request.getReceives());
+    }
+  }
+
+  /**
+   * It registers the streams which the producer tasks push the input to, and it
+   * reports the address of them to the master. The input is scanned while it
+   * arrives.
+   */
+  private void receive(List<Receive> receives) throws IOException {
+    Path inputDir = localFS.makeQualified(lDirAllocator.getLocalPathForWrite(
+        getTaskAttemptDir(context.getTaskId()).toString() + "/in", conf));
+    localFS.mkdirs(inputDir);
+    ShuffleReceiver receiver = workerContext.getShuffleReceiver();
+    for (Receive r : receives) {
+      ShuffleStream stream = new ShuffleStream(
+          new File(inputDir.toUri().getPath(), r.getName() + ".spill"),
+          (long) conf.getIntVar(ConfVars.SHUFFLE_STREAMING_MEMORY) * 1048576);
+      receiverURI = receiver.register(taskId, r.getName(), stream, r.getSourceNum());
+      context.addShuffleChannel(r.getName(), stream);
+    }
+    streaming = true;
+    LOG.info(taskId + " receives the pushed input at " + receiverURI);
+
+    // the producer tasks wait for the address
+    masterProxy.statusUpdate(null, getReport(), NullCallback.get());
   }
 
   public QueryUnitAttemptId getTaskId() {
@@ -228,6 +281,31 @@ public class Task {
     return progressFlag.get();
   }
 
+  /**
+   * It updates the progress from the input read by the executor. The fetch
+   * phase, if any, takes the first half of the progress.
+   */
+  void updateProgress() {
+    PhysicalExec exec = executor;
+    if (exec == null || stopped) {
+      return;
+    }
+
+    float base = 0.0f;
+    if (context.hasFetchPhase()) {
+      if (context.getFetchLatch().getCount() > 0) {
+        // the fetch phase reports its own progress
+        return;
+      }
+      base = 0.5f;
+    }
+    float newProgress = base + (1 - base) * exec.getProgress();
+    if (newProgress > context.getProgress()) {
+      context.setProgress(newProgress);
+      setProgressFlag();
+    }
+  }
+
   public void localize(QueryUnitRequest request) throws IOException {
     fetcherRunners = getFetchRunners(context, request.getFetches());
 
@@ -273,6 +351,11 @@ public class Task {
   }
 
   public void fetch() {
+    // every request is sent up front, so the requests to the same host are
+    // pipelined over the shared connections of the fetch client.
+    for (Fetcher f : fetcherRunners) {
+      f.start();
+    }
     for (Fetcher f : fetcherRunners) {
       workerContext.getFetchLauncher().submit(new FetchRunner(context, f));
     }
@@ -316,6 +399,9 @@ public class Task {
     builder.setWorkerName(workerContext.getNodeId());
     builder.setId(context.getTaskId().getProto())
         .setProgress(context.getProgress()).setState(context.getState());
+    if (receiverURI != null) {
+      builder.setReceiverUri(receiverURI.toString());
+    }
 
     return builder.build();
   }
@@ -336,10 +422,20 @@ public class Task {
         Entry<Integer,String> entry = it.next();
         Partition.Builder part = Partition.newBuilder();
         part.setPartitionKey(entry.getKey());
+        Long volume = context.getRepartitionVolume(entry.getKey());
+        if (volume != null) {
+          part.setVolume(volume);
+        }
         builder.addPartitions(part.build());
       } while (it.hasNext());
     }
 
+    if (context.hasKeySamples()) {
+      for (byte [] sample : context.getKeySamples()) {
+        builder.addKeySamples(ByteString.copyFrom(sample));
+      }
+    }
+
     return builder.build();
   }
 
@@ -362,7 +458,7 @@ public class Task {
       context.setState(TaskAttemptState.TA_RUNNING);
       setProgressFlag();
 
-      if (context.hasFetchPhase()) {
+      if (context.hasFetchPhase() && !streaming) {
         // If the fetch is still in progress, the query unit must wait for
         // complete.
         waitForFetch();
@@ -386,7 +482,7 @@ public class Task {
     } finally {
       setProgressFlag();
       stopped = true;
-      completed++;
+      completed.incrementAndGet();
 
       if (killed || aborted) {
         context.setProgress(0.0f);
@@ -406,7 +502,7 @@ public class Task {
         }
 
         masterProxy.fatalError(null, errorBuilder.build(), NullCallback.get());
-        failed++;
+        failed.incrementAndGet();
 
       } else {
         // if successful
@@ -421,7 +517,7 @@ public class Task {
 
         TaskCompletionReport report = getTaskCompletionReport();
         masterProxy.done(null, report, NullCallback.get());
-        succeeded++;
+        succeeded.incrementAndGet();
       }
 
       cleanupTask();
@@ -432,6 +528,9 @@ public class Task {
 
   public void cleanupTask() {
     workerContext.getTasks().remove(getId());
+    for (Receive r : request.getReceives()) {
+      workerContext.getShuffleReceiver().unregister(taskId, r.getName());
+    }
   }
 
   public int hashCode() {
@@ -485,9 +584,10 @@ public class Task {
       int retryNum = 0;
       int maxRetryNum = 5;
       int retryWaitTime = 1000;
+      IOException cause = null;
 
       try { // for releasing fetch latch
-        while(retryNum < maxRetryNum) {
+        while(retryNum < maxRetryNum && fetcher.isRetryable()) {
           if (retryNum > 0) {
             try {
               Thread.sleep(retryWaitTime);
@@ -497,25 +597,56 @@ public class Task {
             LOG.info("Retry on the fetch: " + fetcher.getURI() + " (" + retryNum + ")");
           }
           try {
-            File fetched = fetcher.get();
-            if (fetched != null) {
-              break;
-            }
+            fetcher.get();
+            break;
           } catch (IOException e) {
             LOG.error("Fetch failed: " + fetcher.getURI(), e);
+            cause = e;
           }
           retryNum++;
         }
       } finally {
         ctx.getFetchLatch().countDown();
+        // the fetch phase takes the first half of the progress
+        long fetched = fetcherRunners.size() - ctx.getFetchLatch().getCount();
+        ctx.setProgress(0.5f * fetched / fetcherRunners.size());
+        setProgressFlag();
       }
 
       if (retryNum == maxRetryNum) {
         LOG.error("ERROR: the maximum retry (" + retryNum + ") on the fetch exceeded (" + fetcher.getURI() + ")");
+        fetcher.abort(cause);
       }
     }
   }
 
+  /**
+   * The fetched data can be streamed only if they are the only input of the
+   * task and they are RAW files, which can be read as a concatenated stream.
+   */
+  private boolean canStream(TaskAttemptContext ctx, List<Fetch> fetches) {
+    if (!conf.getBoolVar(ConfVars.SHUFFLE_STREAMING_ENABLED) ||
+        ctx.getInputTables().size() != 1) {
+      return false;
+    }
+    String tableId = fetches.get(0).getName();
+    for (Fetch f : fetches) {
+      if (!f.getName().equals(tableId)) {
+        return false;
+      }
+    }
+    Fragment [] fragments = ctx.getTables(tableId);
+    if (fragments == null) {
+      return false;
+    }
+    for (Fragment fragment : fragments) {
+      if (fragment.isDistCached()) {
+        return false;
+      }
+    }
+    return fragments[0].getMeta().getStoreType() == StoreType.RAW;
+  }
+
   private List<Fetcher> getFetchRunners(TaskAttemptContext ctx,
                                         List<Fetch> fetches) throws IOException {
 
@@ -525,16 +656,34 @@ public class Task {
               getTaskAttemptDir(ctx.getTaskId()).toString() + "/in", conf);
       File storeDir;
 
+      List<Fetcher> runnerList = Lists.newArrayList();
+      if (canStream(ctx, fetches)) {
+        String tableId = fetches.get(0).getName();
+        ShuffleStream stream = new ShuffleStream(
+            new File(inputDir.toString(), tableId + ".spill"),
+            (long) conf.getIntVar(ConfVars.SHUFFLE_STREAMING_MEMORY) * 1048576);
+        for (Fetch f : fetches) {
+          runnerList.add(new Fetcher(URI.create(f.getUrls()), stream.newSegment(),
+              workerContext.getFetchClient()));
+        }
+        ctx.addShuffleChannel(tableId, stream);
+        streaming = true;
+        LOG.info(ctx.getTaskId() + " scans the fetched data of " + tableId
+            + " while they arrive");
+        ctx.addFetchPhase(runnerList.size(), new File(inputDir.toString()));
+        return runnerList;
+      }
+
       int i = 0;
       File storeFile;
-      List<Fetcher> runnerList = Lists.newArrayList();
       for (Fetch f : fetches) {
         storeDir = new File(inputDir.toString(), f.getName());
         if (!storeDir.exists()) {
           storeDir.mkdirs();
         }
         storeFile = new File(storeDir, "in_" + i);
-        Fetcher fetcher = new Fetcher(URI.create(f.getUrls()), storeFile);
+        Fetcher fetcher = new Fetcher(URI.create(f.getUrls()), storeFile,
+            workerContext.getFetchClient());
         runnerList.add(fetcher);
         i++;
       }
@@ -551,6 +700,20 @@ public class Task {
     private Object lock = new Object();
     private static final int PROGRESS_INTERVAL = 3000;
 
+    /**
+     * The master responds with false if this attempt has been killed, which happens
+     * when another attempt of the same QueryUnit has succeeded.
+     */
+    private final RpcCallback<BoolProto> killCallback = new RpcCallback<BoolProto>() {
+      @Override
+      public void run(BoolProto response) {
+        if (response != null && !response.getValue() && !stopped) {
+          LOG.info(taskId + " is killed by the master");
+          kill();
+        }
+      }
+    };
+
     public Reporter(Interface masterStub) {
       this.masterStub = masterStub;
     }
@@ -571,13 +734,12 @@ public class Task {
           if (stopped) {
             break;
           }
-          resetProgressFlag();
-
+          updateProgress();
           if (getProgressFlag()) {
             resetProgressFlag();
-            masterStub.statusUpdate(null, getReport(), NullCallback.get());
+            masterStub.statusUpdate(null, getReport(), killCallback);
           } else {
-            masterStub.ping(null, taskId.getProto(), NullCallback.get());
+            masterStub.ping(null, taskId.getProto(), killCallback);
           }
 
         } catch (Throwable t) {
@@ -36,8 +36,13 @@ import org.apache.tajo.QueryConf;
 import org.apache.tajo.QueryUnitAttemptId;
 import org.apache.tajo.SubQueryId;
 import org.apache.tajo.TajoProtos.TaskAttemptState;
+import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.engine.MasterWorkerProtos.QueryUnitRequestProto;
+import org.apache.tajo.engine.planner.logical.ExprType;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.engine.planner.logical.LogicalNodeVisitor;
+import org.apache.tajo.engine.planner.physical.BroadcastTableCache;
 import org.apache.tajo.engine.query.QueryUnitRequestImpl;
 import org.apache.tajo.ipc.MasterWorkerProtocol;
 import org.apache.tajo.ipc.MasterWorkerProtocol.MasterWorkerProtocolService;
@@ -81,12 +86,20 @@ public class TaskRunner extends AbstractService {
 
   private TajoQueryEngine queryEngine;
 
-  // TODO - this should be configurable
-  private final int coreNum = 4;
-
+  // the number of tasks running concurrently
+  private int slotNum;
+  // the heap share of a slot, which the memory of the operators of a task is bounded by
+  private long slotMemory;
+  // It bounds the running and prefetched tasks.
+  private Semaphore slots;
+  // for running tasks
+  private ExecutorService taskExecutor;
   // for Fetcher
-  private final ExecutorService fetchLauncher =
-      Executors.newFixedThreadPool(coreNum * 4);
+  private ExecutorService fetchLauncher;
+  // the shuffle client shared by all fetches of this TaskRunner
+  private FetchClient fetchClient;
+  // the server receiving the data pushed to the tasks, started on demand
+  private ShuffleReceiver shuffleReceiver;
   // It keeps all of the query unit attempts while a TaskRunner is running.
   private final Map<QueryUnitAttemptId, Task> tasks =
       new ConcurrentHashMap<QueryUnitAttemptId, Task>();
@@ -122,6 +135,16 @@ public class TaskRunner extends AbstractService {
   public void init(Configuration _conf) {
     this.conf = (QueryConf) _conf;
 
+    this.slotNum = getSlotNum(conf, Runtime.getRuntime().availableProcessors(),
+        Runtime.getRuntime().maxMemory());
+    this.slotMemory = Runtime.getRuntime().maxMemory() / slotNum;
+    this.slots = new Semaphore(slotNum +
+        Math.max(conf.getIntVar(ConfVars.TASKRUNNER_PREFETCH_NUM), 0));
+    this.taskExecutor = Executors.newFixedThreadPool(slotNum);
+    this.fetchLauncher = Executors.newFixedThreadPool(slotNum * 4);
+    this.fetchClient = new FetchClient(conf);
+    LOG.info("TaskRunner slots: " + slotNum + " (" + slotMemory / 1048576 + "MB for each)");
+
     try {
       this.workerContext = new WorkerContext();
 
@@ -182,6 +205,13 @@ public class TaskRunner extends AbstractService {
       return conf;
     }
 
+    /**
+     * @return the heap share of a task slot in bytes
+     */
+    public long getSlotMemory() {
+      return slotMemory;
+    }
+
     public String getNodeId() {
       return nodeId.toString();
     }
@@ -218,11 +248,71 @@ public class TaskRunner extends AbstractService {
       return fetchLauncher;
     }
 
+    public FetchClient getFetchClient() {
+      return fetchClient;
+    }
+
+    public synchronized ShuffleReceiver getShuffleReceiver() {
+      if (shuffleReceiver == null) {
+        shuffleReceiver = new ShuffleReceiver(nodeId.getHost());
+        shuffleReceiver.start();
+      }
+      return shuffleReceiver;
+    }
+
     public Path getBaseDir() {
       return baseDirPath;
     }
   }
 
+  /**
+   * It returns the number of task slots. Unless it is given by
+   * {@link ConfVars#TASKRUNNER_SLOTS}, it is the number of cores bounded by
+   * how many {@link ConfVars#TASKRUNNER_SLOT_MEMORY} fit in the heap.
+   */
+  static int getSlotNum(TajoConf conf, int coreNum, long maxMemory) {
+    int slotNum = conf.getIntVar(ConfVars.TASKRUNNER_SLOTS);
+    if (slotNum > 0) {
+      return slotNum;
+    }
+
+    long slotMemory = (long) conf.getIntVar(ConfVars.TASKRUNNER_SLOT_MEMORY) * 1048576;
+    long memorySlots = slotMemory > 0 ? maxMemory / slotMemory : coreNum;
+    return (int) Math.max(1, Math.min(coreNum, memorySlots));
+  }
+
+  /**
+   * It caps the memory budgets of the physical operators of a task, so that the
+   * concurrent tasks of this TaskRunner do not use more than the heap. The heap
+   * share of a slot is divided evenly among the sorts, joins and aggregations
+   * of the plan, and the budget of each of them is capped at its part.
+   *
+   * @param conf the configuration of the task, which is modified
+   */
+  static void limitOperatorMemory(TajoConf conf, LogicalNode plan, long slotMemory) {
+    final int [] operatorNum = new int[1];
+    plan.postOrder(new LogicalNodeVisitor() {
+      @Override
+      public void visit(LogicalNode node) {
+        if (node.getType() == ExprType.SORT || node.getType() == ExprType.JOIN
+            || node.getType() == ExprType.GROUP_BY) {
+          operatorNum[0]++;
+        }
+      }
+    });
+    if (operatorNum[0] == 0) {
+      return;
+    }
+
+    int operatorMemoryMB = (int) Math.max(1, slotMemory / operatorNum[0] / 1048576);
+    for (ConfVars var : new ConfVars[] {ConfVars.EXT_SORT_BUFFER_SIZE,
+        ConfVars.HASH_JOIN_MEMORY, ConfVars.HASH_AGGREGATION_MEMORY}) {
+      if (conf.getIntVar(var) > operatorMemoryMB) {
+        conf.setIntVar(var, operatorMemoryMB);
+      }
+    }
+  }
+
   static void fatalError(MasterWorkerProtocolService.Interface proxy,
                          QueryUnitAttemptId taskAttemptId, String message) {
     TaskFatalErrorReport.Builder builder = TaskFatalErrorReport.newBuilder()
@@ -246,6 +336,11 @@ public class TaskRunner extends AbstractService {
           while(!stopped) {
             try {
               if (callFuture == null) {
+                // The next task is requested while the current tasks are running
+                // as long as a slot or a prefetch buffer is available.
+                if (!slots.tryAcquire(3, TimeUnit.SECONDS)) {
+                  continue;
+                }
                 callFuture = new CallFuture2<QueryUnitRequestProto>();
                 master.getTask(null, ((ContainerIdPBImpl) containerId).getProto(),
                     callFuture);
@@ -267,32 +362,41 @@ public class TaskRunner extends AbstractService {
                 // immediately.
                 if (taskRequest.getShouldDie()) {
                   LOG.info("received ShouldDie flag");
+                  slots.release();
                   stop();
 
                 } else {
 
                   LOG.info("Accumulated Received Task: " + (++receivedNum));
-
                   QueryUnitAttemptId taskAttemptId = new QueryUnitAttemptId(taskRequest.getId());
+                  QueryUnitRequestProto request = taskRequest;
+                  callFuture = null;
+                  taskRequest = null;
+
                   if (tasks.containsKey(taskAttemptId)) {
+                    slots.release();
                     fatalError(master, taskAttemptId, "Duplicate Task Attempt: " + taskAttemptId);
                     continue;
                   }
 
                   LOG.info("Initializing: " + taskAttemptId);
-                  Task task = new Task(taskAttemptId, workerContext, master,
-                      new QueryUnitRequestImpl(taskRequest));
-                  tasks.put(taskAttemptId, task);
-
-                  task.init();
-                  if (task.hasFetchPhase()) {
-                    task.fetch(); // The fetch is performed in an asynchronous way.
+                  try {
+                    Task task = new Task(taskAttemptId, workerContext, master,
+                        new QueryUnitRequestImpl(request));
+                    tasks.put(taskAttemptId, task);
+                    task.init();
+                    if (task.hasFetchPhase()) {
+                      // The fetch is performed in an asynchronous way, so a prefetched
+                      // task pulls its input while the running tasks occupy the slots.
+                      task.fetch();
+                    }
+                    taskExecutor.submit(new TaskExecution(task));
+                  } catch (Throwable t) {
+                    slots.release();
+                    tasks.remove(taskAttemptId);
+                    LOG.error(t);
+                    fatalError(master, taskAttemptId, "Task initialization failed: " + t);
                   }
-                  // task.run() is a blocking call.
-                  task.run();
-
-                  callFuture = null;
-                  taskRequest = null;
                 }
               }
             } catch (Throwable t) {
@@ -312,6 +416,35 @@ public class TaskRunner extends AbstractService {
           t.abort();
         }
       }
+      taskExecutor.shutdownNow();
+      fetchLauncher.shutdownNow();
+      fetchClient.close();
+      if (shuffleReceiver != null) {
+        shuffleReceiver.close();
+      }
+      BroadcastTableCache.remove(subQueryId);
+    }
+  }
+
+  /**
+   * It runs a task in one of the slots, and frees the slot when the task ends.
+   */
+  private class TaskExecution implements Runnable {
+    private final Task task;
+
+    public TaskExecution(Task task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      try {
+        task.run();
+      } catch (Throwable t) {
+        LOG.error(t);
+      } finally {
+        slots.release();
+      }
     }
   }
 
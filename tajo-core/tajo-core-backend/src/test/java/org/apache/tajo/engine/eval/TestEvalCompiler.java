@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.eval;
+
+import org.junit.Test;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.engine.eval.EvalNode.Type;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+
+import static org.junit.Assert.*;
+
+public class TestEvalCompiler {
+  private static final TajoDataTypes.Type [] TYPES = {
+      TajoDataTypes.Type.INT2,
+      TajoDataTypes.Type.INT4,
+      TajoDataTypes.Type.INT8,
+      TajoDataTypes.Type.FLOAT4,
+      TajoDataTypes.Type.FLOAT8
+  };
+
+  private static final Datum [][] VALUES = {
+      { DatumFactory.createInt2((short) 7), DatumFactory.createInt2((short) -3),
+          DatumFactory.createInt2((short) 32000) },
+      { DatumFactory.createInt4(7), DatumFactory.createInt4(-11),
+          DatumFactory.createInt4(Integer.MAX_VALUE - 1) },
+      { DatumFactory.createInt8(7), DatumFactory.createInt8(-4),
+          DatumFactory.createInt8(Long.MAX_VALUE / 3) },
+      { DatumFactory.createFloat4(7.0f), DatumFactory.createFloat4(-2.25f),
+          DatumFactory.createFloat4(3.3e10f) },
+      { DatumFactory.createFloat8(7.0), DatumFactory.createFloat8(-0.1),
+          DatumFactory.createFloat8(1.7e300) }
+  };
+
+  private static final Type [] OPERATORS = {
+      Type.PLUS, Type.MINUS, Type.MULTIPLY, Type.DIVIDE, Type.MODULAR,
+      Type.EQUAL, Type.NOT_EQUAL, Type.LTH, Type.LEQ, Type.GTH, Type.GEQ
+  };
+
+  private static Schema createSchema() {
+    Schema schema = new Schema();
+    for (int i = 0; i < TYPES.length; i++) {
+      schema.addColumn("l" + i, TYPES[i]);
+    }
+    for (int i = 0; i < TYPES.length; i++) {
+      schema.addColumn("r" + i, TYPES[i]);
+    }
+    return schema;
+  }
+
+  private static Datum interpret(Schema schema, EvalNode expr, Tuple tuple) {
+    EvalContext ctx = expr.newContext();
+    expr.eval(ctx, schema, tuple);
+    return expr.terminate(ctx);
+  }
+
+  private static void assertSameResult(Schema schema, EvalNode expr, CompiledEval compiled,
+                                       Tuple tuple) {
+    Datum expected = interpret(schema, expr, tuple);
+    Datum result = compiled.eval(tuple);
+    assertEquals(expr.toString(), expected.type(), result.type());
+    assertEquals(expr.toString(), expected, result);
+  }
+
+  @Test
+  public final void testArithmeticAndComparison() {
+    Schema schema = createSchema();
+    Tuple tuple = new VTuple(schema.getColumnNum());
+
+    for (int l = 0; l < TYPES.length; l++) {
+      for (int r = 0; r < TYPES.length; r++) {
+        for (Type op : OPERATORS) {
+          EvalNode expr = new BinaryEval(op, new FieldEval(schema.getColumn(l)),
+              new FieldEval(schema.getColumn(TYPES.length + r)));
+          CompiledEval compiled = EvalCompiler.compile(schema, expr);
+          if (op == Type.MODULAR && TYPES[l] == TajoDataTypes.Type.FLOAT4) {
+            assertNull(compiled);
+            continue;
+          }
+          assertNotNull(expr.toString(), compiled);
+
+          for (Datum left : VALUES[l]) {
+            for (Datum right : VALUES[r]) {
+              tuple.put(l, left);
+              tuple.put(TYPES.length + r, right);
+              assertSameResult(schema, expr, compiled, tuple);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void testPredicate() {
+    Schema schema = createSchema();
+    // (l1 * 2 + 1 > r2 and l4 < 10.5) or l0 = 7
+    EvalNode expr = new BinaryEval(Type.OR,
+        new BinaryEval(Type.AND,
+            new BinaryEval(Type.GTH,
+                new BinaryEval(Type.PLUS,
+                    new BinaryEval(Type.MULTIPLY, new FieldEval(schema.getColumn(1)),
+                        new ConstEval(DatumFactory.createInt4(2))),
+                    new ConstEval(DatumFactory.createInt4(1))),
+                new FieldEval(schema.getColumn(7))),
+            new BinaryEval(Type.LTH, new FieldEval(schema.getColumn(4)),
+                new ConstEval(DatumFactory.createFloat8(10.5)))),
+        new BinaryEval(Type.EQUAL, new FieldEval(schema.getColumn(0)),
+            new ConstEval(DatumFactory.createInt2((short) 7))));
+
+    CompiledEval compiled = EvalCompiler.compile(schema, expr);
+    assertNotNull(compiled);
+
+    Tuple tuple = new VTuple(schema.getColumnNum());
+    int trueNum = 0;
+    for (Datum l0 : VALUES[0]) {
+      for (Datum l1 : VALUES[1]) {
+        for (Datum l4 : VALUES[4]) {
+          for (Datum r2 : VALUES[2]) {
+            tuple.put(0, l0);
+            tuple.put(1, l1);
+            tuple.put(4, l4);
+            tuple.put(7, r2);
+            boolean expected = interpret(schema, expr, tuple).asBool();
+            assertEquals(expected, compiled.isTrue(tuple));
+            assertSameResult(schema, expr, compiled, tuple);
+            if (expected) {
+              trueNum++;
+            }
+          }
+        }
+      }
+    }
+    assertTrue(trueNum > 0);
+  }
+
+  @Test
+  public final void testFallback() {
+    Schema schema = createSchema();
+    EvalNode expr = new BinaryEval(Type.EQUAL, new FieldEval(schema.getColumn(1)),
+        new ConstEval(DatumFactory.createInt4(3)));
+    CompiledEval compiled = EvalCompiler.compile(schema, expr);
+    assertNotNull(compiled);
+
+    Tuple tuple = new VTuple(schema.getColumnNum());
+    tuple.put(1, NullDatum.get());
+    assertFalse(compiled.isTrue(tuple));
+
+    // a value whose type is different from the column type
+    tuple.put(1, DatumFactory.createInt8(3));
+    assertEquals(interpret(schema, expr, tuple), compiled.eval(tuple));
+  }
+
+  @Test
+  public final void testNotCompilable() {
+    Schema schema = new Schema();
+    schema.addColumn("name", TajoDataTypes.Type.TEXT);
+    schema.addColumn("age", TajoDataTypes.Type.INT4);
+
+    EvalNode expr = new BinaryEval(Type.EQUAL, new FieldEval(schema.getColumn(0)),
+        new ConstEval(DatumFactory.createText("tajo")));
+    assertNull(EvalCompiler.compile(schema, expr));
+
+    expr = new BinaryEval(Type.AND, expr,
+        new BinaryEval(Type.LTH, new FieldEval(schema.getColumn(1)),
+            new ConstEval(DatumFactory.createInt4(30))));
+    assertNull(EvalCompiler.compile(schema, expr));
+  }
+
+  @Test
+  public final void testCache() {
+    Schema schema = createSchema();
+    EvalNode expr1 = new BinaryEval(Type.PLUS, new FieldEval(schema.getColumn(1)),
+        new ConstEval(DatumFactory.createInt4(3)));
+    EvalNode expr2 = new BinaryEval(Type.PLUS, new FieldEval(schema.getColumn(1)),
+        new ConstEval(DatumFactory.createInt4(3)));
+    EvalNode expr3 = new BinaryEval(Type.PLUS, new FieldEval(schema.getColumn(1)),
+        new ConstEval(DatumFactory.createInt4(4)));
+
+    CompiledEval compiled1 = EvalCompiler.compile(schema, expr1);
+    CompiledEval compiled2 = EvalCompiler.compile(schema, expr2);
+    CompiledEval compiled3 = EvalCompiler.compile(schema, expr3);
+    assertNotSame(compiled1, compiled2);
+    assertSame(compiled1.getClass(), compiled2.getClass());
+    assertNotSame(compiled1.getClass(), compiled3.getClass());
+
+    Tuple tuple = new VTuple(schema.getColumnNum());
+    tuple.put(1, DatumFactory.createInt4(10));
+    assertEquals(DatumFactory.createInt4(13), compiled2.eval(tuple));
+    assertEquals(DatumFactory.createInt4(14), compiled3.eval(tuple));
+  }
+}
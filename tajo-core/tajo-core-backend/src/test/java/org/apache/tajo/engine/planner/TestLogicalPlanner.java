@@ -475,6 +475,9 @@ public class TestLogicalPlanner {
     ProjectionNode projNode = (ProjectionNode) limitNode.getSubNode();
 
     assertEquals(ExprType.SORT, projNode.getSubNode().getType());
+    SortNode sortNode = (SortNode) projNode.getSubNode();
+    assertTrue(sortNode.hasFetchFirstNum());
+    assertEquals(3, sortNode.getFetchFirstNum());
   }
 
   @Test
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner;
+
+import org.junit.Test;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.TupleComparator;
+import org.apache.tajo.storage.TupleRange;
+import org.apache.tajo.storage.VTuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSampledRangePartition {
+  private static Schema schema = new Schema().addColumn("l_orderkey", Type.INT8);
+
+  private static Tuple createTuple(long value) {
+    Tuple tuple = new VTuple(1);
+    tuple.put(0, DatumFactory.createInt8(value));
+    return tuple;
+  }
+
+  private static int[] count(TupleRange [] ranges, List<Tuple> keys) {
+    TupleComparator comp = new TupleComparator(schema, TupleRange.schemaToSortSpecs(schema));
+    int [] counts = new int[ranges.length];
+    for (Tuple key : keys) {
+      for (int i = 0; i < ranges.length; i++) {
+        if (comp.compare(key, ranges[i].getEnd()) < 0 || i == ranges.length - 1) {
+          counts[i]++;
+          break;
+        }
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * It verifies that skewed keys are divided into ranges of similar sizes.
+   */
+  @Test
+  public void testSkewedKeys() {
+    List<Tuple> keys = new ArrayList<Tuple>();
+    // 90% of keys are within [0, 100), and the others are within [100, 1000000).
+    for (int i = 0; i < 9000; i++) {
+      keys.add(createTuple(i % 100));
+    }
+    for (int i = 0; i < 1000; i++) {
+      keys.add(createTuple(100 + i * 999));
+    }
+
+    TupleRange range = new TupleRange(schema, createTuple(0), createTuple(100 + 999 * 999));
+    SampledRangePartition partitioner = new SampledRangePartition(schema, range);
+    List<Tuple> samples = new ArrayList<Tuple>();
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      samples.add(keys.get(random.nextInt(keys.size())));
+    }
+    partitioner.addSamples(samples, keys.size());
+    assertEquals(1000, partitioner.getSampleNum());
+
+    TupleRange [] ranges = partitioner.partition(10);
+    assertEquals(10, ranges.length);
+    assertEquals(range.getStart(), ranges[0].getStart());
+    assertEquals(range.getEnd(), ranges[9].getEnd());
+    for (int i = 1; i < ranges.length; i++) {
+      assertEquals(ranges[i - 1].getEnd(), ranges[i].getStart());
+    }
+
+    for (int count : count(ranges, keys)) {
+      assertTrue("unbalanced range: " + count, count >= 700 && count <= 1300);
+    }
+  }
+
+  /**
+   * It verifies that samples are weighted by the number of rows they represent.
+   */
+  @Test
+  public void testWeightedSamples() {
+    TupleRange range = new TupleRange(schema, createTuple(0), createTuple(199));
+    SampledRangePartition partitioner = new SampledRangePartition(schema, range);
+
+    // a small task whose keys are within [0, 100), and a large task whose keys
+    // are within [100, 200). Both give the same number of samples.
+    List<Tuple> small = new ArrayList<Tuple>();
+    List<Tuple> large = new ArrayList<Tuple>();
+    for (int i = 0; i < 100; i++) {
+      small.add(createTuple(i));
+      large.add(createTuple(100 + i));
+    }
+    partitioner.addSamples(small, 100);
+    partitioner.addSamples(large, 900);
+
+    TupleRange [] ranges = partitioner.partition(2);
+    assertEquals(2, ranges.length);
+    assertEquals(createTuple(145), ranges[0].getEnd());
+  }
+
+  /**
+   * It verifies that it returns less ranges if there are not enough distinct keys.
+   */
+  @Test
+  public void testFewDistinctKeys() {
+    TupleRange range = new TupleRange(schema, createTuple(1), createTuple(3));
+    SampledRangePartition partitioner = new SampledRangePartition(schema, range);
+    List<Tuple> samples = new ArrayList<Tuple>();
+    for (int i = 0; i < 300; i++) {
+      samples.add(createTuple(i % 3 + 1));
+    }
+    partitioner.addSamples(samples, 300);
+
+    // the start and the end of the range cannot be boundaries.
+    TupleRange [] ranges = partitioner.partition(8);
+    assertEquals(2, ranges.length);
+    assertEquals(createTuple(1), ranges[0].getStart());
+    assertEquals(createTuple(2), ranges[0].getEnd());
+    assertEquals(createTuple(2), ranges[1].getStart());
+    assertEquals(createTuple(3), ranges[1].getEnd());
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.engine.planner.logical.join;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.TableDescImpl;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.catalog.statistics.ColumnStat;
+import org.apache.tajo.catalog.statistics.HyperLogLog;
+import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.engine.eval.BinaryEval;
+import org.apache.tajo.engine.eval.EvalNode;
+import org.apache.tajo.engine.eval.FieldEval;
+import org.apache.tajo.engine.parser.QueryBlock.FromTable;
+import org.apache.tajo.engine.planner.JoinType;
+import org.apache.tajo.engine.planner.logical.ExprType;
+import org.apache.tajo.engine.planner.logical.JoinNode;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.engine.planner.logical.ScanNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestJoinEnumerator {
+
+  /**
+   * It creates a table with the columns x and y. The distinct values are
+   * recorded only if the number of rows is given.
+   */
+  private static FromTable newTable(String name, long rows, long xDistVals, long yDistVals) {
+    Schema schema = new Schema();
+    schema.addColumn(name + ".x", Type.INT4);
+    schema.addColumn(name + ".y", Type.INT4);
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+    if (rows > 0) {
+      TableStat stat = new TableStat();
+      stat.setNumRows(rows);
+      stat.setNumBytes(rows * 10);
+      stat.addColumnStat(newColumnStat(schema.getColumn(0), xDistVals));
+      stat.addColumnStat(newColumnStat(schema.getColumn(1), yDistVals));
+      meta.setStat(stat);
+    }
+    return new FromTable(new TableDescImpl(name, meta, new Path("file:///")));
+  }
+
+  private static ColumnStat newColumnStat(Column column, long distVals) {
+    ColumnStat columnStat = new ColumnStat(column);
+    columnStat.setDistValSketch(new HyperLogLog());
+    columnStat.setNumDistVals(distVals);
+    return columnStat;
+  }
+
+  private static EvalNode newEquiJoin(FromTable left, String leftColumn,
+                                      FromTable right, String rightColumn) {
+    return new BinaryEval(EvalNode.Type.EQUAL,
+        new FieldEval(left.getSchema().getColumn(left.getTableName() + "." + leftColumn)),
+        new FieldEval(right.getSchema().getColumn(right.getTableName() + "." + rightColumn)));
+  }
+
+  private static JoinNode assertJoin(LogicalNode node) {
+    assertEquals(ExprType.JOIN, node.getType());
+    JoinNode join = (JoinNode) node;
+    assertEquals(JoinType.CROSS_JOIN, join.getJoinType());
+    return join;
+  }
+
+  private static void assertScan(String tableName, LogicalNode node) {
+    assertEquals(ExprType.SCAN, node.getType());
+    assertEquals(tableName, ((ScanNode) node).getTableId());
+  }
+
+  @Test
+  public void testJoinOrderByStatistics() {
+    // a and b are large and many-to-many on x, while c selects a few rows of b.
+    FromTable a = newTable("a", 1000000, 1000, 1000000);
+    FromTable b = newTable("b", 1000000, 1000, 1000000);
+    FromTable c = newTable("c", 10, 10, 10);
+    FromTable [] tables = new FromTable[] {a, b, c};
+
+    JoinTree joinTree = new JoinTree();
+    joinTree.addJoin(newEquiJoin(a, "x", b, "x"));
+    joinTree.addJoin(newEquiJoin(b, "y", c, "y"));
+
+    // by dynamic programming, and by the greedy search
+    for (int threshold : new int [] {JoinEnumerator.DEFAULT_DP_THRESHOLD, 0}) {
+      LogicalNode plan = new JoinEnumerator(tables, joinTree, threshold).enumerate();
+
+      // (b x c) is joined with a, and the smaller input is always the inner one.
+      JoinNode join = assertJoin(plan);
+      assertScan("a", join.getOuterNode());
+      join = assertJoin(join.getInnerNode());
+      assertScan("b", join.getOuterNode());
+      assertScan("c", join.getInnerNode());
+      assertEquals(6, plan.getOutSchema().getColumnNum());
+    }
+  }
+
+  @Test
+  public void testJoinOrderWithoutStatistics() {
+    FromTable a = newTable("a", 0, 0, 0);
+    FromTable b = newTable("b", 0, 0, 0);
+    FromTable c = newTable("c", 0, 0, 0);
+    FromTable d = newTable("d", 0, 0, 0);
+    FromTable [] tables = new FromTable[] {a, b, c, d};
+
+    JoinTree joinTree = new JoinTree();
+    joinTree.addJoin(newEquiJoin(a, "x", b, "x"));
+    joinTree.addJoin(newEquiJoin(b, "y", c, "y"));
+
+    // the FROM order is kept, and d without any join condition is joined last.
+    JoinNode join = assertJoin(new JoinEnumerator(tables, joinTree).enumerate());
+    assertScan("d", join.getInnerNode());
+    join = assertJoin(join.getOuterNode());
+    assertScan("c", join.getInnerNode());
+    join = assertJoin(join.getOuterNode());
+    assertScan("a", join.getOuterNode());
+    assertScan("b", join.getInnerNode());
+  }
+
+  @Test
+  public void testJoinOrderWithPartialStatistics() {
+    // a may be of any size, so the joins are not reordered even though
+    // (b x c) would be the cheapest by the statistics of b and c.
+    FromTable a = newTable("a", 0, 0, 0);
+    FromTable b = newTable("b", 1000000, 1000, 1000000);
+    FromTable c = newTable("c", 10, 10, 10);
+    FromTable [] tables = new FromTable[] {a, b, c};
+
+    JoinTree joinTree = new JoinTree();
+    joinTree.addJoin(newEquiJoin(a, "x", b, "x"));
+    joinTree.addJoin(newEquiJoin(b, "y", c, "y"));
+
+    for (int threshold : new int [] {JoinEnumerator.DEFAULT_DP_THRESHOLD, 0}) {
+      JoinNode join = assertJoin(new JoinEnumerator(tables, joinTree, threshold).enumerate());
+      assertScan("c", join.getInnerNode());
+      join = assertJoin(join.getOuterNode());
+      assertScan("a", join.getOuterNode());
+      assertScan("b", join.getInnerNode());
+    }
+  }
+}
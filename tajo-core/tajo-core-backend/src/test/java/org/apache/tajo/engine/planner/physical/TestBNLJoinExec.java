@@ -196,8 +196,8 @@ public class TestBNLJoinExec {
       scanOuter = (SeqScanExec) sortOut.getChild();
       scanInner = (SeqScanExec) sortIn.getChild();
       joinNode = join.getJoinNode();
-    } else if (proj.getChild() instanceof HashJoinExec) {
-      HashJoinExec join = (HashJoinExec) proj.getChild();
+    } else if (proj.getChild() instanceof HybridHashJoinExec) {
+      HybridHashJoinExec join = (HybridHashJoinExec) proj.getChild();
       scanOuter = (SeqScanExec) join.getOuterChild();
       scanInner = (SeqScanExec) join.getInnerChild();
       joinNode = join.getPlan();
@@ -28,6 +28,7 @@ import org.apache.tajo.catalog.*;
 import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.engine.parser.QueryAnalyzer;
@@ -167,4 +168,52 @@ public class TestExternalSortExec {
 
     System.out.println("Sort Time: " + (end - start) + " msc");
   }
+
+  @Test
+  public final void testMultiPassMerge() throws IOException {
+    // about 40 chunks are merged through three passes.
+    TajoConf mergeConf = new TajoConf(conf);
+    mergeConf.setIntVar(ConfVars.EXT_SORT_BUFFER_SIZE, 1);
+    mergeConf.setIntVar(ConfVars.EXT_SORT_FANIN, 4);
+
+    Fragment[] frags = sm.splitNG(conf, "employee", employee.getMeta(), employee.getPath(),
+        Integer.MAX_VALUE);
+    Path workDir = new Path(testDir, TestExternalSortExec.class.getName() + "_multipass");
+    TaskAttemptContext ctx = new TaskAttemptContext(mergeConf,
+        TUtil.newQueryUnitAttemptId(), new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(QUERIES[0]);
+    LogicalNode plan = planner.createPlan(context);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(mergeConf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+
+    ProjectionExec proj = (ProjectionExec) exec;
+    if (!(proj.getChild() instanceof ExternalSortExec)) {
+      UnaryPhysicalExec sortExec = (UnaryPhysicalExec) proj.getChild();
+      SeqScanExec scan = (SeqScanExec)sortExec.getChild();
+
+      ExternalSortExec extSort = new ExternalSortExec(ctx, sm,
+          ((MemSortExec)sortExec).getPlan(), scan);
+      proj.setChild(extSort);
+    }
+
+    Tuple tuple;
+    int preManager = -1;
+    int preEmp = -1;
+    int cnt = 0;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      int manager = tuple.get(0).asInt4();
+      int emp = tuple.get(1).asInt4();
+      assertTrue(preManager <= manager);
+      if (preManager == manager) {
+        assertTrue(preEmp >= emp);
+      }
+      preManager = manager;
+      preEmp = emp;
+      cnt++;
+    }
+    exec.close();
+    assertEquals(numTuple, cnt);
+  }
 }
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.apache.tajo.TajoTestingCluster;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.*;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.parser.QueryAnalyzer;
+import org.apache.tajo.engine.planner.LogicalOptimizer;
+import org.apache.tajo.engine.planner.LogicalPlanner;
+import org.apache.tajo.engine.planner.PhysicalPlanner;
+import org.apache.tajo.engine.planner.PhysicalPlannerImpl;
+import org.apache.tajo.engine.planner.PlanningContext;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.master.TajoMaster;
+import org.apache.tajo.storage.*;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.apache.tajo.util.TUtil;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TestHashAggregateExec {
+  private TajoConf conf;
+  private final String TEST_PATH = "target/test-data/TestHashAggregateExec";
+  private TajoTestingCluster util;
+  private CatalogService catalog;
+  private QueryAnalyzer analyzer;
+  private LogicalPlanner planner;
+  private StorageManager sm;
+  private Path testDir;
+
+  private TableDesc score;
+  private final int deptNum = 1000;
+
+  @Before
+  public void setUp() throws Exception {
+    util = new TajoTestingCluster();
+    util.initTestDir();
+    catalog = util.startCatalogCluster().getCatalog();
+    for (FunctionDesc funcDesc : TajoMaster.initBuiltinFunctions()) {
+      catalog.registerFunction(funcDesc);
+    }
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    conf = util.getConfiguration();
+    sm = StorageManager.get(conf, testDir);
+
+    Schema scoreSchema = new Schema();
+    scoreSchema.addColumn("deptName", Type.TEXT);
+    scoreSchema.addColumn("class", Type.TEXT);
+    scoreSchema.addColumn("score", Type.INT4);
+
+    TableMeta scoreMeta = CatalogUtil.newTableMeta(scoreSchema, StoreType.CSV);
+    Path scorePath = new Path(testDir, "score.csv");
+    Appender appender = StorageManager.getAppender(conf, scoreMeta, scorePath);
+    appender.init();
+    Tuple tuple = new VTuple(scoreMeta.getSchema().getColumnNum());
+    for (int j = 1; j <= 3; j++) {
+      for (int i = 0; i < deptNum; i++) {
+        tuple.put(new Datum[] {
+            DatumFactory.createText("dept_" + i),
+            DatumFactory.createText((i % 2) + "rd"),
+            DatumFactory.createInt4(i + j)});
+        appender.addTuple(tuple);
+      }
+    }
+    appender.flush();
+    appender.close();
+
+    score = CatalogUtil.newTableDesc("score", scoreMeta, scorePath);
+    catalog.addTable(score);
+    analyzer = new QueryAnalyzer(catalog);
+    planner = new LogicalPlanner(catalog);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    util.shutdownCatalogCluster();
+  }
+
+  String[] QUERIES = {
+      "select deptName, class, sum(score), max(score), min(score) " +
+          "from score group by deptName, class"
+  };
+
+  @Test
+  public final void testGroupByWithSpill() throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
+        Integer.MAX_VALUE);
+
+    // every group is spilled until the maximum spill level
+    TajoConf spillConf = new TajoConf(conf);
+    spillConf.setIntVar(TajoConf.ConfVars.HASH_AGGREGATION_MEMORY, 0);
+    spillConf.setIntVar(TajoConf.ConfVars.HASH_AGGREGATION_PARTITION_NUM, 4);
+
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testGroupByWithSpill");
+    TaskAttemptContext ctx = new TaskAttemptContext(spillConf,
+        TUtil.newQueryUnitAttemptId(), frags, workDir);
+    PlanningContext context = analyzer.parse(QUERIES[0]);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    // the planner uses the default budget, so that it chooses the hash aggregation.
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+
+    exec.init();
+    assertGroups(exec);
+    exec.rescan();
+    assertGroups(exec);
+    exec.close();
+  }
+
+  private void assertGroups(PhysicalExec exec) throws IOException {
+    Tuple tuple;
+    int count = 0;
+    boolean [] found = new boolean[deptNum];
+    while ((tuple = exec.next()) != null) {
+      count++;
+      int i = Integer.parseInt(tuple.get(0).asChars().substring("dept_".length()));
+      assertFalse(found[i]);
+      found[i] = true;
+      assertEquals((i % 2) + "rd", tuple.get(1).asChars());
+      assertEquals(3 * i + 6, tuple.get(2).asInt8()); // sum
+      assertEquals(i + 3, tuple.get(3).asInt4()); // max
+      assertEquals(i + 1, tuple.get(4).asInt4()); // min
+    }
+    assertEquals(deptNum, count);
+  }
+}
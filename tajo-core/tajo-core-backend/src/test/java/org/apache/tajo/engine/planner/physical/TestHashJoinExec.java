@@ -22,6 +22,8 @@ import org.apache.hadoop.fs.Path;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.apache.tajo.QueryIdFactory;
+import org.apache.tajo.QueryUnitAttemptId;
 import org.apache.tajo.TajoTestingCluster;
 import org.apache.tajo.TaskAttemptContext;
 import org.apache.tajo.catalog.*;
@@ -31,11 +33,16 @@ import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.engine.parser.QueryAnalyzer;
+import org.apache.tajo.engine.planner.LogicalOptimizer;
 import org.apache.tajo.engine.planner.LogicalPlanner;
 import org.apache.tajo.engine.planner.PhysicalPlanner;
 import org.apache.tajo.engine.planner.PhysicalPlannerImpl;
+import org.apache.tajo.engine.planner.PlannerUtil;
 import org.apache.tajo.engine.planner.PlanningContext;
+import org.apache.tajo.engine.planner.logical.ExprType;
+import org.apache.tajo.engine.planner.logical.JoinNode;
 import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.engine.planner.logical.ScanNode;
 import org.apache.tajo.storage.*;
 import org.apache.tajo.util.CommonTestingUtil;
 import org.apache.tajo.util.TUtil;
@@ -43,7 +50,9 @@ import org.apache.tajo.util.TUtil;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestHashJoinExec {
   private TajoConf conf;
@@ -176,4 +185,121 @@ public class TestHashJoinExec {
     exec.close();
     assertEquals(10 / 2, count);
   }
+
+  @Test
+  public final void testSharedBroadcastTable() throws IOException {
+    Fragment[] empFrags = StorageManager.splitNG(conf, "employee", employee.getMeta(), employee.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] peopleFrags = StorageManager.splitNG(conf, "people", people.getMeta(), people.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] merged = TUtil.concat(empFrags, peopleFrags);
+
+    // two tasks of the same SubQuery
+    QueryUnitAttemptId id1 = TUtil.newQueryUnitAttemptId();
+    QueryUnitAttemptId id2 = QueryIdFactory.newQueryUnitAttemptId(
+        QueryIdFactory.newQueryUnitId(id1.getSubQueryId(), 1), 0);
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testSharedBroadcastTable");
+    TaskAttemptContext ctx1 = new TaskAttemptContext(conf, id1, merged, workDir);
+    TaskAttemptContext ctx2 = new TaskAttemptContext(conf, id2, merged, workDir);
+
+    PlanningContext context = analyzer.parse(QUERIES[0]);
+    LogicalNode plan = planner.createPlan(context);
+    JoinNode joinNode = (JoinNode) PlannerUtil.findTopNode(plan, ExprType.JOIN);
+    ScanNode outerScan = (ScanNode) joinNode.getOuterNode();
+    ScanNode innerScan = (ScanNode) joinNode.getInnerNode();
+
+    try {
+      HashJoinExec join1 = new HashJoinExec(ctx1, joinNode,
+          new SeqScanExec(ctx1, sm, outerScan, empFrags),
+          new SeqScanExec(ctx1, sm, innerScan, peopleFrags), "people");
+      assertEquals(5, countJoinResults(join1));
+
+      // the second task must not read its inner relation
+      final SeqScanExec inner2 = new SeqScanExec(ctx2, sm, innerScan, peopleFrags);
+      PhysicalExec unreadInner = new PhysicalExec(ctx2, inner2.getSchema(), inner2.getSchema()) {
+        public void init() throws IOException {
+        }
+        public Tuple next() throws IOException {
+          fail("The broadcast relation must be loaded only once");
+          return null;
+        }
+        public void rescan() throws IOException {
+        }
+        public void close() throws IOException {
+        }
+      };
+      HashJoinExec join2 = new HashJoinExec(ctx2, joinNode,
+          new SeqScanExec(ctx2, sm, outerScan, empFrags), unreadInner, "people");
+      assertEquals(5, countJoinResults(join2));
+    } finally {
+      BroadcastTableCache.remove(id1.getSubQueryId());
+    }
+  }
+
+  private JoinNode createJoinNode(String query) {
+    PlanningContext context = analyzer.parse(query);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+    return (JoinNode) PlannerUtil.findTopNode(plan, ExprType.JOIN);
+  }
+
+  @Test
+  public final void testBroadcastKeyWithScanQualAndTargets() throws IOException {
+    Fragment[] empFrags = StorageManager.splitNG(conf, "employee", employee.getMeta(), employee.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] peopleFrags = StorageManager.splitNG(conf, "people", people.getMeta(), people.getPath(),
+        Integer.MAX_VALUE);
+    Fragment[] merged = TUtil.concat(empFrags, peopleFrags);
+
+    // two tasks of the same SubQuery joining people with different filters
+    QueryUnitAttemptId id1 = TUtil.newQueryUnitAttemptId();
+    QueryUnitAttemptId id2 = QueryIdFactory.newQueryUnitAttemptId(
+        QueryIdFactory.newQueryUnitId(id1.getSubQueryId(), 1), 0);
+    Path workDir = CommonTestingUtil.getTestDir("target/test-data/testBroadcastKeyWithScanQual");
+    TaskAttemptContext ctx1 = new TaskAttemptContext(conf, id1, merged, workDir);
+    TaskAttemptContext ctx2 = new TaskAttemptContext(conf, id2, merged, workDir);
+
+    JoinNode join1 = createJoinNode("select e.empId, p.name from employee as e inner join " +
+        "people as p on e.empId = p.empId where p.age > 35");
+    JoinNode join2 = createJoinNode("select e.empId, p.name from employee as e inner join " +
+        "people as p on e.empId = p.empId where p.age > 32");
+    JoinNode join3 = createJoinNode("select e.empId, p.age from employee as e inner join " +
+        "people as p on e.empId = p.empId where p.age > 35");
+    ScanNode people1 = (ScanNode) join1.getInnerNode();
+    ScanNode people2 = (ScanNode) join2.getInnerNode();
+    ScanNode people3 = (ScanNode) join3.getInnerNode();
+    assertEquals("people", people1.getTableId());
+    assertTrue(people1.hasQual());
+
+    String key1 = PhysicalPlannerImpl.getBroadcastKey(join1, people1);
+    String key2 = PhysicalPlannerImpl.getBroadcastKey(join2, people2);
+    String key3 = PhysicalPlannerImpl.getBroadcastKey(join3, people3);
+    assertEquals(key1, PhysicalPlannerImpl.getBroadcastKey(join1, people1));
+    assertFalse(key1.equals(key2));
+    assertFalse(key1.equals(key3));
+
+    try {
+      // the ages of people are 31, 33, ..., 39.
+      HashJoinExec exec1 = new HashJoinExec(ctx1, join1,
+          new SeqScanExec(ctx1, sm, (ScanNode) join1.getOuterNode(), empFrags),
+          new SeqScanExec(ctx1, sm, people1, peopleFrags), key1);
+      assertEquals(2, countJoinResults(exec1));
+      HashJoinExec exec2 = new HashJoinExec(ctx2, join2,
+          new SeqScanExec(ctx2, sm, (ScanNode) join2.getOuterNode(), empFrags),
+          new SeqScanExec(ctx2, sm, people2, peopleFrags), key2);
+      assertEquals(4, countJoinResults(exec2));
+    } finally {
+      BroadcastTableCache.remove(id1.getSubQueryId());
+    }
+  }
+
+  private static int countJoinResults(PhysicalExec exec) throws IOException {
+    int count = 0;
+    exec.init();
+    while (exec.next() != null) {
+      count++;
+    }
+    exec.close();
+    return count;
+  }
 }
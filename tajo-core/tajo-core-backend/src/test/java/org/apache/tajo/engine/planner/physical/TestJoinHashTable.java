@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestJoinHashTable {
+
+  @Test
+  public final void testIsSupported() {
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("flag", Type.BOOLEAN);
+
+    Schema other = new Schema();
+    other.addColumn("id", Type.INT8);
+    other.addColumn("name", Type.TEXT);
+    other.addColumn("score", Type.FLOAT4);
+    other.addColumn("flag", Type.BOOLEAN);
+
+    assertTrue(JoinHashTable.isSupported(schema, new int[] {0}, other, new int[] {0}));
+    assertTrue(JoinHashTable.isSupported(schema, new int[] {0, 1, 2}, other, new int[] {0, 1, 2}));
+    assertFalse(JoinHashTable.isSupported(schema, new int[] {0}, other, new int[] {1}));
+    assertFalse(JoinHashTable.isSupported(schema, new int[] {3}, other, new int[] {3}));
+    assertFalse(JoinHashTable.isSupported(schema, new int[] {}, other, new int[] {}));
+  }
+
+  @Test
+  public final void testLongKey() {
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("val", Type.INT4);
+
+    JoinHashTable table = new JoinHashTable(schema, new int[] {0});
+    int rowNum = 10000;
+    // rows are serialized, so that the same tuple can be reused
+    Tuple row = new VTuple(2);
+    for (int i = 0; i < rowNum; i++) {
+      // each key has two rows
+      row.put(0, DatumFactory.createInt4(i / 2));
+      row.put(1, DatumFactory.createInt4(i));
+      table.put(row);
+    }
+    table.put(new VTuple(new Datum[] {DatumFactory.createNullDatum(),
+        DatumFactory.createInt4(-1)}));
+    assertEquals(rowNum, table.size());
+    assertTrue(table.getMemoryUsage() > rowNum * 8L);
+
+    Tuple probe = new VTuple(1);
+    for (int i = 0; i < rowNum / 2; i++) {
+      probe.put(0, DatumFactory.createInt8(i));
+      int rowId = table.find(probe, new int[] {0});
+      assertEquals(i * 2, table.getRow(rowId).get(1).asInt4());
+      rowId = table.next(rowId);
+      assertEquals(i * 2 + 1, table.getRow(rowId).get(1).asInt4());
+      assertEquals(-1, table.next(rowId));
+    }
+
+    probe.put(0, DatumFactory.createInt8(rowNum));
+    assertEquals(-1, table.find(probe, new int[] {0}));
+    probe.put(0, DatumFactory.createNullDatum());
+    assertEquals(-1, table.find(probe, new int[] {0}));
+
+    table.clear();
+    probe.put(0, DatumFactory.createInt8(0));
+    assertEquals(0, table.size());
+    assertEquals(-1, table.find(probe, new int[] {0}));
+  }
+
+  @Test
+  public final void testCompositeKey() {
+    Schema schema = new Schema();
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("id", Type.INT8);
+    schema.addColumn("score", Type.FLOAT8);
+
+    JoinHashTable table = new JoinHashTable(schema, new int[] {0, 1});
+    int rowNum = 5000;
+    for (int i = 0; i < rowNum; i++) {
+      table.put(new VTuple(new Datum[] {DatumFactory.createText("name_" + i),
+          DatumFactory.createInt8(i), DatumFactory.createFloat8(i)}));
+    }
+
+    Tuple probe = new VTuple(new Datum[] {DatumFactory.createInt4(0), DatumFactory.createText("")});
+    for (int i = 0; i < rowNum; i++) {
+      probe.put(0, DatumFactory.createInt4(i));
+      probe.put(1, DatumFactory.createText("name_" + i));
+      int row = table.find(probe, new int[] {1, 0});
+      assertEquals((double) i, table.getRow(row).get(2).asFloat8(), 0.0d);
+      assertEquals(-1, table.next(row));
+    }
+
+    probe.put(0, DatumFactory.createInt4(1));
+    probe.put(1, DatumFactory.createText("name_2"));
+    assertEquals(-1, table.find(probe, new int[] {1, 0}));
+  }
+}
@@ -203,7 +203,7 @@ public class TestMergeJoinExec {
       MemSortExec innerSortExec = new MemSortExec(ctx, innerSort, innerScan);
 
       MergeJoinExec mergeJoin = new MergeJoinExec(ctx,
-          ((HashJoinExec)nestedLoopJoin).getPlan(), outerSortExec, innerSortExec,
+          ((HybridHashJoinExec)nestedLoopJoin).getPlan(), outerSortExec, innerSortExec,
           outerSortKeys, innerSortKeys);
       proj.setChild(mergeJoin);
       exec = proj;
@@ -42,6 +42,8 @@ import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.datum.NullDatum;
 import org.apache.tajo.engine.parser.QueryAnalyzer;
 import org.apache.tajo.engine.planner.*;
+import org.apache.tajo.engine.planner.logical.ExprType;
+import org.apache.tajo.engine.planner.logical.GroupbyNode;
 import org.apache.tajo.engine.planner.logical.LogicalNode;
 import org.apache.tajo.engine.planner.logical.LogicalRootNode;
 import org.apache.tajo.engine.planner.logical.StoreTableNode;
@@ -315,6 +317,47 @@ public class TestPhysicalPlanner {
     assertEquals(10, i);
   }
 
+  private static AggregationExec findAggregation(PhysicalExec exec) {
+    while (!(exec instanceof AggregationExec)) {
+      exec = ((UnaryPhysicalExec) exec).getChild();
+    }
+    return (AggregationExec) exec;
+  }
+
+  @Test
+  public final void testGroupByPlanWithEstimatedGroupVolume() throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
+        Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir(
+        "target/test-data/testGroupByPlanWithEstimatedGroupVolume");
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, TUtil.newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(QUERIES[7]);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    // the input does not fit in the memory for the hash aggregation.
+    TajoConf noMemoryConf = new TajoConf(conf);
+    noMemoryConf.setIntVar(TajoConf.ConfVars.HASH_AGGREGATION_MEMORY, 0);
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(noMemoryConf, sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+    assertTrue(findAggregation(exec) instanceof SortAggregateExec);
+
+    // the groups fit in the memory.
+    GroupbyNode groupbyNode = (GroupbyNode) PlannerUtil.findTopNode(plan, ExprType.GROUP_BY);
+    groupbyNode.setEstimatedGroupVolume(0);
+    exec = phyPlanner.createPlan(ctx, plan);
+    assertTrue(findAggregation(exec) instanceof HashAggregateExec);
+
+    int i = 0;
+    exec.init();
+    while (exec.next() != null) {
+      i++;
+    }
+    exec.close();
+    assertEquals(10, i);
+  }
+
   private String[] CreateTableAsStmts = {
       "create table grouped1 as select deptName, class, sum(score), max(score), min(score) from score group by deptName, class", // 8
       "create table grouped2 using rcfile as select deptName, class, sum(score), max(score), min(score) from score group by deptName, class", // 8
@@ -466,6 +509,67 @@ public class TestPhysicalPlanner {
     assertEquals(10, ctx.getResultStats().getNumRows().longValue());
   }
 
+  @Test
+  public final void testPartitionedStorePlanWithRawFile() throws IOException {
+    Fragment[] frags = StorageManager.splitNG(conf, "score", score.getMeta(), score.getPath(),
+        Integer.MAX_VALUE);
+    QueryUnitAttemptId id = TUtil.newQueryUnitAttemptId();
+    Path workDir = CommonTestingUtil.getTestDir(
+        "target/test-data/testPartitionedStorePlanWithRawFile");
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, id, new Fragment[] { frags[0] },
+        workDir);
+    PlanningContext context = analyzer.parse(QUERIES[7]);
+    LogicalNode plan = planner.createPlan(context);
+
+    int numPartitions = 3;
+    Column key1 = new Column("score.deptName", Type.TEXT);
+    Column key2 = new Column("score.class", Type.TEXT);
+    StoreTableNode storeNode = new StoreTableNode("partition");
+    storeNode.setPartitions(PartitionType.HASH, new Column[]{key1, key2}, numPartitions);
+    storeNode.setStorageType(StoreType.RAW);
+    PlannerUtil.insertNode(plan, storeNode);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    TableMeta outputMeta = CatalogUtil.newTableMeta(plan.getOutSchema(),
+        StoreType.RAW);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf,sm);
+    PhysicalExec exec = phyPlanner.createPlan(ctx, plan);
+    exec.init();
+    exec.next();
+    exec.close();
+
+    Path path = new Path(workDir, "output");
+    FileSystem fs = sm.getFileSystem();
+    FileStatus [] list = fs.listStatus(path);
+    assertEquals(numPartitions, list.length);
+
+    long totalBytes = 0;
+    Fragment [] fragments = new Fragment[list.length];
+    int i = 0;
+    for (FileStatus status : list) {
+      fragments[i++] = new Fragment("partition", status.getPath(), outputMeta, 0, status.getLen(), null);
+      totalBytes += status.getLen();
+    }
+    Scanner scanner = new MergeScanner(conf, outputMeta,TUtil.newList(fragments));
+    scanner.init();
+
+    Tuple tuple;
+    i = 0;
+    while ((tuple = scanner.next()) != null) {
+      assertEquals(6, tuple.get(2).asInt4()); // sum
+      assertEquals(3, tuple.get(3).asInt4()); // max
+      assertEquals(1, tuple.get(4).asInt4()); // min
+      i++;
+    }
+    assertEquals(10, i);
+    scanner.close();
+
+    // Examine the statistics information
+    assertEquals(10, ctx.getResultStats().getNumRows().longValue());
+    assertEquals(totalBytes, ctx.getResultStats().getNumBytes().longValue());
+  }
+
   @Test
   public final void testPartitionedStorePlanWithEmptyGroupingSet()
       throws IOException {
@@ -812,7 +916,7 @@ public class TestPhysicalPlanner {
 
     // The below is for testing RangeRetrieverHandler.
     RangeRetrieverHandler handler = new RangeRetrieverHandler(
-        new File(new Path(workDir, "output").toUri()), keySchema, comp);
+        conf, new File(new Path(workDir, "output").toUri()), keySchema, comp);
     Map<String,List<String>> kvs = Maps.newHashMap();
     Tuple startTuple = new VTuple(1);
     startTuple.put(0, DatumFactory.createInt4(50));
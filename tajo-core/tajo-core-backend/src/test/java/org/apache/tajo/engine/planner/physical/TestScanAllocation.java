@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.apache.tajo.TajoTestingCluster;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.*;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.parser.QueryAnalyzer;
+import org.apache.tajo.engine.planner.*;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.master.TajoMaster;
+import org.apache.tajo.storage.*;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.apache.tajo.util.TUtil;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * It checks that the row pipeline of physical operators allocates much less
+ * memory per row than the scanner does when an output tuple is allocated for
+ * each row. The allocations are compared relatively to each other, so that the
+ * test does not depend on the object layout of a JVM.
+ */
+public class TestScanAllocation {
+  private static TajoConf conf;
+  private static final String TEST_PATH = "target/test-data/TestScanAllocation";
+  private static CatalogService catalog;
+  private static QueryAnalyzer analyzer;
+  private static LogicalPlanner planner;
+  private static StorageManager sm;
+  private static TajoTestingCluster util;
+  private static Path tablePath;
+  private static TableMeta employeeMeta;
+
+  private static final int numTuple = 20000;
+  // the number of rows satisfying empId * 2 + 1 > score
+  private static final int numSelected = 19976;
+  private static final int RUNS = 5;
+
+  // keeps the allocated rows escaping, so that the JIT cannot eliminate them
+  private Tuple lastRow;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    conf = new TajoConf();
+    util = new TajoTestingCluster();
+    catalog = util.startCatalogCluster().getCatalog();
+    for (FunctionDesc funcDesc : TajoMaster.initBuiltinFunctions()) {
+      catalog.registerFunction(funcDesc);
+    }
+    Path workDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    sm = StorageManager.get(conf, workDir);
+
+    Schema schema = new Schema();
+    schema.addColumn("empId", Type.INT4);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("deptName", Type.TEXT);
+
+    employeeMeta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+
+    tablePath = StorageUtil.concatPath(workDir, "employee", "table1");
+    sm.getFileSystem().mkdirs(tablePath.getParent());
+
+    Appender appender = StorageManager.getAppender(conf, employeeMeta, tablePath);
+    appender.init();
+    Tuple tuple = new VTuple(employeeMeta.getSchema().getColumnNum());
+    for (int i = 0; i < numTuple; i++) {
+      tuple.put(new Datum[] {
+          DatumFactory.createInt4(i),
+          DatumFactory.createFloat8((i * 7) % 100),
+          DatumFactory.createText("dept_" + (i % 10))});
+      appender.addTuple(tuple);
+    }
+    appender.flush();
+    appender.close();
+
+    TableDesc desc = new TableDescImpl("employee", employeeMeta, tablePath);
+    catalog.addTable(desc);
+
+    analyzer = new QueryAnalyzer(catalog);
+    planner = new LogicalPlanner(catalog);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    util.shutdownCatalogCluster();
+  }
+
+  private static void assumeAllocationMeasurable() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(sunBean.isThreadAllocatedMemorySupported());
+    sunBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  private static long getAllocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private Fragment getFragment() throws IOException {
+    return sm.splitNG(conf, "employee", employeeMeta, tablePath, Integer.MAX_VALUE)[0];
+  }
+
+  private PhysicalExec createPlan(TajoConf conf, String query) throws IOException {
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, TUtil.newQueryUnitAttemptId(),
+        new Fragment[] { getFragment() }, CommonTestingUtil.getTestDir(TEST_PATH + "_work"));
+    PlanningContext context = analyzer.parse(query);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf, sm);
+    return phyPlanner.createPlan(ctx, plan);
+  }
+
+  /**
+   * @param allocateRows if true, an output tuple is allocated for each row
+   *                     like the operators did before they reused tuples
+   * @return the least bytes allocated by reading all rows with the scanner
+   */
+  private long measureScanner(boolean allocateRows) throws IOException {
+    long min = Long.MAX_VALUE;
+    int columnNum = employeeMeta.getSchema().getColumnNum();
+    for (int i = 0; i < RUNS; i++) {
+      Scanner scanner = StorageManager.getScanner(conf, employeeMeta, getFragment());
+      long start = getAllocatedBytes();
+      scanner.init();
+      int rows = 0;
+      Tuple tuple;
+      while ((tuple = scanner.next()) != null) {
+        if (allocateRows) {
+          lastRow = new VTuple(columnNum);
+          for (int col = 0; col < columnNum; col++) {
+            lastRow.put(col, tuple.get(col));
+          }
+        }
+        rows++;
+      }
+      scanner.close();
+      min = Math.min(min, getAllocatedBytes() - start);
+      assertEquals(numTuple, rows);
+    }
+    return min;
+  }
+
+  /**
+   * @return the least bytes allocated by reading all rows with the plan of a query
+   */
+  private long measurePlan(TajoConf conf, String query, int expectedRows) throws IOException {
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      PhysicalExec exec = createPlan(conf, query);
+      long start = getAllocatedBytes();
+      exec.init();
+      int rows = 0;
+      while (exec.next() != null) {
+        rows++;
+      }
+      exec.close();
+      min = Math.min(min, getAllocatedBytes() - start);
+      assertEquals(expectedRows, rows);
+    }
+    return min;
+  }
+
+  /**
+   * It checks that the plan allocates per row at most the given ratio of an
+   * output tuple allocated per row, in addition to what the scanner allocates.
+   */
+  private void assertAllocationPerRow(TajoConf conf, String query, int expectedRows,
+                                      double maxRatio) throws IOException {
+    assumeAllocationMeasurable();
+    long scanBytes = measureScanner(false);
+    long tupleBytes = measureScanner(true) - scanBytes;
+    assumeTrue(tupleBytes > 0);
+    long planBytes = measurePlan(conf, query, expectedRows) - scanBytes;
+    assertTrue(query + " allocates " + (planBytes / numTuple) + " bytes per row while a tuple takes "
+        + (tupleBytes / numTuple) + " bytes", planBytes <= tupleBytes * maxRatio);
+  }
+
+  @Test
+  public final void testCompiledScan() throws IOException {
+    TajoConf compiledConf = new TajoConf(conf);
+    compiledConf.setBoolVar(ConfVars.EXEC_CODEGEN, true);
+    assertAllocationPerRow(compiledConf,
+        "select empId, score, deptName from employee where empId * 2 + 1 > score",
+        numSelected, 0.5);
+  }
+
+  @Test
+  public final void testInterpretedScan() throws IOException {
+    TajoConf interpretedConf = new TajoConf(conf);
+    interpretedConf.setBoolVar(ConfVars.EXEC_CODEGEN, false);
+    // only the root of the predicate allocates a boolean datum for each row,
+    // which is smaller than a tuple with its value array
+    assertAllocationPerRow(interpretedConf,
+        "select empId, score, deptName from employee where empId * 2 + 1 > score",
+        numSelected, 1.0);
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.SortSpec;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.TupleComparator;
+import org.apache.tajo.storage.VTuple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestSortBuffer {
+  private final Random rnd = new Random(1234);
+
+  private Schema createSchema() {
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("flag", Type.BOOLEAN);
+    schema.addColumn("total", Type.INT8);
+    return schema;
+  }
+
+  private Tuple createTuple() {
+    return new VTuple(new Datum[] {
+        rnd.nextInt(10) == 0 ? DatumFactory.createNullDatum() :
+            DatumFactory.createInt4(rnd.nextInt(100) - 50),
+        rnd.nextInt(10) == 0 ? DatumFactory.createNullDatum() :
+            DatumFactory.createText("name_" + rnd.nextInt(30) + (rnd.nextBoolean() ? "" : "_suffix")),
+        DatumFactory.createFloat8(rnd.nextInt(20) - 10 + rnd.nextDouble()),
+        DatumFactory.createBool(rnd.nextBoolean()),
+        DatumFactory.createInt8(rnd.nextLong())});
+  }
+
+  private void assertSorted(Schema schema, SortSpec [] sortSpecs) {
+    assertTrue(SortBuffer.isSupported(schema, sortSpecs));
+    SortBuffer buffer = new SortBuffer(schema, sortSpecs, 1024 * 1024);
+    List<Tuple> tuples = new ArrayList<Tuple>();
+    Tuple tuple;
+    while (buffer.add(tuple = createTuple())) {
+      tuples.add(tuple);
+    }
+    assertEquals(tuples.size(), buffer.size());
+    buffer.sort();
+
+    TupleComparator comparator = new TupleComparator(schema, sortSpecs);
+    Tuple prev = null;
+    for (int i = 0; i < buffer.size(); i++) {
+      Tuple cur = new VTuple(buffer.get(i));
+      if (prev != null) {
+        assertTrue(comparator.compare(prev, cur) <= 0);
+      }
+      prev = cur;
+    }
+
+    // all rows are kept without loss
+    long sum = 0;
+    for (Tuple t : tuples) {
+      sum += t.get(4).asInt8();
+    }
+    for (int i = 0; i < buffer.size(); i++) {
+      sum -= buffer.get(i).get(4).asInt8();
+    }
+    assertEquals(0, sum);
+
+    buffer.clear();
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public final void testIsSupported() {
+    Schema schema = createSchema();
+    assertTrue(SortBuffer.isSupported(schema,
+        new SortSpec[] {new SortSpec(schema.getColumn(0))}));
+    assertFalse(SortBuffer.isSupported(schema,
+        new SortSpec[] {new SortSpec(schema.getColumn(3))}));
+
+    Schema arraySchema = new Schema();
+    arraySchema.addColumn("id", Type.INT4);
+    arraySchema.addColumn("arr", Type.ARRAY);
+    assertFalse(SortBuffer.isSupported(arraySchema,
+        new SortSpec[] {new SortSpec(arraySchema.getColumn(0))}));
+  }
+
+  @Test
+  public final void testSortIntKeys() {
+    Schema schema = createSchema();
+    assertSorted(schema, new SortSpec[] {
+        new SortSpec(schema.getColumn(0), true, false),
+        new SortSpec(schema.getColumn(2), false, false)});
+    assertSorted(schema, new SortSpec[] {
+        new SortSpec(schema.getColumn(0), false, true),
+        new SortSpec(schema.getColumn(4), true, false)});
+  }
+
+  @Test
+  public final void testSortTextKeys() {
+    Schema schema = createSchema();
+    assertSorted(schema, new SortSpec[] {
+        new SortSpec(schema.getColumn(1), true, false),
+        new SortSpec(schema.getColumn(0), true, false)});
+    assertSorted(schema, new SortSpec[] {
+        new SortSpec(schema.getColumn(1), false, false),
+        new SortSpec(schema.getColumn(0), false, true)});
+  }
+
+  @Test
+  public final void testSortFloatKeys() {
+    Schema schema = createSchema();
+    assertSorted(schema, new SortSpec[] {new SortSpec(schema.getColumn(2), true, false)});
+    assertSorted(schema, new SortSpec[] {new SortSpec(schema.getColumn(2), false, false)});
+  }
+}
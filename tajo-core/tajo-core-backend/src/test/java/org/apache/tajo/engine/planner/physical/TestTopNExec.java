@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.apache.tajo.TajoTestingCluster;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.*;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.parser.QueryAnalyzer;
+import org.apache.tajo.engine.planner.*;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.storage.*;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.apache.tajo.util.TUtil;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestTopNExec {
+  private static TajoConf conf;
+  private static final String TEST_PATH = "target/test-data/TestTopNExec";
+  private static CatalogService catalog;
+  private static QueryAnalyzer analyzer;
+  private static LogicalPlanner planner;
+  private static StorageManager sm;
+  private static TajoTestingCluster util;
+  private static Path workDir;
+  private static Path tablePath;
+  private static TableMeta employeeMeta;
+
+  private static Random rnd = new Random(System.currentTimeMillis());
+  private static final int numTuple = 10000;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    conf = new TajoConf();
+    util = new TajoTestingCluster();
+    catalog = util.startCatalogCluster().getCatalog();
+    workDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    sm = StorageManager.get(conf, workDir);
+
+    Schema schema = new Schema();
+    schema.addColumn("managerId", Type.INT4);
+    schema.addColumn("empId", Type.INT4);
+    schema.addColumn("deptName", Type.TEXT);
+
+    employeeMeta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+
+    tablePath = StorageUtil.concatPath(workDir, "employee", "table1");
+    sm.getFileSystem().mkdirs(tablePath.getParent());
+
+    Appender appender = StorageManager.getAppender(conf, employeeMeta, tablePath);
+    appender.init();
+    Tuple tuple = new VTuple(employeeMeta.getSchema().getColumnNum());
+    for (int i = 0; i < numTuple; i++) {
+      tuple.put(new Datum[] {
+          DatumFactory.createInt4(rnd.nextInt(50)),
+          DatumFactory.createInt4(i),
+          DatumFactory.createText("dept_" + rnd.nextInt(10))});
+      appender.addTuple(tuple);
+    }
+    appender.flush();
+    appender.close();
+
+    TableDesc desc = new TableDescImpl("employee", employeeMeta, tablePath);
+    catalog.addTable(desc);
+
+    analyzer = new QueryAnalyzer(catalog);
+    planner = new LogicalPlanner(catalog);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    util.shutdownCatalogCluster();
+  }
+
+  public static String[] QUERIES = {
+      "select managerId, empId, deptName from employee order by managerId, empId desc limit 100",
+      "select managerId, empId, deptName from employee order by managerId, empId desc"
+  };
+
+  private PhysicalExec createPlan(String query, String dir) throws IOException {
+    Fragment [] frags = sm.splitNG(conf, "employee", employeeMeta, tablePath, Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir(dir);
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, TUtil
+        .newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(query);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf, sm);
+    return phyPlanner.createPlan(ctx, plan);
+  }
+
+  @Test
+  public final void testNext() throws IOException {
+    PhysicalExec exec = createPlan(QUERIES[0], "target/test-data/TestTopNExec_topN");
+    LimitExec limit = (LimitExec) exec;
+    ProjectionExec proj = (ProjectionExec) limit.getChild();
+    assertTrue(proj.getChild() instanceof TopNExec);
+
+    PhysicalExec sortExec = createPlan(QUERIES[1], "target/test-data/TestTopNExec_sort");
+
+    Tuple tuple;
+    int cnt = 0;
+    exec.init();
+    sortExec.init();
+    while ((tuple = exec.next()) != null) {
+      Tuple expected = sortExec.next();
+      assertEquals(expected.get(0), tuple.get(0));
+      assertEquals(expected.get(1), tuple.get(1));
+      cnt++;
+    }
+    assertEquals(100, cnt);
+
+    // for rescan test
+    exec.rescan();
+    cnt = 0;
+    while (exec.next() != null) {
+      cnt++;
+    }
+    assertEquals(100, cnt);
+
+    exec.close();
+    sortExec.close();
+  }
+}
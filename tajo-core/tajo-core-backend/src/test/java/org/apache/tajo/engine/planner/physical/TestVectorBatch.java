@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.engine.planner.physical;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.apache.tajo.TajoTestingCluster;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.*;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.datum.Datum;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.engine.parser.QueryAnalyzer;
+import org.apache.tajo.engine.planner.*;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.master.TajoMaster;
+import org.apache.tajo.storage.*;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.apache.tajo.util.TUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TestVectorBatch {
+  private static TajoConf conf;
+  private static final String TEST_PATH = "target/test-data/TestVectorBatch";
+  private static CatalogService catalog;
+  private static QueryAnalyzer analyzer;
+  private static LogicalPlanner planner;
+  private static StorageManager sm;
+  private static TajoTestingCluster util;
+  private static Path workDir;
+  private static Path tablePath;
+  private static TableMeta employeeMeta;
+
+  private static final int numTuple = 5000;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    conf = new TajoConf();
+    util = new TajoTestingCluster();
+    catalog = util.startCatalogCluster().getCatalog();
+    for (FunctionDesc funcDesc : TajoMaster.initBuiltinFunctions()) {
+      catalog.registerFunction(funcDesc);
+    }
+    workDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    sm = StorageManager.get(conf, workDir);
+
+    Schema schema = new Schema();
+    schema.addColumn("empId", Type.INT4);
+    schema.addColumn("score", Type.FLOAT8);
+    schema.addColumn("deptName", Type.TEXT);
+
+    employeeMeta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+
+    tablePath = StorageUtil.concatPath(workDir, "employee", "table1");
+    sm.getFileSystem().mkdirs(tablePath.getParent());
+
+    Appender appender = StorageManager.getAppender(conf, employeeMeta, tablePath);
+    appender.init();
+    Tuple tuple = new VTuple(employeeMeta.getSchema().getColumnNum());
+    for (int i = 0; i < numTuple; i++) {
+      tuple.put(new Datum[] {
+          DatumFactory.createInt4(i),
+          DatumFactory.createFloat8((i * 7) % 100),
+          DatumFactory.createText("dept_" + (i % 10))});
+      appender.addTuple(tuple);
+    }
+    appender.flush();
+    appender.close();
+
+    TableDesc desc = new TableDescImpl("employee", employeeMeta, tablePath);
+    catalog.addTable(desc);
+
+    analyzer = new QueryAnalyzer(catalog);
+    planner = new LogicalPlanner(catalog);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    util.shutdownCatalogCluster();
+  }
+
+  private PhysicalExec createPlan(TajoConf conf, String query, String dir) throws IOException {
+    Fragment [] frags = sm.splitNG(conf, "employee", employeeMeta, tablePath, Integer.MAX_VALUE);
+    Path workDir = CommonTestingUtil.getTestDir(dir);
+    TaskAttemptContext ctx = new TaskAttemptContext(conf, TUtil
+        .newQueryUnitAttemptId(),
+        new Fragment[] { frags[0] }, workDir);
+    PlanningContext context = analyzer.parse(query);
+    LogicalNode plan = planner.createPlan(context);
+    plan = LogicalOptimizer.optimize(context, plan);
+
+    PhysicalPlanner phyPlanner = new PhysicalPlannerImpl(conf, sm);
+    return phyPlanner.createPlan(ctx, plan);
+  }
+
+  private static Set<String> collectRows(PhysicalExec exec) throws IOException {
+    Set<String> rows = new HashSet<String>();
+    Tuple tuple;
+    exec.init();
+    while ((tuple = exec.next()) != null) {
+      assertTrue(rows.add(tuple.toString()));
+    }
+    exec.close();
+    return rows;
+  }
+
+  private static Set<String> collectBatches(PhysicalExec exec) throws IOException {
+    Set<String> rows = new HashSet<String>();
+    VectorBatch batch = new VectorBatch(exec.getSchema(), 100);
+    Tuple tuple = new VTuple(exec.getSchema().getColumnNum());
+    exec.init();
+    while (exec.nextBatch(batch)) {
+      assertTrue(batch.size() > 0);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.getRow(batch.getRowId(i), tuple);
+        assertTrue(rows.add(tuple.toString()));
+      }
+    }
+    exec.close();
+    return rows;
+  }
+
+  @Test
+  public final void testFilterAndProjection() throws IOException {
+    String query = "select empId, score + 1 as total, deptName from employee " +
+        "where empId > 100 and (score < 30.0 or deptName = 'dept_3') and empId != 2000";
+
+    Set<String> expected = collectRows(createPlan(conf, query, TEST_PATH + "_row"));
+    Set<String> result = collectBatches(createPlan(conf, query, TEST_PATH + "_batch"));
+    assertTrue(expected.size() > 0);
+    assertTrue(expected.size() < numTuple);
+    assertEquals(expected, result);
+  }
+
+  private void assertAggregation(String query, int groupNum) throws IOException {
+    TajoConf rowConf = new TajoConf(conf);
+    rowConf.setBoolVar(ConfVars.EXEC_VECTORIZED, false);
+    PhysicalExec exec = createPlan(rowConf, query, TEST_PATH + "_agg_row");
+    assertTrue(exec instanceof HashAggregateExec);
+    Set<String> expected = collectRows(exec);
+    assertEquals(0, ((HashAggregateExec) exec).getVectorizedRowNum());
+
+    TajoConf batchConf = new TajoConf(conf);
+    batchConf.setBoolVar(ConfVars.EXEC_VECTORIZED, true);
+    exec = createPlan(batchConf, query, TEST_PATH + "_agg_batch");
+    assertTrue(exec instanceof HashAggregateExec);
+    Set<String> result = collectRows(exec);
+    // all rows passing the filter are read from the column vectors
+    assertEquals(numTuple - 1000, ((HashAggregateExec) exec).getVectorizedRowNum());
+    assertEquals(groupNum, expected.size());
+    assertEquals(expected, result);
+  }
+
+  @Test
+  public final void testHashAggregation() throws IOException {
+    assertAggregation("select deptName, sum(score), max(empId), min(score) " +
+        "from employee where empId >= 1000 group by deptName", 10);
+  }
+
+  @Test
+  public final void testHashAggregationWithoutKeys() throws IOException {
+    assertAggregation("select sum(empId), min(empId), max(score) from employee " +
+        "where empId >= 1000", 1);
+  }
+
+  @Test
+  public final void testColumnVector() {
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT8);
+    schema.addColumn("name", Type.TEXT);
+    VectorBatch batch = new VectorBatch(schema, 4);
+
+    Tuple tuple = new VTuple(2);
+    tuple.put(0, DatumFactory.createInt8(10));
+    tuple.put(1, DatumFactory.createText("a"));
+    batch.addRow(tuple);
+    tuple.put(0, NullDatum.get());
+    tuple.put(1, DatumFactory.createText("b"));
+    batch.addRow(tuple);
+    tuple.put(0, DatumFactory.createInt4(30));
+    tuple.put(1, NullDatum.get());
+    batch.addRow(tuple);
+
+    ColumnVector ids = batch.getVector(0);
+    assertFalse(ids.noNulls());
+    assertFalse(ids.isPrimitive());
+    assertEquals(10, ids.getLong(0));
+    assertTrue(ids.isNull(1));
+    assertEquals(DatumFactory.createInt4(30), ids.get(2));
+    // the values are read without datums except nulls
+    assertTrue(ids.hasValue(0));
+    assertFalse(ids.hasValue(1));
+    assertTrue(ids.hasValue(2));
+    assertEquals(30, ids.getLong(2));
+    assertFalse(batch.getVector(1).hasValue(0));
+    assertTrue(batch.getVector(1).get(2) instanceof NullDatum);
+
+    int [] selected = batch.getSelected();
+    selected[0] = 2;
+    batch.setSelectedNum(1);
+    assertEquals(1, batch.size());
+    batch.getRow(batch.getRowId(0), tuple);
+    assertEquals(DatumFactory.createInt4(30), tuple.get(0));
+
+    batch.reset();
+    assertEquals(0, batch.size());
+    assertTrue(ids.noNulls());
+    assertTrue(ids.isPrimitive());
+  }
+}
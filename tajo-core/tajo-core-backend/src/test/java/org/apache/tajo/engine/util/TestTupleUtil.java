@@ -228,4 +228,29 @@ public class TestTupleUtil {
       assertEquals(range, result);
     }
   }
+
+  @Test
+  public void testGetPartitionOfRealKeys() {
+    // real keys sharing an integer part are distributed over partitions
+    Tuple tuple = new VTuple(1);
+    int [] keyIds = new int[] {0};
+    int partNum = 8;
+    for (int seed = 0; seed < 3; seed++) {
+      boolean [] used = new boolean[partNum];
+      for (int i = 0; i < 100; i++) {
+        tuple.put(0, DatumFactory.createFloat8(1.0d + i / 100.0d));
+        used[TupleUtil.getPartition(tuple, keyIds, seed, partNum)] = true;
+      }
+      for (boolean u : used) {
+        assertTrue(u);
+      }
+    }
+
+    // the same values of different integral types belong to the same partition
+    Tuple other = new VTuple(1);
+    tuple.put(0, DatumFactory.createInt4(1 << 20));
+    other.put(0, DatumFactory.createInt8(1 << 20));
+    assertEquals(TupleUtil.getPartition(tuple, keyIds, 1, partNum),
+        TupleUtil.getPartition(other, keyIds, 1, partNum));
+  }
 }
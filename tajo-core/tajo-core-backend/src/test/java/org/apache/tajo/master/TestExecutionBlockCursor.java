@@ -32,7 +32,9 @@ import org.apache.tajo.engine.planner.logical.LogicalNode;
 import org.apache.tajo.engine.planner.logical.LogicalRootNode;
 import org.apache.tajo.storage.StorageManager;
 
-import static org.junit.Assert.assertEquals;
+import java.util.List;
+
+import static org.junit.Assert.*;
 
 public class TestExecutionBlockCursor {
   private static TajoTestingCluster util;
@@ -95,4 +97,42 @@ public class TestExecutionBlockCursor {
     // 4 input relations, 4 join, and 1 projection = 10 execution blocks
     assertEquals(10, count);
   }
+
+  @Test
+  public void testNextRunnableBlocks() throws Exception {
+    PlanningContext context = analyzer.parse(
+        "select s_acctbal, s_name, n_name, p_partkey, p_mfgr, s_address, s_phone, s_comment, ps_supplycost, " +
+            "r_name, p_type, p_size " +
+            "from region join nation on n_regionkey = r_regionkey and r_name = 'AMERICA' " +
+            "join supplier on s_nationkey = n_nationkey " +
+            "join partsupp on s_suppkey = ps_suppkey " +
+            "join part on p_partkey = ps_partkey and p_type like '%BRASS' and p_size = 15");
+    LogicalNode logicalPlan = logicalPlanner.createPlan(context);
+    MasterPlan plan = planner.build(QueryIdFactory.newQueryId(), (LogicalRootNode) logicalPlan);
+
+    ExecutionBlockCursor cursor = new ExecutionBlockCursor(plan);
+
+    int count = 0;
+    int rounds = 0;
+    List<ExecutionBlock> runnable;
+    while (!(runnable = cursor.nextRunnableBlocks()).isEmpty()) {
+      rounds++;
+      if (rounds == 1) {
+        // the scans of all base relations are independent of each other.
+        assertTrue(runnable.size() > 1);
+      }
+      for (ExecutionBlock block : runnable) {
+        for (ExecutionBlock child : block.getChildBlocks()) {
+          assertTrue(cursor.isCompleted(child.getId()));
+        }
+        assertFalse(cursor.isFinished());
+        cursor.complete(block.getId());
+        count++;
+      }
+    }
+
+    assertTrue(cursor.isFinished());
+    assertEquals(10, count);
+    assertTrue(rounds < count);
+  }
 }
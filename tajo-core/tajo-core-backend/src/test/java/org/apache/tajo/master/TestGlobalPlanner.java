@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.master;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.event.AsyncDispatcher;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.apache.tajo.QueryIdFactory;
+import org.apache.tajo.TajoTestingCluster;
+import org.apache.tajo.benchmark.TPCH;
+import org.apache.tajo.catalog.*;
+import org.apache.tajo.catalog.proto.CatalogProtos;
+import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.engine.parser.QueryAnalyzer;
+import org.apache.tajo.engine.planner.LogicalPlanner;
+import org.apache.tajo.engine.planner.PlanningContext;
+import org.apache.tajo.engine.planner.global.MasterPlan;
+import org.apache.tajo.engine.planner.logical.LogicalNode;
+import org.apache.tajo.engine.planner.logical.LogicalRootNode;
+import org.apache.tajo.engine.planner.logical.ScanNode;
+import org.apache.tajo.storage.StorageManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TestGlobalPlanner {
+  private static TajoTestingCluster util;
+  private static TajoConf conf;
+  private static CatalogService catalog;
+  private static GlobalPlanner planner;
+  private static QueryAnalyzer analyzer;
+  private static LogicalPlanner logicalPlanner;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    util = new TajoTestingCluster();
+    util.startCatalogCluster();
+
+    conf = util.getConfiguration();
+    catalog = util.getMiniCatalogCluster().getCatalog();
+    TPCH tpch = new TPCH();
+    tpch.loadSchemas();
+    tpch.loadOutSchema();
+    for (String table : tpch.getTableNames()) {
+      TableMeta m = CatalogUtil.newTableMeta(tpch.getSchema(table), CatalogProtos.StoreType.CSV);
+      TableStat stat = new TableStat();
+      // only lineitem and orders are larger than the broadcast threshold
+      if (table.equals("lineitem") || table.equals("orders")) {
+        stat.setNumBytes(10L * 1024 * 1048576);
+      } else {
+        stat.setNumBytes(1048576);
+      }
+      m.setStat(stat);
+      TableDesc d = CatalogUtil.newTableDesc(table, m, new Path("file:///"));
+      catalog.addTable(d);
+    }
+
+    analyzer = new QueryAnalyzer(catalog);
+    logicalPlanner = new LogicalPlanner(catalog);
+
+    StorageManager sm  = new StorageManager(conf);
+    AsyncDispatcher dispatcher = new AsyncDispatcher();
+    dispatcher.init(conf);
+    dispatcher.start();
+    planner = new GlobalPlanner(conf, catalog, sm, dispatcher.getEventHandler());
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    util.shutdownCatalogCluster();
+  }
+
+  private static MasterPlan buildPlan(String query) throws Exception {
+    PlanningContext context = analyzer.parse(query);
+    LogicalNode logicalPlan = logicalPlanner.createPlan(context);
+    return planner.build(QueryIdFactory.newQueryId(), (LogicalRootNode) logicalPlan);
+  }
+
+  private static ExecutionBlock findJoinBlock(ExecutionBlock block) {
+    if (block.hasJoin()) {
+      return block;
+    }
+    for (ExecutionBlock child : block.getChildBlocks()) {
+      ExecutionBlock found = findJoinBlock(child);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testStarSchemaBroadcastJoin() throws Exception {
+    MasterPlan plan = buildPlan(
+        "select c_name, n_name, r_name, o_totalprice from orders " +
+            "join customer on o_custkey = c_custkey " +
+            "join nation on c_nationkey = n_nationkey " +
+            "join region on n_regionkey = r_regionkey");
+
+    // all joins are executed in the leaf block scanning orders
+    ExecutionBlock join = findJoinBlock(plan.getRoot());
+    assertNotNull(join);
+    assertTrue(join.isLeafBlock());
+
+    ScanNode [] scans = join.getScanNodes();
+    assertEquals(4, scans.length);
+    Set<String> broadcasts = new HashSet<String>();
+    for (ScanNode scan : scans) {
+      if (scan.isBroadcast()) {
+        broadcasts.add(scan.getTableId());
+      }
+    }
+    assertEquals(3, broadcasts.size());
+    assertFalse(broadcasts.contains("orders"));
+  }
+
+  @Test
+  public void testRepartitionJoin() throws Exception {
+    // both relations are larger than the broadcast threshold
+    MasterPlan plan = buildPlan(
+        "select l_orderkey, o_totalprice from lineitem join orders on l_orderkey = o_orderkey");
+
+    ExecutionBlock join = findJoinBlock(plan.getRoot());
+    assertNotNull(join);
+    assertEquals(2, join.getChildBlocks().size());
+    for (ScanNode scan : join.getScanNodes()) {
+      assertFalse(scan.isBroadcast());
+    }
+    for (ExecutionBlock child : join.getChildBlocks()) {
+      assertEquals(ExecutionBlock.PartitionType.HASH, child.getPartitionType());
+    }
+  }
+}
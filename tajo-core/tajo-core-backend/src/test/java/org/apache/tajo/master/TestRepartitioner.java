@@ -31,6 +31,7 @@ import java.net.URI;
 import java.util.*;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 public class TestRepartitioner {
   @Test
@@ -63,6 +64,77 @@ public class TestRepartitioner {
     }
   }
 
+  @Test
+  public void testBalanceByVolume() {
+    long [] volumes = {10, 70, 20, 30, 40, 50, 60};
+    int [] assigned = Repartitioner.balanceByVolume(volumes, null, 3);
+
+    long [] loads = new long[3];
+    for (int i = 0; i < volumes.length; i++) {
+      loads[assigned[i]] += volumes[i];
+    }
+    for (long load : loads) {
+      assertTrue(load >= 90 && load <= 100);
+    }
+
+    // unknown volumes are distributed in a round robin manner
+    assigned = Repartitioner.balanceByVolume(new long[6], null, 3);
+    int [] itemNums = new int[3];
+    for (int task : assigned) {
+      itemNums[task]++;
+    }
+    for (int itemNum : itemNums) {
+      assertEquals(2, itemNum);
+    }
+
+    // the items of the same group are assigned to different tasks
+    assigned = Repartitioner.balanceByVolume(new long[] {50, 50, 1, 1}, new int[] {1, 1, 2, 3}, 2);
+    assertTrue(assigned[0] != assigned[1]);
+  }
+
+  @Test
+  public void testSplitJoinPartition() {
+    String hostName = "tajo1";
+    int port = 1234;
+    int partitionId = 3;
+
+    List<QueryUnit.IntermediateEntry> outer = TUtil.newList();
+    for (int i = 0; i < 10; i++) {
+      QueryUnit.IntermediateEntry entry =
+          new QueryUnit.IntermediateEntry(i, 0, partitionId, hostName, port);
+      entry.setVolume(100);
+      outer.add(entry);
+    }
+    List<QueryUnit.IntermediateEntry> inner = TUtil.newList();
+    inner.add(new QueryUnit.IntermediateEntry(0, 0, partitionId, hostName, port));
+
+    Map<String, List<QueryUnit.IntermediateEntry>> partition =
+        new HashMap<String, List<QueryUnit.IntermediateEntry>>();
+    partition.put("outer", outer);
+    partition.put("inner", inner);
+
+    // not skewed
+    assertEquals(1, Repartitioner.splitJoinPartition(partition, "outer", 1000, 8).size());
+    // no splittable relation
+    assertEquals(1, Repartitioner.splitJoinPartition(partition, null, 100, 8).size());
+
+    List<Map<String, List<QueryUnit.IntermediateEntry>>> units =
+        Repartitioner.splitJoinPartition(partition, "outer", 250, 8);
+    assertEquals(4, units.size());
+    Set<Integer> taskIds = new HashSet<Integer>();
+    for (Map<String, List<QueryUnit.IntermediateEntry>> unit : units) {
+      assertEquals(inner, unit.get("inner"));
+      assertTrue(unit.get("outer").size() <= 3);
+      for (QueryUnit.IntermediateEntry entry : unit.get("outer")) {
+        taskIds.add(entry.getTaskId());
+      }
+    }
+    assertEquals(10, taskIds.size());
+
+    // the number of units is limited
+    assertEquals(2, Repartitioner.splitJoinPartition(partition, "outer", 100, 2).size());
+  }
+
   private List<String> splitMaps(List<String> mapq) {
     if (null == mapq) {
       return null;
@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.master;
+
+import org.apache.hadoop.yarn.event.Event;
+import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.tajo.QueryIdFactory;
+import org.apache.tajo.QueryUnitAttemptId;
+import org.apache.tajo.QueryUnitId;
+import org.apache.tajo.SubQueryId;
+import org.apache.tajo.TajoProtos.TaskAttemptState;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.engine.MasterWorkerProtos.TaskCompletionReport;
+import org.apache.tajo.engine.MasterWorkerProtos.TaskStatusProto;
+import org.apache.tajo.master.event.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestSpeculator {
+
+  @Test
+  public void testEstimateRemainingTime() {
+    assertEquals(Long.MAX_VALUE, Speculator.estimateRemainingTime(1000, 0.0f));
+    assertEquals(1000, Speculator.estimateRemainingTime(1000, 0.5f));
+    assertEquals(3000, Speculator.estimateRemainingTime(1000, 0.25f));
+    assertEquals(0, Speculator.estimateRemainingTime(1000, 1.0f));
+  }
+
+  @Test
+  public void testIsStraggler() {
+    // not slow enough yet
+    assertFalse(Speculator.isStraggler(1500, Long.MAX_VALUE, 1000, 2.0f));
+    // slow, and far from completion
+    assertTrue(Speculator.isStraggler(3000, Long.MAX_VALUE, 1000, 2.0f));
+    assertTrue(Speculator.isStraggler(3000, 3000, 1000, 2.0f));
+    // slow, but a new attempt cannot finish earlier
+    assertFalse(Speculator.isStraggler(3000, 500, 1000, 2.0f));
+  }
+
+  @Test
+  public void testSpeculateStraggler() {
+    SubQueryId subQueryId = QueryIdFactory.newSubQueryId(QueryIdFactory.newQueryId());
+    Dispatcher dispatcher = new Dispatcher();
+    QueryUnit [] tasks = new QueryUnit[4];
+    for (int i = 0; i < tasks.length; i++) {
+      tasks[i] = new QueryUnit(QueryIdFactory.newQueryUnitId(subQueryId, i), false, dispatcher);
+      dispatcher.addTask(tasks[i]);
+      dispatcher.handle(new TaskEvent(tasks[i].getId(), TaskEventType.T_SCHEDULE));
+      launch(dispatcher, tasks[i].getLastAttempt());
+    }
+
+    // all tasks but the last one succeed, and the last one has made little progress.
+    for (int i = 0; i < tasks.length - 1; i++) {
+      complete(dispatcher, tasks[i].getLastAttempt());
+    }
+    QueryUnit straggler = tasks[tasks.length - 1];
+    QueryUnitAttempt first = straggler.getLastAttempt();
+    dispatcher.handle(new TaskAttemptStatusUpdateEvent(first.getId(),
+        newStatus(first.getId(), 0.1f)));
+    assertEquals(0.1f, first.getProgress(), 0.0f);
+
+    Speculator speculator = new Speculator(new TajoConf(), null, dispatcher);
+    long now = first.getLaunchTime() + 10000;
+    speculator.speculate(tasks, now);
+    assertTrue(straggler.isSpeculated());
+    assertEquals(2, straggler.getActiveAttempts().size());
+    QueryUnitAttempt speculative = straggler.getLastAttempt();
+    assertNotSame(first, speculative);
+    assertEquals(TaskAttemptState.TA_UNASSIGNED, speculative.getState());
+
+    // a task is speculated only once
+    speculator.speculate(tasks, now);
+    assertEquals(2, straggler.getActiveAttempts().size());
+
+    // the speculative attempt wins, and the first attempt is killed.
+    launch(dispatcher, speculative);
+    complete(dispatcher, speculative);
+    assertEquals(TaskState.SUCCEEDED, straggler.getState());
+    assertSame(speculative, straggler.getSuccessfulAttempt());
+    assertEquals(TaskAttemptState.TA_KILLED, first.getState());
+    assertTrue(straggler.getActiveAttempts().isEmpty());
+
+    // the late report of the loser is ignored.
+    complete(dispatcher, first);
+    assertEquals(TaskAttemptState.TA_KILLED, first.getState());
+    assertSame(speculative, straggler.getSuccessfulAttempt());
+  }
+
+  private static void launch(Dispatcher dispatcher, QueryUnitAttempt attempt) {
+    dispatcher.handle(new TaskAttemptAssignedEvent(attempt.getId(), null, "localhost", 0));
+    dispatcher.handle(new TaskAttemptStatusUpdateEvent(attempt.getId(),
+        newStatus(attempt.getId(), 0.0f)));
+    assertEquals(TaskAttemptState.TA_RUNNING, attempt.getState());
+  }
+
+  private static void complete(Dispatcher dispatcher, QueryUnitAttempt attempt) {
+    dispatcher.handle(new TaskCompletionEvent(TaskCompletionReport.newBuilder()
+        .setId(attempt.getId().getProto()).build()));
+  }
+
+  private static TaskStatusProto newStatus(QueryUnitAttemptId id, float progress) {
+    return TaskStatusProto.newBuilder()
+        .setId(id.getProto())
+        .setWorkerName("localhost")
+        .setProgress(progress)
+        .setState(TaskAttemptState.TA_RUNNING)
+        .build();
+  }
+
+  /**
+   * It delivers the events of tasks and attempts in order in the calling thread,
+   * and it drops the other events.
+   */
+  private static class Dispatcher implements EventHandler<Event> {
+    private final Map<QueryUnitId, QueryUnit> tasks = new HashMap<QueryUnitId, QueryUnit>();
+    private final LinkedList<Event> queue = new LinkedList<Event>();
+    private boolean dispatching = false;
+
+    void addTask(QueryUnit task) {
+      tasks.put(task.getId(), task);
+    }
+
+    @Override
+    public void handle(Event event) {
+      queue.add(event);
+      if (dispatching) {
+        return;
+      }
+      dispatching = true;
+      try {
+        while (!queue.isEmpty()) {
+          dispatch(queue.removeFirst());
+        }
+      } finally {
+        dispatching = false;
+      }
+    }
+
+    private void dispatch(Event event) {
+      if (event instanceof TaskEvent) {
+        TaskEvent taskEvent = (TaskEvent) event;
+        tasks.get(taskEvent.getTaskId()).handle(taskEvent);
+      } else if (event instanceof TaskAttemptEvent) {
+        QueryUnitAttemptId attemptId = ((TaskAttemptEvent) event).getTaskAttemptId();
+        tasks.get(attemptId.getQueryUnitId()).getAttempt(attemptId)
+            .handle((TaskAttemptEvent) event);
+      }
+    }
+  }
+}
@@ -35,6 +35,7 @@ import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
 import org.apache.tajo.catalog.proto.CatalogProtos.TableProto;
 import org.apache.tajo.catalog.statistics.TableStat;
 import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
 import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.datum.Datum;
 import org.apache.tajo.datum.DatumFactory;
@@ -43,7 +44,7 @@ import org.apache.tajo.util.FileUtil;
 import java.io.IOException;
 import java.util.Set;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class TestRowFile {
   private TajoTestingCluster util;
@@ -158,4 +159,87 @@ public class TestRowFile {
     }
     assertEquals(tupleNum, tupleCnt);
   }
+
+  @Test
+  public void testZoneMap() throws IOException {
+    TajoConf conf = new TajoConf(this.conf);
+    conf.setInt(ConfVars.ROWFILE_ZONEMAP_BLOCK_SIZE.varname, 4096);
+
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("description", Type.TEXT);
+
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.ROWFILE);
+    Path dataPath = new Path("hdfs:///testZoneMap/data/test.tbl");
+    FileSystem fs = dataPath.getFileSystem(conf);
+    fs.mkdirs(dataPath.getParent());
+
+    Appender appender = StorageManager.getAppender(conf, meta, dataPath);
+    appender.init();
+    int tupleNum = 10000;
+    Tuple tuple = new VTuple(2);
+    for (int i = 0; i < tupleNum; i++) {
+      tuple.put(0, DatumFactory.createInt4(i));
+      tuple.put(1, DatumFactory.createText("abcdefghijklmnopqrstuvwxyz"));
+      appender.addTuple(tuple);
+    }
+    appender.close();
+
+    FileStatus file = fs.getFileStatus(dataPath);
+    ZoneMap zoneMap = ZoneMap.read(fs, dataPath);
+    assertNotNull(zoneMap);
+    assertTrue(zoneMap.getBlockNum() > 1);
+    assertTrue(zoneMap.getDataLength() < file.getLen());
+    long numRows = 0;
+    for (int i = 0; i < zoneMap.getBlockNum(); i++) {
+      TableStat stat = zoneMap.getStat(i);
+      assertEquals(DatumFactory.createInt4((int) numRows),
+          stat.getColumnStats().get(0).getMinValue());
+      numRows += stat.getNumRows();
+      assertEquals(DatumFactory.createInt4((int) numRows - 1),
+          stat.getColumnStats().get(0).getMaxValue());
+    }
+    assertEquals(tupleNum, numRows);
+
+    // without any search condition, all rows are read and the footer is excluded.
+    Fragment whole = new Fragment("test.tbl", dataPath, meta, 0, file.getLen(), null);
+    Scanner scanner = new RowFile.RowFileScanner(conf, meta, whole);
+    scanner.init();
+    int rowNum = 0;
+    while ((tuple = scanner.next()) != null) {
+      assertEquals(rowNum++, tuple.get(0).asInt4());
+    }
+    scanner.close();
+    assertEquals(tupleNum, rowNum);
+
+    SearchCondition condition = new SearchCondition(schema);
+    condition.addTerm(0, SearchCondition.Op.GEQ, DatumFactory.createInt4(9000));
+
+    // every split returns only the rows of the blocks which may satisfy the condition.
+    Set<Integer> idSet = Sets.newHashSet();
+    long fileStart = 0;
+    long fileLen = file.getLen() / 13;
+    for (int i = 0; i < 13; i++) {
+      if (i == 12) {
+        fileLen = file.getLen() - fileStart;
+      }
+      Fragment fragment = new Fragment("test.tbl", dataPath, meta, fileStart, fileLen, null);
+      scanner = new RowFile.RowFileScanner(conf, meta, fragment);
+      scanner.setSearchCondition(condition);
+      scanner.init();
+      while ((tuple = scanner.next()) != null) {
+        int id = tuple.get(0).asInt4();
+        assertTrue(idSet.add(id));
+        if (condition.accept(tuple)) {
+          assertTrue(id >= 9000);
+        }
+      }
+      scanner.close();
+      fileStart += fileLen;
+    }
+    for (int i = 9000; i < tupleNum; i++) {
+      assertTrue(idSet.contains(i));
+    }
+    assertTrue(idSet.size() < tupleNum);
+  }
 }
@@ -29,10 +29,23 @@ import org.apache.tajo.QueryConf;
 import org.apache.tajo.QueryId;
 import org.apache.tajo.SubQueryId;
 import org.apache.tajo.TestQueryUnitId;
+import org.apache.tajo.catalog.*;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.conf.TajoConf.ConfVars;
+import org.apache.tajo.engine.parser.QueryBlock.FromTable;
+import org.apache.tajo.engine.planner.JoinType;
+import org.apache.tajo.engine.planner.logical.GroupbyNode;
+import org.apache.tajo.engine.planner.logical.JoinNode;
+import org.apache.tajo.engine.planner.logical.ScanNode;
+import org.apache.tajo.engine.planner.logical.SortNode;
 import org.apache.tajo.ipc.MasterWorkerProtocol.MasterWorkerProtocolService;
 import org.apache.tajo.rpc.ProtoAsyncRpcClient;
 import org.apache.tajo.util.TajoIdUtils;
+import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -65,4 +78,49 @@ public class TaskRunnerTest {
     runner.start();
     runner.stop();
   }
+
+  @Test
+  public void testGetSlotNum() {
+    TajoConf conf = new TajoConf();
+    long mb = 1048576;
+    conf.setIntVar(ConfVars.TASKRUNNER_SLOT_MEMORY, 256);
+    // bounded by cores
+    assertEquals(4, TaskRunner.getSlotNum(conf, 4, 4096 * mb));
+    // bounded by memory
+    assertEquals(3, TaskRunner.getSlotNum(conf, 8, 800 * mb));
+    // at least one slot
+    assertEquals(1, TaskRunner.getSlotNum(conf, 8, 100 * mb));
+
+    conf.setIntVar(ConfVars.TASKRUNNER_SLOTS, 6);
+    assertEquals(6, TaskRunner.getSlotNum(conf, 2, 100 * mb));
+  }
+
+  @Test
+  public void testLimitOperatorMemory() {
+    Schema schema = new Schema();
+    schema.addColumn("t.id", Type.INT4);
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+    ScanNode scan = new ScanNode(new FromTable(new TableDescImpl("t", meta, new Path("file:///"))));
+    long mb = 1048576;
+
+    // a plan without any memory-bound operator keeps the budgets
+    TajoConf conf = new TajoConf();
+    conf.setIntVar(ConfVars.EXT_SORT_BUFFER_SIZE, 200);
+    conf.setIntVar(ConfVars.HASH_JOIN_MEMORY, 64);
+    conf.setIntVar(ConfVars.HASH_AGGREGATION_MEMORY, 256);
+    TaskRunner.limitOperatorMemory(conf, scan, 300 * mb);
+    assertEquals(200, conf.getIntVar(ConfVars.EXT_SORT_BUFFER_SIZE));
+    assertEquals(256, conf.getIntVar(ConfVars.HASH_AGGREGATION_MEMORY));
+
+    // a sort, a join and an aggregation share the memory of a slot
+    JoinNode join = new JoinNode(JoinType.INNER, scan, scan);
+    GroupbyNode groupby = new GroupbyNode(schema.toArray());
+    groupby.setSubNode(join);
+    SortNode sort = new SortNode(new SortSpec[] {new SortSpec(schema.getColumn(0))});
+    sort.setSubNode(groupby);
+    TaskRunner.limitOperatorMemory(conf, sort, 300 * mb);
+    assertEquals(100, conf.getIntVar(ConfVars.EXT_SORT_BUFFER_SIZE));
+    assertEquals(64, conf.getIntVar(ConfVars.HASH_JOIN_MEMORY));
+    assertEquals(100, conf.getIntVar(ConfVars.HASH_AGGREGATION_MEMORY));
+  }
 }
@@ -21,6 +21,7 @@ package org.apache.tajo.worker;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import com.google.common.collect.Lists;
 import org.apache.hadoop.net.NetUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,9 +36,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestFetcher {
   private String TEST_DATA = "target/test-data/TestFetcher";
@@ -79,4 +85,107 @@ public class TestFetcher {
     FileStatus outStatus = fs.getFileStatus(new Path(OUTPUT_DIR, "data"));
     assertEquals(inStatus.getLen(), outStatus.getLen());
   }
+
+  @Test
+  public void testSharedClient() throws Exception {
+    Random rnd = new Random();
+    int fileNum = 10;
+    for (int i = 0; i < fileNum; i++) {
+      FileWriter writer = new FileWriter(INPUT_DIR + "data" + i);
+      for (int j = 0; j < 1000 * (i + 1); j++) {
+        writer.write("" + rnd.nextInt());
+      }
+      writer.close();
+    }
+
+    DataRetriever ret = new DirectoryRetriever(INPUT_DIR);
+    HttpDataServer server = new HttpDataServer(
+        NetUtils.createSocketAddr("127.0.0.1:0"), ret);
+    server.start();
+    InetSocketAddress addr = server.getBindAddress();
+    String base = "http://127.0.0.1:" + addr.getPort() + "/";
+
+    FetchClient client = new FetchClient(2, 1);
+    try {
+      // sequential fetches reuse one keep-alive connection
+      for (int i = 0; i < 3; i++) {
+        Fetcher fetcher = new Fetcher(URI.create(base + "data" + i),
+            new File(OUTPUT_DIR + "seq" + i), client);
+        fetcher.get();
+      }
+      assertEquals(1, client.getOpenedConnectionNum());
+
+      // all requests are sent at once, and they are pipelined
+      List<Future<File>> futures = Lists.newArrayList();
+      for (int i = 0; i < fileNum; i++) {
+        futures.add(client.fetch(URI.create(base + "data" + i),
+            new File(OUTPUT_DIR + "data" + i)));
+      }
+      for (Future<File> future : futures) {
+        future.get();
+      }
+      assertTrue(client.getOpenedConnectionNum() <= 2);
+      assertEquals(3 + fileNum, client.getRequestNum());
+    } finally {
+      client.close();
+      server.stop();
+    }
+
+    FileSystem fs = FileSystem.getLocal(new TajoConf());
+    for (int i = 0; i < fileNum; i++) {
+      FileStatus inStatus = fs.getFileStatus(new Path(INPUT_DIR, "data" + i));
+      FileStatus outStatus = fs.getFileStatus(new Path(OUTPUT_DIR, "data" + i));
+      assertEquals(inStatus.getLen(), outStatus.getLen());
+    }
+  }
+
+  @Test
+  public void testPipelinedRequestsAfterError() throws Exception {
+    int fileNum = 3;
+    for (int i = 0; i < fileNum; i++) {
+      FileWriter writer = new FileWriter(INPUT_DIR + "data" + i);
+      for (int j = 0; j < 1000; j++) {
+        writer.write("" + j);
+      }
+      writer.close();
+    }
+
+    DataRetriever ret = new DirectoryRetriever(INPUT_DIR);
+    HttpDataServer server = new HttpDataServer(
+        NetUtils.createSocketAddr("127.0.0.1:0"), ret);
+    server.start();
+    InetSocketAddress addr = server.getBindAddress();
+    String base = "http://127.0.0.1:" + addr.getPort() + "/";
+
+    FetchClient client = new FetchClient(1, 1);
+    try {
+      // the server closes the connection after the error response, and
+      // the requests pipelined behind it are sent again
+      Future<File> missing = client.fetch(URI.create(base + "missing"),
+          new File(OUTPUT_DIR + "missing"));
+      List<Future<File>> futures = Lists.newArrayList();
+      for (int i = 0; i < fileNum; i++) {
+        futures.add(client.fetch(URI.create(base + "data" + i),
+            new File(OUTPUT_DIR + "data" + i)));
+      }
+      for (Future<File> future : futures) {
+        future.get();
+      }
+      try {
+        missing.get();
+        fail("The fetch of a missing file must fail");
+      } catch (ExecutionException e) {
+        // expected
+      }
+      assertEquals(1 + fileNum, client.getRequestNum());
+    } finally {
+      client.close();
+      server.stop();
+    }
+
+    for (int i = 0; i < fileNum; i++) {
+      assertEquals(new File(INPUT_DIR + "data" + i).length(),
+          new File(OUTPUT_DIR + "data" + i).length());
+    }
+  }
 }
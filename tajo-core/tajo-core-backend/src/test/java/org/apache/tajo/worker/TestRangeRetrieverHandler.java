@@ -188,7 +188,7 @@ public class TestRangeRetrieverHandler {
 
     // The below is for testing RangeRetrieverHandler.
     RangeRetrieverHandler handler = new RangeRetrieverHandler(
-        new File((new Path(testDir, "output")).toUri()), keySchema, comp);
+        conf, new File((new Path(testDir, "output")).toUri()), keySchema, comp);
 
     List<Long []> offsets = new ArrayList<Long []>();
 
@@ -299,7 +299,7 @@ public class TestRangeRetrieverHandler {
 
     // The below is for testing RangeRetrieverHandler.
     RangeRetrieverHandler handler = new RangeRetrieverHandler(
-        dataFile, keySchema, comp);
+        conf, dataFile, keySchema, comp);
 
     List<Long []> offsets = new ArrayList<Long []>();
 
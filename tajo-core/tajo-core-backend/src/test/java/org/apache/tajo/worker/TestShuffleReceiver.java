@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.tajo.worker;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.tajo.QueryIdFactory;
+import org.apache.tajo.QueryUnitAttemptId;
+import org.apache.tajo.SubQueryId;
+import org.apache.tajo.TaskAttemptContext;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.engine.planner.logical.extended.PipeType;
+import org.apache.tajo.engine.planner.logical.extended.RepartitionType;
+import org.apache.tajo.engine.planner.logical.extended.SendNode;
+import org.apache.tajo.engine.planner.physical.HashPartitioner;
+import org.apache.tajo.engine.planner.physical.PhysicalExec;
+import org.apache.tajo.engine.planner.physical.SendExec;
+import org.apache.tajo.storage.Fragment;
+import org.apache.tajo.storage.RawFile;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+import static org.junit.Assert.*;
+
+public class TestShuffleReceiver {
+  private static final String TEST_DATA = "target/test-data/TestShuffleReceiver";
+  private static final int TUPLE_NUM = 5000;
+
+  private TajoConf conf;
+  private Schema schema;
+  private TableMeta meta;
+  private SubQueryId subQueryId;
+  private ShuffleReceiver receiver;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new TajoConf();
+    CommonTestingUtil.getTestDir(TEST_DATA);
+
+    schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    meta = CatalogUtil.newTableMeta(schema, StoreType.RAW);
+    subQueryId = QueryIdFactory.newSubQueryId(QueryIdFactory.newQueryId());
+
+    receiver = new ShuffleReceiver("localhost");
+    receiver.start();
+  }
+
+  @After
+  public void tearDown() {
+    receiver.close();
+  }
+
+  private QueryUnitAttemptId newAttemptId(int taskId, int attemptId) {
+    return QueryIdFactory.newQueryUnitAttemptId(
+        QueryIdFactory.newQueryUnitId(subQueryId, taskId), attemptId);
+  }
+
+  /**
+   * It gives the rows whose ids are in [start, start + TUPLE_NUM).
+   */
+  private PhysicalExec newRows(TaskAttemptContext ctx, final int start) {
+    return new PhysicalExec(ctx, schema, schema) {
+      int i = start;
+
+      public void init() {
+      }
+
+      public Tuple next() {
+        if (i == start + TUPLE_NUM) {
+          return null;
+        }
+        Tuple tuple = new VTuple(2);
+        tuple.put(0, DatumFactory.createInt4(i));
+        tuple.put(1, DatumFactory.createText("name" + i));
+        i++;
+        return tuple;
+      }
+
+      public void rescan() {
+      }
+
+      public void close() {
+      }
+    };
+  }
+
+  private TaskAttemptContext newContext(QueryUnitAttemptId attemptId) {
+    return new TaskAttemptContext(conf, attemptId, new Fragment[0],
+        new Path(TEST_DATA, attemptId.toString()));
+  }
+
+  private int push(URI uri, byte [] data, boolean complete) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setChunkedStreamingMode(1024);
+    OutputStream out = connection.getOutputStream();
+    out.write(data);
+    if (!complete) {
+      out.flush();
+      connection.disconnect();
+      return -1;
+    }
+    out.close();
+    return connection.getResponseCode();
+  }
+
+  private long scanIdSum(ShuffleStream stream, int expectedNum,
+                         HashPartitioner partitioner, int partition) throws IOException {
+    RawFile.RawFileScanner scanner = new RawFile.RawFileScanner(conf, meta, stream);
+    scanner.init();
+    long sum = 0;
+    int num = 0;
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      assertEquals("name" + tuple.getInt(0).asInt4(), tuple.getString(1).asChars());
+      if (partitioner != null) {
+        assertEquals(partition, partitioner.getPartition(tuple));
+      }
+      sum += tuple.getInt(0).asInt4();
+      num++;
+    }
+    scanner.close();
+    if (expectedNum >= 0) {
+      assertEquals(expectedNum, num);
+    }
+    return sum;
+  }
+
+  @Test
+  public void testPushPartitions() throws Exception {
+    int consumerNum = 2;
+    int producerNum = 3;
+
+    SendNode send = new SendNode(PipeType.PUSH, RepartitionType.HASH);
+    send.setPartitionKeys(new Column[] {schema.getColumn("id")}, consumerNum);
+    send.setInSchema(schema);
+    send.setOutSchema(schema);
+
+    ShuffleStream [] streams = new ShuffleStream[consumerNum];
+    for (int i = 0; i < consumerNum; i++) {
+      streams[i] = new ShuffleStream(new File(TEST_DATA, "spill" + i), 16 * 1024);
+      send.putDestURI(i, receiver.register(newAttemptId(i, 0), "table1", streams[i],
+          producerNum));
+    }
+    assertEquals(consumerNum, receiver.getRegisteredNum());
+
+    for (int i = 0; i < producerNum; i++) {
+      TaskAttemptContext ctx = newContext(newAttemptId(i, 0));
+      SendExec exec = new SendExec(ctx, send, newRows(ctx, i * TUPLE_NUM));
+      exec.init();
+      assertNull(exec.next());
+      exec.close();
+      assertEquals(TUPLE_NUM, ctx.getResultStats().getNumRows().longValue());
+    }
+
+    // every row is received by the consumer of its partition
+    HashPartitioner partitioner = new HashPartitioner(new int [] {0}, consumerNum);
+    int total = TUPLE_NUM * producerNum;
+    long sum = 0;
+    for (int i = 0; i < consumerNum; i++) {
+      sum += scanIdSum(streams[i], -1, partitioner, i);
+      receiver.unregister(newAttemptId(i, 0), "table1");
+    }
+    assertEquals((long) total * (total - 1) / 2, sum);
+    assertEquals(0, receiver.getRegisteredNum());
+  }
+
+  @Test
+  public void testRetryAndConflict() throws Exception {
+    ShuffleStream stream = new ShuffleStream(new File(TEST_DATA, "spill"), 1024 * 1024);
+    URI uri = receiver.register(newAttemptId(0, 0), "table1", stream, 1);
+
+    SendNode send = new SendNode(PipeType.PUSH, RepartitionType.NONE);
+    send.setInSchema(schema);
+    send.setOutSchema(schema);
+    send.putDestURI(0, uri);
+
+    // the data of a broken push are discarded for another attempt
+    push(URI.create(uri + "&src=0_0"), new byte[100], false);
+
+    TaskAttemptContext ctx = newContext(newAttemptId(0, 1));
+    SendExec exec = new SendExec(ctx, send, newRows(ctx, 0));
+    exec.init();
+    assertNull(exec.next());
+    exec.close();
+
+    // the data of a producer are received only once
+    assertEquals(HttpURLConnection.HTTP_CONFLICT,
+        push(URI.create(uri + "&src=0_2"), new byte[100], true));
+    assertEquals(HttpURLConnection.HTTP_NOT_FOUND,
+        push(URI.create(uri + "x&src=0_2"), new byte[100], true));
+
+    assertEquals((long) TUPLE_NUM * (TUPLE_NUM - 1) / 2,
+        scanIdSum(stream, TUPLE_NUM, null, 0));
+  }
+}
@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.worker;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.net.NetUtils;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.storage.Appender;
+import org.apache.tajo.storage.RawFile;
+import org.apache.tajo.storage.StorageManager;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.VTuple;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.apache.tajo.worker.dataserver.HttpDataServer;
+import org.apache.tajo.worker.dataserver.retriever.DirectoryRetriever;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class TestShuffleStream {
+  private static final String TEST_DATA = "target/test-data/TestShuffleStream";
+  private static final int TUPLE_NUM = 5000;
+
+  private TajoConf conf;
+  private TableMeta meta;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new TajoConf();
+    CommonTestingUtil.getTestDir(TEST_DATA);
+
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    meta = CatalogUtil.newTableMeta(schema, StoreType.RAW);
+  }
+
+  private File writeRawFile(String name, int start) throws IOException {
+    File file = new File(TEST_DATA, name);
+    file.getParentFile().mkdirs();
+    Appender appender = StorageManager.getAppender(conf, meta,
+        new Path(file.toURI()));
+    appender.init();
+    Tuple tuple = new VTuple(2);
+    for (int i = start; i < start + TUPLE_NUM; i++) {
+      tuple.put(0, DatumFactory.createInt4(i));
+      tuple.put(1, DatumFactory.createText("name" + i));
+      appender.addTuple(tuple);
+    }
+    appender.close();
+    return file;
+  }
+
+  private static byte [] readBytes(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    byte [] bytes = new byte[(int) raf.length()];
+    raf.readFully(bytes);
+    raf.close();
+    return bytes;
+  }
+
+  private long scanIdSum(ShuffleStream stream, int expectedNum) throws IOException {
+    RawFile.RawFileScanner scanner = new RawFile.RawFileScanner(conf, meta, stream);
+    scanner.init();
+    long sum = 0;
+    int num = 0;
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      assertEquals("name" + tuple.getInt(0).asInt4(), tuple.getString(1).asChars());
+      sum += tuple.getInt(0).asInt4();
+      num++;
+    }
+    scanner.close();
+    assertEquals(expectedNum, num);
+    return sum;
+  }
+
+  @Test
+  public void testInterleavedSegmentsWithSpill() throws Exception {
+    final byte [][] data = new byte[3][];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = readBytes(writeRawFile("data" + i, i * TUPLE_NUM));
+    }
+
+    // a small budget makes most of the data spilled
+    final ShuffleStream stream = new ShuffleStream(new File(TEST_DATA, "spill"), 16 * 1024);
+    final ShuffleStream.Segment [] segments = new ShuffleStream.Segment[data.length];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = stream.newSegment();
+    }
+
+    // the chunks of the segments arrive in turn while the stream is read
+    Thread producer = new Thread() {
+      public void run() {
+        Random rnd = new Random(1);
+        int [] offsets = new int[data.length];
+        try {
+          for (ShuffleStream.Segment segment : segments) {
+            segment.begin();
+          }
+          boolean remaining = true;
+          while (remaining) {
+            remaining = false;
+            for (int i = 0; i < data.length; i++) {
+              int len = Math.min(rnd.nextInt(5000) + 1, data[i].length - offsets[i]);
+              if (len > 0) {
+                segments[i].write(ChannelBuffers.wrappedBuffer(data[i], offsets[i], len));
+                offsets[i] += len;
+                remaining = true;
+              } else {
+                segments[i].done();
+              }
+            }
+          }
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    producer.start();
+
+    int total = TUPLE_NUM * data.length;
+    assertEquals((long) total * (total - 1) / 2, scanIdSum(stream, total));
+    producer.join();
+    assertTrue(stream.getSpilledBytes() > 0);
+    assertEquals(data[0].length + data[1].length + data[2].length, stream.getReceivedBytes());
+    assertFalse(new File(TEST_DATA, "spill").exists());
+  }
+
+  @Test
+  public void testRetryAndFailure() throws Exception {
+    byte [] data = readBytes(writeRawFile("retry", 0));
+
+    // the data received before a failure are discarded for the retry
+    ShuffleStream stream = new ShuffleStream(new File(TEST_DATA, "spill"), 1024 * 1024);
+    ShuffleStream.Segment segment = stream.newSegment();
+    segment.begin();
+    segment.write(ChannelBuffers.wrappedBuffer(data, 0, 100));
+    segment.fail(new IOException("broken connection"));
+    assertTrue(segment.isRetryable());
+    segment.begin();
+    segment.write(ChannelBuffers.wrappedBuffer(data));
+    segment.done();
+    assertEquals((long) TUPLE_NUM * (TUPLE_NUM - 1) / 2, scanIdSum(stream, TUPLE_NUM));
+
+    // the reader fails if the data already read are lost
+    stream = new ShuffleStream(new File(TEST_DATA, "spill"), 1024 * 1024);
+    segment = stream.newSegment();
+    segment.begin();
+    // the response is not completed yet
+    segment.write(ChannelBuffers.wrappedBuffer(data));
+    RawFile.RawFileScanner scanner = new RawFile.RawFileScanner(conf, meta, stream);
+    assertNotNull(scanner.next());
+    segment.fail(new IOException("broken connection"));
+    assertFalse(segment.isRetryable());
+    try {
+      while (scanner.next() != null) {
+      }
+      fail("The lost data must make the scan fail");
+    } catch (IOException e) {
+      // expected
+    }
+    scanner.close();
+  }
+
+  private static class RecordingThrottle implements ShuffleStream.Throttle {
+    private volatile boolean paused = false;
+    private volatile int pauseNum = 0;
+
+    @Override
+    public void pause() {
+      paused = true;
+      pauseNum++;
+    }
+
+    @Override
+    public void resume() {
+      paused = false;
+    }
+  }
+
+  @Test
+  public void testPushWithSpill() throws Exception {
+    byte [] data = new byte[160];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+
+    ShuffleStream stream = new ShuffleStream(new File(TEST_DATA, "spill"), 100);
+    ShuffleStream.Segment segment = stream.newSegment();
+    RecordingThrottle writer = new RecordingThrottle();
+    segment.begin();
+
+    // the writer is paused while the data over the budget wait for the spill thread
+    segment.push(ChannelBuffers.wrappedBuffer(data, 0, 100), writer);
+    assertEquals(0, writer.pauseNum);
+    segment.push(ChannelBuffers.wrappedBuffer(data, 100, 60), writer);
+    assertEquals(1, writer.pauseNum);
+
+    long timeout = System.currentTimeMillis() + 10000;
+    while (writer.paused && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertFalse(writer.paused);
+    assertEquals(60, stream.getSpilledBytes());
+    segment.done();
+
+    ByteBuffer read = ByteBuffer.allocate(data.length);
+    assertEquals(data.length, stream.read(read));
+    assertArrayEquals(data, read.array());
+    assertEquals(-1, stream.read(ByteBuffer.allocate(1)));
+    stream.close();
+  }
+
+  @Test
+  public void testFetchIntoStream() throws Exception {
+    writeRawFile("in/part0", 0);
+    writeRawFile("in/part1", TUPLE_NUM);
+
+    HttpDataServer server = new HttpDataServer(
+        NetUtils.createSocketAddr("127.0.0.1:0"),
+        new DirectoryRetriever(TEST_DATA + "/in/"));
+    server.start();
+    InetSocketAddress addr = server.getBindAddress();
+    FetchClient client = new FetchClient(1, 1);
+    try {
+      ShuffleStream stream = new ShuffleStream(new File(TEST_DATA, "spill"), 1024 * 1024);
+      Future<Long> first = client.fetch(URI.create("http://127.0.0.1:" + addr.getPort() + "/part0"),
+          stream.newSegment());
+      Future<Long> second = client.fetch(URI.create("http://127.0.0.1:" + addr.getPort() + "/part1"),
+          stream.newSegment());
+      int total = TUPLE_NUM * 2;
+      assertEquals((long) total * (total - 1) / 2, scanIdSum(stream, total));
+      assertEquals(stream.getReceivedBytes(), first.get() + second.get());
+    } finally {
+      client.close();
+      server.stop();
+    }
+  }
+}
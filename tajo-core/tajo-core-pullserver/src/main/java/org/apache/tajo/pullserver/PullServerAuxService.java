@@ -51,6 +51,7 @@ import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.TupleComparator;
 import org.apache.tajo.storage.TupleRange;
 import org.apache.tajo.storage.index.bst.BSTIndex;
+import org.apache.tajo.storage.index.bst.BSTIndexReaderCache;
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
@@ -137,6 +138,18 @@ public class PullServerAuxService extends AbstractService
     @Metric({"Connections","# of current shuffle connections"})
     MutableGaugeInt shuffleConnections;
 
+    BSTIndexReaderCache indexReaderCache;
+
+    @Metric({"IndexCacheHits","# of range requests served by a cached index"})
+    public long getIndexCacheHits() {
+      return indexReaderCache == null ? 0 : indexReaderCache.getHitNum();
+    }
+
+    @Metric({"IndexCacheMisses","# of range requests which loaded an index from disk"})
+    public long getIndexCacheMisses() {
+      return indexReaderCache == null ? 0 : indexReaderCache.getMissNum();
+    }
+
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
       if (future.isSuccess()) {
@@ -149,6 +162,7 @@ public class PullServerAuxService extends AbstractService
   }
 
   final ShuffleMetrics metrics;
+  private BSTIndexReaderCache indexReaderCache;
 
   PullServerAuxService(MetricsSystem ms) {
     super("httpshuffle");
@@ -196,6 +210,28 @@ public class PullServerAuxService extends AbstractService
   @Override
   public void stopApp(ApplicationId appId) {
     userRsrc.remove(appId.toString());
+    invalidateIndexReaders(appId);
+  }
+
+  /**
+   * It removes the cached index readers of a query, whose directories are
+   * deleted with the application.
+   */
+  private void invalidateIndexReaders(ApplicationId appId) {
+    if (indexReaderCache == null) { // if the service is not initialized
+      return;
+    }
+    for (String localDir : getConfig().getTrimmedStrings(ConfVars.TASK_LOCAL_DIR.varname)) {
+      Path queryDir = localFS.makeQualified(new Path(localDir, appId + "/output"));
+      try {
+        int removed = indexReaderCache.invalidateAll(queryDir);
+        if (removed > 0) {
+          LOG.info("Removed " + removed + " cached index readers under " + queryDir);
+        }
+      } catch (IOException e) {
+        LOG.warn("Cannot close the index readers under " + queryDir, e);
+      }
+    }
   }
 
   @Override
@@ -219,6 +255,11 @@ public class PullServerAuxService extends AbstractService
           Executors.newCachedThreadPool(workerFactory));
 
       localFS = new LocalFileSystem();
+
+      indexReaderCache = new BSTIndexReaderCache(new TajoConf(conf),
+          conf.getInt(ConfVars.PULLSERVER_INDEX_CACHE_SIZE.varname,
+              ConfVars.PULLSERVER_INDEX_CACHE_SIZE.defaultIntVal));
+      metrics.indexReaderCache = indexReaderCache;
       super.init(new Configuration(conf));
     } catch (Throwable t) {
       LOG.error(t);
@@ -259,6 +300,10 @@ public class PullServerAuxService extends AbstractService
       pipelineFact.destroy();
 
       localFS.close();
+      if (indexReaderCache != null) {
+        LOG.info("Closing " + indexReaderCache + ", hit rate: " + indexReaderCache.getHitRate());
+        indexReaderCache.close();
+      }
     } catch (Throwable t) {
       LOG.error(t);
     } finally {
@@ -537,14 +582,34 @@ public class PullServerAuxService extends AbstractService
                                       String startKey,
                                       String endKey,
                                       boolean last) throws IOException {
-    BSTIndex index = new BSTIndex(new TajoConf());
-    BSTIndex.BSTIndexReader idxReader =
-        index.getIndexReader(new Path(outDir, "index"));
-    idxReader.open();
+    Path indexPath = new Path(outDir, "index");
+    if (indexReaderCache == null) { // if the service is not initialized
+      BSTIndex.BSTIndexReader idxReader = new BSTIndex(new TajoConf()).getIndexReader(indexPath);
+      idxReader.open();
+      try {
+        return getFileCunks(idxReader, outDir, startKey, endKey, last);
+      } finally {
+        idxReader.close();
+      }
+    }
+
+    BSTIndex.BSTIndexReader idxReader = indexReaderCache.acquire(indexPath);
+    try {
+      return getFileCunks(idxReader, outDir, startKey, endKey, last);
+    } finally {
+      indexReaderCache.release(idxReader);
+    }
+  }
+
+  private FileChunk getFileCunks(BSTIndex.BSTIndexReader idxReader,
+                                 Path outDir,
+                                 String startKey,
+                                 String endKey,
+                                 boolean last) throws IOException {
     Schema keySchema = idxReader.getKeySchema();
     TupleComparator comparator = idxReader.getComparator();
 
-    LOG.info("BSTIndex is loaded from disk (" + idxReader.getFirstKey() + ", "
+    LOG.info("BSTIndex is loaded (" + idxReader.getFirstKey() + ", "
         + idxReader.getLastKey());
 
     File data = new File(URI.create(outDir.toUri() + "/output"));
@@ -30,13 +30,14 @@ import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.catalog.TableMeta;
 import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.common.TajoDataTypes.Type;
 import org.apache.tajo.datum.*;
 import org.apache.tajo.storage.exception.AlreadyExistsStorageException;
 import org.apache.tajo.storage.json.GsonCreator;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class CSVFile {
   public static final String DELIMITER = "csvfile.delimiter";
@@ -199,219 +200,404 @@ public class CSVFile {
         final Fragment fragment) throws IOException {
       super(conf, meta, fragment);
       init(fragment);
+      prepareProjection(schema.toArray());
     }
 
     private static final byte LF = '\n';
-    private final static long DEFAULT_BUFFER_SIZE = 65536;
-    private long bufSize;
-    private String delimiter;
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+    private static final double [] DOUBLE_POW10 = new double[23];
+    private static final float [] FLOAT_POW10 = new float[11];
+    static {
+      for (int i = 0; i < DOUBLE_POW10.length; i++) {
+        DOUBLE_POW10[i] = Double.parseDouble("1e" + i);
+      }
+      for (int i = 0; i < FLOAT_POW10.length; i++) {
+        FLOAT_POW10[i] = Float.parseFloat("1e" + i);
+      }
+    }
+
+    private byte [] delimiter;
     private FileSystem fs;
     private FSDataInputStream fis;
-    private long startOffset, length, startPos;
-    private byte[] buf = null;
-    private String[] tuples = null;
-    private long[] tupleOffsets = null;
-    private int currentIdx = 0, validIdx = 0;
-    private byte[] tail = null;
-    private long pageStart = -1;
-    private long prevTailLen = -1;
-    private HashMap<Long, Integer> curTupleOffsetMap = null;
+    private long startOffset, endOffset;
+
+    // a page of the file
+    private byte [] buf = new byte[DEFAULT_BUFFER_SIZE];
+    private int bufLen;
+    private int bufPos;
+    private long bufStart;
+    private boolean eof;
+    private boolean skipLine;
+    private int lineStart, lineEnd;
+
+    // column ids to be materialized
+    private int [] projectionMap;
+    private Type [] columnTypes;
+    private int maxFieldNum;
+    private int [] fieldStarts, fieldEnds;
 
     private void init(final Fragment fragment) throws IOException {
-
-      // Buffer size, Delimiter
-      this.bufSize = DEFAULT_BUFFER_SIZE;
       this.delimiter = fragment.getMeta().getOption(DELIMITER,
-          DELIMITER_DEFAULT);
-      if (this.delimiter.equals("|")) {
-        this.delimiter = "\\|";
-      }
+          DELIMITER_DEFAULT).getBytes();
 
       // Fragment information
       this.fs = fragment.getPath().getFileSystem(this.conf);
       this.fis = this.fs.open(fragment.getPath());
       this.startOffset = fragment.getStartOffset();
-      this.length = fragment.getLength();
-      tuples = new String[0];
+      this.endOffset = startOffset + fragment.getLength();
 
+      bufLen = 0;
+      bufPos = 0;
+      eof = false;
+      // A line beginning before the start offset belongs to the previous fragment.
       if (startOffset != 0) {
-        fis.seek(startOffset - 1);
-        while (fis.readByte() != LF) {
+        bufStart = startOffset - 1;
+        skipLine = true;
+      } else {
+        bufStart = startOffset;
+        skipLine = false;
+      }
+      fis.seek(bufStart);
+    }
+
+    private void prepareProjection(Column [] targets) {
+      int [] ids = new int[targets.length];
+      int num = 0;
+      int id;
+      maxFieldNum = 0;
+      for (Column target : targets) {
+        id = schema.getColumnIdByName(target.getColumnName());
+        if (id >= 0) {
+          ids[num++] = id;
+          maxFieldNum = Math.max(maxFieldNum, id + 1);
         }
       }
-      startPos = fis.getPos();
-      if (fragmentable() < 1) {
-        fis.close();
-        return;
+      projectionMap = Arrays.copyOf(ids, num);
+      Arrays.sort(projectionMap);
+
+      columnTypes = new Type[schema.getColumnNum()];
+      for (int i = 0; i < columnTypes.length; i++) {
+        columnTypes[i] = schema.getColumn(i).getDataType().getType();
       }
-      page();
+      fieldStarts = new int[maxFieldNum];
+      fieldEnds = new int[maxFieldNum];
     }
 
-    private long fragmentable() throws IOException {
-      return startOffset + length - fis.getPos();
+    @Override
+    public void init() throws IOException {
+      if (targets != null) {
+        prepareProjection(targets);
+      }
+      super.init();
     }
 
-    private void page() throws IOException {
-      // Index initialization
-      currentIdx = 0;
+    @Override
+    public float getProgress() {
+      return getProgress(startOffset, endOffset, bufStart + bufPos);
+    }
 
-      // Buffer size set
-      if (fragmentable() < DEFAULT_BUFFER_SIZE) {
-        bufSize = fragmentable();
+    /**
+     * It reads the next bytes of the file into the page. The remaining bytes of
+     * the current page are moved to the front of the page.
+     */
+    private void fill() throws IOException {
+      if (bufPos > 0) {
+        System.arraycopy(buf, bufPos, buf, 0, bufLen - bufPos);
+        bufStart += bufPos;
+        bufLen -= bufPos;
+        bufPos = 0;
+      }
+      if (bufLen == buf.length) { // a line is longer than the page
+        buf = Arrays.copyOf(buf, buf.length * 2);
       }
 
-
-      if (this.tail == null || this.tail.length == 0) {
-        this.pageStart = fis.getPos();
-        this.prevTailLen = 0;
+      int len = buf.length - bufLen;
+      long filePos = bufStart + bufLen;
+      if (filePos < endOffset) {
+        len = (int) Math.min(len, endOffset - filePos);
+      }
+      int read = fis.read(buf, bufLen, len);
+      if (read < 0) {
+        eof = true;
       } else {
-        this.pageStart = fis.getPos() - this.tail.length;
-        this.prevTailLen = this.tail.length;
+        bufLen += read;
       }
+    }
 
-      // Read
-      int rbyte;
-      if (fis.getPos() == startPos) {
-        buf = new byte[(int) bufSize];
-        rbyte = fis.read(buf);
-        tail = new byte[0];
-        tuples = new String(buf,0,rbyte).split("\n");
-      } else {
-        buf = new byte[(int) bufSize];
-        rbyte = fis.read(buf);
-        tuples = (new String(tail) + new String(buf,0,rbyte)).split("\n");
-      }
-
-      // Check tail
-      if ((char) buf[rbyte - 1] != LF) {
-        if (fragmentable() < 1) {
-          int cnt = 0;
-          byte[] temp = new byte[(int)DEFAULT_BUFFER_SIZE];
-          // Read bytes
-          while ((temp[cnt] = fis.readByte()) != LF) {
-            cnt++;
+    /**
+     * It finds the next line in this fragment, and sets lineStart and lineEnd.
+     */
+    private boolean nextLine() throws IOException {
+      int scanned = 0;
+      while (true) {
+        if (bufStart + bufPos >= endOffset) {
+          return false;
+        }
+
+        int lf = -1;
+        for (int i = bufPos + scanned; i < bufLen; i++) {
+          if (buf[i] == LF) {
+            lf = i;
+            break;
           }
+        }
 
-          // Replace tuple
-          tuples[tuples.length - 1] = new String(tuples[tuples.length - 1]
-              + new String(temp,0,cnt));
-          validIdx = tuples.length;
+        if (lf >= 0) {
+          lineStart = bufPos;
+          lineEnd = lf;
+          bufPos = lf + 1;
+        } else if (eof) {
+          if (bufPos == bufLen) {
+            return false;
+          }
+          lineStart = bufPos;
+          lineEnd = bufLen;
+          bufPos = bufLen;
         } else {
-          tail = tuples[tuples.length - 1].getBytes();
-          validIdx = tuples.length - 1;
+          scanned = bufLen - bufPos;
+          fill();
+          continue;
         }
-      } else {
-        tail = new byte[0];
-        validIdx = tuples.length;
+
+        scanned = 0;
+        if (skipLine) {
+          skipLine = false;
+          continue;
+        }
+        return true;
       }
-      makeTupleOffset();
     }
 
-    private void makeTupleOffset() {
-      long curTupleOffset = 0;
-      this.tupleOffsets = null;
-      this.tupleOffsets = new long[this.validIdx];
-      
-      this.curTupleOffsetMap = null;
-      this.curTupleOffsetMap = new HashMap<Long, Integer>();
-      
-      for (int i = 0; i < this.validIdx; i++) {
-        this.tupleOffsets[i] = curTupleOffset + this.pageStart;
-        this.curTupleOffsetMap.put(tupleOffsets[i], i);
-        curTupleOffset += (this.tuples[i]  + "\n").getBytes().length;
-      }
-      
+    /**
+     * It finds the bounds of the fields up to the last projected field.
+     *
+     * @return the number of the found fields
+     */
+    private int split(int start, int end) {
+      int num = 0;
+      int fieldStart = start;
+      byte first = delimiter[0];
+      for (int i = start; i < end && num < maxFieldNum; i++) {
+        if (buf[i] == first && isDelimiter(i, end)) {
+          fieldStarts[num] = fieldStart;
+          fieldEnds[num] = i;
+          num++;
+          i += delimiter.length - 1;
+          fieldStart = i + 1;
+        }
+      }
+      if (num < maxFieldNum) {
+        fieldStarts[num] = fieldStart;
+        fieldEnds[num] = end;
+        num++;
+      }
+      return num;
     }
 
-    @Override
-    public void init() throws IOException {
-      super.init();
+    private boolean isDelimiter(int pos, int end) {
+      if (pos + delimiter.length > end) {
+        return false;
+      }
+      for (int i = 1; i < delimiter.length; i++) {
+        if (buf[pos + i] != delimiter[i]) {
+          return false;
+        }
+      }
+      return true;
     }
 
     @Override
     public Tuple next() throws IOException {
       try {
-        if (currentIdx == validIdx) {
-          if (fragmentable() < 1) {
-            fis.close();
-            return null;
-          } else {
-            page();
-          }
+        if (!nextLine()) {
+          return null;
         }
-        long offset = this.tupleOffsets[currentIdx];
-        String[] cells = tuples[currentIdx++].split(delimiter);
+
         VTuple tuple = new VTuple(schema.getColumnNum());
-        Column field;
-        tuple.setOffset(offset);
-        for (int i = 0; i < schema.getColumnNum(); i++) {
-          field = schema.getColumn(i);
-          if (cells.length <= i) {
-            tuple.put(i, DatumFactory.createNullDatum());
+        tuple.setOffset(bufStart + lineStart);
+        int fieldNum = split(lineStart, lineEnd);
+        for (int id : projectionMap) {
+          if (fieldNum <= id) {
+            tuple.put(id, DatumFactory.createNullDatum());
           } else {
-            String cell = cells[i].trim();
-
-            if (cell.equals("")) {
-              tuple.put(i, DatumFactory.createNullDatum());
-            } else {
-              switch (field.getDataType().getType()) {
-              case BOOLEAN:
-                tuple.put(i, DatumFactory.createBool(cell));
-                break;
-              case BIT:
-                tuple.put(i,
-                    DatumFactory.createBit(Base64.decodeBase64(cell)[0]));
-                break;
-              case CHAR:
-                tuple.put(i, DatumFactory.createChar(cell.charAt(0)));
-                break;
-              case BLOB:
-                tuple.put(i,
-                    DatumFactory.createBlob(Base64.decodeBase64(cell)));
-                break;
-              case INT2:
-                tuple.put(i, DatumFactory.createInt2(cell));
-                break;
-              case INT4:
-                tuple.put(i, DatumFactory.createInt4(cell));
-                break;
-              case INT8:
-                tuple.put(i, DatumFactory.createInt8(cell));
-                break;
-              case FLOAT4:
-                tuple.put(i, DatumFactory.createFloat4(cell));
-                break;
-              case FLOAT8:
-                tuple.put(i, DatumFactory.createFloat8(cell));
-                break;
-//              case STRING:
-//                tuple.put(i, DatumFactory.createText(cell));
-//                break;
-              case TEXT:
-                tuple.put(i, DatumFactory.createText(cell));
-                break;
-              case INET4:
-                tuple.put(i, DatumFactory.createInet4(cell));
-                break;
-              case ARRAY:
-                Datum data = GsonCreator.getInstance().fromJson(cell,
-                    Datum.class);
-                tuple.put(i, data);
-                break;
-              }
-            }
+            tuple.put(id, createDatum(columnTypes[id], fieldStarts[id], fieldEnds[id]));
           }
         }
         return tuple;
       } catch (Throwable t) {
-        LOG.error("Tuple list length: " + tuples.length, t);
-        LOG.error("Tuple list current index: " + currentIdx, t);
+        LOG.error("Tuple offset: " + (bufStart + lineStart), t);
       }
       return null;
     }
 
+    private Datum createDatum(Type type, int start, int end) {
+      // trim
+      while (start < end && (buf[start] & 0xff) <= ' ') {
+        start++;
+      }
+      while (end > start && (buf[end - 1] & 0xff) <= ' ') {
+        end--;
+      }
+      if (start == end) {
+        return DatumFactory.createNullDatum();
+      }
+
+      switch (type) {
+        case BOOLEAN:
+          return DatumFactory.createBool(end - start == 4
+              && (buf[start] | 0x20) == 't' && (buf[start + 1] | 0x20) == 'r'
+              && (buf[start + 2] | 0x20) == 'u' && (buf[start + 3] | 0x20) == 'e');
+        case CHAR:
+          if (buf[start] >= 0) {
+            return DatumFactory.createChar((char) buf[start]);
+          }
+          return DatumFactory.createChar(toString(start, end).charAt(0));
+        case INT2: {
+          long value = parseLong(start, end);
+          if (value == Long.MIN_VALUE || value != (short) value) {
+            return DatumFactory.createInt2(toString(start, end));
+          }
+          return DatumFactory.createInt2((short) value);
+        }
+        case INT4: {
+          long value = parseLong(start, end);
+          if (value == Long.MIN_VALUE || value != (int) value) {
+            return DatumFactory.createInt4(toString(start, end));
+          }
+          return DatumFactory.createInt4((int) value);
+        }
+        case INT8: {
+          long value = parseLong(start, end);
+          if (value == Long.MIN_VALUE) {
+            return DatumFactory.createInt8(toString(start, end));
+          }
+          return DatumFactory.createInt8(value);
+        }
+        case FLOAT4: {
+          float value = parseFloat(start, end);
+          if (Float.isNaN(value)) {
+            return DatumFactory.createFloat4(toString(start, end));
+          }
+          return DatumFactory.createFloat4(value);
+        }
+        case FLOAT8: {
+          double value = parseDouble(start, end);
+          if (Double.isNaN(value)) {
+            return DatumFactory.createFloat8(toString(start, end));
+          }
+          return DatumFactory.createFloat8(value);
+        }
+        case TEXT:
+          return DatumFactory.createText(Arrays.copyOfRange(buf, start, end));
+        case BIT:
+          return DatumFactory.createBit(Base64.decodeBase64(toString(start, end))[0]);
+        case BLOB:
+          return DatumFactory.createBlob(Base64.decodeBase64(toString(start, end)));
+        case INET4:
+          return DatumFactory.createInet4(toString(start, end));
+        case ARRAY:
+          return GsonCreator.getInstance().fromJson(toString(start, end), Datum.class);
+        default:
+          return null;
+      }
+    }
+
+    private String toString(int start, int end) {
+      return new String(buf, start, end - start);
+    }
+
+    /**
+     * It parses a decimal integer of at most 18 digits.
+     *
+     * @return Long.MIN_VALUE if the bytes are not such an integer
+     */
+    private long parseLong(int start, int end) {
+      boolean negative = buf[start] == '-';
+      if (negative) {
+        start++;
+      }
+      if (start == end || end - start > 18) {
+        return Long.MIN_VALUE;
+      }
+      long value = 0;
+      int digit;
+      for (int i = start; i < end; i++) {
+        digit = buf[i] - '0';
+        if (digit < 0 || digit > 9) {
+          return Long.MIN_VALUE;
+        }
+        value = value * 10 + digit;
+      }
+      return negative ? -value : value;
+    }
+
+    /**
+     * It parses a decimal number without an exponent into the digits and the
+     * number of the fraction digits. The result is written to the given array.
+     *
+     * @return false if the bytes are not such a number
+     */
+    private boolean parseDecimal(int start, int end, long [] result) {
+      boolean negative = buf[start] == '-';
+      if (negative) {
+        start++;
+      }
+      long digits = 0;
+      int digitNum = 0;
+      int fractionNum = 0;
+      boolean fraction = false;
+      int digit;
+      for (int i = start; i < end; i++) {
+        if (buf[i] == '.' && !fraction) {
+          fraction = true;
+          continue;
+        }
+        digit = buf[i] - '0';
+        if (digit < 0 || digit > 9 || ++digitNum > 18) {
+          return false;
+        }
+        digits = digits * 10 + digit;
+        if (fraction) {
+          fractionNum++;
+        }
+      }
+      if (digitNum == 0) {
+        return false;
+      }
+      result[0] = negative ? -digits : digits;
+      result[1] = fractionNum;
+      return true;
+    }
+
+    private final long [] decimal = new long[2];
+
+    /**
+     * A decimal number whose digits and scale are exactly represented in
+     * floating point is correctly rounded by a single division.
+     *
+     * @return NaN if the bytes cannot be parsed in this way
+     */
+    private double parseDouble(int start, int end) {
+      if (!parseDecimal(start, end, decimal)
+          || Math.abs(decimal[0]) >= (1L << 53) || decimal[1] >= DOUBLE_POW10.length) {
+        return Double.NaN;
+      }
+      double value = (double) decimal[0] / DOUBLE_POW10[(int) decimal[1]];
+      return decimal[0] == 0 && buf[start] == '-' ? -0.0 : value;
+    }
+
+    private float parseFloat(int start, int end) {
+      if (!parseDecimal(start, end, decimal)
+          || Math.abs(decimal[0]) >= (1L << 24) || decimal[1] >= FLOAT_POW10.length) {
+        return Float.NaN;
+      }
+      float value = (float) decimal[0] / FLOAT_POW10[(int) decimal[1]];
+      return decimal[0] == 0 && buf[start] == '-' ? -0.0f : value;
+    }
+
     @Override
     public void reset() throws IOException {
+      fis.close();
       init(fragment);
     }
 
@@ -422,11 +608,7 @@ public class CSVFile {
 
     @Override
     public boolean isProjectable() {
-      return false;
-    }
-
-    @Override
-    public void setTarget(Column[] targets) {
+      return true;
     }
 
     @Override
@@ -440,37 +622,26 @@ public class CSVFile {
 
     @Override
     public void seek(long offset) throws IOException {
-      if (this.curTupleOffsetMap.containsKey(offset)) {
-        this.currentIdx = this.curTupleOffsetMap.get(offset);
-      } else if (offset >= this.pageStart + this.bufSize 
-          + this.prevTailLen - this.tail.length || offset <= this.pageStart) {
-        fis.seek(offset);
-        tail = new byte[0];
-        buf = new byte[(int) DEFAULT_BUFFER_SIZE];
-        bufSize = DEFAULT_BUFFER_SIZE;
-        this.currentIdx = 0;
-        this.validIdx = 0;
-        // pageBuffer();
+      if (offset >= bufStart && offset <= bufStart + bufLen) {
+        bufPos = (int) (offset - bufStart);
       } else {
-        throw new IOException("invalid offset " +
-           " < pageStart : " +  this.pageStart + " , " + 
-           "  pagelength : " + this.bufSize + " , " + 
-           "  tail lenght : " + this.tail.length + 
-           "  input offset : " + offset + " >");
+        fis.seek(offset);
+        bufStart = offset;
+        bufLen = 0;
+        bufPos = 0;
+        eof = false;
       }
-
+      skipLine = false;
     }
 
     @Override
     public long getNextOffset() throws IOException {
-      if (this.currentIdx == this.validIdx) {
-        if (fragmentable() < 1) {
-          return -1;
-        } else {
-          page();
-        }
+      if (!nextLine()) {
+        return -1;
       }
-      return this.tupleOffsets[currentIdx];
+      // the found line is read again by next()
+      bufPos = lineStart;
+      return bufStart + lineStart;
     }
   }
 }
@@ -33,6 +33,7 @@ public abstract class FileScanner implements Scanner {
   protected final Fragment fragment;
 
   protected Column [] targets;
+  protected SearchCondition searchCondition;
   
   public FileScanner(Configuration conf, final TableMeta meta, final Fragment fragment) {
     this.conf = conf;
@@ -62,5 +63,18 @@ public abstract class FileScanner implements Scanner {
     if (inited) {
       throw new IllegalStateException("Should be called before init()");
     }
+    this.searchCondition = (SearchCondition) expr;
+  }
+
+  /**
+   * It computes the progress of a scanner reading the bytes from start to end.
+   *
+   * @param pos the position of the next byte to be read
+   */
+  protected static float getProgress(long start, long end, long pos) {
+    if (end <= start) {
+      return 0.0f;
+    }
+    return Math.min(1.0f, Math.max(0.0f, (float) (pos - start) / (end - start)));
   }
 }
@@ -34,9 +34,12 @@ public class MergeScanner implements Scanner {
   private TableMeta meta;
   private List<Fragment> fragments;
   private Iterator<Fragment> iterator;
+  // the index of the current fragment
+  private int currentIndex = -1;
   private Fragment currentFragment;
   private Scanner currentScanner;
   private Tuple tuple;
+  private SearchCondition searchCondition;
 
   public MergeScanner(Configuration conf, TableMeta meta, Collection<Fragment> fragments) {
     this.conf = conf;
@@ -54,26 +57,30 @@ public class MergeScanner implements Scanner {
     if (currentScanner != null)
       tuple = currentScanner.next();
 
-    if (tuple != null) {
-      return tuple;
-    } else if (iterator.hasNext()) {
+    // a fragment may have no tuple satisfying the search condition.
+    while (tuple == null && iterator.hasNext()) {
       if (currentScanner != null) {
         currentScanner.close();
       }
       currentFragment = iterator.next();
+      currentIndex++;
       currentScanner = StorageManager.getScanner(conf, meta, currentFragment);
+      if (searchCondition != null && currentScanner.isSelectable()) {
+        currentScanner.setSearchCondition(searchCondition);
+      }
       currentScanner.init();
-      return currentScanner.next();
-    } else {
-      return null;
+      tuple = currentScanner.next();
     }
+    return tuple;
   }
 
   @Override
   public void reset() throws IOException {
     iterator = fragments.iterator();
+    currentIndex = -1;
     if (iterator.hasNext()) {
       currentFragment = iterator.next();
+      currentIndex++;
       currentScanner = StorageManager.getScanner(conf, meta, currentFragment);
     }
   }
@@ -94,17 +101,35 @@ public class MergeScanner implements Scanner {
   public void setTarget(Column[] targets) {
   }
 
+  /**
+   * It passes a search condition to the scanners of the fragments, and
+   * some of them may filter tuples against the condition.
+   */
   @Override
   public boolean isSelectable() {
-    return false;
+    return true;
   }
 
   @Override
   public void setSearchCondition(Object expr) {
+    this.searchCondition = (SearchCondition) expr;
   }
 
   @Override
   public Schema getSchema() {
     return meta.getSchema();
   }
+
+  /**
+   * Each fragment takes an equal share of the progress.
+   */
+  @Override
+  public float getProgress() {
+    Scanner scanner = currentScanner;
+    int size = fragments.size();
+    if (scanner == null || size == 0 || currentIndex < 0) {
+      return 0.0f;
+    }
+    return Math.min(1.0f, (currentIndex + scanner.getProgress()) / size);
+  }
 }
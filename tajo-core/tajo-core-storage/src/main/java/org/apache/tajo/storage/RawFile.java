@@ -35,12 +35,18 @@ import java.io.RandomAccessFile;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 public class RawFile {
   public static class RawFileScanner extends FileScanner implements SeekableScanner {
     private FileChannel channel;
+    // the channel which the records are read from. It is the file channel
+    // unless the scanner reads a stream.
+    private ReadableByteChannel source;
     private DataType[] columnTypes;
     private Path path;
+    private long fileLength;
 
     private ByteBuffer buffer;
     private Tuple tuple;
@@ -50,6 +56,13 @@ public class RawFile {
     private static final int RECORD_SIZE = 4;
     private int numBitsOfNullFlags;
 
+    // the search terms of each column, or null if a column has no term
+    private SearchCondition.Term [][] searchTerms;
+    // the last column having search terms
+    private int lastSearchColumn = -1;
+    private byte [] textBuffer = new byte[64];
+    private boolean hasMoreRecord;
+
     public RawFileScanner(Configuration conf, TableMeta meta, Path path) throws IOException {
       super(conf, meta, null);
       this.path = path;
@@ -61,12 +74,30 @@ public class RawFile {
       this(conf, meta, fragment.getPath());
     }
 
+    /**
+     * It creates a scanner which reads the records from a stream, such as
+     * the fetched data of a shuffle. The scanner cannot seek or be reset.
+     */
+    public RawFileScanner(Configuration conf, TableMeta meta, ReadableByteChannel source)
+        throws IOException {
+      super(conf, meta, null);
+      this.source = source;
+      init();
+    }
+
     public void init() throws IOException {
-      //Preconditions.checkArgument(FileUtil.isLocalPath(path));
-      // TODO - to make it unified one.
-      URI uri = path.toUri();
-      RandomAccessFile raf = new RandomAccessFile(new File(uri), "r");
-      channel = raf.getChannel();
+      if (path != null) {
+        //Preconditions.checkArgument(FileUtil.isLocalPath(path));
+        // TODO - to make it unified one.
+        URI uri = path.toUri();
+        RandomAccessFile raf = new RandomAccessFile(new File(uri), "r");
+        channel = raf.getChannel();
+        source = channel;
+        fileLength = channel.size();
+      } else if (buffer != null) {
+        // a stream can be read only once
+        return;
+      }
 
       buffer = ByteBuffer.allocateDirect(65535);
 
@@ -78,7 +109,7 @@ public class RawFile {
       tuple = new VTuple(columnTypes.length);
 
       // initial read
-      channel.read(buffer);
+      source.read(buffer);
       buffer.flip();
 
       numBitsOfNullFlags = (int) Math.ceil((double)schema.getColumnNum());
@@ -90,17 +121,40 @@ public class RawFile {
 
     @Override
     public long getNextOffset() throws IOException {
+      checkSeekable();
       return channel.position();
     }
 
     @Override
     public void seek(long offset) throws IOException {
+      checkSeekable();
       channel.position(offset);
     }
 
+    /**
+     * The progress of a stream is unknown, and it is always 0.
+     */
+    @Override
+    public float getProgress() {
+      if (channel == null || buffer == null) {
+        return 0.0f;
+      }
+      try {
+        return getProgress(0, fileLength, channel.position() - buffer.remaining());
+      } catch (IOException e) {
+        return 0.0f;
+      }
+    }
+
+    private void checkSeekable() throws IOException {
+      if (channel == null) {
+        throw new IOException("A stream is not seekable");
+      }
+    }
+
     private boolean fillBuffer() throws IOException {
       buffer.compact();
-      if (channel.read(buffer) == -1) {
+      if (source.read(buffer) == -1) {
         return false;
       } else {
         buffer.flip();
@@ -108,8 +162,170 @@ public class RawFile {
       }
     }
 
+    /**
+     * The scanner is initialized in the constructor, so a search condition can be
+     * set after init().
+     */
+    @Override
+    public void setSearchCondition(Object expr) {
+      searchCondition = (SearchCondition) expr;
+      searchTerms = new SearchCondition.Term[columnTypes.length][];
+      lastSearchColumn = -1;
+      if (searchCondition == null) {
+        return;
+      }
+
+      for (SearchCondition.Term term : searchCondition.getTerms()) {
+        int id = term.getColumnId();
+        if (searchTerms[id] == null) {
+          searchTerms[id] = new SearchCondition.Term[] {term};
+        } else {
+          SearchCondition.Term [] terms = new SearchCondition.Term[searchTerms[id].length + 1];
+          System.arraycopy(searchTerms[id], 0, terms, 0, searchTerms[id].length);
+          terms[searchTerms[id].length] = term;
+          searchTerms[id] = terms;
+        }
+        lastSearchColumn = Math.max(lastSearchColumn, id);
+      }
+    }
+
+    /**
+     * It evaluates the search terms on the serialized values of the current record
+     * without materializing them. The values of the columns without any search
+     * term are just skipped. The buffer position is moved to the end of the
+     * evaluated values.
+     */
+    private boolean acceptRecord() {
+      for (int i = 0; i <= lastSearchColumn; i++) {
+        if (nullFlags.get(i)) {
+          continue;
+        }
+
+        SearchCondition.Term [] terms = searchTerms[i];
+        switch (columnTypes[i].getType()) {
+          case BOOLEAN :
+          case BIT :
+            buffer.get();
+            break;
+
+          case CHAR :
+            buffer.getChar();
+            break;
+
+          case INT2 :
+            if (terms == null) {
+              buffer.getShort();
+            } else {
+              short value = buffer.getShort();
+              for (SearchCondition.Term term : terms) {
+                if (!term.accept(value)) {
+                  return false;
+                }
+              }
+            }
+            break;
+
+          case INT4 :
+            if (terms == null) {
+              buffer.getInt();
+            } else {
+              int value = buffer.getInt();
+              for (SearchCondition.Term term : terms) {
+                if (!term.accept(value)) {
+                  return false;
+                }
+              }
+            }
+            break;
+
+          case INT8 :
+            if (terms == null) {
+              buffer.getLong();
+            } else {
+              long value = buffer.getLong();
+              for (SearchCondition.Term term : terms) {
+                if (!term.accept(value)) {
+                  return false;
+                }
+              }
+            }
+            break;
+
+          case FLOAT4 :
+            if (terms == null) {
+              buffer.getFloat();
+            } else {
+              float value = buffer.getFloat();
+              for (SearchCondition.Term term : terms) {
+                if (!term.accept(value)) {
+                  return false;
+                }
+              }
+            }
+            break;
+
+          case FLOAT8 :
+            if (terms == null) {
+              buffer.getDouble();
+            } else {
+              double value = buffer.getDouble();
+              for (SearchCondition.Term term : terms) {
+                if (!term.accept(value)) {
+                  return false;
+                }
+              }
+            }
+            break;
+
+          case TEXT :
+            int length = buffer.getInt();
+            if (terms == null) {
+              buffer.position(buffer.position() + length);
+            } else {
+              if (textBuffer.length < length) {
+                textBuffer = new byte[Math.max(length, textBuffer.length * 2)];
+              }
+              buffer.get(textBuffer, 0, length);
+              for (SearchCondition.Term term : terms) {
+                if (!term.accept(textBuffer, 0, length)) {
+                  return false;
+                }
+              }
+            }
+            break;
+
+          case BLOB :
+          case ARRAY :
+            buffer.position(buffer.position() + buffer.getInt());
+            break;
+
+          case INET4 :
+            buffer.position(buffer.position() + 4);
+            break;
+
+          default:
+        }
+      }
+      return true;
+    }
+
     @Override
     public Tuple next() throws IOException {
+      Tuple tuple;
+      while ((tuple = nextRecord()) == null) {
+        if (!hasMoreRecord) {
+          return null;
+        }
+      }
+      return tuple;
+    }
+
+    /**
+     * It returns the next record, or null if there is no more record or the record
+     * does not satisfy the search terms.
+     */
+    private Tuple nextRecord() throws IOException {
+      hasMoreRecord = false;
 
       if (buffer.remaining() < headerSize) {
         if (!fillBuffer()) {
@@ -135,6 +351,17 @@ public class RawFile {
           return null;
         }
       }
+      hasMoreRecord = true;
+
+      if (lastSearchColumn >= 0) {
+        int contentOffset = buffer.position();
+        boolean accepted = acceptRecord();
+        if (!accepted) {
+          buffer.position(contentOffset + recordSize - headerSize);
+          return null;
+        }
+        buffer.position(contentOffset);
+      }
 
       for (int i = 0; i < columnTypes.length; i++) {
         // check if the i'th column is null
@@ -224,6 +451,7 @@ public class RawFile {
 
     @Override
     public void reset() throws IOException {
+      checkSeekable();
       // clear the buffer
       buffer.clear();
       // reload initial buffer
@@ -234,7 +462,7 @@ public class RawFile {
 
     @Override
     public void close() throws IOException {
-      channel.close();
+      source.close();
     }
 
     @Override
@@ -244,13 +472,17 @@ public class RawFile {
 
     @Override
     public boolean isSelectable() {
-      return false;
+      return true;
     }
   }
 
   public static class RawFileAppender extends FileAppender {
     private FileChannel channel;
     private RandomAccessFile randomAccessFile;
+    // the channel which the records are written to. It is the file channel
+    // unless the appender writes a stream.
+    private WritableByteChannel sink;
+    private long written = 0;
     private DataType[] columnTypes;
 
     private ByteBuffer buffer;
@@ -260,17 +492,40 @@ public class RawFile {
     private int numBitsOfNullFlags;
 
     private TableStatistics stats;
+    // if false, the written data are not forced to the storage device
+    private boolean sync = true;
 
     public RawFileAppender(Configuration conf, TableMeta meta, Path path) throws IOException {
       super(conf, meta, path);
     }
 
+    /**
+     * It creates an appender which writes the records to a stream, such as
+     * the pushed data of a shuffle. The stream is closed with the appender.
+     */
+    public RawFileAppender(Configuration conf, TableMeta meta, WritableByteChannel sink) {
+      super(conf, meta, null);
+      this.sink = sink;
+    }
+
+    /**
+     * It makes flush() and close() leave the written data in the page cache
+     * without forcing them to the storage device. It is used for the
+     * intermediate data which can be regenerated if they are lost.
+     */
+    public void disableSync() {
+      this.sync = false;
+    }
+
     public void init() throws IOException {
-      // TODO - RawFile only works on Local File System.
-      //Preconditions.checkArgument(FileUtil.isLocalPath(path));
-      File file = new File(path.toUri());
-      randomAccessFile = new RandomAccessFile(file, "rw");
-      channel = randomAccessFile.getChannel();
+      if (path != null) {
+        // TODO - RawFile only works on Local File System.
+        //Preconditions.checkArgument(FileUtil.isLocalPath(path));
+        File file = new File(path.toUri());
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        sink = channel;
+      }
 
       columnTypes = new DataType[schema.getColumnNum()];
       for (int i = 0; i < schema.getColumnNum(); i++) {
@@ -293,13 +548,20 @@ public class RawFile {
 
     @Override
     public long getOffset() throws IOException {
-      return channel.position();
+      return channel != null ? channel.position() : written;
+    }
+
+    private void write(ByteBuffer src) throws IOException {
+      // a stream may take only a part of the bytes at once
+      while (src.hasRemaining()) {
+        written += sink.write(src);
+      }
     }
 
     private void flushBuffer() throws IOException {
       buffer.limit(buffer.position());
       buffer.flip();
-      channel.write(buffer);
+      write(buffer);
       buffer.clear();
     }
 
@@ -313,7 +575,7 @@ public class RawFile {
         int limit = buffer.position();
         buffer.limit(recordOffset);
         buffer.flip();
-        channel.write(buffer);
+        write(buffer);
         buffer.position(recordOffset);
         buffer.limit(limit);
         buffer.compact();
@@ -445,13 +707,22 @@ public class RawFile {
     @Override
     public void flush() throws IOException {
       flushBuffer();
-      channel.force(true);
+      if (sync && channel != null) {
+        channel.force(true);
+      }
     }
 
     @Override
     public void close() throws IOException {
       flush();
-      randomAccessFile.close();
+      if (enabledStats) {
+        stats.setNumBytes(getOffset());
+      }
+      if (randomAccessFile != null) {
+        randomAccessFile.close();
+      } else {
+        sink.close();
+      }
     }
 
     @Override
@@ -67,6 +67,10 @@ public class RowFile {
     private int numBitsOfNullFlags;
     private long bufferStartPos;
 
+    private ZoneMap zoneMap;
+    // the end of the rows, which excludes the footer
+    private long dataEnd;
+
     public RowFileScanner(Configuration conf, final TableMeta meta,
                           final Fragment fragment) throws IOException {
       super(conf, meta, fragment);
@@ -88,7 +92,24 @@ public class RowFile {
       buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE * schema.getColumnNum());
       buffer.flip();
 
+      // the block statistics are parsed only if they can skip any block.
+      long fileLength = fs.getFileStatus(fragment.getPath()).getLen();
+      dataEnd = ZoneMap.readDataLength(in, fileLength);
+      if (dataEnd < fileLength && searchCondition != null && !searchCondition.isEmpty()) {
+        zoneMap = ZoneMap.read(in, dataEnd);
+      }
+      in.seek(0);
+
       readHeader();
+      long headerEnd = in.getPos();
+
+      if (start >= dataEnd) {
+        // the fragment only has the footer.
+        in.seek(dataEnd);
+        bufferStartPos = dataEnd;
+        super.init();
+        return;
+      }
 
       // find the correct position from the start
       if (this.start > in.getPos()) {
@@ -115,11 +136,50 @@ public class RowFile {
         bufferStartPos += buffer.position();
         buffer.compact();
         buffer.flip();
+        skipBlocks(bufferStartPos - SYNC_SIZE);
+      } else {
+        skipBlocks(headerEnd);
       }
 
       super.init();
     }
 
+    /**
+     * If a zone map block starts at a given position and it does not satisfy the
+     * search condition, it moves to the next block which may satisfy the search
+     * condition. The blocks except the first block start with a sync marker.
+     *
+     * @return true if some blocks are skipped.
+     */
+    private boolean skipBlocks(long pos) throws IOException {
+      if (zoneMap == null) {
+        return false;
+      }
+      int block = zoneMap.findBlock(pos);
+      if (block < 0) {
+        return false;
+      }
+      long nextPos = zoneMap.skipBlocks(block, searchCondition);
+      if (nextPos == pos) {
+        return false;
+      }
+
+      in.seek(nextPos);
+      bufferStartPos = nextPos;
+      buffer.clear();
+      buffer.flip();
+      return true;
+    }
+
+    @Override
+    public float getProgress() {
+      ByteBuffer buf = buffer;
+      if (buf == null) {
+        return 0.0f;
+      }
+      return getProgress(start, Math.min(end, dataEnd), bufferStartPos + buf.position());
+    }
+
     private void readHeader() throws IOException {
       SYNC_INTERVAL = in.readInt();
       in.read(this.sync, 0, SYNC_HASH_SIZE);
@@ -158,19 +218,33 @@ public class RowFile {
 
     @Override
     public Tuple next() throws IOException {
-      while (buffer.remaining() < SYNC_SIZE) {
-        if (fillBuffer() < 0) {
+      long pos;
+      do {
+        pos = bufferStartPos + buffer.position();
+        if (pos >= dataEnd) {
           return null;
         }
-      }
 
-      buffer.mark();
-      if (!checkSync()) {
-        buffer.reset();
-      } else {
-        if (bufferStartPos + buffer.position() > end) {
-          return null;
+        while (buffer.remaining() < SYNC_SIZE) {
+          if (fillBuffer() < 0) {
+            return null;
+          }
         }
+
+        buffer.mark();
+        if (!checkSync()) {
+          buffer.reset();
+          break;
+        } else {
+          if (bufferStartPos + buffer.position() > end) {
+            return null;
+          }
+        }
+      } while (skipBlocks(pos));
+
+      // the last sync marker is followed by the footer.
+      if (bufferStartPos + buffer.position() >= dataEnd) {
+        return null;
       }
 
       while (buffer.remaining() < tupleHeaderSize) {
@@ -309,7 +383,7 @@ public class RowFile {
 
     @Override
     public boolean isSelectable() {
-      return false;
+      return true;
     }
   }
 
@@ -326,6 +400,12 @@ public class RowFile {
     // statistics
     private TableStatistics stats;
 
+    // the statistics of each block
+    private ZoneMap zoneMap;
+    private int zoneMapBlockSize;
+    private TableStatistics blockStats;
+    private long blockStart;
+
     public RowFileAppender(Configuration conf, final TableMeta meta, final Path path)
         throws IOException {
       super(conf, meta, path);
@@ -368,6 +448,15 @@ public class RowFile {
       if (enabledStats) {
         this.stats = new TableStatistics(this.schema);
       }
+
+      if (conf.getBoolean(ConfVars.STORAGE_ZONEMAP_ENABLED.varname,
+          ConfVars.STORAGE_ZONEMAP_ENABLED.defaultBoolVal)) {
+        zoneMap = new ZoneMap();
+        zoneMapBlockSize = conf.getInt(ConfVars.ROWFILE_ZONEMAP_BLOCK_SIZE.varname,
+            ConfVars.ROWFILE_ZONEMAP_BLOCK_SIZE.defaultIntVal);
+        blockStats = new TableStatistics(schema, false);
+        blockStart = out.getPos();
+      }
     }
 
     private void writeHeader() throws IOException {
@@ -379,6 +468,17 @@ public class RowFile {
 
     @Override
     public void addTuple(Tuple t) throws IOException {
+      if (zoneMap != null && blockStats.getNumRows() > 0 &&
+          out.getPos() - blockStart >= zoneMapBlockSize) {
+        // a new block starts with a sync marker so that a scanner can skip to it.
+        finishBlock();
+        if (lastSyncPos == out.getPos()) {
+          blockStart = lastSyncPos - SYNC_SIZE;
+        } else {
+          blockStart = out.getPos();
+          sync();
+        }
+      }
       checkAndWriteSync();
       Column col;
 
@@ -389,6 +489,9 @@ public class RowFile {
         if (enabledStats) {
           stats.analyzeField(i, t.get(i));
         }
+        if (zoneMap != null) {
+          blockStats.analyzeField(i, t.get(i));
+        }
 
         if (t.isNull(i)) {
           nullFlags.set(i);
@@ -487,6 +590,14 @@ public class RowFile {
       if (enabledStats) {
         stats.incrementRow();
       }
+      if (zoneMap != null) {
+        blockStats.incrementRow();
+      }
+    }
+
+    private void finishBlock() {
+      zoneMap.addBlock(blockStart, blockStats.getTableStat());
+      blockStats = new TableStatistics(schema, false);
     }
 
     @Override
@@ -506,6 +617,12 @@ public class RowFile {
           stats.setNumBytes(out.getPos());
         }
         sync();
+        if (zoneMap != null) {
+          if (blockStats.getNumRows() > 0) {
+            finishBlock();
+          }
+          zoneMap.write(out);
+        }
         out.flush();
         out.close();
       }
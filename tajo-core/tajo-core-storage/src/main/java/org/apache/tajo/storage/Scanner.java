@@ -78,10 +78,22 @@ public interface Scanner extends SchemaObject, Closeable {
   boolean isSelectable();
 
   /**
-   * Set a search condition
-   * @param expr to be searched
+   * Set a search condition. It should be called before init(). A selectable
+   * scanner may skip the rows which never satisfy the condition, but it may
+   * also return some rows which do not satisfy the condition. So, the caller
+   * must evaluate the original condition against the returned rows.
+   *
+   * @param expr to be searched, which is a {@link SearchCondition}
    *
    * TODO - to be changed Object type
    */
   void setSearchCondition(Object expr);
+
+  /**
+   * It returns how much of the input has been read. It can be called by
+   * another thread while the scanner is being read.
+   *
+   * @return the progress from 0 to 1
+   */
+  float getProgress();
 }
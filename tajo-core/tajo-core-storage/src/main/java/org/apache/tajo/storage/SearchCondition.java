@@ -0,0 +1,357 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.storage;
+
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.statistics.ColumnStat;
+import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.datum.*;
+import org.apache.tajo.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * It is a search condition pushed down into a {@link Scanner}. It is a conjunction
+ * of simple comparisons between a column and a constant, each of which is called
+ * a term. A term is evaluated in the same way as the comparison operators of
+ * the datums, but on the values read from the underlying storage before they are
+ * materialized into a tuple.
+ *
+ * A term accepts a null value because its result depends on the other parts of
+ * the original condition. As a result, a scanner only skips the rows that never
+ * satisfy the condition, and the caller must still evaluate the original condition
+ * for the rows returned by the scanner.
+ *
+ * This class is not thread-safe.
+ */
+public class SearchCondition {
+  public static enum Op {
+    EQUAL,
+    NOT_EQUAL,
+    LTH,
+    LEQ,
+    GTH,
+    GEQ
+  }
+
+  private final Schema schema;
+  private final List<Term> terms = new ArrayList<Term>();
+
+  public SearchCondition(Schema schema) {
+    this.schema = schema;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * It adds a term <code>column op constant</code>.
+   *
+   * @return true if the term is added. Otherwise, it returns false if the term
+   * cannot be evaluated on the raw column values. In this case, the term is just
+   * ignored, and it does not affect the search results.
+   */
+  public boolean addTerm(int columnId, Op op, Datum constant) {
+    if (columnId < 0 || columnId >= schema.getColumnNum() || constant == null) {
+      return false;
+    }
+
+    Type columnType = schema.getColumn(columnId).getDataType().getType();
+    Type constType = constant.type();
+    if (isNumeric(columnType) && isNumeric(constType)) {
+      terms.add(new Term(columnId, columnType, op, constant));
+      return true;
+    } else if (columnType == Type.TEXT && constType == Type.TEXT) {
+      terms.add(new Term(columnId, columnType, op, constant));
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  private static boolean isNumeric(Type type) {
+    switch (type) {
+      case INT2:
+      case INT4:
+      case INT8:
+      case FLOAT4:
+      case FLOAT8:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public boolean isEmpty() {
+    return terms.isEmpty();
+  }
+
+  public List<Term> getTerms() {
+    return terms;
+  }
+
+  /**
+   * It returns true if any value of a given tuple does not make the search
+   * condition false.
+   */
+  public boolean accept(Tuple tuple) {
+    for (Term term : terms) {
+      if (!term.accept(tuple.get(term.getColumnId()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * It returns false if no row of a block can satisfy the condition, given the
+   * statistics of the block.
+   */
+  public boolean mayMatch(TableStat stat) {
+    List<ColumnStat> columnStats = stat.getColumnStats();
+    for (Term term : terms) {
+      if (term.getColumnId() >= columnStats.size()) {
+        continue;
+      }
+      ColumnStat columnStat = columnStats.get(term.getColumnId());
+      Long numNulls = columnStat.getNumNulls();
+      if (numNulls != null && numNulls > 0) {
+        // a null value is always accepted.
+        continue;
+      }
+      if (!term.mayAccept(columnStat.getMinValue(), columnStat.getMaxValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < terms.size(); i++) {
+      if (i > 0) {
+        sb.append(" AND ");
+      }
+      sb.append(terms.get(i));
+    }
+    return sb.toString();
+  }
+
+  public class Term {
+    private final int columnId;
+    private final Type columnType;
+    private final Op op;
+    private final Datum constant;
+    private final byte [] constBytes;
+    // a mutable datum to hold a column value
+    private final Datum holder;
+
+    private Term(int columnId, Type columnType, Op op, Datum constant) {
+      this.columnId = columnId;
+      this.columnType = columnType;
+      this.op = op;
+      this.constant = constant;
+
+      switch (columnType) {
+        case INT2:
+          holder = new Int2Datum((short) 0);
+          break;
+        case INT4:
+          holder = new Int4Datum(0);
+          break;
+        case INT8:
+          holder = new Int8Datum(0);
+          break;
+        case FLOAT4:
+          holder = new Float4Datum(0);
+          break;
+        case FLOAT8:
+          holder = new Float8Datum(0);
+          break;
+        default:
+          holder = null;
+      }
+      this.constBytes = columnType == Type.TEXT ? constant.asByteArray() : null;
+    }
+
+    public int getColumnId() {
+      return columnId;
+    }
+
+    public Op getOp() {
+      return op;
+    }
+
+    public Datum getConstant() {
+      return constant;
+    }
+
+    /**
+     * It evaluates the term on a value of an INT2, INT4 or INT8 column.
+     */
+    public boolean accept(long value) {
+      switch (columnType) {
+        case INT2:
+          ((Int2Datum) holder).setValue((short) value);
+          break;
+        case INT4:
+          ((Int4Datum) holder).setValue((int) value);
+          break;
+        case INT8:
+          ((Int8Datum) holder).setValue(value);
+          break;
+        default:
+          return true;
+      }
+      return test(holder);
+    }
+
+    /**
+     * It evaluates the term on a value of a FLOAT4 or FLOAT8 column.
+     */
+    public boolean accept(double value) {
+      switch (columnType) {
+        case FLOAT4:
+          ((Float4Datum) holder).setValue((float) value);
+          break;
+        case FLOAT8:
+          ((Float8Datum) holder).setValue(value);
+          break;
+        default:
+          return true;
+      }
+      return test(holder);
+    }
+
+    /**
+     * It evaluates the term on the binary form of a value, which is the bytes
+     * of a text or a number encoded by {@link Bytes}.
+     */
+    public boolean accept(byte [] bytes, int offset, int length) {
+      switch (columnType) {
+        case INT2:
+          return accept(Bytes.toShort(bytes, offset));
+        case INT4:
+          return accept(Bytes.toInt(bytes, offset));
+        case INT8:
+          return accept(Bytes.toLong(bytes, offset));
+        case FLOAT4:
+          return accept(Bytes.toFloat(bytes, offset));
+        case FLOAT8:
+          return accept(Bytes.toDouble(bytes, offset));
+        case TEXT:
+          int cmp = WritableComparator.compareBytes(bytes, offset, length,
+              constBytes, 0, constBytes.length);
+          return test(cmp == 0, cmp);
+        default:
+          return true;
+      }
+    }
+
+    public boolean accept(Datum value) {
+      if (value == null || value instanceof NullDatum) {
+        return true;
+      }
+      if (columnType == Type.TEXT) {
+        byte [] bytes = value.asByteArray();
+        return accept(bytes, 0, bytes.length);
+      }
+      return test(value);
+    }
+
+    /**
+     * It returns false if no value between given min and max values satisfies
+     * the term.
+     */
+    public boolean mayAccept(Datum min, Datum max) {
+      if (min == null || max == null || min instanceof NullDatum ||
+          max instanceof NullDatum) {
+        return true;
+      }
+
+      int minCmp = compare(min);
+      int maxCmp = compare(max);
+      switch (op) {
+        case EQUAL:
+          return minCmp <= 0 && maxCmp >= 0;
+        case NOT_EQUAL:
+          return minCmp != 0 || maxCmp != 0;
+        case LTH:
+          return minCmp < 0;
+        case LEQ:
+          return minCmp <= 0;
+        case GTH:
+          return maxCmp > 0;
+        case GEQ:
+          return maxCmp >= 0;
+        default:
+          return true;
+      }
+    }
+
+    private int compare(Datum value) {
+      if (columnType == Type.TEXT) {
+        byte [] bytes = value.asByteArray();
+        return WritableComparator.compareBytes(bytes, 0, bytes.length,
+            constBytes, 0, constBytes.length);
+      } else {
+        return value.compareTo(constant);
+      }
+    }
+
+    private boolean test(Datum value) {
+      switch (op) {
+        case EQUAL:
+        case NOT_EQUAL:
+          return test(value.equalsTo(constant).asBool(), 0);
+        default:
+          return test(false, value.compareTo(constant));
+      }
+    }
+
+    private boolean test(boolean equal, int cmp) {
+      switch (op) {
+        case EQUAL:
+          return equal;
+        case NOT_EQUAL:
+          return !equal;
+        case LTH:
+          return cmp < 0;
+        case LEQ:
+          return cmp <= 0;
+        case GTH:
+          return cmp > 0;
+        case GEQ:
+          return cmp >= 0;
+        default:
+          return true;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return schema.getColumn(columnId).getQualifiedName() + " " + op + " " + constant;
+    }
+  }
+}
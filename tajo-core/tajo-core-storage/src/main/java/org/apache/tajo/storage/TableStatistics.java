@@ -20,6 +20,7 @@ package org.apache.tajo.storage;
 
 import org.apache.tajo.catalog.Schema;
 import org.apache.tajo.catalog.statistics.ColumnStat;
+import org.apache.tajo.catalog.statistics.HyperLogLog;
 import org.apache.tajo.catalog.statistics.TableStat;
 import org.apache.tajo.common.TajoDataTypes;
 import org.apache.tajo.common.TajoDataTypes.DataType;
@@ -37,11 +38,20 @@ public class TableStatistics {
   private long [] numNulls;
   private long numRows = 0;
   private long numBytes = 0;
-
+  // the sketches of distinct values, or null if they are not collected
+  private HyperLogLog [] distValSketches;
 
   private boolean [] comparable;
 
   public TableStatistics(Schema schema) {
+    this(schema, true);
+  }
+
+  /**
+   * @param distinctCount if true, it estimates the number of distinct values of
+   *                      each column. Each column takes a sketch of about 1KB.
+   */
+  public TableStatistics(Schema schema, boolean distinctCount) {
     this.schema = schema;
     minValues = new VTuple(schema.getColumnNum());
     maxValues = new VTuple(schema.getColumnNum());
@@ -62,6 +72,15 @@ public class TableStatistics {
         comparable[i] = true;
       }
     }
+
+    if (distinctCount) {
+      distValSketches = new HyperLogLog[schema.getColumnNum()];
+      for (int i = 0; i < schema.getColumnNum(); i++) {
+        if (comparable[i]) {
+          distValSketches[i] = new HyperLogLog();
+        }
+      }
+    }
   }
 
   public Schema getSchema() {
@@ -100,6 +119,9 @@ public class TableStatistics {
             minValues.get(idx).compareTo(datum) > 0) {
           minValues.put(idx, datum);
         }
+        if (distValSketches != null) {
+          distValSketches[idx].offer(datum);
+        }
       }
     }
   }
@@ -113,6 +135,11 @@ public class TableStatistics {
       columnStat.setNumNulls(numNulls[i]);
       columnStat.setMinValue(minValues.get(i));
       columnStat.setMaxValue(maxValues.get(i));
+      if (distValSketches != null && distValSketches[i] != null) {
+        columnStat.setDistValSketch(distValSketches[i].copy());
+        columnStat.setNumDistVals(Math.min(distValSketches[i].cardinality(),
+            numRows - numNulls[i]));
+      }
       stat.addColumnStat(columnStat);
     }
 
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.storage;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.tajo.catalog.proto.CatalogProtos.TableStatProto;
+import org.apache.tajo.catalog.statistics.TableStat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * It keeps the statistics, such as min/max values and the number of nulls of each
+ * column, of each block of a file. It is written into the footer of the file, and
+ * a scanner skips the blocks which never satisfy a given search condition.
+ *
+ * The footer consists of the block statistics, the start offset of the footer
+ * (8 bytes) and a magic number (4 bytes). A file without the footer is read as a
+ * file without any zone map.
+ */
+public class ZoneMap {
+  private static final int MAGIC = 0x5A4D4150; // "ZMAP"
+  private static final int TRAILER_SIZE = 8 + 4;
+
+  private final List<Long> offsets = new ArrayList<Long>();
+  private final List<TableStat> stats = new ArrayList<TableStat>();
+  private long dataLength;
+
+  /**
+   * It adds the statistics of a block which starts at a given offset. The blocks
+   * must be added in the order of their offsets.
+   */
+  public void addBlock(long offset, TableStat stat) {
+    offsets.add(offset);
+    stats.add(stat);
+  }
+
+  public int getBlockNum() {
+    return offsets.size();
+  }
+
+  public long getOffset(int block) {
+    return offsets.get(block);
+  }
+
+  public TableStat getStat(int block) {
+    return stats.get(block);
+  }
+
+  /**
+   * It returns the length of the data part of the file, which excludes the footer.
+   */
+  public long getDataLength() {
+    return dataLength;
+  }
+
+  /**
+   * @return the index of the block starting at a given offset, or -1 if no block
+   * starts at the offset.
+   */
+  public int findBlock(long offset) {
+    int low = 0;
+    int high = offsets.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midOffset = offsets.get(mid);
+      if (midOffset < offset) {
+        low = mid + 1;
+      } else if (midOffset > offset) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * It returns the offset where the rows satisfying a given search condition may
+   * exist, starting from a given block. If the block may have such rows, it
+   * returns the offset of the block itself.
+   *
+   * @return the offset of the first block which may satisfy the condition, or
+   * the end of the data if no remaining block satisfies the condition.
+   */
+  public long skipBlocks(int block, SearchCondition condition) {
+    for (int i = block; i < offsets.size(); i++) {
+      if (condition.mayMatch(stats.get(i))) {
+        return offsets.get(i);
+      }
+    }
+    return dataLength;
+  }
+
+  /**
+   * It writes the footer at the current position of a given stream. The position
+   * must be the end of the data.
+   */
+  public void write(FSDataOutputStream out) throws IOException {
+    dataLength = out.getPos();
+    out.writeInt(offsets.size());
+    for (int i = 0; i < offsets.size(); i++) {
+      byte [] bytes = stats.get(i).getProto().toByteArray();
+      out.writeLong(offsets.get(i));
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    out.writeLong(dataLength);
+    out.writeInt(MAGIC);
+  }
+
+  /**
+   * It reads the footer of a file.
+   *
+   * @return the zone map of the file, or null if the file does not have a footer.
+   */
+  public static ZoneMap read(FileSystem fs, Path path) throws IOException {
+    long fileLength = fs.getFileStatus(path).getLen();
+    FSDataInputStream in = fs.open(path);
+    try {
+      long dataLength = readDataLength(in, fileLength);
+      return dataLength < fileLength ? read(in, dataLength) : null;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * It reads only the trailer of a file, so that a scanner without any search
+   * condition can exclude the footer without parsing the block statistics. The
+   * position of the stream is not restored.
+   *
+   * @return the length of the data part, or the file length if the file does not
+   * have a footer.
+   */
+  public static long readDataLength(FSDataInputStream in, long fileLength)
+      throws IOException {
+    if (fileLength < TRAILER_SIZE) {
+      return fileLength;
+    }
+
+    in.seek(fileLength - TRAILER_SIZE);
+    long dataLength = in.readLong();
+    if (in.readInt() != MAGIC || dataLength < 0 ||
+        dataLength > fileLength - TRAILER_SIZE) {
+      return fileLength;
+    }
+    return dataLength;
+  }
+
+  /**
+   * It reads the block statistics of a footer starting at a given data length,
+   * which is returned by {@link #readDataLength}. The position of the stream is
+   * not restored.
+   */
+  public static ZoneMap read(FSDataInputStream in, long dataLength) throws IOException {
+    ZoneMap zoneMap = new ZoneMap();
+    zoneMap.dataLength = dataLength;
+    in.seek(dataLength);
+    int blockNum = in.readInt();
+    for (int i = 0; i < blockNum; i++) {
+      long offset = in.readLong();
+      byte [] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      zoneMap.addBlock(offset, new TableStat(TableStatProto.parseFrom(bytes)));
+    }
+    return zoneMap;
+  }
+}
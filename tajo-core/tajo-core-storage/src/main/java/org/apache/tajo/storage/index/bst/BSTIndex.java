@@ -612,7 +612,10 @@ public class BSTIndex implements IndexMethod {
     @Override
     public void close() throws IOException {
       this.indexIn.close();
-      this.subIn.close();
+      // only a two-level index has the sub index
+      if (this.subIn != null) {
+        this.subIn.close();
+      }
     }
 
     @Override
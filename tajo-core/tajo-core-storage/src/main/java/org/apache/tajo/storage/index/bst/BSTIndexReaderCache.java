@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.storage.index.bst;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.tajo.storage.index.bst.BSTIndex.BSTIndexReader;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BSTIndexReaderCache keeps the opened readers of BST indexes, so an index is
+ * parsed once for all of the requests on it. It keeps up to a given number of
+ * readers, and it closes the least recently used one when it is full.
+ *
+ * A reader is acquired and released by each user. An evicted reader is
+ * closed when its last user releases it. An index file is assumed not to change
+ * once it is written; an index written again must be invalidated.
+ */
+public class BSTIndexReaderCache {
+  private static final Log LOG = LogFactory.getLog(BSTIndexReaderCache.class);
+
+  private final BSTIndex index;
+  private final int capacity;
+
+  // the cached readers in the access order
+  private final LinkedHashMap<Path, Entry> cache =
+      new LinkedHashMap<Path, Entry>(16, 0.75f, true);
+  // the readers in use, including the evicted ones
+  private final Map<BSTIndexReader, Entry> inUse =
+      new IdentityHashMap<BSTIndexReader, Entry>();
+
+  private long hitNum = 0;
+  private long missNum = 0;
+  private long evictionNum = 0;
+
+  public BSTIndexReaderCache(Configuration conf, int capacity) {
+    Preconditions.checkArgument(capacity > 0, "The capacity must be positive");
+    this.index = new BSTIndex(conf);
+    this.capacity = capacity;
+  }
+
+  /**
+   * It returns the opened reader of the index file. It must be released by
+   * {@link #release(BSTIndexReader)} after use.
+   */
+  public BSTIndexReader acquire(Path indexPath) throws IOException {
+    Entry entry;
+    synchronized (this) {
+      entry = cache.get(indexPath);
+      if (entry != null) {
+        hitNum++;
+        return use(entry).reader;
+      }
+      missNum++;
+    }
+
+    // an index is opened without the lock
+    BSTIndexReader reader = index.getIndexReader(indexPath);
+    reader.open();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("BSTIndex is loaded from disk: " + reader);
+    }
+
+    synchronized (this) {
+      entry = cache.get(indexPath);
+      if (entry != null) {
+        // another user has opened it meanwhile
+        reader.close();
+        return use(entry).reader;
+      }
+      entry = new Entry(reader);
+      cache.put(indexPath, entry);
+      evictIfFull();
+      return use(entry).reader;
+    }
+  }
+
+  public synchronized void release(BSTIndexReader reader) throws IOException {
+    Entry entry = inUse.get(reader);
+    Preconditions.checkArgument(entry != null, "The reader is not acquired: %s", reader);
+    entry.refCount--;
+    if (entry.refCount == 0) {
+      inUse.remove(reader);
+      if (entry.evicted) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * It removes the reader of a deleted index.
+   */
+  public synchronized void invalidate(Path indexPath) throws IOException {
+    Entry entry = cache.remove(indexPath);
+    if (entry != null) {
+      evict(entry);
+    }
+  }
+
+  /**
+   * It removes the readers of all indexes under a deleted directory.
+   *
+   * @return the number of the removed readers
+   */
+  public synchronized int invalidateAll(Path dir) throws IOException {
+    int removed = 0;
+    Iterator<Map.Entry<Path, Entry>> it = cache.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Path, Entry> cached = it.next();
+      if (isUnder(cached.getKey(), dir)) {
+        it.remove();
+        evict(cached.getValue());
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  private static boolean isUnder(Path path, Path dir) {
+    for (Path parent = path.getParent(); parent != null; parent = parent.getParent()) {
+      if (parent.equals(dir)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Entry use(Entry entry) {
+    if (entry.refCount == 0) {
+      inUse.put(entry.reader, entry);
+    }
+    entry.refCount++;
+    return entry;
+  }
+
+  private void evictIfFull() throws IOException {
+    Iterator<Entry> it = cache.values().iterator();
+    while (cache.size() > capacity && it.hasNext()) {
+      Entry eldest = it.next();
+      it.remove();
+      evict(eldest);
+      evictionNum++;
+    }
+  }
+
+  private void evict(Entry entry) throws IOException {
+    entry.evicted = true;
+    if (entry.refCount == 0) {
+      entry.reader.close();
+    }
+  }
+
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  public synchronized long getHitNum() {
+    return hitNum;
+  }
+
+  public synchronized long getMissNum() {
+    return missNum;
+  }
+
+  public synchronized long getEvictionNum() {
+    return evictionNum;
+  }
+
+  /**
+   * It returns the ratio of the lookups served by the cached readers.
+   */
+  public synchronized float getHitRate() {
+    long total = hitNum + missNum;
+    return total == 0 ? 0.0f : (float) hitNum / total;
+  }
+
+  /**
+   * It closes all cached readers. The readers in use are closed when they are
+   * released.
+   */
+  public synchronized void close() throws IOException {
+    for (Entry entry : cache.values()) {
+      evict(entry);
+    }
+    cache.clear();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "BSTIndexReaderCache (size: " + cache.size() + ", hits: " + hitNum
+        + ", misses: " + missNum + ", evictions: " + evictionNum + ")";
+  }
+
+  private static class Entry {
+    private final BSTIndexReader reader;
+    private int refCount = 0;
+    private boolean evicted = false;
+
+    public Entry(BSTIndexReader reader) {
+      this.reader = reader;
+    }
+  }
+}
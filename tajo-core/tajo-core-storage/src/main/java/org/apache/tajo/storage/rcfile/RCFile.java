@@ -29,6 +29,7 @@ import org.apache.hadoop.io.compress.*;
 import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.storage.ZoneMap;
 
 import java.io.*;
 import java.rmi.server.UID;
@@ -571,6 +572,10 @@ public class RCFile {
     // starts and ends by scanning for this value.
     long lastSyncPos; // position of last sync
     byte[] sync; // 16 random bytes
+
+    // the number of written row groups and the position of the last one
+    private int rowGroupNum = 0;
+    private long lastRowGroupPos = -1;
     {
       try {
         MessageDigest digester = MessageDigest.getInstance("MD5");
@@ -673,6 +678,27 @@ public class RCFile {
       return out.getPos();
     }
 
+    public int getRowGroupNum() {
+      return rowGroupNum;
+    }
+
+    /**
+     * It returns the start position of the last written row group, which is
+     * the position of its record length.
+     */
+    public long getLastRowGroupPos() {
+      return lastRowGroupPos;
+    }
+
+    /**
+     * It writes the buffered records out as a row group.
+     */
+    public synchronized void flushRowGroup() throws IOException {
+      if (bufferedRecords > 0) {
+        flushRecords();
+      }
+    }
+
     /** Constructs a RCFile Appender. */
     public Writer(FileSystem fs, Configuration conf, Path name) throws IOException {
       this(fs, conf, name, null, new Metadata(), null);
@@ -971,6 +997,8 @@ public class RCFile {
     private void writeKey(KeyBuffer keyBuffer, int recordLen,
                           int keyLength) throws IOException {
       checkAndWriteSync(); // sync
+      lastRowGroupPos = out.getPos();
+      rowGroupNum++;
       out.writeInt(recordLen); // total record length
       out.writeInt(keyLength); // key portion length
 
@@ -1003,12 +1031,22 @@ public class RCFile {
     }
 
     public synchronized void close() throws IOException {
+      close(null);
+    }
+
+    /**
+     * It closes the file after writing a given zone map into its footer.
+     */
+    public synchronized void close(ZoneMap zoneMap) throws IOException {
       if (bufferedRecords > 0) {
         flushRecords();
       }
       clearColumnBuffers();
 
       if (out != null) {
+        if (zoneMap != null) {
+          zoneMap.write(out);
+        }
 
         // Close the underlying stream if we own it...
         out.flush();
@@ -1407,6 +1445,8 @@ public class RCFile {
 
     KeyBuffer currentKey = null;
     boolean keyInit = false;
+    // the start position of the current row group
+    private long rowGroupPos = -1;
 
     protected int nextKeyBuffer() throws IOException {
       seekToNextKeyBuffer();
@@ -1415,6 +1455,7 @@ public class RCFile {
         keyInit = false;
         return -1;
       }
+      rowGroupPos = in.getPos() - 4; // minus the record length
       currentKeyLength = in.readInt();
       compressedKeyLen = in.readInt();
       if (decompress) {
@@ -1613,6 +1654,28 @@ public class RCFile {
       return ret;
     }
 
+    /**
+     * It returns the start position of the current row group, which is the
+     * position written by {@link Writer#getLastRowGroupPos()}.
+     */
+    public synchronized long getRowGroupPos() {
+      return rowGroupPos;
+    }
+
+    /**
+     * It skips the remaining rows of the current row group. If the values of the
+     * row group are not read yet, they are skipped without being read, and the
+     * next call of {@link #next(LongWritable)} moves to the next row group.
+     */
+    public synchronized void skipRowGroup() throws IOException {
+      if (keyInit && !currentValue.inited) {
+        in.seek(in.getPos() + currentRecordLength - currentKeyLength);
+        keyInit = false;
+      }
+      passedRowsNum += (recordsNumInValBuffer - readRowsIndexInBuffer);
+      readRowsIndexInBuffer = recordsNumInValBuffer;
+    }
+
     public boolean hasRecordsInBuffer() {
       return readRowsIndexInBuffer < recordsNumInValBuffer;
     }
@@ -19,6 +19,7 @@
 package org.apache.tajo.storage.rcfile;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
@@ -26,6 +27,7 @@ import org.apache.hadoop.io.compress.DefaultCodec;
 import org.apache.tajo.catalog.Column;
 import org.apache.tajo.catalog.TableMeta;
 import org.apache.tajo.catalog.statistics.TableStat;
+import org.apache.tajo.conf.TajoConf.ConfVars;
 import org.apache.tajo.datum.ArrayDatum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.storage.*;
@@ -35,6 +37,7 @@ import org.apache.tajo.util.TUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 public class RCFileWrapper {
 
@@ -44,6 +47,11 @@ public class RCFileWrapper {
 
     private TableStatistics stats = null;
 
+    // the statistics of each row group
+    private ZoneMap zoneMap = null;
+    private TableStatistics rowGroupStats;
+    private int rowGroupNum = 0;
+
     public RCFileAppender(Configuration conf, TableMeta meta, Path path) throws IOException {
       super(conf, meta, path);
     }
@@ -68,9 +76,27 @@ public class RCFileWrapper {
         this.stats = new TableStatistics(this.schema);
       }
 
+      if (conf.getBoolean(ConfVars.STORAGE_ZONEMAP_ENABLED.varname,
+          ConfVars.STORAGE_ZONEMAP_ENABLED.defaultBoolVal)) {
+        zoneMap = new ZoneMap();
+        rowGroupStats = new TableStatistics(schema, false);
+      }
+
       super.init();
     }
 
+    /**
+     * It adds the statistics of a row group into the zone map when the writer
+     * has written the row group out.
+     */
+    private void checkRowGroup() {
+      if (writer.getRowGroupNum() != rowGroupNum) {
+        rowGroupNum = writer.getRowGroupNum();
+        zoneMap.addBlock(writer.getLastRowGroupPos(), rowGroupStats.getTableStat());
+        rowGroupStats = new TableStatistics(schema, false);
+      }
+    }
+
     @Override
     public long getOffset() throws IOException {
       return 0;
@@ -88,6 +114,9 @@ public class RCFileWrapper {
         if (enabledStats) {
           stats.analyzeField(i, t.get(i));
         }
+        if (zoneMap != null) {
+          rowGroupStats.analyzeField(i, t.get(i));
+        }
 
         if (t.isNull(i)) {
           cu = new BytesRefWritable(new byte[0]);
@@ -135,6 +164,10 @@ public class RCFileWrapper {
       if (enabledStats) {
         stats.incrementRow();
       }
+      if (zoneMap != null) {
+        rowGroupStats.incrementRow();
+        checkRowGroup();
+      }
     }
 
     @Override
@@ -143,7 +176,11 @@ public class RCFileWrapper {
 
     @Override
     public void close() throws IOException {
-      writer.close();
+      if (zoneMap != null) {
+        writer.flushRowGroup();
+        checkRowGroup();
+      }
+      writer.close(zoneMap);
     }
 
     @Override
@@ -161,6 +198,10 @@ public class RCFileWrapper {
     private RCFile.Reader reader;
     private LongWritable rowId;
     private Integer [] projectionMap;
+    // the terms of the search condition on the projected columns
+    private SearchCondition.Term [] searchTerms;
+    private ZoneMap zoneMap;
+    private long checkedRowGroupPos = -1;
 
     BytesRefArrayWritable column;
     private boolean more;
@@ -185,8 +226,32 @@ public class RCFileWrapper {
       }
 
       prepareProjection(targets);
-
-      reader = new RCFile.Reader(fs, fragment.getPath(), conf);
+      prepareSearchTerms();
+
+      // the footer is excluded from the rows to be read, and the block statistics
+      // are parsed only if they can skip any row group.
+      int bufferSize = conf.getInt("io.file.buffer.size", 4096);
+      long fileLength = fs.getFileStatus(fragment.getPath()).getLen();
+      final FSDataInputStream in = fs.open(fragment.getPath(), bufferSize);
+      long length;
+      try {
+        length = ZoneMap.readDataLength(in, fileLength);
+        if (length < fileLength && searchCondition != null && !searchCondition.isEmpty()) {
+          zoneMap = ZoneMap.read(in, length);
+        }
+        in.seek(0);
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+      // the reader takes over the stream which the footer is read from
+      reader = new RCFile.Reader(fs, fragment.getPath(), bufferSize, conf, 0, length) {
+        @Override
+        protected FSDataInputStream openFile(FileSystem fs, Path file, int bufferSize,
+                                             long length) throws IOException {
+          return in;
+        }
+      };
       if (fragment.getStartOffset() > reader.getPosition()) {
         reader.sync(fragment.getStartOffset()); // sync to start
       }
@@ -205,6 +270,59 @@ public class RCFileWrapper {
       ColumnProjectionUtils.setReadColumnIDs(conf, projectionIdList);
     }
 
+    private void prepareSearchTerms() {
+      List<SearchCondition.Term> terms = new ArrayList<SearchCondition.Term>();
+      if (searchCondition != null) {
+        List<Integer> projected = TUtil.newList(projectionMap);
+        for (SearchCondition.Term term : searchCondition.getTerms()) {
+          // a column which is not read cannot be evaluated.
+          if (projected.contains(term.getColumnId())) {
+            terms.add(term);
+          }
+        }
+      }
+      searchTerms = terms.toArray(new SearchCondition.Term[terms.size()]);
+    }
+
+    /**
+     * It evaluates the search terms on the raw bytes of the current row. Since
+     * the columns are decompressed lazily, the other columns of a row group are
+     * never decompressed if no row of the group satisfies the search terms.
+     */
+    private boolean acceptCurrentRow() throws IOException {
+      BytesRefWritable ref;
+      for (SearchCondition.Term term : searchTerms) {
+        ref = column.get(term.getColumnId());
+        // if the column is byte[0], it presents a NULL value.
+        if (ref.getLength() > 0 &&
+            !term.accept(ref.getData(), ref.getStart(), ref.getLength())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * When the reader enters a new row group, it checks the zone map of the row
+     * group. If no row of the row group satisfies the search condition, it skips
+     * the row group without reading its values.
+     *
+     * @return true if the current row group is skipped.
+     */
+    private boolean skipRowGroup() throws IOException {
+      if (zoneMap == null || reader.getRowGroupPos() == checkedRowGroupPos) {
+        return false;
+      }
+
+      checkedRowGroupPos = reader.getRowGroupPos();
+      int block = zoneMap.findBlock(checkedRowGroupPos);
+      if (block >= 0 && !searchCondition.mayMatch(zoneMap.getStat(block))) {
+        reader.skipRowGroup();
+        return true;
+      }
+      return false;
+    }
+
     protected boolean next(LongWritable key) throws IOException {
       if (!more) {
         return false;
@@ -225,13 +343,22 @@ public class RCFileWrapper {
 
     @Override
     public Tuple next() throws IOException {
-      if (!next(rowId)) {
-        return null;
+      while (true) {
+        if (!next(rowId)) {
+          return null;
+        }
+        if (skipRowGroup()) {
+          continue;
+        }
+
+        column.clear();
+        reader.getCurrentRow(column);
+        column.resetValid(schema.getColumnNum());
+        if (acceptCurrentRow()) {
+          break;
+        }
       }
 
-      column.clear();
-      reader.getCurrentRow(column);
-      column.resetValid(schema.getColumnNum());
       Tuple tuple = new VTuple(schema.getColumnNum());
       int tid; // target column id
       for (int i = 0; i < projectionMap.length; i++) {
@@ -314,9 +441,21 @@ public class RCFileWrapper {
       return tuple;
     }
 
+    /**
+     * The progress is advanced at each row group.
+     */
+    @Override
+    public float getProgress() {
+      if (reader == null) {
+        return 0.0f;
+      }
+      return getProgress(fragment.getStartOffset(), end, reader.lastSeenSyncPos());
+    }
+
     @Override
     public void reset() throws IOException {
       reader.seek(0);
+      checkedRowGroupPos = -1;
     }
 
     @Override
@@ -331,7 +470,7 @@ public class RCFileWrapper {
 
     @Override
     public boolean isSelectable() {
-      return false;
+      return true;
     }
   }
 }
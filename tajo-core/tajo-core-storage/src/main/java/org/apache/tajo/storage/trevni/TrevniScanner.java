@@ -28,17 +28,28 @@ import org.apache.tajo.datum.BlobDatum;
 import org.apache.tajo.datum.DatumFactory;
 import org.apache.tajo.storage.FileScanner;
 import org.apache.tajo.storage.Fragment;
+import org.apache.tajo.storage.SearchCondition;
 import org.apache.tajo.storage.Tuple;
 import org.apache.tajo.storage.VTuple;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TrevniScanner extends FileScanner {
   private boolean inited = false;
   private ColumnFileReader reader;
   private int [] projectionMap;
   private ColumnValues [] columns;
+  private long rowCount;
+  // the row to be read by the next call of next()
+  private long row;
+
+  private SearchCondition.Term [] searchTerms;
+  // the indexes of the columns for the search terms
+  private int [] searchTermColumns;
+  private boolean [] isSearchColumn;
 
   public TrevniScanner(Configuration conf, TableMeta meta, Fragment fragment) throws IOException {
     super(conf, meta, fragment);
@@ -52,16 +63,24 @@ public class TrevniScanner extends FileScanner {
     }
 
     prepareProjection(targets);
+    prepareSearchTerms();
 
     columns = new ColumnValues[projectionMap.length];
 
     for (int i = 0; i < projectionMap.length; i++) {
       columns[i] = reader.getValues(projectionMap[i]);
     }
+    rowCount = reader.getRowCount();
+    row = 0;
 
     super.init();
   }
 
+  @Override
+  public float getProgress() {
+    return rowCount == 0 ? 0.0f : (float) row / rowCount;
+  }
+
   private void prepareProjection(Column [] targets) {
     projectionMap = new int[targets.length];
     int tid;
@@ -71,89 +90,144 @@ public class TrevniScanner extends FileScanner {
     }
   }
 
+  private void prepareSearchTerms() {
+    List<SearchCondition.Term> terms = new ArrayList<SearchCondition.Term>();
+    List<Integer> termColumns = new ArrayList<Integer>();
+    if (searchCondition != null) {
+      for (SearchCondition.Term term : searchCondition.getTerms()) {
+        for (int i = 0; i < projectionMap.length; i++) {
+          // a column which is not read cannot be evaluated.
+          if (projectionMap[i] == term.getColumnId()) {
+            terms.add(term);
+            termColumns.add(i);
+            break;
+          }
+        }
+      }
+    }
+
+    searchTerms = terms.toArray(new SearchCondition.Term[terms.size()]);
+    searchTermColumns = new int[termColumns.size()];
+    isSearchColumn = new boolean[projectionMap.length];
+    for (int i = 0; i < searchTermColumns.length; i++) {
+      searchTermColumns[i] = termColumns.get(i);
+      isSearchColumn[searchTermColumns[i]] = true;
+    }
+  }
+
+  /**
+   * It reads the columns of the search terms first, and it reads the other
+   * columns only if the row satisfies the search terms. Each column is moved to
+   * the current row only when it is read, so the values and the blocks of the
+   * other columns for the skipped rows are never decoded.
+   */
   @Override
   public Tuple next() throws IOException {
     Tuple tuple = new VTuple(schema.getColumnNum());
 
-    if (!columns[0].hasNext()) {
-      return null;
+    boolean accepted;
+    int col;
+    while (true) {
+      if (row >= rowCount) {
+        return null;
+      }
+
+      accepted = true;
+      for (int i = 0; i < searchTerms.length && accepted; i++) {
+        col = searchTermColumns[i];
+        // a column may be already read for another term on the same column.
+        if (columns[col].getRow() != row + 1) {
+          readColumn(col, tuple);
+        }
+        accepted = searchTerms[i].accept(tuple.get(projectionMap[col]));
+      }
+      if (accepted) {
+        break;
+      }
+      row++;
     }
 
-    int tid; // column id of the original input schema
     for (int i = 0; i < projectionMap.length; i++) {
-      tid = projectionMap[i];
-      columns[i].startRow();
-      switch (schema.getColumn(tid).getDataType().getType()) {
-        case BOOLEAN:
-          tuple.put(tid,
-              DatumFactory.createBool(((Integer)columns[i].nextValue()).byteValue()));
-          break;
-        case BIT:
-          tuple.put(tid,
-              DatumFactory.createBit(((Integer) columns[i].nextValue()).byteValue()));
-          break;
-        case CHAR:
-          tuple.put(tid,
-              DatumFactory.createChar(((Integer)columns[i].nextValue()).byteValue()));
-          break;
-
-        case INT2:
-          tuple.put(tid,
-              DatumFactory.createInt2(((Integer) columns[i].nextValue()).shortValue()));
-          break;
-        case INT4:
-          tuple.put(tid,
-              DatumFactory.createInt4((Integer) columns[i].nextValue()));
-          break;
-
-        case INT8:
-          tuple.put(tid,
-              DatumFactory.createInt8((Long) columns[i].nextValue()));
-          break;
-
-        case FLOAT4:
-          tuple.put(tid,
-              DatumFactory.createFloat4((Float) columns[i].nextValue()));
-          break;
-
-        case FLOAT8:
-          tuple.put(tid,
-              DatumFactory.createFloat8((Double) columns[i].nextValue()));
-          break;
-
-        case INET4:
-          tuple.put(tid,
-              DatumFactory.createInet4(((ByteBuffer) columns[i].nextValue()).array()));
-          break;
-
-//        case TEXT:
-//          tuple.put(tid,
-//              DatumFactory.createText((String) columns[i].nextValue()));
-//          break;
-
-        case TEXT:
-          tuple.put(tid,
-              DatumFactory.createText((String) columns[i].nextValue()));
-          break;
-
-        case BLOB:
-          tuple.put(tid,
-              new BlobDatum(((ByteBuffer) columns[i].nextValue())));
-          break;
-
-        default:
-          throw new IOException("Unsupport data type");
+      if (!isSearchColumn[i]) {
+        readColumn(i, tuple);
       }
     }
+    row++;
 
     return tuple;
   }
 
+  private void readColumn(int i, Tuple tuple) throws IOException {
+    if (columns[i].getRow() != row) {
+      columns[i].seek(row);
+    }
+
+    int tid = projectionMap[i]; // column id of the original input schema
+    columns[i].startRow();
+    switch (schema.getColumn(tid).getDataType().getType()) {
+      case BOOLEAN:
+        tuple.put(tid,
+            DatumFactory.createBool(((Integer)columns[i].nextValue()).byteValue()));
+        break;
+      case BIT:
+        tuple.put(tid,
+            DatumFactory.createBit(((Integer) columns[i].nextValue()).byteValue()));
+        break;
+      case CHAR:
+        tuple.put(tid,
+            DatumFactory.createChar(((Integer)columns[i].nextValue()).byteValue()));
+        break;
+
+      case INT2:
+        tuple.put(tid,
+            DatumFactory.createInt2(((Integer) columns[i].nextValue()).shortValue()));
+        break;
+      case INT4:
+        tuple.put(tid,
+            DatumFactory.createInt4((Integer) columns[i].nextValue()));
+        break;
+
+      case INT8:
+        tuple.put(tid,
+            DatumFactory.createInt8((Long) columns[i].nextValue()));
+        break;
+
+      case FLOAT4:
+        tuple.put(tid,
+            DatumFactory.createFloat4((Float) columns[i].nextValue()));
+        break;
+
+      case FLOAT8:
+        tuple.put(tid,
+            DatumFactory.createFloat8((Double) columns[i].nextValue()));
+        break;
+
+      case INET4:
+        tuple.put(tid,
+            DatumFactory.createInet4(((ByteBuffer) columns[i].nextValue()).array()));
+        break;
+
+      case TEXT:
+        tuple.put(tid,
+            DatumFactory.createText((String) columns[i].nextValue()));
+        break;
+
+      case BLOB:
+        tuple.put(tid,
+            new BlobDatum(((ByteBuffer) columns[i].nextValue())));
+        break;
+
+      default:
+        throw new IOException("Unsupport data type");
+    }
+  }
+
   @Override
   public void reset() throws IOException {
     for (int i = 0; i < projectionMap.length; i++) {
       columns[i] = reader.getValues(projectionMap[i]);
     }
+    row = 0;
   }
 
   @Override
@@ -169,6 +243,6 @@ public class TrevniScanner extends FileScanner {
 
   @Override
   public boolean isSelectable() {
-    return false;
+    return true;
   }
 }
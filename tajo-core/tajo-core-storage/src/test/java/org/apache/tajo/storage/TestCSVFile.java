@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.storage;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.apache.tajo.catalog.CatalogUtil;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.TableMeta;
+import org.apache.tajo.catalog.proto.CatalogProtos.StoreType;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.datum.NullDatum;
+import org.apache.tajo.util.CommonTestingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestCSVFile {
+  private TajoConf conf;
+  private Path testDir;
+  private FileSystem fs;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = new TajoConf();
+    testDir = CommonTestingUtil.getTestDir("target/test-data/TestCSVFile");
+    fs = testDir.getFileSystem(conf);
+  }
+
+  private Path writeFile(String name, String text) throws IOException {
+    Path path = new Path(testDir, name);
+    FSDataOutputStream out = fs.create(path);
+    out.write(text.getBytes());
+    out.close();
+    return path;
+  }
+
+  private List<Tuple> scan(TableMeta meta, Path path, long start, long length,
+                           Schema target) throws IOException {
+    Fragment fragment = new Fragment("table", path, meta, start, length, null);
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment, target);
+    scanner.init();
+    List<Tuple> tuples = new ArrayList<Tuple>();
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      tuples.add(tuple);
+    }
+    scanner.close();
+    return tuples;
+  }
+
+  @Test
+  public void testParseFields() throws IOException {
+    Schema schema = new Schema();
+    schema.addColumn("col1", Type.INT4);
+    schema.addColumn("col2", Type.INT8);
+    schema.addColumn("col3", Type.FLOAT4);
+    schema.addColumn("col4", Type.FLOAT8);
+    schema.addColumn("col5", Type.TEXT);
+    schema.addColumn("col6", Type.BOOLEAN);
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+    meta.putOption(CSVFile.DELIMITER, "::");
+
+    Path path = writeFile("testParseFields.csv",
+        "1::-9223372036854775807::0.1::-12.375::tajo::TRUE\n" +
+        " -7 :: 12 ::-0:: 1e3 :: 한글 ::false\n" +
+        "::::::::\n" +
+        "\n" +
+        "3::4");
+
+    List<Tuple> tuples = scan(meta, path, 0, fs.getFileStatus(path).getLen(), schema);
+    assertEquals(5, tuples.size());
+
+    Tuple t = tuples.get(0);
+    assertEquals(DatumFactory.createInt4(1), t.get(0));
+    assertEquals(DatumFactory.createInt8(-9223372036854775807l), t.get(1));
+    assertEquals(DatumFactory.createFloat4(0.1f), t.get(2));
+    assertEquals(DatumFactory.createFloat8(-12.375), t.get(3));
+    assertEquals(DatumFactory.createText("tajo"), t.get(4));
+    assertEquals(DatumFactory.createBool(true), t.get(5));
+    assertEquals(0, t.getOffset());
+
+    t = tuples.get(1);
+    assertEquals(DatumFactory.createInt4(-7), t.get(0));
+    assertEquals(DatumFactory.createInt8(12), t.get(1));
+    assertEquals(Float.floatToIntBits(-0.0f), Float.floatToIntBits(t.getFloat(2).asFloat4()));
+    assertEquals(DatumFactory.createFloat8(1000.0), t.get(3));
+    assertEquals(DatumFactory.createText("한글"), t.get(4));
+    assertEquals(DatumFactory.createBool(false), t.get(5));
+
+    // empty fields, an empty line and missing fields
+    for (int i = 2; i < 5; i++) {
+      for (int j = i == 4 ? 2 : 0; j < schema.getColumnNum(); j++) {
+        assertTrue(tuples.get(i).get(j) instanceof NullDatum);
+      }
+    }
+    assertEquals(DatumFactory.createInt4(3), tuples.get(4).get(0));
+    assertEquals(DatumFactory.createInt8(4), tuples.get(4).get(1));
+  }
+
+  @Test
+  public void testSplitAtEveryOffset() throws IOException {
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 30; i++) {
+      sb.append(i).append('|').append("name").append(i).append('\n');
+    }
+    Path path = writeFile("testSplitAtEveryOffset.csv", sb.toString());
+    long len = fs.getFileStatus(path).getLen();
+
+    for (long split = 0; split <= len; split++) {
+      List<Tuple> tuples = scan(meta, path, 0, split, schema);
+      tuples.addAll(scan(meta, path, split, len - split, schema));
+      assertEquals(30, tuples.size());
+      for (int i = 0; i < 30; i++) {
+        assertEquals(i, tuples.get(i).getInt(0).asInt4());
+      }
+    }
+  }
+
+  @Test
+  public void testLongLineAndProjection() throws IOException {
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("text", Type.TEXT);
+    schema.addColumn("score", Type.FLOAT8);
+    TableMeta meta = CatalogUtil.newTableMeta(schema, StoreType.CSV);
+
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200000; i++) {
+      text.append((char) ('a' + (i % 26)));
+    }
+    Path path = writeFile("testLongLine.csv",
+        "1|" + text + "|1.5\n2|short|2.5\n");
+
+    Schema target = new Schema(new Column[] {schema.getColumn(2)});
+    List<Tuple> tuples = scan(meta, path, 0, fs.getFileStatus(path).getLen(), target);
+    assertEquals(2, tuples.size());
+    assertNull(tuples.get(0).get(0));
+    assertNull(tuples.get(0).get(1));
+    assertEquals(DatumFactory.createFloat8(1.5), tuples.get(0).get(2));
+    assertEquals(DatumFactory.createFloat8(2.5), tuples.get(1).get(2));
+    assertEquals(text.length() + 7, tuples.get(1).getOffset());
+
+    tuples = scan(meta, path, 0, fs.getFileStatus(path).getLen(), schema);
+    assertEquals(text.toString(), tuples.get(0).getText(1).asChars());
+  }
+}
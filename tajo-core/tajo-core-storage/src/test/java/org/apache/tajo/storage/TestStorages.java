@@ -38,11 +38,12 @@ import org.apache.tajo.storage.rcfile.RCFile;
 import org.apache.tajo.util.CommonTestingUtil;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
 
 @RunWith(Parameterized.class)
 public class TestStorages {
@@ -105,6 +106,10 @@ public class TestStorages {
       appender.close();
       TableStat stat = appender.getStats();
       assertEquals(tupleNum, stat.getNumRows().longValue());
+      // the distinct values are estimated by the sketches.
+      long idDistVals = stat.getColumnStats().get(0).getNumDistValues();
+      assertTrue(Math.abs(tupleNum - idDistVals) < tupleNum * 0.05);
+      assertEquals(1, stat.getColumnStats().get(1).getNumDistValues().longValue());
 
       FileStatus status = fs.getFileStatus(tablePath);
       long fileLen = status.getLen();
@@ -170,7 +175,7 @@ public class TestStorages {
     int tupleCnt = 0;
     Tuple tuple;
     while ((tuple = scanner.next()) != null) {
-      if (storeType == StoreType.RCFILE || storeType == StoreType.TREVNI) {
+      if (storeType != StoreType.RAW) {
         assertNull(tuple.get(0));
       }
       assertEquals(DatumFactory.createInt8(tupleCnt + 2), tuple.getLong(1));
@@ -232,4 +237,144 @@ public class TestStorages {
       assertEquals(tuple.get(i), retrieved.get(i));
     }
   }
+
+  @Test
+  public void testSearchCondition() throws IOException {
+    Schema schema = new Schema();
+    schema.addColumn("name", Type.TEXT);
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("age", Type.INT8);
+    schema.addColumn("score", Type.FLOAT8);
+
+    TableMeta meta = CatalogUtil.newTableMeta(schema, storeType);
+    Path tablePath = new Path(testDir, "testSearchCondition.data");
+    Appender appender = StorageManager.getAppender(conf, meta, tablePath);
+    appender.init();
+    int tupleNum = 1000;
+    VTuple vTuple;
+    for (int i = 0; i < tupleNum; i++) {
+      vTuple = new VTuple(4);
+      vTuple.put(0, DatumFactory.createText("name" + i));
+      vTuple.put(1, DatumFactory.createInt4(i));
+      vTuple.put(2, DatumFactory.createInt8(i % 50));
+      vTuple.put(3, DatumFactory.createFloat8(i * 0.5));
+      appender.addTuple(vTuple);
+    }
+    appender.close();
+
+    // id >= 300 and id < 700 and name <> 'name500' and score > 100.5 and age >= 0
+    SearchCondition condition = new SearchCondition(schema);
+    assertTrue(condition.addTerm(1, SearchCondition.Op.GEQ, DatumFactory.createInt4(300)));
+    assertTrue(condition.addTerm(1, SearchCondition.Op.LTH, DatumFactory.createInt8(700)));
+    assertTrue(condition.addTerm(0, SearchCondition.Op.NOT_EQUAL,
+        DatumFactory.createText("name500")));
+    assertTrue(condition.addTerm(3, SearchCondition.Op.GTH, DatumFactory.createFloat4(100.5f)));
+    assertTrue(condition.addTerm(2, SearchCondition.Op.GEQ, DatumFactory.createInt2((short) 0)));
+    assertFalse(condition.addTerm(0, SearchCondition.Op.EQUAL, DatumFactory.createInt4(1)));
+
+    FileStatus status = fs.getFileStatus(tablePath);
+    Fragment fragment = new Fragment("table", tablePath, meta, 0, status.getLen(), null);
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment, schema);
+    boolean selectable = scanner.isSelectable();
+    if (selectable) {
+      scanner.setSearchCondition(condition);
+    }
+    scanner.init();
+
+    int tupleCnt = 0;
+    int acceptedCnt = 0;
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      int id = tuple.getInt(1).asInt4();
+      assertEquals(DatumFactory.createText("name" + id), tuple.get(0));
+      assertEquals(DatumFactory.createInt8(id % 50), tuple.get(2));
+      assertEquals(DatumFactory.createFloat8(id * 0.5), tuple.get(3));
+      if (condition.accept(tuple)) {
+        acceptedCnt++;
+      }
+      tupleCnt++;
+    }
+    scanner.close();
+
+    assertEquals(399, acceptedCnt);
+    if (selectable) {
+      assertEquals(acceptedCnt, tupleCnt);
+    } else {
+      assertEquals(tupleNum, tupleCnt);
+    }
+  }
+
+  @Test
+  public void testZoneMap() throws IOException {
+    if (storeType != StoreType.RCFILE) {
+      return;
+    }
+
+    Schema schema = new Schema();
+    schema.addColumn("id", Type.INT4);
+    schema.addColumn("name", Type.TEXT);
+
+    TableMeta meta = CatalogUtil.newTableMeta(schema, storeType);
+    Path tablePath = new Path(testDir, "testZoneMap.data");
+    Appender appender = StorageManager.getAppender(conf, meta, tablePath);
+    appender.init();
+    int tupleNum = 1000;
+    VTuple vTuple;
+    for (int i = 0; i < tupleNum; i++) {
+      vTuple = new VTuple(2);
+      vTuple.put(0, DatumFactory.createInt4(i));
+      vTuple.put(1, DatumFactory.createText("name" + i));
+      appender.addTuple(vTuple);
+    }
+    appender.close();
+
+    // each row group has 100 rows.
+    ZoneMap zoneMap = ZoneMap.read(fs, tablePath);
+    assertNotNull(zoneMap);
+    assertEquals(10, zoneMap.getBlockNum());
+    for (int i = 0; i < zoneMap.getBlockNum(); i++) {
+      TableStat stat = zoneMap.getStat(i);
+      assertEquals(100, stat.getNumRows().longValue());
+      assertEquals(DatumFactory.createInt4(i * 100), stat.getColumnStats().get(0).getMinValue());
+      assertEquals(DatumFactory.createInt4(i * 100 + 99),
+          stat.getColumnStats().get(0).getMaxValue());
+    }
+
+    SearchCondition condition = new SearchCondition(schema);
+    condition.addTerm(0, SearchCondition.Op.GEQ, DatumFactory.createInt4(850));
+    assertFalse(condition.mayMatch(zoneMap.getStat(7)));
+    assertTrue(condition.mayMatch(zoneMap.getStat(8)));
+    assertEquals(850, scanIds(meta, tablePath, schema, condition).get(0).intValue());
+    assertEquals(150, scanIds(meta, tablePath, schema, condition).size());
+
+    condition = new SearchCondition(schema);
+    condition.addTerm(1, SearchCondition.Op.EQUAL, DatumFactory.createText("name0"));
+    assertTrue(condition.mayMatch(zoneMap.getStat(0)));
+    assertFalse(condition.mayMatch(zoneMap.getStat(1)));
+    assertEquals(Arrays.asList(0), scanIds(meta, tablePath, schema, condition));
+
+    // the footer is not read as rows.
+    condition = new SearchCondition(schema);
+    condition.addTerm(0, SearchCondition.Op.LTH, DatumFactory.createInt4(0));
+    assertTrue(scanIds(meta, tablePath, schema, condition).isEmpty());
+    assertEquals(tupleNum, scanIds(meta, tablePath, schema, null).size());
+  }
+
+  private List<Integer> scanIds(TableMeta meta, Path path, Schema target,
+                                SearchCondition condition) throws IOException {
+    FileStatus status = fs.getFileStatus(path);
+    Fragment fragment = new Fragment("table", path, meta, 0, status.getLen(), null);
+    Scanner scanner = StorageManager.getScanner(conf, meta, fragment, target);
+    if (condition != null) {
+      scanner.setSearchCondition(condition);
+    }
+    scanner.init();
+    List<Integer> ids = new ArrayList<Integer>();
+    Tuple tuple;
+    while ((tuple = scanner.next()) != null) {
+      ids.add(tuple.getInt(0).asInt4());
+    }
+    scanner.close();
+    return ids;
+  }
 }
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.tajo.storage.index;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.tajo.catalog.Column;
+import org.apache.tajo.catalog.Schema;
+import org.apache.tajo.catalog.SortSpec;
+import org.apache.tajo.common.TajoDataTypes.Type;
+import org.apache.tajo.conf.TajoConf;
+import org.apache.tajo.datum.DatumFactory;
+import org.apache.tajo.storage.Tuple;
+import org.apache.tajo.storage.TupleComparator;
+import org.apache.tajo.storage.VTuple;
+import org.apache.tajo.storage.index.bst.BSTIndex;
+import org.apache.tajo.storage.index.bst.BSTIndex.BSTIndexReader;
+import org.apache.tajo.storage.index.bst.BSTIndex.BSTIndexWriter;
+import org.apache.tajo.storage.index.bst.BSTIndexReaderCache;
+import org.apache.tajo.util.CommonTestingUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TestBSTIndexReaderCache {
+  private static final String TEST_PATH = "target/test-data/TestBSTIndexReaderCache";
+  private TajoConf conf;
+  private Path testDir;
+  private Schema keySchema;
+  private TupleComparator comp;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new TajoConf();
+    testDir = CommonTestingUtil.getTestDir(TEST_PATH);
+    keySchema = new Schema();
+    keySchema.addColumn(new Column("key", Type.INT4));
+    comp = new TupleComparator(keySchema,
+        new SortSpec[] {new SortSpec(keySchema.getColumn("key"), true, false)});
+  }
+
+  private Path createIndex(String name) throws IOException {
+    Path indexPath = new Path(testDir, name);
+    BSTIndexWriter writer = new BSTIndex(conf).getIndexWriter(indexPath,
+        BSTIndex.TWO_LEVEL_INDEX, keySchema, comp);
+    writer.setLoadNum(10);
+    writer.open();
+    for (int i = 0; i < 100; i++) {
+      Tuple key = new VTuple(1);
+      key.put(0, DatumFactory.createInt4(i));
+      writer.write(key, i * 10);
+    }
+    writer.close();
+    return indexPath;
+  }
+
+  private static Tuple key(int value) {
+    Tuple key = new VTuple(1);
+    key.put(0, DatumFactory.createInt4(value));
+    return key;
+  }
+
+  @Test
+  public void testHitAndMiss() throws IOException {
+    Path indexPath = createIndex("hit.idx");
+    BSTIndexReaderCache cache = new BSTIndexReaderCache(conf, 4);
+
+    BSTIndexReader reader = cache.acquire(indexPath);
+    assertEquals(50 * 10, reader.find(key(50)));
+    cache.release(reader);
+
+    for (int i = 0; i < 9; i++) {
+      BSTIndexReader cached = cache.acquire(indexPath);
+      assertSame(reader, cached);
+      assertEquals(i * 10, cached.find(key(i)));
+      cache.release(cached);
+    }
+
+    assertEquals(1, cache.getMissNum());
+    assertEquals(9, cache.getHitNum());
+    assertEquals(0.9f, cache.getHitRate(), 0.0001f);
+    cache.close();
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    Path index1 = createIndex("evict1.idx");
+    Path index2 = createIndex("evict2.idx");
+    Path index3 = createIndex("evict3.idx");
+    BSTIndexReaderCache cache = new BSTIndexReaderCache(conf, 2);
+
+    cache.release(cache.acquire(index1));
+    cache.release(cache.acquire(index2));
+    // index1 becomes the most recently used one
+    cache.release(cache.acquire(index1));
+    cache.release(cache.acquire(index3));
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionNum());
+    assertEquals(1, cache.getHitNum());
+
+    // index2 is evicted, and index1 is still cached
+    cache.release(cache.acquire(index1));
+    assertEquals(2, cache.getHitNum());
+    cache.release(cache.acquire(index2));
+    assertEquals(4, cache.getMissNum());
+    cache.close();
+  }
+
+  @Test
+  public void testEvictedReaderInUse() throws IOException {
+    Path index1 = createIndex("inuse1.idx");
+    Path index2 = createIndex("inuse2.idx");
+    BSTIndexReaderCache cache = new BSTIndexReaderCache(conf, 1);
+
+    BSTIndexReader inUse = cache.acquire(index1);
+    cache.release(cache.acquire(index2));
+    assertEquals(1, cache.getEvictionNum());
+
+    // the evicted reader is still usable until it is released
+    assertEquals(70 * 10, inUse.find(key(70)));
+    cache.release(inUse);
+
+    cache.close();
+  }
+
+  @Test
+  public void testInvalidateAll() throws IOException {
+    Path query1 = new Path(testDir, "query1");
+    Path index1 = createIndex("query1/task1/index");
+    Path index2 = createIndex("query1/task2/index");
+    Path index3 = createIndex("query2/task1/index");
+    BSTIndexReaderCache cache = new BSTIndexReaderCache(conf, 4);
+
+    cache.release(cache.acquire(index1));
+    BSTIndexReader inUse = cache.acquire(index2);
+    cache.release(cache.acquire(index3));
+    assertEquals(3, cache.size());
+
+    assertEquals(2, cache.invalidateAll(query1));
+    assertEquals(1, cache.size());
+    // the removed reader is still usable until it is released
+    assertEquals(30 * 10, inUse.find(key(30)));
+    cache.release(inUse);
+
+    // the index of another query is still cached
+    cache.release(cache.acquire(index3));
+    assertEquals(1, cache.getHitNum());
+    cache.release(cache.acquire(index1));
+    assertEquals(4, cache.getMissNum());
+    cache.close();
+  }
+}